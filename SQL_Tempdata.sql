@@ -5,9 +5,45 @@ use TempData;
 
 CREATE TABLE temp_reading (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    sensor_id VARCHAR(64) NOT NULL DEFAULT 'default',
     temperature FLOAT NOT NULL,
-    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_temp_reading_sensor_ts (sensor_id, timestamp),
+    INDEX idx_temp_reading_ts (timestamp)
 );
+-- Time conditions are written as half-open ranges on the bare column (timestamp >= ? AND timestamp < ?),
+-- so both indexes can be used. For a monthly-partitioned table with retention see SQL_Tempdata_partitioned.sql.
+
+-- Upgrading a database created before readings had a sensor id: run these once, before the first start of this
+-- version (spring.jpa.hibernate.ddl-auto=update would add the column without the default and fail on existing rows).
+-- ALTER TABLE temp_reading ADD COLUMN sensor_id VARCHAR(64) NOT NULL DEFAULT 'default' AFTER id;
+-- ALTER TABLE temp_reading ADD INDEX idx_temp_reading_sensor_ts (sensor_id, timestamp);
+-- ALTER TABLE temp_reading ADD INDEX idx_temp_reading_ts (timestamp);
+-- Existing readings get the sensor id 'default', the id the single-port setup has always reported them under.
+
+CREATE TABLE temp_rollup (
+    sensor_id VARCHAR(64) NOT NULL,
+    resolution VARCHAR(8) NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    min_temperature DOUBLE NOT NULL,
+    max_temperature DOUBLE NOT NULL,
+    sum_temperature DOUBLE NOT NULL,
+    reading_count BIGINT NOT NULL,
+    PRIMARY KEY (sensor_id, resolution, bucket_start)
+);
+-- Minute/hour/day buckets, maintained by the application. Fill it for existing data with --backfill-rollups.
+
+CREATE TABLE ingest_checkpoint (
+    spool_id VARCHAR(64) NOT NULL PRIMARY KEY,
+    last_sequence BIGINT NOT NULL
+);
+-- Last reading of the local ingest spool written to temp_reading, updated in the same transaction as the readings.
+
+CREATE TABLE replica_heartbeat (
+    id INT NOT NULL PRIMARY KEY,
+    beat_millis BIGINT NOT NULL
+);
+-- Written to the primary every second when a read replica is configured; the replica's copy shows its lag.
 
 drop user if exists 'user'@'localhost';
 create user 'user'@'localhost' identified by 'password';
@@ -0,0 +1,29 @@
+-- Optional schema: temp_reading partitioned by month.
+-- Use it instead of the CREATE TABLE temp_reading in SQL_Tempdata.sql and set storage.partitioning.enabled=true,
+-- so TemperaturePartitionMaintenance creates the partitions of the coming months and drops expired ones.
+use TempData;
+
+CREATE TABLE temp_reading (
+    id BIGINT AUTO_INCREMENT,
+    sensor_id VARCHAR(64) NOT NULL DEFAULT 'default',
+    temperature FLOAT NOT NULL,
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, timestamp),
+    INDEX idx_temp_reading_sensor_ts (sensor_id, timestamp),
+    INDEX idx_temp_reading_ts (timestamp)
+)
+PARTITION BY RANGE (UNIX_TIMESTAMP(timestamp)) (
+    PARTITION p202410 VALUES LESS THAN (UNIX_TIMESTAMP('2024-11-01 00:00:00')),
+    PARTITION p202411 VALUES LESS THAN (UNIX_TIMESTAMP('2024-12-01 00:00:00')),
+    PARTITION p202412 VALUES LESS THAN (UNIX_TIMESTAMP('2025-01-01 00:00:00')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+-- MySQL requires the partitioning column in every unique key, so the primary key is (id, timestamp).
+-- One partition per month, named pYYYYMM (start with the current month). p_future catches everything after the last month and is split
+-- by the maintenance job before data reaches it.
+-- Range queries on timestamp only read the partitions of the range (partition pruning),
+-- and dropping a month is ALTER TABLE ... DROP PARTITION, which takes the same time for any number of rows.
+
+-- Partitions and their row counts
+SELECT PARTITION_NAME, TABLE_ROWS FROM information_schema.PARTITIONS
+WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'temp_reading';
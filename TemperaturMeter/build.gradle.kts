@@ -2,6 +2,8 @@ plugins {
     java
     id("org.springframework.boot") version "3.3.4"
     id("io.spring.dependency-management") version "1.1.6"
+    // JMH microbenchmarks in src/jmh/java, run with ./gradlew jmh
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.example"
@@ -36,6 +38,12 @@ dependencies {
     // It provides features like embedded Tomcat and Spring MVC.
     implementation("org.springframework.boot:spring-boot-starter-web")
 
+    // Spring Boot Actuator: health and metrics endpoints, with Micrometer timing every controller request.
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+
+    // Prometheus format for the Micrometer metrics at /actuator/prometheus.
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
+
     // jSerialComm library for serial communication with devices like Arduino.
     // This allows reading/writing data through serial ports.
     implementation ("com.fazecast:jSerialComm:2.6.2")
@@ -62,9 +70,41 @@ dependencies {
     // JUnit Platform Launcher is used to run tests in a JUnit 5 environment.
     // This is required only at runtime for executing the tests.
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    // H2 in-memory database in MySQL mode, so the JMH service benchmarks run the JPA backend without a MySQL server.
+    jmhRuntimeOnly("com.h2database:h2")
+
+    // The same H2 for the tests that need two databases, e.g. the primary and the replica of the read/write routing.
+    testRuntimeOnly("com.h2database:h2")
+}
+
+
+tasks.test {
+    // Benchmarks need a database and take minutes, so they are not part of the normal test run.
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
 }
 
+// Runs the tests tagged "benchmark", e.g. ./gradlew benchmark -Dbenchmark.jdbc.url=jdbc:mysql://...
+tasks.register<Test>("benchmark") {
+    description = "Runs the database benchmarks."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    // Passes the -Dbenchmark.* options of the Gradle command line on to the test JVM.
+    systemProperties(System.getProperties().filterKeys { it.toString().startsWith("benchmark.") }.mapKeys { it.key.toString() })
+    testLogging.showStandardStreams = true
+}
 
-tasks.withType<Test> {
-    useJUnitPlatform()
+// JMH benchmarks (src/jmh/java): ./gradlew jmh [-Pjmh.includes=SerialFrameParser]
+// Results are written as JSON to build/results/jmh/results.json; keep the file of a run to compare it with later runs.
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    providers.gradleProperty("jmh.includes").orNull?.let { includes = listOf(it) }
 }
@@ -0,0 +1,38 @@
+package com.example.temperaturmeter;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+
+final class BenchmarkApplication {
+    // Starts the application context for the service benchmarks: no web server, no serial port, and either
+    // an in-memory H2 database (MySQL mode) behind the JPA backend or the embedded log in a temporary directory.
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String backend, Path directory) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(TemperaturMeterApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:jmh-" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.jpa.show-sql=false",
+                        "serial.port=jmh-no-port",
+                        "storage.backend=" + backend,
+                        "storage.log.directory=" + directory.resolve("log"),
+                        "storage.log.force-on-append=false",
+                        "archive.directory=" + directory.resolve("archive"));
+        // Nothing is forced to disk (H2 runs in memory, the log skips force), so both backends are compared
+        // on the work done in the JVM rather than on the speed of the disk.
+        if ("log".equals(backend)) {
+            builder.profiles("log");
+            // Switches off the DataSource and JPA auto-configuration.
+        }
+        return builder.run();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.temperaturmeter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of List<TemperatureReading>: databinding of the whole list (as a @ResponseBody method does)
+// vs. the JsonGenerator loop of /api/temperature/readings/stream vs. the primitive ReadingColumns of /api/v1.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    // Registers the Java time module, as Spring Boot does.
+
+    private List<TemperatureReading> readings;
+    private ReadingColumns columns;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() {
+        readings = new ArrayList<>(size);
+        LocalDateTime start = LocalDateTime.of(2024, 10, 1, 0, 0);
+        for (int i = 0; i < size; i++) {
+            TemperatureReading reading = new TemperatureReading();
+            reading.setId((long) i + 1);
+            reading.setSensorId("kitchen");
+            reading.setTimestamp(start.plusSeconds(10L * i));
+            reading.setTemperature(20 + (i % 500) / 100.0);
+            readings.add(reading);
+        }
+        columns = new ReadingColumns("kitchen");
+        for (TemperatureReading reading : readings) {
+            columns.add(EpochTime.toEpochMillis(reading.getTimestamp()), reading.getTemperature());
+        }
+        out = new ByteArrayOutputStream(size * 100);
+    }
+
+    @Benchmark
+    public byte[] databind() throws IOException {
+        return objectMapper.writeValueAsBytes(readings);
+    }
+
+    @Benchmark
+    public int generator() throws IOException {
+        out.reset();
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartArray();
+            for (TemperatureReading reading : readings) {
+                json.writeStartObject();
+                json.writeNumberField("id", reading.getId());
+                json.writeStringField("sensorId", reading.getSensorId());
+                json.writeNumberField("temperature", reading.getTemperature());
+                json.writeStringField("timestamp", reading.getTimestamp().toString());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public byte[] columns() throws IOException {
+        return objectMapper.writeValueAsBytes(columns);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.temperaturmeter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// TemperatureService.recordTemperature, the one ingest path for new readings: rolling windows, live feed, spool,
+// compression and the write-behind queue. saveTemperature delegates to it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveTemperatureBenchmark {
+
+    @Param({"jpa", "log"})
+    // jpa = JPA backend on an in-memory H2 database, log = embedded append-only log.
+    String backend;
+
+    private ConfigurableApplicationContext context;
+    private TemperatureService temperatureService;
+    private double temperature;
+
+    @Setup
+    public void setUp() throws Exception {
+        Path directory = Files.createTempDirectory("jmh-save");
+        context = BenchmarkApplication.start(backend, directory);
+        temperatureService = context.getBean(TemperatureService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void recordTemperature() throws InterruptedException {
+        temperature = temperature > 30 ? 15 : temperature + 0.01;
+        temperatureService.recordTemperature("kitchen", temperature);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.temperaturmeter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Parsing of the Arduino wire format, as done by SerialPortReader for every chunk read from the port.
+// The score is the time per frame.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerialFrameParserBenchmark {
+
+    private static final int FRAMES = 1000;
+
+    @Param({"64", "4096"})
+    // Bytes per feed() call: a small USB read vs. a full read buffer.
+    int chunkSize;
+
+    private byte[] data;
+    private Blackhole blackhole;
+    private SerialFrameParser parser;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        StringBuilder wire = new StringBuilder();
+        for (int i = 0; i < FRAMES; i++) {
+            wire.append(String.format(Locale.ROOT, "%.2f Celsius, ", 15 + (i % 1000) / 100.0));
+        }
+        data = wire.toString().getBytes(StandardCharsets.US_ASCII);
+        this.blackhole = blackhole;
+        parser = new SerialFrameParser(temperature -> this.blackhole.consume(temperature));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void feed() {
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            parser.feed(data, offset, Math.min(chunkSize, data.length - offset));
+        }
+    }
+}
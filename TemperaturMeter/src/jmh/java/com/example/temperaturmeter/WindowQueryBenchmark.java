@@ -0,0 +1,88 @@
+package com.example.temperaturmeter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The min/max window queries of TemperatureService over one day of readings at the 10 s cadence.
+// Windows listed in stats.rolling-windows (5m, 1h) are answered in memory, any other window (2h, 12h) by the store.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WindowQueryBenchmark {
+
+    private static final String SENSOR = "kitchen";
+
+    @Param({"jpa", "log"})
+    String backend;
+
+    @Param({"5m", "1h", "2h", "12h"})
+    String window;
+
+    private ConfigurableApplicationContext context;
+    private TemperatureService temperatureService;
+    private Duration duration;
+
+    @Setup
+    public void setUp() throws Exception {
+        Path directory = Files.createTempDirectory("jmh-window");
+        context = BenchmarkApplication.start(backend, directory);
+        temperatureService = context.getBean(TemperatureService.class);
+        TemperatureStore store = context.getBean(TemperatureStore.class);
+        RollingWindowAggregator aggregator = context.getBean(RollingWindowAggregator.class);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<TemperatureReading> batch = new ArrayList<>();
+        for (int i = 8640; i > 0; i--) {
+            TemperatureReading reading = new TemperatureReading();
+            reading.setSensorId(SENSOR);
+            reading.setTimestamp(now.minusSeconds(10L * i));
+            reading.setTemperature(20 + Math.sin(i / 100.0) * 5);
+            batch.add(reading);
+            aggregator.add(SENSOR, EpochTime.toEpochMillis(reading.getTimestamp()), reading.getTemperature());
+            if (batch.size() == 500) {
+                store.append(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        store.append(batch);
+        duration = DurationStyle.detectAndParse(window);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Double maxTemperature() {
+        return temperatureService.getMaxTemperature(SENSOR, duration);
+    }
+
+    @Benchmark
+    public Double minTemperature() {
+        return temperatureService.getMinTemperature(SENSOR, duration);
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.temperaturmeter;
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to start watching the configured sensors for staleness.
+import jakarta.annotation.PreDestroy;// Imports @PreDestroy, used to deliver the pending events when the application shuts down.
+import org.slf4j.LoggerFactory;// Imports the SLF4J LoggerFactory for the rate-limited log of failing sinks.
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.scheduling.annotation.Scheduled;// Imports @Scheduled, used to check for sensors that stopped sending.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+// Evaluates the alerts.rules on every reading of the ingest path, in memory and on the ingesting thread, and hands
+// the resulting events to the AlertSinks. A rule only produces an event when its state changes (firing/resolved),
+// so a freezer that stays warm raises one alert, not one per reading.
+public class AlertEngine {
+
+    public enum State {
+        FIRING,
+        RESOLVED
+    }
+
+    public record AlertEvent(long sequence, String rule, String sensorId, State state, Double temperature,
+                             long epochMillis, String message) {
+        // One state change of a rule for a sensor. temperature is null for a sensor that went stale.
+    }
+
+    private final List<AlertRule> rules;
+    private final List<AlertSink> sinks;
+    private final ExecutorService delivery;
+
+    @Autowired(required = false)
+    // Lists the sensors that are watched for staleness from startup on, before they sent a first reading.
+    private SensorRegistry sensorRegistry;
+
+    private final Map<String, SensorAlerts> sensors = new ConcurrentHashMap<>();
+    private final Map<String, AlertEvent> active = new ConcurrentHashMap<>();
+    // The last FIRING event of every rule and sensor that has not resolved yet, by rule id and sensor.
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final RateLimitedLog sinkLog = new RateLimitedLog(LoggerFactory.getLogger(AlertEngine.class), 1, TimeUnit.MINUTES);
+
+    public AlertEngine(@Value("${alerts.rules:}") String ruleSpecs, List<AlertSink> sinks) {
+        List<AlertRule> parsed = new ArrayList<>();
+        for (String spec : ruleSpecs.split(",")) {
+            if (!spec.trim().isEmpty()) {
+                parsed.add(AlertRule.parse(spec));
+            }
+        }
+        this.rules = List.copyOf(parsed);
+        this.sinks = List.copyOf(sinks);
+        this.delivery = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "alert-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // One thread, so every sink sees the events in the order they happened.
+    }
+
+    private static final class SensorAlerts {
+        // The rules of one sensor and their state; every access holds the lock of this object.
+        final AlertRule[] rules;
+        final boolean[] firing;
+        final RollingWindow[] windows;
+        // The sliding min/max of the readings within the window of every rate rule (null for other rules).
+        long lastMillis;
+
+        SensorAlerts(List<AlertRule> rules, long nowMillis) {
+            this.rules = rules.toArray(new AlertRule[0]);
+            this.firing = new boolean[this.rules.length];
+            this.windows = new RollingWindow[this.rules.length];
+            for (int i = 0; i < this.rules.length; i++) {
+                if (this.rules[i].getType() == AlertRule.Type.RATE) {
+                    windows[i] = new RollingWindow(this.rules[i].getWindowMillis());
+                }
+            }
+            this.lastMillis = nowMillis;
+            // A sensor counts as heard from when it is first watched, so it goes stale if it never sends.
+        }
+    }
+
+    @PostConstruct
+    public void watchConfiguredSensors() {
+        if (sensorRegistry != null) {
+            long now = System.currentTimeMillis();
+            for (String sensorId : sensorRegistry.getSensorIds()) {
+                sensors(sensorId, now);
+            }
+        }
+        System.out.println("Alert rules: " + (rules.isEmpty() ? "none" : rules) + ", sinks: " + sinks.size() + ".");
+    }
+
+    public void evaluate(String sensorId, long epochMillis, double temperature) {
+        // Called by the ingest path for every reading, right after it was parsed.
+        SensorAlerts alerts = sensors(sensorId, epochMillis);
+        if (alerts.rules.length == 0) {
+            return;
+            // No rule for this sensor: one map lookup per reading.
+        }
+        List<AlertEvent> events = null;
+        synchronized (alerts) {
+            alerts.lastMillis = Math.max(alerts.lastMillis, epochMillis);
+            for (int i = 0; i < alerts.rules.length; i++) {
+                AlertRule rule = alerts.rules[i];
+                String message = null;
+                boolean fire = false;
+                switch (rule.getType()) {
+                    case ABOVE:
+                        fire = temperature >= rule.getLimit();
+                        if (!alerts.firing[i] && fire) {
+                            message = temperature + " °C is at or above " + rule.getLimit() + " °C";
+                        } else if (alerts.firing[i] && temperature < rule.getLimit() && temperature <= rule.getClear()) {
+                            message = temperature + " °C is back at or below " + rule.getClear() + " °C";
+                        }
+                        break;
+                    case BELOW:
+                        fire = temperature <= rule.getLimit();
+                        if (!alerts.firing[i] && fire) {
+                            message = temperature + " °C is at or below " + rule.getLimit() + " °C";
+                        } else if (alerts.firing[i] && temperature > rule.getLimit() && temperature >= rule.getClear()) {
+                            message = temperature + " °C is back at or above " + rule.getClear() + " °C";
+                        }
+                        break;
+                    case RATE: {
+                        alerts.windows[i].add(epochMillis, temperature);
+                        WindowStatistics window = alerts.windows[i].getStatistics(epochMillis);
+                        boolean rising = rule.getLimit() > 0;
+                        double change = temperature - (rising ? window.getMinTemperature() : window.getMaxTemperature());
+                        // The largest rise (or drop) from any reading within the window to this one.
+                        fire = rising ? change >= rule.getLimit() : change <= rule.getLimit();
+                        String span = " within " + rule.getWindowMillis() / 1000 + " s";
+                        if (!alerts.firing[i] && fire) {
+                            message = (rising ? "rose by " : "fell by ") + round(Math.abs(change)) + " °C" + span;
+                        } else if (alerts.firing[i] && (rising ? change < rule.getClear() : change > rule.getClear())) {
+                            message = "changes by less than " + Math.abs(rule.getClear()) + " °C" + span + " again";
+                        }
+                        break;
+                    }
+                    case STALE:
+                        if (alerts.firing[i]) {
+                            message = "sends readings again";
+                        }
+                        break;
+                }
+                if (message != null) {
+                    alerts.firing[i] = !alerts.firing[i];
+                    AlertEvent event = event(rule, sensorId, alerts.firing[i], temperature, epochMillis, message);
+                    if (events == null) {
+                        events = new ArrayList<>(2);
+                    }
+                    events.add(event);
+                }
+            }
+        }
+        if (events != null) {
+            deliver(events);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${alerts.stale-check-ms:1000}")
+    // Sensors that stopped sending cannot be noticed on the ingest path, so a timer looks for them.
+    public void checkStale() {
+        checkStale(System.currentTimeMillis());
+    }
+
+    void checkStale(long nowMillis) {
+        List<AlertEvent> events = new ArrayList<>();
+        for (Map.Entry<String, SensorAlerts> entry : sensors.entrySet()) {
+            SensorAlerts alerts = entry.getValue();
+            synchronized (alerts) {
+                for (int i = 0; i < alerts.rules.length; i++) {
+                    AlertRule rule = alerts.rules[i];
+                    if (rule.getType() == AlertRule.Type.STALE && !alerts.firing[i]
+                            && nowMillis - alerts.lastMillis >= rule.getWindowMillis()) {
+                        alerts.firing[i] = true;
+                        events.add(event(rule, entry.getKey(), true, null, nowMillis,
+                                "no reading for " + (nowMillis - alerts.lastMillis) / 1000 + " s"));
+                    }
+                }
+            }
+        }
+        if (!events.isEmpty()) {
+            deliver(events);
+        }
+    }
+
+    private SensorAlerts sensors(String sensorId, long nowMillis) {
+        SensorAlerts alerts = sensors.get(sensorId);
+        return alerts != null ? alerts : sensors.computeIfAbsent(sensorId, id -> {
+            List<AlertRule> matching = new ArrayList<>();
+            for (AlertRule rule : rules) {
+                if (rule.appliesTo(id)) {
+                    matching.add(rule);
+                }
+            }
+            return new SensorAlerts(matching, nowMillis);
+        });
+    }
+
+    private AlertEvent event(AlertRule rule, String sensorId, boolean firing, Double temperature, long epochMillis, String message) {
+        AlertEvent event = new AlertEvent(sequence.incrementAndGet(), rule.getId(), sensorId,
+                firing ? State.FIRING : State.RESOLVED, temperature, epochMillis, sensorId + " " + message);
+        String key = rule.getId() + "@" + sensorId;
+        if (firing) {
+            active.put(key, event);
+        } else {
+            active.remove(key);
+        }
+        return event;
+    }
+
+    private void deliver(List<AlertEvent> events) {
+        // Hands the events to the delivery thread, so no sink ever delays the ingest path.
+        delivery.execute(() -> {
+            for (AlertEvent event : events) {
+                for (AlertSink sink : sinks) {
+                    try {
+                        sink.deliver(event);
+                    } catch (RuntimeException e) {
+                        sinkLog.warn("Alert sink {} failed for {}: {}", sink.getClass().getSimpleName(), event.rule(), e.toString());
+                        // The other sinks still get the event.
+                    }
+                }
+            }
+        });
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        delivery.shutdown();
+        delivery.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public List<AlertRule> getRules() {
+        return rules;
+    }
+
+    public List<AlertEvent> getActive() {
+        List<AlertEvent> firing = new ArrayList<>(active.values());
+        firing.sort((a, b) -> Long.compare(a.sequence(), b.sequence()));
+        return firing;
+    }
+    // The alerts that are firing right now, oldest first.
+}
+
+/*
+Rules (alerts.rules, separated by commas; the sensor may be * for every sensor):
+    freezer:above:-15:-17   fires at -15 °C or warmer, resolves at -17 °C or colder (hysteresis; without the last
+                            value it resolves below -15 °C)
+    kitchen:below:5:7       fires at 5 °C or colder, resolves at 7 °C or warmer
+    freezer:rate:2:10m      fires when the temperature rose by 2 °C within 10 minutes (rate:-2:10m: fell by 2 °C),
+                            resolves when the change within the window is under half of that again
+    *:stale:2m              fires when a sensor sent no reading for 2 minutes, resolves with its next reading
+
+Latency:
+    TemperatureService.recordTemperature calls evaluate() for every reading on the reader thread, right after the
+    frame was parsed: a map lookup and a few comparisons per rule, no database query, no I/O. The events are
+    queued to the alert-delivery thread, which passes them to every AlertSink in order, typically within a
+    millisecond of the reading. Stale sensors are found by a timer, every alerts.stale-check-ms.
+
+State:
+    Held in memory only. After a restart every rule starts resolved, so a condition that still holds fires again
+    with the first reading; configured sensors count as heard from at startup.
+*/
@@ -0,0 +1,128 @@
+package com.example.temperaturmeter;
+import org.springframework.boot.convert.DurationStyle;// Imports DurationStyle to parse rule windows such as "60s" or "5m".
+
+public class AlertRule {
+    // One entry of alerts.rules: a condition on the readings of a sensor (or of every sensor, "*").
+    // Immutable; the state of a rule per sensor (firing or not) lives in AlertEngine.
+
+    public enum Type {
+        ABOVE,
+        // Fires when a reading is at or above the limit, resolves when a reading is at or below the clear level.
+        BELOW,
+        // Fires when a reading is at or below the limit, resolves when a reading is at or above the clear level.
+        RATE,
+        // Fires when the temperature changed by the limit (°C, negative = a drop) within the window.
+        STALE
+        // Fires when the sensor sent no reading for the window, resolves with its next reading.
+    }
+
+    public static final String ANY_SENSOR = "*";
+
+    private final String id;
+    private final String sensorId;
+    private final Type type;
+    private final double limit;
+    private final double clear;
+    private final long windowMillis;
+
+    AlertRule(String id, String sensorId, Type type, double limit, double clear, long windowMillis) {
+        this.id = id;
+        this.sensorId = sensorId;
+        this.type = type;
+        this.limit = limit;
+        this.clear = clear;
+        this.windowMillis = windowMillis;
+    }
+
+    static AlertRule parse(String spec) {
+        // Parses "sensor:above:limit[:clear]", "sensor:below:limit[:clear]", "sensor:rate:change:window"
+        // or "sensor:stale:window". A missing clear level means no hysteresis (clear = limit).
+        String[] parts = spec.trim().split(":");
+        if (parts.length < 3 || parts[0].trim().isEmpty()) {
+            throw new IllegalStateException("Invalid entry in alerts.rules (expected sensor:type:arguments): " + spec);
+        }
+        String sensorId = parts[0].trim();
+        Type type;
+        try {
+            type = Type.valueOf(parts[1].trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Unknown rule type in alerts.rules (above, below, rate or stale): " + spec);
+        }
+        try {
+            switch (type) {
+                case ABOVE:
+                case BELOW: {
+                    if (parts.length > 4) {
+                        break;
+                    }
+                    double limit = Double.parseDouble(parts[2].trim());
+                    double clear = parts.length == 4 ? Double.parseDouble(parts[3].trim()) : limit;
+                    if (type == Type.ABOVE ? clear > limit : clear < limit) {
+                        throw new IllegalStateException("The clear level must lie on the safe side of the limit in alerts.rules: " + spec);
+                    }
+                    return new AlertRule(spec.trim(), sensorId, type, limit, clear, 0);
+                }
+                case RATE: {
+                    if (parts.length != 4) {
+                        break;
+                    }
+                    double change = Double.parseDouble(parts[2].trim());
+                    long window = DurationStyle.detectAndParse(parts[3].trim()).toMillis();
+                    if (change == 0 || window <= 0) {
+                        throw new IllegalStateException("A rate rule needs a change and a window in alerts.rules: " + spec);
+                    }
+                    return new AlertRule(spec.trim(), sensorId, type, change, change / 2, window);
+                    // Resolves once the change within the window is back under half the limit.
+                }
+                case STALE: {
+                    if (parts.length != 3) {
+                        break;
+                    }
+                    long window = DurationStyle.detectAndParse(parts[2].trim()).toMillis();
+                    if (window <= 0) {
+                        throw new IllegalStateException("A stale rule needs a positive time in alerts.rules: " + spec);
+                    }
+                    return new AlertRule(spec.trim(), sensorId, type, 0, 0, window);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid number or duration in alerts.rules: " + spec);
+            // NumberFormatException, or a duration DurationStyle cannot parse.
+        }
+        throw new IllegalStateException("Wrong number of arguments in alerts.rules: " + spec);
+    }
+
+    public boolean appliesTo(String sensorId) {
+        return ANY_SENSOR.equals(this.sensorId) || this.sensorId.equals(sensorId);
+    }
+
+    public String getId() {
+        return id;
+    }
+    // The rule as configured, e.g. "freezer:above:-15:-17"; identifies the rule in alert events.
+
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public double getClear() {
+        return clear;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.temperaturmeter;
+
+public interface AlertSink {
+    // Receives the events of the AlertEngine. Every Spring bean implementing this interface is a sink:
+    // LogAlertSink, LiveAlertSink (Server-Sent Events) and, with alerts.webhook.url, WebhookAlertSink.
+    // Called on the engine's delivery thread in event order, never on an ingest thread; a sink that waits for
+    // the network delays the sinks behind it, so remote sinks should send asynchronously.
+
+    void deliver(AlertEngine.AlertEvent event);
+}
@@ -0,0 +1,163 @@
+package com.example.temperaturmeter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class ArchiveSegment {
+    // One immutable, memory-mapped segment file of the archive, holding one compressed block per sensor for one day.
+    // Layout: [block][block]...[index entries][long index offset][int block count][int magic]
+
+    private static final int MAGIC = 0x544D4131;
+    // "TMA1"
+    private static final int FOOTER_BYTES = 16;
+
+    static class Block {
+        // Index entry of one block. The aggregates answer statistics for whole blocks without decoding them.
+        final String sensorId;
+        final long firstMillis;
+        final long lastMillis;
+        final int count;
+        final float minTemperature;
+        final float maxTemperature;
+        final double sumTemperature;
+        final byte[] data;
+        // Only set while writing.
+        long offset;
+        int length;
+
+        Block(String sensorId, long firstMillis, long lastMillis, int count,
+              float minTemperature, float maxTemperature, double sumTemperature, byte[] data) {
+            this.sensorId = sensorId;
+            this.firstMillis = firstMillis;
+            this.lastMillis = lastMillis;
+            this.count = count;
+            this.minTemperature = minTemperature;
+            this.maxTemperature = maxTemperature;
+            this.sumTemperature = sumTemperature;
+            this.data = data;
+        }
+
+        static Block encode(String sensorId, long[] ids, long[] epochMillis, float[] temperatures, int count) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            double sum = 0;
+            for (int i = 0; i < count; i++) {
+                min = Math.min(min, temperatures[i]);
+                max = Math.max(max, temperatures[i]);
+                sum += temperatures[i];
+            }
+            return new Block(sensorId, epochMillis[0], epochMillis[count - 1], count, min, max, sum,
+                    GorillaCodec.encode(ids, epochMillis, temperatures, count));
+        }
+    }
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final Map<String, Block> blocks = new HashMap<>();
+
+    private ArchiveSegment(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    static ArchiveSegment open(Path path) throws IOException {
+        // Maps the file and reads its index; the blocks themselves are decoded only when they are read.
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            // The mapping stays valid after the channel is closed.
+        }
+        int size = buffer.capacity();
+        if (size < FOOTER_BYTES || buffer.getInt(size - 4) != MAGIC) {
+            throw new IOException("Not an archive segment: " + path);
+        }
+        ArchiveSegment segment = new ArchiveSegment(path, buffer);
+        int blockCount = buffer.getInt(size - 8);
+        ByteBuffer index = buffer.duplicate();
+        index.position((int) buffer.getLong(size - FOOTER_BYTES));
+        for (int i = 0; i < blockCount; i++) {
+            byte[] sensorId = new byte[index.getShort()];
+            index.get(sensorId);
+            Block block = new Block(new String(sensorId, StandardCharsets.UTF_8), index.getLong(), index.getLong(),
+                    index.getInt(), index.getFloat(), index.getFloat(), index.getDouble(), null);
+            block.offset = index.getLong();
+            block.length = index.getInt();
+            segment.blocks.put(block.sensorId, block);
+        }
+        return segment;
+    }
+
+    static void write(Path path, List<Block> blocks) throws IOException {
+        // Writes the segment to a temporary file, forces it to disk and renames it, so a segment is either complete or absent.
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long offset = 0;
+            for (Block block : blocks) {
+                block.offset = offset;
+                block.length = block.data.length;
+                offset += writeFully(channel, ByteBuffer.wrap(block.data));
+            }
+            long indexOffset = offset;
+            for (Block block : blocks) {
+                byte[] sensorId = block.sensorId.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer entry = ByteBuffer.allocate(2 + sensorId.length + 8 + 8 + 4 + 4 + 4 + 8 + 8 + 4);
+                entry.putShort((short) sensorId.length).put(sensorId)
+                        .putLong(block.firstMillis).putLong(block.lastMillis).putInt(block.count)
+                        .putFloat(block.minTemperature).putFloat(block.maxTemperature).putDouble(block.sumTemperature)
+                        .putLong(block.offset).putInt(block.length);
+                entry.flip();
+                writeFully(channel, entry);
+            }
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES);
+            footer.putLong(indexOffset).putInt(blocks.size()).putInt(MAGIC);
+            footer.flip();
+            writeFully(channel, footer);
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        int written = data.remaining();
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        return written;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    Block getBlock(String sensorId) {
+        return blocks.get(sensorId);
+    }
+    // Null if the sensor has no readings in this segment.
+
+    Collection<Block> getBlocks() {
+        return blocks.values();
+    }
+
+    GorillaCodec.Reader read(Block block) {
+        // Lazily decoding reader over one block of the mapped file.
+        ByteBuffer slice = buffer.duplicate();
+        slice.position((int) block.offset);
+        return new GorillaCodec.Reader(slice);
+    }
+
+    long sizeInBytes() {
+        return buffer.capacity();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.temperaturmeter;
+import com.zaxxer.hikari.HikariDataSource;// Imports HikariDataSource, the connection pool Spring Boot uses by default.
+import org.springframework.beans.factory.annotation.Qualifier;// Imports @Qualifier, which picks the two pools by name.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;// Imports @ConditionalOnProperty; the routing only exists when a replica is configured.
+import org.springframework.context.annotation.Bean;// Imports @Bean, which registers the return value of a method as a Spring bean.
+import org.springframework.context.annotation.Configuration;// Imports @Configuration, marking this class as a source of bean definitions.
+import org.springframework.context.annotation.Primary;// Imports @Primary, which makes the routing proxy the DataSource injected everywhere.
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;// Imports LazyConnectionDataSourceProxy, which delays fetching a connection until the first statement.
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.url")
+// Replaces the single auto-configured DataSource with two pools, one on the primary and one on a read replica, and a
+// routing DataSource in front of them. JPA, JdbcTemplate and the transaction manager all use the routing proxy, so
+// the read-only transactions of the range queries go to the replica without any change to the repositories.
+public class DataSourceRoutingConfiguration {
+
+    @Bean
+    public HikariDataSource primaryDataSource(@Value("${spring.datasource.url}") String url,
+                                              @Value("${spring.datasource.username:}") String username,
+                                              @Value("${spring.datasource.password:}") String password,
+                                              @Value("${spring.datasource.driver-class-name:}") String driverClassName,
+                                              @Value("${datasource.primary.pool-size:10}") int poolSize) {
+        return pool("primary", url, username, password, driverClassName, poolSize, false);
+        // Ingest batches, rollups, checkpoints, archive compaction and the latest reading.
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(@Value("${datasource.replica.url}") String url,
+                                              @Value("${datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${datasource.replica.password:${spring.datasource.password:}}") String password,
+                                              @Value("${spring.datasource.driver-class-name:}") String driverClassName,
+                                              @Value("${datasource.replica.pool-size:10}") int poolSize) {
+        return pool("replica", url, username, password, driverClassName, poolSize, true);
+        // Dashboard pages, exports and reports; sized separately, so a burst of queries never waits for ingest.
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                        @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+        // JpaTransactionManager asks for the connection when the transaction begins, before it is marked read-only;
+        // the proxy hands out a placeholder and only routes once the first statement runs.
+    }
+
+    static HikariDataSource pool(String name, String url, String username, String password, String driverClassName,
+                                 int poolSize, boolean readOnly) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        if (!driverClassName.isEmpty()) {
+            pool.setDriverClassName(driverClassName);
+        }
+        pool.setMaximumPoolSize(poolSize);
+        pool.setReadOnly(readOnly);
+        // The replica's connections refuse writes, so a missing readOnly = false shows up as an error, not as lost data.
+        return pool;
+    }
+}
+
+/*
+Configuration:
+    datasource.replica.url=jdbc:mysql://replica:3306/Tempdata?useCursorFetch=true   switches the routing on
+    datasource.replica.username / password      default to spring.datasource.username / password
+    datasource.primary.pool-size=10             connections to the primary (HikariCP maximumPoolSize)
+    datasource.replica.pool-size=10             connections to the replica
+    datasource.replica.max-lag=5s               see ReplicaLagGuard
+
+What goes where:
+    replica   @Transactional(readOnly = true): the Spring Data query methods (pages, ranges, window statistics,
+              rollup series), JpaTemperatureStore.findBetween / forEachBetween / findColumnsBetween and therefore
+              exports, resampled series and RangeAggregator reports
+    primary   everything else: TemperatureBatchWriter and the rollup writer, the spool checkpoint, the archive
+              compactor, the partition maintenance, and findLastMeasurement, which is read-write on purpose so
+              /latest never shows a reading older than the one just written
+
+Without datasource.replica.url nothing changes: Spring Boot creates its single pool from spring.datasource.*.
+*/
@@ -0,0 +1,21 @@
+package com.example.temperaturmeter;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+final class EpochTime {
+    // Conversions between the LocalDateTime used by the entity and the epoch milliseconds used on hot paths.
+    // Timestamps are stored without a zone, so the JVM's default zone is used in both directions.
+
+    private EpochTime() {
+    }
+
+    static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
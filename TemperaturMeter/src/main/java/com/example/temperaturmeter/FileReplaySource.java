@@ -0,0 +1,75 @@
+package com.example.temperaturmeter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class FileReplaySource implements ReadingSource {
+    // Replays a captured byte stream (e.g. "cat /dev/ttyUSB0 > capture.txt") at the pace of the sensor's baud rate,
+    // or reads a named pipe. With baud rate 0 the file is read as fast as the pipeline takes it.
+
+    static final String SCHEME = "file:";
+
+    private static final int BITS_PER_BYTE = 10;
+    // 8N1 framing: start bit, 8 data bits, stop bit.
+
+    private final Path path;
+    private final long bytesPerSecond;
+    private InputStream in;
+    private long startNanos;
+    private long bytesDelivered;
+
+    public FileReplaySource(String path, int baudRate) {
+        this.path = Path.of(path);
+        this.bytesPerSecond = baudRate / BITS_PER_BYTE;
+    }
+
+    @Override
+    public void open() throws IOException {
+        in = Files.newInputStream(path);
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public int read(byte[] buffer) throws IOException {
+        int length = buffer.length;
+        if (bytesPerSecond > 0) {
+            long due = (System.nanoTime() - startNanos) * bytesPerSecond / TimeUnit.SECONDS.toNanos(1) - bytesDelivered;
+            if (due <= 0) {
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+                return 0;
+                // Waits for the next byte to be "on the wire".
+            }
+            length = (int) Math.min(length, due);
+        }
+        int read = in.read(buffer, 0, length);
+        if (read > 0) {
+            bytesDelivered += read;
+        }
+        return read;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (in != null) {
+                in.close();
+            }
+        } catch (IOException e) {
+            // Already closed.
+        }
+    }
+
+    @Override
+    public boolean isReconnectable() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return SCHEME + path;
+    }
+}
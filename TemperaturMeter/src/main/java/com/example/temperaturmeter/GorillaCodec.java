@@ -0,0 +1,248 @@
+package com.example.temperaturmeter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+final class GorillaCodec {
+    // Compresses a block of readings of one sensor in the style of Facebook's Gorilla time series database:
+    // ids and timestamps with delta-of-delta encoding, temperatures by XOR-ing the float bits with the previous value.
+    // A regular 10 s series with slowly changing values needs a few bits per reading instead of a full table row.
+
+    private static final int HEADER_BYTES = 5;
+    // int count + byte time unit flag.
+
+    private GorillaCodec() {
+    }
+
+    static byte[] encode(long[] ids, long[] epochMillis, float[] temperatures, int count) {
+        // Encodes count readings, which must be in timestamp order.
+        boolean wholeSeconds = true;
+        for (int i = 0; i < count && wholeSeconds; i++) {
+            wholeSeconds = epochMillis[i] % 1000 == 0;
+        }
+        // MySQL TIMESTAMP columns hold whole seconds; counting in seconds keeps the deltas-of-deltas at 0 or +-1.
+        long unit = wholeSeconds ? 1000 : 1;
+
+        BitWriter bits = new BitWriter(16 + count * 2);
+        long previousId = 0;
+        long previousIdDelta = 0;
+        long previousTime = 0;
+        long previousTimeDelta = 0;
+        int previousBits = 0;
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 0; i < count; i++) {
+            long time = epochMillis[i] / unit;
+            int temperatureBits = Float.floatToIntBits(temperatures[i]);
+            if (i == 0) {
+                bits.write(ids[0], 64);
+                bits.write(time, 64);
+                bits.write(temperatureBits, 32);
+            } else {
+                long idDelta = ids[i] - previousId;
+                writeDeltaOfDelta(bits, idDelta - previousIdDelta);
+                previousIdDelta = idDelta;
+                long timeDelta = time - previousTime;
+                writeDeltaOfDelta(bits, timeDelta - previousTimeDelta);
+                previousTimeDelta = timeDelta;
+
+                int xor = temperatureBits ^ previousBits;
+                if (xor == 0) {
+                    bits.write(0, 1);
+                    // Same value as before: one bit.
+                } else {
+                    int leading = Math.min(Integer.numberOfLeadingZeros(xor), 31);
+                    int trailing = Integer.numberOfTrailingZeros(xor);
+                    if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                        bits.write(0b10, 2);
+                        bits.write(xor >>> previousTrailing, 32 - previousLeading - previousTrailing);
+                        // The changed bits fit into the window of the previous value: only the window is written.
+                    } else {
+                        int length = 32 - leading - trailing;
+                        bits.write(0b11, 2);
+                        bits.write(leading, 5);
+                        bits.write(length - 1, 5);
+                        bits.write(xor >>> trailing, length);
+                        previousLeading = leading;
+                        previousTrailing = trailing;
+                    }
+                }
+            }
+            previousId = ids[i];
+            previousTime = time;
+            previousBits = temperatureBits;
+        }
+
+        byte[] body = bits.toByteArray();
+        ByteBuffer block = ByteBuffer.allocate(HEADER_BYTES + body.length);
+        block.putInt(count);
+        block.put((byte) (wholeSeconds ? 1 : 0));
+        block.put(body);
+        return block.array();
+    }
+
+    private static void writeDeltaOfDelta(BitWriter bits, long deltaOfDelta) {
+        // Variable-length code: the more regular the series, the shorter the code ('0' for a perfectly regular step).
+        if (deltaOfDelta == 0) {
+            bits.write(0, 1);
+        } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+            bits.write(0b10, 2);
+            bits.write(deltaOfDelta, 7);
+        } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+            bits.write(0b110, 3);
+            bits.write(deltaOfDelta, 9);
+        } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+            bits.write(0b1110, 4);
+            bits.write(deltaOfDelta, 12);
+        } else if (deltaOfDelta >= Integer.MIN_VALUE && deltaOfDelta <= Integer.MAX_VALUE) {
+            bits.write(0b11110, 5);
+            bits.write(deltaOfDelta, 32);
+        } else {
+            bits.write(0b11111, 5);
+            bits.write(deltaOfDelta, 64);
+        }
+    }
+
+    static class Reader {
+        // Decodes a block one reading at a time, straight from the (memory-mapped) buffer.
+
+        private final BitReader bits;
+        private final int count;
+        private final long unit;
+        private int position;
+
+        private long id;
+        private long idDelta;
+        private long time;
+        private long timeDelta;
+        private int temperatureBits;
+        private int leading;
+        private int trailing;
+
+        Reader(ByteBuffer block) {
+            // block starts at the block header; its position is not changed.
+            this.count = block.getInt(block.position());
+            this.unit = block.get(block.position() + 4) == 1 ? 1000 : 1;
+            this.bits = new BitReader(block, block.position() + HEADER_BYTES);
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        boolean next() {
+            if (position == count) {
+                return false;
+            }
+            if (position == 0) {
+                id = bits.read(64);
+                time = bits.read(64);
+                temperatureBits = (int) bits.read(32);
+            } else {
+                idDelta += readDeltaOfDelta();
+                id += idDelta;
+                timeDelta += readDeltaOfDelta();
+                time += timeDelta;
+                if (bits.read(1) == 1) {
+                    if (bits.read(1) == 1) {
+                        leading = (int) bits.read(5);
+                        int length = (int) bits.read(5) + 1;
+                        trailing = 32 - leading - length;
+                    }
+                    int length = 32 - leading - trailing;
+                    temperatureBits ^= (int) (bits.read(length) << trailing);
+                }
+            }
+            position++;
+            return true;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        long getEpochMillis() {
+            return time * unit;
+        }
+
+        float getTemperature() {
+            return Float.intBitsToFloat(temperatureBits);
+        }
+
+        private long readDeltaOfDelta() {
+            if (bits.read(1) == 0) {
+                return 0;
+            }
+            if (bits.read(1) == 0) {
+                return bits.readSigned(7);
+            }
+            if (bits.read(1) == 0) {
+                return bits.readSigned(9);
+            }
+            if (bits.read(1) == 0) {
+                return bits.readSigned(12);
+            }
+            return bits.read(1) == 0 ? bits.readSigned(32) : bits.read(64);
+        }
+    }
+
+    private static class BitWriter {
+        private byte[] bytes;
+        private long bitCount;
+
+        BitWriter(int initialBytes) {
+            bytes = new byte[Math.max(16, initialBytes)];
+        }
+
+        void write(long value, int width) {
+            // Appends the lowest width bits of value, most significant bit first, up to a whole byte per step.
+            while (width > 0) {
+                int index = (int) (bitCount >>> 3);
+                if (index == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                int free = 8 - (int) (bitCount & 7);
+                int taken = Math.min(free, width);
+                int chunk = (int) (value >>> (width - taken)) & ((1 << taken) - 1);
+                bytes[index] |= (byte) (chunk << (free - taken));
+                bitCount += taken;
+                width -= taken;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, (int) ((bitCount + 7) >>> 3));
+        }
+    }
+
+    private static class BitReader {
+        private final ByteBuffer buffer;
+        private long bitPosition;
+
+        BitReader(ByteBuffer buffer, int byteOffset) {
+            this.buffer = buffer;
+            this.bitPosition = (long) byteOffset << 3;
+        }
+
+        long read(int width) {
+            // Reads width bits, up to a whole byte per step.
+            long value = 0;
+            while (width > 0) {
+                int current = buffer.get((int) (bitPosition >>> 3)) & 0xFF;
+                int available = 8 - (int) (bitPosition & 7);
+                int taken = Math.min(available, width);
+                int chunk = (current >>> (available - taken)) & ((1 << taken) - 1);
+                value = (value << taken) | chunk;
+                bitPosition += taken;
+                width -= taken;
+            }
+            return value;
+        }
+
+        long readSigned(int width) {
+            long value = read(width);
+            return (value << (64 - width)) >> (64 - width);
+            // Sign-extends the two's complement value.
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.temperaturmeter;
+// Defines the package for this class, grouping related classes under com.example.temperaturmeter.
+
+import jakarta.persistence.*;
+// Imports the Jakarta Persistence API (JPA) annotations used for the entity mapping.
+
+@Entity
+// Marks this class as a JPA entity, so Hibernate creates the ingest_checkpoint table (spring.jpa.hibernate.ddl-auto).
+@Table(name = "ingest_checkpoint")
+// One row per IngestSpool: the sequence of the last spooled reading written to temp_reading.
+// Written and read with JDBC by TemperatureBatchWriter, in the transaction of every replayed batch.
+public class IngestCheckpoint {
+
+    @Id
+    @Column(name = "spool_id", length = 64)
+    private String spoolId;
+    // The random id of the spool directory (its spool.id file).
+
+    @Column(name = "last_sequence", nullable = false)
+    private long lastSequence;
+    // Every reading of the spool up to this sequence is in temp_reading.
+
+    public String getSpoolId() {
+        return spoolId;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+}
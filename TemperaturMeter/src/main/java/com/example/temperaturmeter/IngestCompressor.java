@@ -0,0 +1,301 @@
+package com.example.temperaturmeter;
+import io.micrometer.core.instrument.FunctionCounter;// Imports FunctionCounter, which exposes the number of readings not stored.
+import io.micrometer.core.instrument.MeterRegistry;// Imports the MeterRegistry the counter is registered with.
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to register the metrics.
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+// Optional compression of the readings before they are stored: of a slowly changing series only the points needed
+// to rebuild it within a tolerance are kept. Configured per sensor (ingest.compression.*):
+//     deadband       a reading is stored when it differs from the last stored one by more than the tolerance;
+//                    the series is rebuilt by holding the last stored value
+//     swinging-door  a reading is stored when the straight line from the last stored point can no longer pass
+//                    within the tolerance of every reading since; the series is rebuilt by linear interpolation
+// The in-memory consumers (rolling windows, sketches, alerts, live feed, latest reading) still see every reading.
+public class IngestCompressor {
+
+    public enum Method {
+        NONE,
+        DEADBAND,
+        SWINGING_DOOR
+    }
+
+    public record Settings(Method method, double tolerance) {
+
+        static Settings parse(String spec) {
+            // "none", "deadband:0.25" or "swinging-door:0.25" (tolerance in °C).
+            String[] parts = spec.trim().split(":");
+            Method method;
+            try {
+                method = Method.valueOf(parts[0].trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Unknown compression (none, deadband or swinging-door): " + spec);
+            }
+            if (method == Method.NONE) {
+                return new Settings(Method.NONE, 0);
+            }
+            double tolerance;
+            try {
+                tolerance = parts.length == 2 ? Double.parseDouble(parts[1].trim()) : Double.NaN;
+            } catch (NumberFormatException e) {
+                tolerance = Double.NaN;
+            }
+            if (!(tolerance > 0)) {
+                throw new IllegalStateException("Compression needs a positive tolerance in °C, e.g. deadband:0.25: " + spec);
+            }
+            return new Settings(method, tolerance);
+        }
+    }
+
+    private final Settings defaultSettings;
+    private final Map<String, Settings> sensorSettings;
+    private final long maxIntervalMillis;
+
+    private final Map<String, SensorState> sensors = new ConcurrentHashMap<>();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+
+    @Autowired(required = false)
+    // Injects the Micrometer registry behind the actuator metrics endpoints.
+    private MeterRegistry meterRegistry;
+
+    public IngestCompressor(@Value("${ingest.compression.default:none}") String defaultSpec,
+                            @Value("${ingest.compression.sensors:}") String sensorSpecs,
+                            @Value("${ingest.compression.max-interval:15m}") Duration maxInterval) {
+        this.defaultSettings = Settings.parse(defaultSpec);
+        Map<String, Settings> parsed = new HashMap<>();
+        for (String spec : sensorSpecs.split(",")) {
+            if (spec.trim().isEmpty()) {
+                continue;
+            }
+            int equals = spec.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalStateException("Invalid entry in ingest.compression.sensors (expected id=method:tolerance): " + spec);
+            }
+            parsed.put(spec.substring(0, equals).trim(), Settings.parse(spec.substring(equals + 1)));
+        }
+        this.sensorSettings = Collections.unmodifiableMap(parsed);
+        this.maxIntervalMillis = maxInterval.toMillis();
+    }
+
+    private static final class SensorState {
+        // Guarded by the state itself.
+        final Settings settings;
+        long storedMillis;
+        double storedTemperature;
+        boolean hasStored;
+        // The last stored point.
+        TemperatureReading held;
+        long heldMillis;
+        // The latest reading, not stored (yet).
+        double upperSlope = Double.POSITIVE_INFINITY;
+        double lowerSlope = Double.NEGATIVE_INFINITY;
+        // Swinging door: the range of slopes from the stored point that pass within the tolerance of every held reading.
+
+        SensorState(Settings settings) {
+            this.settings = settings;
+        }
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        if (meterRegistry != null) {
+            FunctionCounter.builder("temperature.ingest.compressed", this, IngestCompressor::getCompressed)
+                    .description("Readings not stored because the stored points rebuild them within the compression tolerance")
+                    .register(meterRegistry);
+            // Its own name: temperature.ingest.readings counts the readings of the write-behind queue, and summing its
+            // results must not count a reading twice.
+        }
+    }
+
+    public List<TemperatureReading> offer(TemperatureReading reading) {
+        // Returns the readings to store because of this one: none, the reading itself, or an earlier held reading.
+        Settings settings = getSettings(reading.getSensorId());
+        received.incrementAndGet();
+        if (settings.method() == Method.NONE) {
+            stored.incrementAndGet();
+            return List.of(reading);
+        }
+        SensorState state = sensors.computeIfAbsent(reading.getSensorId(), id -> new SensorState(settings));
+        long millis = EpochTime.toEpochMillis(reading.getTimestamp());
+        double value = reading.getTemperature();
+        List<TemperatureReading> out;
+        synchronized (state) {
+            if (!state.hasStored || millis <= state.storedMillis) {
+                out = List.of(reading);
+                store(state, reading, millis);
+                // The first reading, or one out of time order: stored as is, and the next segment starts there.
+            } else if (settings.method() == Method.DEADBAND) {
+                if (Math.abs(value - state.storedTemperature) > settings.tolerance() || millis - state.storedMillis >= maxIntervalMillis) {
+                    out = List.of(reading);
+                    store(state, reading, millis);
+                } else {
+                    out = List.of();
+                    hold(state, reading, millis);
+                }
+            } else {
+                out = swingingDoor(state, reading, millis, value);
+            }
+        }
+        stored.addAndGet(out.size());
+        return out;
+    }
+
+    private List<TemperatureReading> swingingDoor(SensorState state, TemperatureReading reading, long millis, double value) {
+        double slope = (value - state.storedTemperature) / (millis - state.storedMillis);
+        List<TemperatureReading> out = List.of();
+        if (state.held != null && (slope > state.upperSlope || slope < state.lowerSlope
+                || millis - state.storedMillis > maxIntervalMillis)) {
+            TemperatureReading previous = state.held;
+            store(state, previous, state.heldMillis);
+            out = List.of(previous);
+            // The line from the stored point to this reading leaves the doors, i.e. passes further than the tolerance
+            // from a reading in between: the previous reading is stored and starts the next segment.
+            slope = (value - state.storedTemperature) / (millis - state.storedMillis);
+        }
+        double tolerance = state.settings.tolerance() / (millis - state.storedMillis);
+        state.upperSlope = Math.min(state.upperSlope, slope + tolerance);
+        state.lowerSlope = Math.max(state.lowerSlope, slope - tolerance);
+        // Narrows the doors to the lines that pass within the tolerance of this reading as well.
+        hold(state, reading, millis);
+        return out;
+    }
+
+    private static void store(SensorState state, TemperatureReading reading, long millis) {
+        state.hasStored = true;
+        state.storedMillis = millis;
+        state.storedTemperature = reading.getTemperature();
+        state.held = null;
+        state.upperSlope = Double.POSITIVE_INFINITY;
+        state.lowerSlope = Double.NEGATIVE_INFINITY;
+    }
+
+    private static void hold(SensorState state, TemperatureReading reading, long millis) {
+        state.held = reading;
+        state.heldMillis = millis;
+    }
+
+    public List<TemperatureReading> flush() {
+        // Returns the held readings of all sensors and stores them, e.g. at shutdown, so a stored series ends
+        // where the readings ended.
+        List<TemperatureReading> out = new ArrayList<>();
+        for (SensorState state : sensors.values()) {
+            synchronized (state) {
+                if (state.held != null) {
+                    TemperatureReading held = state.held;
+                    out.add(held);
+                    store(state, held, state.heldMillis);
+                }
+            }
+        }
+        stored.addAndGet(out.size());
+        return out;
+    }
+
+    public TemperatureReading getHeld(String sensorId) {
+        // The latest reading of the sensor that is not stored (yet), or null.
+        SensorState state = sensors.get(sensorId);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return state.held;
+        }
+    }
+
+    public Settings getSettings(String sensorId) {
+        return sensorSettings.getOrDefault(sensorId, defaultSettings);
+    }
+
+    public boolean isInterpolated(String sensorId) {
+        return getSettings(sensorId).method() != Method.DEADBAND;
+    }
+    // Swinging door (and uncompressed) series are rebuilt by linear interpolation, deadband series by holding values.
+
+    public long getMaxGapMillis() {
+        return 2 * maxIntervalMillis;
+    }
+    // A compressed series stores a point at least every ingest.compression.max-interval, so a longer gap between
+    // stored points is an outage and is not interpolated across.
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getStored() {
+        return stored.get();
+    }
+
+    public long getCompressed() {
+        return received.get() - stored.get();
+    }
+    // Readings that were not stored because the stored points rebuild them within the tolerance.
+
+    static ReadingColumns resample(String sensorId, List<TemperatureReading> points, long startMillis, long endMillis,
+                                   long stepMillis, boolean interpolated, long maxGapMillis) {
+        // Rebuilds the series at startMillis, startMillis + step, ... (before endMillis) from the stored points, oldest
+        // first: linearly between two points, or by holding the earlier one. Grid times before the first point, after
+        // the last one or within a gap longer than maxGapMillis get no value.
+        ReadingColumns columns = new ReadingColumns(sensorId);
+        int next = 0;
+        // The index of the first point after the grid time.
+        for (long t = startMillis; t < endMillis; t += stepMillis) {
+            while (next < points.size() && EpochTime.toEpochMillis(points.get(next).getTimestamp()) <= t) {
+                next++;
+            }
+            if (next == 0) {
+                continue;
+            }
+            TemperatureReading before = points.get(next - 1);
+            long beforeMillis = EpochTime.toEpochMillis(before.getTimestamp());
+            if (beforeMillis == t) {
+                columns.add(t, before.getTemperature());
+                continue;
+            }
+            if (next == points.size()) {
+                continue;
+                // After the last point nothing is known yet.
+            }
+            TemperatureReading after = points.get(next);
+            long afterMillis = EpochTime.toEpochMillis(after.getTimestamp());
+            if (afterMillis - beforeMillis > maxGapMillis) {
+                continue;
+            }
+            double value = before.getTemperature();
+            if (interpolated) {
+                value += (after.getTemperature() - value) * (t - beforeMillis) / (afterMillis - beforeMillis);
+            }
+            columns.add(t, value);
+        }
+        return columns;
+    }
+}
+
+/*
+Configuration:
+    ingest.compression.default=none                       for every sensor without an entry below
+    ingest.compression.sensors=kitchen=deadband:0.25,freezer=swinging-door:0.2
+    ingest.compression.max-interval=15m                   a point is stored at least this often while readings arrive
+
+Accuracy:
+    Every reading lies within the tolerance of the rebuilt series: of the held value (deadband) or of the line
+    between the stored points around it (swinging door). The held reading is not stored until a later reading
+    needs it (or max-interval passes); TemperatureService adds it to resampled queries (getResampledReadings,
+    /api/v1/sensors/{id}/readings?step=1m), and it is stored at shutdown.
+    A crash loses the held readings, i.e. at most max-interval of the rebuilt series per sensor.
+
+Effect:
+    A TMP36 read every 10 s that drifts slowly stores a point every few minutes with a tolerance of 0.25 °C
+    (5-20x fewer rows). Rollups are folded from the stored points, so their min and max are within the tolerance
+    and their count is the number of stored rows.
+*/
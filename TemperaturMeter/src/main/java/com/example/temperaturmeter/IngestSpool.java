@@ -0,0 +1,639 @@
+package com.example.temperaturmeter;
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to open (and recover) the spool before the first reading arrives.
+import jakarta.annotation.PreDestroy;// Imports @PreDestroy, used to force the last readings to disk when the application shuts down.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+@Component
+// Local append-only file of every ingested reading, between parsing and the database. The write-behind queue
+// writes from memory while the database keeps up and replays from here when it did not (an outage, a slow
+// commit, a restart), so no reading is lost while the disk has room. Every reading gets a sequence number;
+// the database stores the last written one per spool (ingest_checkpoint), which makes a replay idempotent.
+public class IngestSpool {
+
+    public enum OverflowPolicy {
+        BLOCK,
+        // The serial reader waits until written readings free space (ingest stops, nothing is lost).
+        DROP_OLDEST,
+        // The oldest segment is deleted, with the readings in it that were not written yet.
+        DROP_NEWEST
+        // New readings are not spooled (nor queued) until there is room again.
+    }
+
+    private static final int RECORD_OVERHEAD = 4 + 8 + 8 + 8 + 2 + 4;
+    // Record: int length n, then n bytes (long sequence, long epoch millis, double temperature,
+    // short length + UTF-8 bytes of the sensor id), then int CRC32 of the n bytes.
+
+    private static final int MAX_SENSOR_ID_BYTES = 64 * 3;
+    // temp_reading.sensor_id is VARCHAR(64).
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final long syncIntervalMillis;
+    private final OverflowPolicy overflowPolicy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition spaceFreed = lock.newCondition();
+    private final Condition syncerWakeup = lock.newCondition();
+    // Guards everything below except syncedSequence and the replay cursor.
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    // The segment files by the sequence of their first record.
+    private Segment current;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + MAX_SENSOR_ID_BYTES);
+    // The record being appended, reused for every reading; it is copied into the segment's pending buffer.
+    private final List<Segment> rolled = new ArrayList<>();
+    private final List<Segment> retired = new ArrayList<>();
+    // Segments that are complete but not yet forced to disk, and segments that are no longer needed. The sync
+    // thread forces and deletes them, so appends never wait for an fsync or a file deletion.
+    private long lastSequence;
+    private long writtenSequence;
+    // Last sequence given out, and the last one acknowledged as written to the store.
+    private long totalBytes;
+    private long lost;
+    private long rejected;
+    private boolean running;
+
+    private String spoolId;
+    private volatile long syncedSequence;
+    private Thread syncer;
+    private ReplayCursor cursor;
+    // Only used by the single replaying thread (the write-behind flusher).
+
+    public IngestSpool(@Value("${ingest.spool.enabled:true}") boolean enabled,
+                       @Value("${ingest.spool.directory:spool}") String directory,
+                       @Value("${ingest.spool.segment-mb:16}") long segmentMb,
+                       @Value("${ingest.spool.max-mb:1024}") long maxMb,
+                       @Value("${ingest.spool.sync-interval-ms:50}") long syncIntervalMillis,
+                       @Value("${ingest.spool.overflow:DROP_OLDEST}") OverflowPolicy overflowPolicy) {
+        this(enabled, Paths.get(directory), segmentMb * 1024 * 1024, maxMb * 1024 * 1024, syncIntervalMillis, overflowPolicy);
+    }
+
+    IngestSpool(boolean enabled, Path directory, long segmentBytes, long maxBytes, long syncIntervalMillis, OverflowPolicy overflowPolicy) {
+        if (enabled && maxBytes < 2 * segmentBytes) {
+            throw new IllegalStateException("ingest.spool.max-mb must hold at least two segments (ingest.spool.segment-mb)");
+        }
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    private static final class Segment {
+        // A RandomAccessFile rather than a FileChannel: an interrupted reader thread (e.g. at shutdown) would close
+        // an interruptible channel for every other thread.
+        final long firstSequence;
+        final Path path;
+        final RandomAccessFile file;
+        long size;
+        long fileSize;
+        // All records appended so far, and the part of them already written to the file.
+        byte[] pending = new byte[4096];
+        int pendingBytes;
+        // The records appended since the last writeOut(), which writes them to the file in one call.
+
+        Segment(long firstSequence, Path path) throws IOException {
+            this.firstSequence = firstSequence;
+            this.path = path;
+            this.file = new RandomAccessFile(path.toFile(), "rw");
+            this.size = file.length();
+            this.fileSize = size;
+        }
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        // Reads the spool id and the local checkpoint, opens the segments and cuts off a record torn by a crash.
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        Path idFile = directory.resolve("spool.id");
+        if (Files.exists(idFile)) {
+            spoolId = Files.readString(idFile).trim();
+        } else {
+            spoolId = UUID.randomUUID().toString();
+            Files.writeString(idFile, spoolId);
+            // A new (or deleted) spool directory gets a new id, so its sequences never collide with a checkpoint
+            // of an earlier spool.
+        }
+        Path checkpoint = directory.resolve("checkpoint");
+        writtenSequence = Files.exists(checkpoint) ? Long.parseLong(Files.readString(checkpoint).trim()) : 0;
+        lastSequence = writtenSequence;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.matches("spool-\\d+\\.log")) {
+                    Segment segment = new Segment(Long.parseLong(name.substring(6, name.length() - 4)), path);
+                    segments.put(segment.firstSequence, segment);
+                    totalBytes += segment.size;
+                }
+            }
+        }
+        if (!segments.isEmpty()) {
+            current = segments.lastEntry().getValue();
+            long[] last = {current.firstSequence - 1};
+            long validBytes = scan(current, record -> last[0] = record.getIngestSequence());
+            if (validBytes < current.size) {
+                System.out.println("Spool: cut off " + (current.size - validBytes) + " bytes of a torn record in " + current.path + ".");
+                current.file.setLength(validBytes);
+                totalBytes -= current.size - validBytes;
+                current.size = validBytes;
+                current.fileSize = validBytes;
+            }
+            lastSequence = Math.max(lastSequence, last[0]);
+            current.file.seek(current.size);
+        }
+        syncedSequence = lastSequence;
+        lock.lock();
+        try {
+            running = true;
+            release();
+            // Segments written before a crash whose checkpoint was saved.
+        } finally {
+            lock.unlock();
+        }
+        syncer = new Thread(this::syncLoop, "ingest-spool-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+        System.out.println("Spool " + directory.toAbsolutePath() + ": " + getBacklog() + " readings waiting to be written.");
+    }
+
+    public long append(TemperatureReading reading) throws InterruptedException {
+        // Spools a reading and gives it its sequence number. Returns 0 if it was not spooled
+        // (DROP_NEWEST while the spool is full, or after shutdown). Only copies the record into memory.
+        byte[] sensorId = reading.getSensorId().getBytes(StandardCharsets.UTF_8);
+        if (sensorId.length > MAX_SENSOR_ID_BYTES) {
+            throw new IllegalArgumentException("Sensor id too long: " + reading.getSensorId());
+        }
+        int recordBytes = RECORD_OVERHEAD + sensorId.length;
+        lock.lock();
+        try {
+            while (running && totalBytes + recordBytes > maxBytes) {
+                if (overflowPolicy == OverflowPolicy.BLOCK) {
+                    spaceFreed.await();
+                } else if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                    rejected++;
+                    return 0;
+                } else {
+                    dropOldestSegment();
+                }
+            }
+            if (!running) {
+                return 0;
+            }
+            if (current == null || current.size + recordBytes > segmentBytes) {
+                roll();
+            }
+            long sequence = lastSequence + 1;
+            record.clear();
+            record.putInt(recordBytes - 8);
+            record.putLong(sequence);
+            record.putLong(EpochTime.toEpochMillis(reading.getTimestamp()));
+            record.putDouble(reading.getTemperature());
+            record.putShort((short) sensorId.length);
+            record.put(sensorId);
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 4, recordBytes - 8);
+            record.putInt((int) crc.getValue());
+            if (current.pendingBytes + recordBytes > current.pending.length) {
+                current.pending = Arrays.copyOf(current.pending, Math.max(current.pending.length * 2, current.pendingBytes + recordBytes));
+            }
+            System.arraycopy(record.array(), 0, current.pending, current.pendingBytes, recordBytes);
+            current.pendingBytes += recordBytes;
+            // Written to the file by the sync thread with the other records of the interval, in one write() call.
+            current.size += recordBytes;
+            totalBytes += recordBytes;
+            lastSequence = sequence;
+            reading.setIngestSequence(sequence);
+            return sequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create a segment in the spool " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private synchronized void writeOut() throws IOException {
+        // Writes the pending records of every segment to its file, one write() per segment. Synchronized, so the
+        // records reach each file in the order they were appended.
+        List<Segment> toWrite = new ArrayList<>();
+        List<byte[]> data = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                if (segment.pendingBytes > 0) {
+                    toWrite.add(segment);
+                    data.add(Arrays.copyOf(segment.pending, segment.pendingBytes));
+                    segment.pendingBytes = 0;
+                }
+            }
+            // Retired segments are no longer in segments: their pending records are not needed.
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < toWrite.size(); i++) {
+            Segment segment = toWrite.get(i);
+            segment.file.write(data.get(i));
+            // Outside the lock, so appends go on while the records are copied into the page cache.
+            lock.lock();
+            try {
+                segment.fileSize += data.get(i).length;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        // Starts a new segment file. The previous one is complete; the sync thread forces it to disk.
+        if (current != null) {
+            rolled.add(current);
+            syncerWakeup.signal();
+        }
+        long first = lastSequence + 1;
+        current = new Segment(first, directory.resolve(String.format("spool-%020d.log", first)));
+        segments.put(first, current);
+    }
+
+    private void dropOldestSegment() throws IOException {
+        // DROP_OLDEST: drops the oldest segment; its unwritten readings are counted as lost.
+        if (segments.firstEntry().getValue() == current) {
+            roll();
+        }
+        Map.Entry<Long, Segment> oldest = segments.pollFirstEntry();
+        long next = segments.firstKey();
+        lost += Math.max(0, next - Math.max(oldest.getKey(), writtenSequence + 1));
+        retire(oldest.getValue());
+    }
+
+    private void retire(Segment segment) {
+        // Under the lock: the segment's space counts as free at once; the sync thread closes and deletes the file.
+        totalBytes -= segment.size;
+        retired.add(segment);
+        syncerWakeup.signal();
+    }
+
+    private void syncLoop() {
+        // Group commit: forces everything appended since the last round to disk with one fsync.
+        while (true) {
+            lock.lock();
+            try {
+                if (running) {
+                    syncerWakeup.await(syncIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+                if (!running) {
+                    return;
+                    // close() forces what is left.
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                sync();
+            } catch (IOException e) {
+                System.err.println("Spool sync failed: " + e.getMessage());
+            }
+        }
+    }
+
+    synchronized void sync() throws IOException {
+        // Writes the pending records, forces the rolled segments and then the current one to disk and deletes the
+        // retired segments. Files are only closed here, so a segment that is retired meanwhile is still open while
+        // it is written and forced.
+        Segment segment;
+        long sequence;
+        List<Segment> toForce;
+        List<Segment> toDelete;
+        lock.lock();
+        try {
+            segment = current;
+            sequence = lastSequence;
+            toForce = new ArrayList<>(rolled);
+            rolled.clear();
+            toDelete = new ArrayList<>(retired);
+            retired.clear();
+        } finally {
+            lock.unlock();
+        }
+        writeOut();
+        // Everything up to sequence (and possibly more) is in the files before they are forced.
+        for (Segment complete : toForce) {
+            if (!toDelete.contains(complete)) {
+                complete.file.getFD().sync();
+            }
+        }
+        if (segment != null && sequence > syncedSequence) {
+            segment.file.getFD().sync();
+            syncedSequence = sequence;
+            // Outside the lock, so appends go on while the disk flushes.
+        }
+        for (Segment unused : toDelete) {
+            unused.file.close();
+            Files.deleteIfExists(unused.path);
+        }
+    }
+
+    public List<TemperatureReading> read(long fromSequence, int max) throws IOException {
+        // Up to max spooled readings from fromSequence on, in sequence order. Starts at the oldest retained
+        // reading if fromSequence was dropped (DROP_OLDEST). Called by one thread only.
+        writeOut();
+        // The pending records are written first, so a replay sees every reading appended so far.
+        List<Segment> readable = new ArrayList<>();
+        List<Long> readableBytes = new ArrayList<>();
+        lock.lock();
+        try {
+            Long start = segments.floorKey(fromSequence);
+            for (Segment segment : (start == null ? segments : segments.tailMap(start, true)).values()) {
+                readable.add(segment);
+                readableBytes.add(segment.fileSize);
+                // Only complete records that are in the file: the size is taken under the lock.
+            }
+        } finally {
+            lock.unlock();
+        }
+        List<TemperatureReading> readings = new ArrayList<>(Math.min(max, 4096));
+        try {
+            for (int i = 0; i < readable.size() && readings.size() < max; i++) {
+                Segment segment = readable.get(i);
+                if (cursor == null || cursor.segment != segment || cursor.nextSequence != fromSequence) {
+                    closeCursor();
+                    cursor = new ReplayCursor(segment);
+                }
+                while (readings.size() < max && cursor.position < readableBytes.get(i)) {
+                    TemperatureReading reading = cursor.next();
+                    if (reading.getIngestSequence() >= fromSequence) {
+                        readings.add(reading);
+                        fromSequence = reading.getIngestSequence() + 1;
+                    }
+                    cursor.nextSequence = reading.getIngestSequence() + 1;
+                }
+            }
+        } catch (IOException e) {
+            closeCursor();
+            if (readings.isEmpty()) {
+                throw e;
+            }
+            // E.g. the segment was dropped meanwhile; the next read starts over.
+        }
+        return readings;
+    }
+
+    private void closeCursor() {
+        if (cursor != null) {
+            try {
+                cursor.in.close();
+            } catch (IOException e) {
+                // Nothing to do.
+            }
+            cursor = null;
+        }
+    }
+
+    public void acknowledge(long sequence) throws IOException {
+        // Everything up to sequence is in the store: deletes the segments holding nothing newer
+        // and remembers the sequence in the local checkpoint file.
+        lock.lock();
+        try {
+            if (sequence <= writtenSequence) {
+                return;
+            }
+            writtenSequence = sequence;
+            release();
+        } finally {
+            lock.unlock();
+        }
+        Path checkpoint = directory.resolve("checkpoint");
+        Path temporary = directory.resolve("checkpoint.tmp");
+        Files.writeString(temporary, Long.toString(sequence));
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // Not forced: after a crash the database checkpoint (or a replayed duplicate batch with storage.backend=log) covers it.
+    }
+
+    private void release() {
+        // Under the lock: retires the written segments (never the current one) and wakes blocked appends.
+        while (segments.size() > 1) {
+            Map.Entry<Long, Segment> oldest = segments.firstEntry();
+            if (oldest.getValue() == current || segments.higherKey(oldest.getKey()) - 1 > writtenSequence) {
+                break;
+            }
+            segments.pollFirstEntry();
+            retire(oldest.getValue());
+        }
+        spaceFreed.signalAll();
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        if (syncer == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            running = false;
+            spaceFreed.signalAll();
+            syncerWakeup.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        syncer.join();
+        sync();
+        lock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.file.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+        closeCursor();
+    }
+
+    interface RecordCallback {
+        void accept(TemperatureReading reading);
+    }
+
+    private static long scan(Segment segment, RecordCallback callback) throws IOException {
+        // Reads the records of a segment until the end or the first invalid one; returns the bytes of valid records.
+        ReplayCursor reader = new ReplayCursor(segment);
+        try {
+            while (reader.position < segment.size) {
+                callback.accept(reader.next());
+            }
+        } catch (IOException e) {
+            // A torn or corrupt record: everything from here on is invalid.
+        } finally {
+            reader.in.close();
+        }
+        return reader.position;
+    }
+
+    private static final class ReplayCursor {
+        // Sequential reader over one segment file, with its own file position.
+        final Segment segment;
+        final DataInputStream in;
+        long position;
+        long nextSequence;
+
+        ReplayCursor(Segment segment) throws IOException {
+            this.segment = segment;
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(segment.path.toFile()), 64 * 1024));
+            this.nextSequence = segment.firstSequence;
+        }
+
+        TemperatureReading next() throws IOException {
+            int length = in.readInt();
+            if (length < RECORD_OVERHEAD - 8 || length > RECORD_OVERHEAD - 8 + MAX_SENSOR_ID_BYTES) {
+                throw new IOException("Invalid record length " + length + " in " + segment.path);
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            int checksum = in.readInt();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Checksum mismatch in " + segment.path + " at " + position);
+            }
+            ByteBuffer record = ByteBuffer.wrap(body);
+            TemperatureReading reading = new TemperatureReading();
+            reading.setIngestSequence(record.getLong());
+            reading.setTimestamp(EpochTime.toLocalDateTime(record.getLong()));
+            reading.setTemperature(record.getDouble());
+            byte[] sensorId = new byte[record.getShort()];
+            if (sensorId.length != record.remaining()) {
+                throw new EOFException("Invalid sensor id length in " + segment.path);
+            }
+            record.get(sensorId);
+            reading.setSensorId(new String(sensorId, StandardCharsets.UTF_8));
+            position += 8 + length;
+            return reading;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getSpoolId() {
+        return spoolId;
+    }
+    // Identifies this spool directory in ingest_checkpoint.
+
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getWrittenSequence() {
+        lock.lock();
+        try {
+            return writtenSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBacklog() {
+        lock.lock();
+        try {
+            return lastSequence - writtenSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+    // Spooled readings not yet acknowledged as written.
+
+    public long getBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLost() {
+        lock.lock();
+        try {
+            return lost;
+        } finally {
+            lock.unlock();
+        }
+    }
+    // Unwritten readings deleted by DROP_OLDEST.
+
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+    // Readings not spooled by DROP_NEWEST.
+}
+
+/*
+Files (ingest.spool.directory):
+    spool.id                random id of this spool, the key of its row in ingest_checkpoint
+    checkpoint              last sequence acknowledged as written (local copy of the database checkpoint)
+    spool-<first seq>.log   segments of ingest.spool.segment-mb, records of 34 bytes plus the sensor id
+    A segment is deleted (by the sync thread, within one sync interval) once every reading in it is written.
+    On startup a record torn by a crash (short or with a wrong CRC32) is cut off the last segment.
+
+Durability:
+    append() copies the record into the segment's buffer in memory and returns. Every
+    ingest.spool.sync-interval-ms the ingest-spool-sync thread writes the buffered records to the file (one
+    write() per segment) and forces them to disk (group commit: one write and one fsync for all readings of the
+    interval). A crash or kill of the application, a power loss or an operating system crash can each cost the
+    readings of the last interval; they were also queued in memory, so they are only lost if the database did not
+    get them either. The replay (read()) writes the buffered records out first, so it sees every appended reading.
+    Writes, fsyncs and file deletions only run on the sync thread (or the replaying thread), so the serial reader
+    waits for neither the disk nor the database; the only file operation it does is creating the next segment
+    file when one is full.
+
+Exactly once:
+    Sequences are contiguous. TemperatureWriteBehindQueue writes readings in sequence order and records the last
+    written sequence in ingest_checkpoint in the same transaction (TemperatureStore.append(readings, spoolId, seq)),
+    then acknowledges it here. After a restart it continues at max(database checkpoint, local checkpoint) + 1.
+
+Disk limit (ingest.spool.max-mb) and ingest.spool.overflow:
+    BLOCK       - ingest waits until written readings free a segment.
+    DROP_OLDEST - the oldest segment is deleted; its unwritten readings are lost (getLost()), the newest are kept.
+    DROP_NEWEST - new readings are discarded (getRejected()) until there is room.
+*/
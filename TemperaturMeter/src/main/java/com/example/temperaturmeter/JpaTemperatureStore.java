@@ -0,0 +1,178 @@
+package com.example.temperaturmeter;
+import jakarta.persistence.EntityManager;// Imports the EntityManager, used to detach streamed entities so the persistence context stays small.
+import jakarta.persistence.PersistenceContext;// Imports @PersistenceContext, which injects the transaction-bound EntityManager.
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;// Imports @ConditionalOnProperty, which creates this bean only for storage.backend=jpa (the default).
+import org.springframework.data.domain.PageRequest;// Imports PageRequest, used to pass the page size (LIMIT) to the repository.
+import org.springframework.jdbc.core.JdbcTemplate;// Imports JdbcTemplate, which reads the column projection without JPA.
+import org.springframework.jdbc.core.RowCallbackHandler;// Imports RowCallbackHandler, which receives the projected rows one at a time.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import org.springframework.transaction.annotation.Transactional;// Imports Spring's @Transactional annotation (supports readOnly).
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "jpa", matchIfMissing = true)
+// Default storage backend: MySQL, read through the JPA repository and written with JDBC batches.
+// Days moved into the compressed TemperatureArchive are merged into every range query.
+public class JpaTemperatureStore implements TemperatureStore {
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String COLUMNS_SQL = "SELECT timestamp, temperature FROM temp_reading " +
+            "WHERE sensor_id = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp ASC, id ASC LIMIT ?";
+    // The two columns of the projection only; same index range as streamMeasurementsBetween.
+
+    @Autowired
+    private TemperatureReadingRepository temperatureReadingRepository;
+    // Repository interface for reading from the temp_reading table.
+
+    @Autowired
+    private TemperatureBatchWriter batchWriter;
+    // Writes batches (and their rollup buckets) with plain JDBC.
+
+    @Autowired
+    private TemperatureArchive temperatureArchive;
+    // The compressed archive holding the days that were moved out of the database.
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    // Reads range queries into primitive columns, bypassing entity hydration and the persistence context.
+
+    @PersistenceContext
+    // Injects the EntityManager bound to the current transaction.
+    private EntityManager entityManager;
+
+    @Override
+    public void append(List<TemperatureReading> readings) {
+        batchWriter.insertBatch(readings);
+    }
+
+    @Override
+    public void append(List<TemperatureReading> readings, String spoolId, long lastSequence) {
+        batchWriter.insertBatch(readings, spoolId, lastSequence);
+    }
+
+    @Override
+    public long getSpoolCheckpoint(String spoolId) {
+        return batchWriter.readCheckpoint(spoolId);
+    }
+
+    @Override
+    public TemperatureReading findLast(String sensorId) {
+        TemperatureReading last = temperatureReadingRepository.findLastMeasurement(sensorId);
+        if (last == null && temperatureArchive.getArchivedUntil() != null) {
+            List<TemperatureReading> archived = temperatureArchive.readDescending(
+                    sensorId, EARLIEST, temperatureArchive.getArchivedUntil(), 0, 1);
+            last = archived.isEmpty() ? null : archived.get(0);
+            // A sensor that has been silent for longer than archive.after-days only has archived readings.
+        }
+        return last;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TemperatureReading> findPageBefore(String sensorId, LocalDateTime startTime,
+                                                   LocalDateTime cursorTime, long cursorId, int limit) {
+        List<TemperatureReading> readings = temperatureReadingRepository.findPageBefore(
+                sensorId, databaseStart(startTime), cursorTime, cursorId, PageRequest.of(0, limit));
+        if (readings.size() < limit && temperatureArchive.covers(startTime)) {
+            readings = new ArrayList<>(readings);
+            readings.addAll(temperatureArchive.readDescending(sensorId, startTime, cursorTime, cursorId, limit - readings.size()));
+            // The page continues with the newest archived readings once the database part of the range is exhausted.
+        }
+        return readings;
+    }
+
+    @Override
+    public List<TemperatureReading> findBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime) {
+        List<TemperatureReading> readings = temperatureReadingRepository.findMeasurementsBetween(sensorId, databaseStart(startTime), endTime);
+        if (temperatureArchive.covers(startTime)) {
+            readings = new ArrayList<>(readings);
+            readings.addAll(temperatureArchive.readDescending(
+                    sensorId, startTime, min(endTime, temperatureArchive.getArchivedUntil()), 0, Integer.MAX_VALUE));
+            // Followed by the archived readings, also newest first.
+        }
+        return readings;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime, ReadingCallback callback) throws IOException {
+        if (temperatureArchive.covers(startTime)) {
+            temperatureArchive.forEach(sensorId, startTime, min(endTime, temperatureArchive.getArchivedUntil()), callback);
+            // The archived part of the range comes first, decoded straight from the segment files.
+        }
+        try (Stream<TemperatureReading> readings = temperatureReadingRepository.streamMeasurementsBetween(sensorId, databaseStart(startTime), endTime)) {
+            Iterator<TemperatureReading> iterator = readings.iterator();
+            while (iterator.hasNext()) {
+                TemperatureReading reading = iterator.next();
+                callback.accept(reading);
+                entityManager.detach(reading);
+                // Detaches each entity once written, so memory use does not grow with the size of the range.
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    // Read-only, so the JDBC query runs on the read replica when one is configured (DataSourceRoutingConfiguration).
+    public ReadingColumns findColumnsBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime, int limit) {
+        ReadingColumns columns = new ReadingColumns(sensorId);
+        if (temperatureArchive.covers(startTime)) {
+            temperatureArchive.addColumns(sensorId, startTime, min(endTime, temperatureArchive.getArchivedUntil()), columns, limit);
+            // The archived part of the range comes first, decoded straight into the arrays.
+        }
+        int remaining = limit - columns.size();
+        if (remaining > 0) {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(COLUMNS_SQL);
+                statement.setFetchSize(1000);
+                // Rows arrive 1000 at a time (useCursorFetch=true), so the driver never buffers a week of rows.
+                statement.setString(1, sensorId);
+                statement.setTimestamp(2, Timestamp.valueOf(databaseStart(startTime)));
+                statement.setTimestamp(3, Timestamp.valueOf(endTime));
+                statement.setInt(4, remaining);
+                return statement;
+            }, (RowCallbackHandler) row -> columns.add(row.getTimestamp(1).getTime(), row.getDouble(2)));
+            // One Timestamp per row and no entity, LocalDateTime, boxed value or persistence context entry.
+        }
+        return columns;
+    }
+
+    @Override
+    public void forEachSince(LocalDateTime startTime, ReadingCallback callback) throws IOException {
+        for (TemperatureReading reading : temperatureReadingRepository.findAllSensorsMeasurementsSince(startTime)) {
+            callback.accept(reading);
+        }
+        // Used for the rolling windows (at most the largest window), which are never archived.
+    }
+
+    @Override
+    public WindowStatistics getStatisticsSince(String sensorId, LocalDateTime startTime) {
+        WindowStatistics statistics = temperatureReadingRepository.findWindowStatisticsSince(sensorId, databaseStart(startTime));
+        if (temperatureArchive.covers(startTime)) {
+            statistics = statistics.merge(temperatureArchive.getStatistics(sensorId, startTime, temperatureArchive.getArchivedUntil()));
+            // Plus the archived part of the window (whole days come from the segment index).
+        }
+        return statistics;
+    }
+
+    private LocalDateTime databaseStart(LocalDateTime startTime) {
+        // Start of the part of a range that is read from the database: everything before the end of the archive
+        // is read from the archive, so readings that are still being deleted after compaction are never returned twice.
+        // Late rows before the end of the archive stay in the table until the next compaction merges them into it.
+        LocalDateTime archivedUntil = temperatureArchive.getArchivedUntil();
+        return archivedUntil != null && startTime.isBefore(archivedUntil) ? archivedUntil : startTime;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.temperaturmeter;
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to load the latest reading of every sensor at startup.
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+// The latest reading of every sensor, kept in memory by the ingest path.
+// Status widgets polling /api/temperature/latest are answered from here without touching the database.
+public class LatestReadingCache {
+
+    public record LatestReading(String sensorId, double temperature, LocalDateTime timestamp, long version) {
+        // version increases with every update of the cache and is used as the ETag.
+    }
+
+    @Autowired
+    // Used once at startup to load the last stored reading of each configured sensor.
+    private TemperatureStore temperatureStore;
+
+    @Autowired
+    // Lists the configured sensors.
+    private SensorRegistry sensorRegistry;
+
+    private final Map<String, LatestReading> latest = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    public void load() {
+        for (String sensorId : sensorRegistry.getSensorIds()) {
+            TemperatureReading reading = temperatureStore.findLast(sensorId);
+            // One LIMIT 1 lookup on the (sensor_id, timestamp) index per sensor.
+            if (reading != null) {
+                update(sensorId, reading.getTemperature(), reading.getTimestamp());
+            }
+        }
+    }
+
+    public void update(String sensorId, double temperature, LocalDateTime timestamp) {
+        // Called by the ingest path for every new reading. Older readings never replace newer ones.
+        latest.compute(sensorId, (id, current) -> current != null && current.timestamp().isAfter(timestamp)
+                ? current
+                : new LatestReading(id, temperature, timestamp, version.incrementAndGet()));
+    }
+
+    public LatestReading get(String sensorId) {
+        return latest.get(sensorId);
+    }
+    // The latest reading of a sensor, or null if it has none.
+
+    public Map<String, LatestReading> getAll() {
+        return Collections.unmodifiableMap(new TreeMap<>(latest));
+    }
+    // The latest reading of every sensor that has one, by sensor id.
+
+    public long getVersion() {
+        return version.get();
+    }
+    // Changes whenever any sensor's latest reading changes.
+}
+
+/*
+ETags:
+    Every update gets a new version. /api/temperature/latest?sensorId=x uses the version of that sensor's entry,
+    /api/temperature/latest without a sensor uses getVersion(). A client sending the ETag back in If-None-Match
+    gets 304 Not Modified (no body) until a new reading arrives.
+*/
@@ -0,0 +1,18 @@
+package com.example.temperaturmeter;
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+
+@Component
+// Pushes every alert to the Server-Sent Events subscribers of /api/temperature/live as an "alert" event,
+// next to the readings of the same sensor.
+public class LiveAlertSink implements AlertSink {
+
+    @Autowired
+    // Injects the live feed whose subscribers receive the alerts.
+    private LiveReadingFeed liveReadingFeed;
+
+    @Override
+    public void deliver(AlertEngine.AlertEvent event) {
+        liveReadingFeed.publishAlert(event.sensorId(), event);
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.temperaturmeter;
+import com.fasterxml.jackson.core.JsonProcessingException;// Imports the exception thrown when a reading cannot be serialized.
+import com.fasterxml.jackson.databind.ObjectMapper;// Imports Spring Boot's configured ObjectMapper, used to serialize each reading once.
+import jakarta.annotation.PreDestroy;// Imports @PreDestroy, used to close all subscriptions when the application shuts down.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.scheduling.annotation.Scheduled;// Imports @Scheduled, used to send the heartbeat comments.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;// Imports SseEmitter, Spring MVC's asynchronous Server-Sent Events response.
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+// Pushes new readings to live subscribers (Server-Sent Events) straight from the ingest path.
+// A new subscriber first receives a snapshot of the recent readings held in memory, then every new reading.
+// Connections are asynchronous, so no thread is held per subscriber; a small dispatcher pool does all the writing.
+public class LiveReadingFeed {
+
+    public enum SlowConsumerPolicy {
+        DROP_OLDEST,
+        // The oldest buffered event of the subscriber is discarded to make room (the display skips ahead).
+        DISCONNECT
+        // The subscriber is disconnected; the browser reconnects and resumes from its Last-Event-ID or a new snapshot.
+    }
+
+    interface EventSink {
+        // Where the events of one subscriber are written to (an SseEmitter, or a test double).
+        void send(long sequence, String name, String data) throws IOException;
+        // name null sends a heartbeat comment.
+        void close();
+    }
+
+    public record LiveReading(long sequence, String sensorId, double temperature, long epochMillis) {
+        // The JSON form of a pushed reading. The sequence numbers the events of the feed (the SSE event id).
+    }
+
+    private static final int DRAIN_BATCH = 64;
+    // A dispatcher task writes at most this many events before it yields to the other subscribers.
+
+    private final int snapshotSize;
+    private final int bufferSize;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final int maxSubscribers;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService dispatcher;
+
+    private final Object publishLock = new Object();
+    // Orders publishing and subscribing, so every reading reaches a new subscriber exactly once:
+    // either in its snapshot or as a later event.
+
+    private final Map<String, ArrayDeque<Event>> recent = new HashMap<>();
+    // The last snapshotSize events of every sensor, guarded by publishLock.
+
+    private final Map<String, Set<Subscriber>> sensorSubscribers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> allSensorSubscribers = ConcurrentHashMap.newKeySet();
+    // Subscribers by sensor, so a reading is only offered to the subscribers that want it.
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private long sequence;
+    // Guarded by publishLock.
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong disconnected = new AtomicLong();
+    // Counters for monitoring.
+
+    public LiveReadingFeed(@Value("${live.snapshot-size:360}") int snapshotSize,
+                           @Value("${live.subscriber-buffer:256}") int bufferSize,
+                           @Value("${live.slow-consumer:DROP_OLDEST}") SlowConsumerPolicy slowConsumerPolicy,
+                           @Value("${live.max-subscribers:5000}") int maxSubscribers,
+                           @Value("${live.dispatch-threads:2}") int dispatchThreads,
+                           ObjectMapper objectMapper) {
+        this.snapshotSize = snapshotSize;
+        this.bufferSize = bufferSize;
+        this.slowConsumerPolicy = slowConsumerPolicy;
+        this.maxSubscribers = maxSubscribers;
+        this.objectMapper = objectMapper;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(Math.max(1, dispatchThreads), task -> {
+            Thread thread = new Thread(task, "live-feed-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void publish(TemperatureReading reading) {
+        // Called by the ingest path for every new reading, before it is written to the database.
+        synchronized (publishLock) {
+            long eventSequence = ++sequence;
+            Event event = new Event(eventSequence, toJson(new LiveReading(eventSequence, reading.getSensorId(),
+                    reading.getTemperature(), EpochTime.toEpochMillis(reading.getTimestamp()))));
+            // Serialized once, however many subscribers receive it.
+            ArrayDeque<Event> sensorRecent = recent.computeIfAbsent(reading.getSensorId(), id -> new ArrayDeque<>(snapshotSize));
+            if (sensorRecent.size() == snapshotSize) {
+                sensorRecent.pollFirst();
+            }
+            sensorRecent.addLast(event);
+            offer(reading.getSensorId(), event);
+        }
+    }
+
+    public void publishAlert(String sensorId, Object alert) {
+        // Pushes an "alert" event (see AlertEngine) to the subscribers of the sensor and of all sensors.
+        // Alerts are not part of the snapshot; a new subscriber asks /api/v1/alerts for the firing ones.
+        synchronized (publishLock) {
+            offer(sensorId, new Event(++sequence, "alert", toJson(alert)));
+        }
+    }
+
+    private void offer(String sensorId, Event event) {
+        // Called under publishLock.
+        Set<Subscriber> subscribers = sensorSubscribers.get(sensorId);
+        if (subscribers != null) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+        }
+        for (Subscriber subscriber : allSensorSubscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    public SseEmitter subscribe(String sensorId, Long lastEventId) {
+        // Opens a Server-Sent Events subscription for one sensor (or all sensors if sensorId is null).
+        // Returns null if live.max-subscribers is reached.
+        SseEmitter emitter = new SseEmitter(0L);
+        // Never times out; dead connections are detected by the heartbeat.
+        Subscriber subscriber = register(sensorId, lastEventId, new EventSink() {
+            @Override
+            public void send(long sequence, String name, String data) throws IOException {
+                if (name == null) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    emitter.send(SseEmitter.event().id(Long.toString(sequence)).name(name).data(data));
+                }
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        if (subscriber == null) {
+            return null;
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        // The subscription ends with the connection.
+        return emitter;
+    }
+
+    Subscriber register(String sensorId, Long lastEventId, EventSink sink) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(sensorId, sink);
+        synchronized (publishLock) {
+            List<Event> backlog = new ArrayList<>();
+            boolean resumable = lastEventId != null;
+            for (Map.Entry<String, ArrayDeque<Event>> entry : recent.entrySet()) {
+                if (sensorId != null && !sensorId.equals(entry.getKey())) {
+                    continue;
+                }
+                ArrayDeque<Event> sensorRecent = entry.getValue();
+                if (lastEventId != null && sensorRecent.size() == snapshotSize && sensorRecent.peekFirst().sequence > lastEventId + 1) {
+                    resumable = false;
+                    // Events after lastEventId have already left the window, so the client needs a full snapshot.
+                }
+                backlog.addAll(sensorRecent);
+            }
+            backlog.sort(Comparator.comparingLong(event -> event.sequence));
+            if (resumable) {
+                backlog.removeIf(event -> event.sequence <= lastEventId);
+                subscriber.enqueue(backlog);
+                // A reconnecting client only gets the readings it missed, as ordinary events.
+            } else {
+                subscriber.enqueue(List.of(snapshot(backlog)));
+            }
+            if (sensorId == null) {
+                allSensorSubscribers.add(subscriber);
+            } else {
+                sensorSubscribers.computeIfAbsent(sensorId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            }
+        }
+        return subscriber;
+    }
+
+    private Event snapshot(List<Event> events) {
+        // One "snapshot" event holding the recent readings as a JSON array, built from the already serialized events.
+        StringBuilder json = new StringBuilder("[");
+        for (Event event : events) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(event.json);
+        }
+        long lastSequence = events.isEmpty() ? sequence : events.get(events.size() - 1).sequence;
+        return new Event(lastSequence, "snapshot", json.append(']').toString());
+    }
+
+    @Scheduled(fixedRateString = "${live.heartbeat-ms:15000}")
+    // Sends a comment to idle subscribers, so closed connections fail to write and are removed.
+    public void heartbeat() {
+        Event heartbeat = new Event(0, null, null);
+        for (Set<Subscriber> subscribers : sensorSubscribers.values()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offerIfIdle(heartbeat);
+            }
+        }
+        for (Subscriber subscriber : allSensorSubscribers) {
+            subscriber.offerIfIdle(heartbeat);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Set<Subscriber> subscribers : sensorSubscribers.values()) {
+            subscribers.forEach(Subscriber::close);
+        }
+        allSensorSubscribers.forEach(Subscriber::close);
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + value, e);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getDisconnected() {
+        return disconnected.get();
+    }
+
+    private static final class Event {
+        final long sequence;
+        final String name;
+        final String json;
+
+        Event(long sequence, String json) {
+            this(sequence, "reading", json);
+        }
+
+        Event(long sequence, String name, String json) {
+            this.sequence = sequence;
+            this.name = name;
+            this.json = json;
+        }
+    }
+
+    final class Subscriber {
+        // One live connection: a bounded buffer of events that the dispatcher pool writes to the sink.
+
+        private final String sensorId;
+        private final EventSink sink;
+        private final ArrayDeque<Event> buffer = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean closed;
+        // Guarded by the subscriber itself.
+
+        private Subscriber(String sensorId, EventSink sink) {
+            this.sensorId = sensorId;
+            this.sink = sink;
+        }
+
+        private synchronized void enqueue(List<Event> events) {
+            buffer.addAll(events);
+            schedule();
+        }
+
+        private void offer(Event event) {
+            // Called under publishLock, so it never waits for the network.
+            boolean disconnect = false;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (buffer.size() >= bufferSize) {
+                    if (slowConsumerPolicy == SlowConsumerPolicy.DISCONNECT) {
+                        disconnect = true;
+                    } else {
+                        buffer.pollFirst();
+                        dropped.incrementAndGet();
+                    }
+                }
+                if (!disconnect) {
+                    buffer.addLast(event);
+                    schedule();
+                }
+            }
+            if (disconnect) {
+                disconnected.incrementAndGet();
+                close();
+            }
+        }
+
+        private synchronized void offerIfIdle(Event event) {
+            if (!closed && buffer.isEmpty()) {
+                buffer.addLast(event);
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                dispatcher.execute(this::drain);
+                // At most one task per subscriber is queued or running, so its events stay in order.
+            }
+        }
+
+        private void drain() {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                Event event;
+                synchronized (this) {
+                    event = buffer.pollFirst();
+                    if (event == null || closed) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    sink.send(event.sequence, event.name, event.json);
+                } catch (Exception e) {
+                    close();
+                    // The client has gone away.
+                    return;
+                }
+            }
+            synchronized (this) {
+                scheduled = false;
+                if (!buffer.isEmpty()) {
+                    schedule();
+                    // Requeued behind the other subscribers' tasks.
+                }
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                buffer.clear();
+            }
+            if (sensorId == null) {
+                allSensorSubscribers.remove(this);
+            } else {
+                Set<Subscriber> subscribers = sensorSubscribers.get(sensorId);
+                if (subscribers != null) {
+                    subscribers.remove(this);
+                }
+            }
+            subscriberCount.decrementAndGet();
+            try {
+                sink.close();
+            } catch (Exception e) {
+                // The connection is already closed.
+            }
+        }
+    }
+}
+
+/*
+Events (text/event-stream):
+    snapshot - sent once after subscribing: a JSON array of the last live.snapshot-size readings of each subscribed
+               sensor, oldest first.
+    reading  - every new reading as {"sequence", "sensorId", "temperature", "epochMillis"}; the event id is the
+               sequence, so a browser that reconnects sends it as Last-Event-ID and receives only the readings it
+               missed (or a new snapshot if they are no longer held in memory).
+    alert    - a state change of an alert rule of the sensor (AlertEngine.AlertEvent); not repeated in snapshots.
+    A ": heartbeat" comment is sent to idle subscribers every live.heartbeat-ms.
+
+Fan-out:
+    The ingest path calls publish() for every reading. The reading is serialized once and appended to each
+    subscriber's bounded buffer (live.subscriber-buffer events); publish never writes to a socket itself.
+    live.dispatch-threads threads write the buffers to the connections, DRAIN_BATCH events per turn.
+    Since SseEmitter responses are asynchronous, an open subscription holds no request thread, so thousands
+    of subscribers cost one small buffer each.
+
+Slow consumers (live.slow-consumer):
+    DROP_OLDEST - a subscriber whose buffer is full loses its oldest events (counted in getDropped()).
+    DISCONNECT  - a subscriber whose buffer is full is disconnected (counted in getDisconnected()).
+*/
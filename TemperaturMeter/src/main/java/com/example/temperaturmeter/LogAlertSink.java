@@ -0,0 +1,21 @@
+package com.example.temperaturmeter;
+import org.slf4j.Logger;// Imports the SLF4J Logger the alerts are written to.
+import org.slf4j.LoggerFactory;// Imports the SLF4J LoggerFactory.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+
+@Component
+// Writes every alert to the application log: firing alerts as warnings, resolved ones as information.
+// Not rate-limited, since a rule only produces an event when its state changes.
+public class LogAlertSink implements AlertSink {
+
+    private static final Logger log = LoggerFactory.getLogger(LogAlertSink.class);
+
+    @Override
+    public void deliver(AlertEngine.AlertEvent event) {
+        if (event.state() == AlertEngine.State.FIRING) {
+            log.warn("ALERT {} [{}]: {}", event.state(), event.rule(), event.message());
+        } else {
+            log.info("ALERT {} [{}]: {}", event.state(), event.rule(), event.message());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.temperaturmeter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+class LogSegment {
+    // One preallocated, memory-mapped file of the append-only log, holding fixed-size records.
+    // Record (32 bytes): long id, long epoch millis, int sensor code, float temperature, int reserved, int CRC32 of the first 28 bytes.
+
+    static final int RECORD_BYTES = 32;
+    private static final int CHECKSUMMED_BYTES = 28;
+
+    private final Path path;
+    private final long firstId;
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+
+    private LogSegment(Path path, long firstId, int capacity, MappedByteBuffer buffer) {
+        this.path = path;
+        this.firstId = firstId;
+        this.capacity = capacity;
+        this.buffer = buffer;
+    }
+
+    static LogSegment open(Path path, long firstId, int capacity) throws IOException {
+        // Opens or creates the file with room for capacity records; new files read as zeros.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_BYTES);
+            return new LogSegment(path, firstId, capacity, buffer);
+        }
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getFirstId() {
+        return firstId;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    void write(int slot, long id, long epochMillis, int sensorCode, float temperature) {
+        int offset = slot * RECORD_BYTES;
+        buffer.putLong(offset, id);
+        buffer.putLong(offset + 8, epochMillis);
+        buffer.putInt(offset + 16, sensorCode);
+        buffer.putFloat(offset + 20, temperature);
+        buffer.putInt(offset + 24, 0);
+        buffer.putInt(offset + 28, checksum(offset));
+    }
+
+    boolean isValid(int slot, long expectedId) {
+        // A record is valid if it has the expected id and its checksum matches; a torn or unwritten record has not.
+        int offset = slot * RECORD_BYTES;
+        return buffer.getLong(offset) == expectedId && buffer.getInt(offset + 28) == checksum(offset);
+    }
+
+    boolean isEmpty(int slot) {
+        int offset = slot * RECORD_BYTES;
+        for (int i = 0; i < RECORD_BYTES; i += 8) {
+            if (buffer.getLong(offset + i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void clear(int slot) {
+        int offset = slot * RECORD_BYTES;
+        for (int i = 0; i < RECORD_BYTES; i += 8) {
+            buffer.putLong(offset + i, 0);
+        }
+    }
+
+    long getId(int slot) {
+        return buffer.getLong(slot * RECORD_BYTES);
+    }
+
+    long getEpochMillis(int slot) {
+        return buffer.getLong(slot * RECORD_BYTES + 8);
+    }
+
+    int getSensorCode(int slot) {
+        return buffer.getInt(slot * RECORD_BYTES + 16);
+    }
+
+    float getTemperature(int slot) {
+        return buffer.getFloat(slot * RECORD_BYTES + 20);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    private int checksum(int offset) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset).limit(offset + CHECKSUMMED_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,500 @@
+package com.example.temperaturmeter;
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to open and recover the log at startup.
+import jakarta.annotation.PreDestroy;// Imports @PreDestroy, used to flush the log to disk at shutdown.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;// Imports @ConditionalOnProperty, which creates this bean only for storage.backend=log.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "log")
+// Embedded storage engine: an append-only log of fixed-size records in preallocated, memory-mapped segment files,
+// with a sparse in-memory time index. Replaces MySQL for single-box deployments (storage.backend=log).
+public class LogTemperatureStore implements TemperatureStore {
+
+    private static final int INDEX_INTERVAL = 1024;
+    // The sparse time index has one entry per block of 1024 records.
+
+    private static final String SENSORS_FILE = "sensors.txt";
+    // Dictionary of sensor ids; records store a small integer code instead of the id string.
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final boolean forceOnAppend;
+
+    private final List<LogSegment> segments = new CopyOnWriteArrayList<>();
+    private volatile long recordCount;
+    // Records [0, recordCount) are complete and visible to readers; the writer publishes a batch by raising it.
+
+    private final Map<String, Integer> sensorCodes = new ConcurrentHashMap<>();
+    private volatile String[] sensorIds = new String[0];
+
+    private long[] blockMinMillis = new long[64];
+    private long[] blockMaxMillis = new long[64];
+    private long[] newestMillis = new long[64];
+    private int indexSize;
+    // Oldest and newest timestamp of block k (records k * INDEX_INTERVAL to (k + 1) * INDEX_INTERVAL - 1), and the
+    // newest timestamp of blocks 0 to k, which never decreases. Guarded by synchronized (this), held only briefly.
+
+    private final Object writeLock = new Object();
+    // Serializes appends; readers never take it.
+
+    private final Map<Integer, Long> lastRecordOfSensor = new ConcurrentHashMap<>();
+    // Position of the newest record of every sensor, for findLast().
+
+    public LogTemperatureStore(@Value("${storage.log.directory:data}") String directory,
+                               @Value("${storage.log.segment-size-mb:64}") int segmentSizeMb,
+                               @Value("${storage.log.force-on-append:true}") boolean forceOnAppend) {
+        this.directory = Paths.get(directory);
+        this.recordsPerSegment = (int) ((long) segmentSizeMb * 1024 * 1024 / LogSegment.RECORD_BYTES);
+        this.forceOnAppend = forceOnAppend;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        // Maps every segment, reads the sensor dictionary and recovers the end of the log: the first record that
+        // is torn or missing ends the log, and the records after it are cleared so they can never reappear.
+        Files.createDirectories(directory);
+        loadSensors();
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.log")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                files.put(Long.parseLong(name.substring(0, name.length() - 4)), file);
+            }
+        }
+        long count = 0;
+        long nextFirstId = 1;
+        boolean ended = false;
+        for (Map.Entry<Long, Path> file : files.entrySet()) {
+            long size = Files.size(file.getValue());
+            if (file.getKey() != nextFirstId || size == 0 || size % LogSegment.RECORD_BYTES != 0) {
+                throw new IllegalStateException("Log segment " + file.getValue() + " (" + size + " bytes) does not continue "
+                        + "the log in " + directory + ", which expects the next segment to start at record " + nextFirstId
+                        + ". Move the segments that do not belong to this log out of the directory.");
+                // Never deleted: a segment that does not line up is a wrong directory or a damaged log, not a torn write.
+            }
+            int capacity = (int) (size / LogSegment.RECORD_BYTES);
+            LogSegment segment = LogSegment.open(file.getValue(), file.getKey(), capacity);
+            // Sized from the file, not from storage.log.segment-size-mb, which may have changed since it was created.
+            segments.add(segment);
+            nextFirstId += capacity;
+            int slot = 0;
+            while (!ended && slot < capacity && segment.isValid(slot, count + 1)) {
+                indexRecord(count, segment.getEpochMillis(slot));
+                lastRecordOfSensor.put(segment.getSensorCode(slot), count);
+                count++;
+                slot++;
+            }
+            if (slot < capacity) {
+                ended = true;
+                for (int i = slot; i < capacity && !segment.isEmpty(i); i++) {
+                    segment.clear(i);
+                }
+                segment.force();
+                // Records after the end of the log (also in the segments that follow) were never acknowledged.
+            }
+        }
+        recordCount = count;
+        System.out.println("Log store opened at " + directory.toAbsolutePath() + ": " + count + " readings in "
+                + segments.size() + " segments.");
+    }
+
+    @PreDestroy
+    public void close() {
+        for (LogSegment segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void append(List<TemperatureReading> readings) {
+        synchronized (writeLock) {
+            appendBatch(readings);
+        }
+    }
+
+    private void appendBatch(List<TemperatureReading> readings) {
+        // Single writer: the records are written behind recordCount and become visible all at once.
+        long position = recordCount;
+        LogSegment first = null;
+        try {
+            for (TemperatureReading reading : readings) {
+                int code = sensorCode(reading.getSensorId());
+                LogSegment segment = segmentFor(position);
+                if (first == null) {
+                    first = segment;
+                }
+                long millis = EpochTime.toEpochMillis(reading.getTimestamp());
+                segment.write((int) (position - (segment.getFirstId() - 1)), position + 1, millis, code,
+                        reading.getTemperature().floatValue());
+                reading.setId(position + 1);
+                position++;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not extend the log in " + directory, e);
+        }
+        if (forceOnAppend && first != null) {
+            for (int i = segments.indexOf(first); i < segments.size(); i++) {
+                segments.get(i).force();
+            }
+            // The batch is on disk before it is acknowledged.
+        }
+        long published = recordCount;
+        for (long p = published; p < position; p++) {
+            indexRecord(p, millisAt(p));
+        }
+        recordCount = position;
+        for (long p = published; p < position; p++) {
+            LogSegment segment = segmentAt(p);
+            lastRecordOfSensor.put(segment.getSensorCode(slotOf(segment, p)), p);
+        }
+    }
+
+    @Override
+    public TemperatureReading findLast(String sensorId) {
+        Integer code = sensorCodes.get(sensorId);
+        Long position = code == null ? null : lastRecordOfSensor.get(code);
+        return position == null ? null : readingAt(position);
+    }
+
+    @Override
+    public List<TemperatureReading> findPageBefore(String sensorId, LocalDateTime startTime,
+                                                   LocalDateTime cursorTime, long cursorId, int limit) {
+        List<TemperatureReading> page = new ArrayList<>();
+        Integer code = sensorCodes.get(sensorId);
+        if (code == null) {
+            return page;
+        }
+        long startMillis = EpochTime.toEpochMillis(startTime);
+        long cursorMillis = EpochTime.toEpochMillis(cursorTime);
+        List<Long> matches = new ArrayList<>();
+        long position = recordCount;
+        while (position > 0) {
+            long blockStart = (position - 1) / INDEX_INTERVAL * INDEX_INTERVAL;
+            if (blockOverlaps(blockStart, startMillis, cursorMillis)) {
+                for (long p = position - 1; p >= blockStart; p--) {
+                    LogSegment segment = segmentAt(p);
+                    int slot = slotOf(segment, p);
+                    long millis = segment.getEpochMillis(slot);
+                    long id = p + 1;
+                    if (segment.getSensorCode(slot) == code && millis >= startMillis
+                            && (millis < cursorMillis || (millis == cursorMillis && id < cursorId))) {
+                        matches.add(p);
+                    }
+                }
+            }
+            position = blockStart;
+            long newestBefore = newestBefore(position);
+            if (matches.size() >= limit) {
+                matches.sort((a, b) -> compareNewestFirst(a, b));
+                matches.subList(limit, matches.size()).clear();
+                if (newestBefore <= millisAt(matches.get(limit - 1))) {
+                    break;
+                    // Every earlier record is older than the page, or as old with a smaller id.
+                }
+            }
+            if (newestBefore < startMillis) {
+                break;
+            }
+        }
+        // Walks the blocks newest first and stops once no earlier block can hold a record for the page.
+        matches.sort((a, b) -> compareNewestFirst(a, b));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            page.add(readingAt(matches.get(i)));
+        }
+        return page;
+    }
+
+    @Override
+    public List<TemperatureReading> findBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime) {
+        List<TemperatureReading> readings = new ArrayList<>();
+        try {
+            forEachBetween(sensorId, startTime, endTime, readings::add);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+            // Cannot happen: the callback does not throw.
+        }
+        readings.sort((a, b) -> compareNewestFirst(a.getId() - 1, b.getId() - 1));
+        return readings;
+    }
+
+    @Override
+    public void forEachBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime, ReadingCallback callback) throws IOException {
+        Integer code = sensorCodes.get(sensorId);
+        if (code != null) {
+            scan(code, EpochTime.toEpochMillis(startTime), EpochTime.toEpochMillis(endTime), callback);
+        }
+    }
+
+    @Override
+    public ReadingColumns findColumnsBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime, int limit) {
+        ReadingColumns columns = new ReadingColumns(sensorId);
+        Integer code = sensorCodes.get(sensorId);
+        if (code == null) {
+            return columns;
+        }
+        long startMillis = EpochTime.toEpochMillis(startTime);
+        long endMillis = EpochTime.toEpochMillis(endTime);
+        long count = recordCount;
+        for (long position = 0; position < count && columns.size() < limit; position++) {
+            if (position % INDEX_INTERVAL == 0) {
+                position = nextBlock(position, startMillis, endMillis);
+                if (position >= count) {
+                    break;
+                }
+            }
+            LogSegment segment = segmentAt(position);
+            int slot = slotOf(segment, position);
+            long millis = segment.getEpochMillis(slot);
+            if (segment.getSensorCode(slot) == code && millis >= startMillis && millis < endMillis) {
+                columns.add(millis, segment.getTemperature(slot));
+            }
+        }
+        // Same scan as forEachBetween, but the raw fields are copied from the mapped files into the arrays.
+        return columns;
+    }
+
+    @Override
+    public void forEachSince(LocalDateTime startTime, ReadingCallback callback) throws IOException {
+        scan(-1, EpochTime.toEpochMillis(startTime), Long.MAX_VALUE, callback);
+    }
+
+    @Override
+    public WindowStatistics getStatisticsSince(String sensorId, LocalDateTime startTime) {
+        Integer code = sensorCodes.get(sensorId);
+        if (code == null) {
+            return WindowStatistics.EMPTY;
+        }
+        long startMillis = EpochTime.toEpochMillis(startTime);
+        long count = recordCount;
+        long countInWindow = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        for (long position = 0; position < count; position++) {
+            if (position % INDEX_INTERVAL == 0) {
+                position = nextBlock(position, startMillis, Long.MAX_VALUE);
+                if (position >= count) {
+                    break;
+                }
+            }
+            LogSegment segment = segmentAt(position);
+            int slot = slotOf(segment, position);
+            if (segment.getSensorCode(slot) == code && segment.getEpochMillis(slot) >= startMillis) {
+                float temperature = segment.getTemperature(slot);
+                countInWindow++;
+                min = Math.min(min, temperature);
+                max = Math.max(max, temperature);
+                sum += temperature;
+            }
+        }
+        // Reads the raw fields straight from the mapped files, without creating reading objects.
+        return countInWindow == 0 ? WindowStatistics.EMPTY : new WindowStatistics(countInWindow,
+                ReadingColumns.toDouble((float) min), ReadingColumns.toDouble((float) max), sum / countInWindow);
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    private void scan(int code, long startMillis, long endMillis, ReadingCallback callback) throws IOException {
+        // Visits the records in [startMillis, endMillis) of one sensor (or of all sensors for code -1) in log order.
+        long count = recordCount;
+        for (long position = 0; position < count; position++) {
+            if (position % INDEX_INTERVAL == 0) {
+                position = nextBlock(position, startMillis, endMillis);
+                if (position >= count) {
+                    break;
+                }
+            }
+            LogSegment segment = segmentAt(position);
+            int slot = slotOf(segment, position);
+            long millis = segment.getEpochMillis(slot);
+            if ((code < 0 || segment.getSensorCode(slot) == code) && millis >= startMillis && millis < endMillis) {
+                callback.accept(readingAt(position));
+            }
+        }
+    }
+
+    private synchronized long nextBlock(long position, long startMillis, long endMillis) {
+        // First position at or after the block start position whose block can hold a record in [startMillis,
+        // endMillis), or Long.MAX_VALUE. The blocks before the first one whose newest timestamp so far reaches
+        // startMillis are skipped with a binary search, the blocks after it that miss the range one by one.
+        int low = (int) (position / INDEX_INTERVAL);
+        int high = indexSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (newestMillis[middle] < startMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        for (int block = low; block < indexSize; block++) {
+            if (blockMinMillis[block] < endMillis && blockMaxMillis[block] >= startMillis) {
+                return (long) block * INDEX_INTERVAL;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private synchronized boolean blockOverlaps(long position, long startMillis, long lastMillis) {
+        // Whether the block starting at position can hold a record in [startMillis, lastMillis].
+        int block = (int) (position / INDEX_INTERVAL);
+        return blockMinMillis[block] <= lastMillis && blockMaxMillis[block] >= startMillis;
+    }
+
+    private synchronized long newestBefore(long position) {
+        // Newest timestamp of the records before the block start position.
+        return position == 0 ? Long.MIN_VALUE : newestMillis[(int) (position / INDEX_INTERVAL) - 1];
+    }
+
+    private synchronized void indexRecord(long position, long millis) {
+        int block = (int) (position / INDEX_INTERVAL);
+        if (block == indexSize) {
+            if (indexSize == blockMinMillis.length) {
+                blockMinMillis = Arrays.copyOf(blockMinMillis, indexSize * 2);
+                blockMaxMillis = Arrays.copyOf(blockMaxMillis, indexSize * 2);
+                newestMillis = Arrays.copyOf(newestMillis, indexSize * 2);
+            }
+            blockMinMillis[block] = millis;
+            blockMaxMillis[block] = millis;
+            newestMillis[block] = block == 0 ? millis : Math.max(newestMillis[block - 1], millis);
+            indexSize++;
+            return;
+        }
+        blockMinMillis[block] = Math.min(blockMinMillis[block], millis);
+        blockMaxMillis[block] = Math.max(blockMaxMillis[block], millis);
+        newestMillis[block] = Math.max(newestMillis[block], millis);
+    }
+
+    private int compareNewestFirst(long a, long b) {
+        long millisA = millisAt(a);
+        long millisB = millisAt(b);
+        return millisA != millisB ? Long.compare(millisB, millisA) : Long.compare(b, a);
+    }
+
+    private TemperatureReading readingAt(long position) {
+        LogSegment segment = segmentAt(position);
+        int slot = slotOf(segment, position);
+        TemperatureReading reading = new TemperatureReading();
+        reading.setId(segment.getId(slot));
+        reading.setSensorId(sensorIds[segment.getSensorCode(slot)]);
+        reading.setTemperature(ReadingColumns.toDouble(segment.getTemperature(slot)));
+        reading.setTimestamp(EpochTime.toLocalDateTime(segment.getEpochMillis(slot)));
+        return reading;
+    }
+
+    private LogSegment segmentAt(long position) {
+        // Binary search on the first ids: segments created with an earlier storage.log.segment-size-mb have other sizes.
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segments.get(middle).getFirstId() - 1 <= position) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return segments.get(low);
+    }
+
+    private static int slotOf(LogSegment segment, long position) {
+        return (int) (position - (segment.getFirstId() - 1));
+    }
+
+    private long millisAt(long position) {
+        LogSegment segment = segmentAt(position);
+        return segment.getEpochMillis(slotOf(segment, position));
+    }
+
+    private LogSegment segmentFor(long position) throws IOException {
+        // The segment of a position, creating the next segment file when the current one is full.
+        LogSegment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last == null || position >= last.getFirstId() - 1 + last.getCapacity()) {
+            long firstId = position + 1;
+            last = LogSegment.open(directory.resolve(String.format("%020d.log", firstId)), firstId, recordsPerSegment);
+            segments.add(last);
+            return last;
+        }
+        return segmentAt(position);
+    }
+
+    private int sensorCode(String sensorId) throws IOException {
+        Integer code = sensorCodes.get(sensorId);
+        if (code != null) {
+            return code;
+        }
+        int newCode = sensorIds.length;
+        Files.write(directory.resolve(SENSORS_FILE), (newCode + "\t" + sensorId + "\n").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        // The dictionary entry is on disk before any record uses the code.
+        String[] ids = Arrays.copyOf(sensorIds, newCode + 1);
+        ids[newCode] = sensorId;
+        sensorIds = ids;
+        sensorCodes.put(sensorId, newCode);
+        return newCode;
+    }
+
+    private void loadSensors() throws IOException {
+        Path file = directory.resolve(SENSORS_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        Map<Integer, String> entries = new HashMap<>();
+        int end = content.lastIndexOf('\n');
+        for (String line : content.substring(0, end + 1).split("\n")) {
+            // A line without its newline was cut off by a crash and is ignored; no record uses its code.
+            if (!line.isEmpty()) {
+                int tab = line.indexOf('\t');
+                entries.put(Integer.parseInt(line.substring(0, tab)), line.substring(tab + 1));
+            }
+        }
+        String[] ids = new String[entries.size()];
+        for (Map.Entry<Integer, String> entry : entries.entrySet()) {
+            ids[entry.getKey()] = entry.getValue();
+            sensorCodes.put(entry.getValue(), entry.getKey());
+        }
+        sensorIds = ids;
+    }
+}
+
+/*
+File layout (storage.log.directory):
+    00000000000000000001.log, 00000000000002097153.log, ...  segments named after the id of their first record,
+                                                           each preallocated to storage.log.segment-size-mb
+                                                           when it is created; existing segments keep their size
+                                                           when the setting changes (it is read from the file)
+    sensors.txt                                            "code<TAB>sensorId" per line
+
+Durability and recovery:
+    A batch is written into the mapped segment, forced to disk (storage.log.force-on-append) and only then made
+    visible. At startup every record is checked (expected id + CRC32); the first torn or unwritten record ends
+    the log and whatever follows it is cleared, so a crash in the middle of a batch loses at most that batch.
+    Segments must follow each other without gaps (each starts at the record after the end of the previous one);
+    if one does not, startup fails and names the file instead of deleting anything.
+
+Reads:
+    Ids are assigned in log order. The sparse index keeps the oldest and newest timestamp of every block of 1024
+    records; range scans read only the blocks whose timestamps overlap the range. The ingest path stamps readings
+    on arrival, so blocks barely overlap; a late or imported reading widens its own block instead of slowing
+    down every later query.
+*/
@@ -0,0 +1,220 @@
+package com.example.temperaturmeter;
+import jakarta.annotation.PreDestroy;// Imports @PreDestroy, used to stop the worker pool at shutdown.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+
+@Component
+// Aggregates long historical ranges (e.g. monthly min/max/mean over several years) in parallel: the range is cut
+// into independent chunks of aggregation.chunk, every chunk is scanned and reduced on a fork-join worker, and the
+// partial results are merged into calendar buckets. At most aggregation.max-connections chunks are read from the
+// store at the same time, so a report never takes every pooled database connection from the ingest path.
+public class RangeAggregator {
+
+    public enum Period {
+        DAY,
+        WEEK,
+        MONTH,
+        YEAR;
+
+        LocalDateTime bucketStart(LocalDateTime timestamp) {
+            LocalDateTime day = timestamp.toLocalDate().atStartOfDay();
+            switch (this) {
+                case WEEK:
+                    return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH:
+                    return day.withDayOfMonth(1);
+                case YEAR:
+                    return day.withDayOfYear(1);
+                default:
+                    return day;
+            }
+        }
+
+        LocalDateTime nextBucket(LocalDateTime bucketStart) {
+            switch (this) {
+                case WEEK:
+                    return bucketStart.plusWeeks(1);
+                case MONTH:
+                    return bucketStart.plusMonths(1);
+                case YEAR:
+                    return bucketStart.plusYears(1);
+                default:
+                    return bucketStart.plusDays(1);
+            }
+        }
+
+        public static Period parse(String value) {
+            // Accepts "day", "week", "month" or "year" in any case; anything else is an IllegalArgumentException
+            // (400 in the controllers).
+            for (Period period : values()) {
+                if (period.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+                    return period;
+                }
+            }
+            throw new IllegalArgumentException("Unknown period: " + value + " (day, week, month or year)");
+        }
+    }
+
+    public record Bucket(LocalDateTime start, LocalDateTime end, WindowStatistics statistics) {
+        // The statistics of the readings in [start, end); the first and last bucket are cut to the requested range.
+    }
+
+    private static final class Chunk {
+        // One independent part of the range; its partial result is written by exactly one worker.
+        final int bucket;
+        final LocalDateTime start;
+        final LocalDateTime end;
+        long count;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum;
+
+        Chunk(int bucket, LocalDateTime start, LocalDateTime end) {
+            this.bucket = bucket;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final TemperatureStore temperatureStore;
+    private final ForkJoinPool pool;
+    private final Semaphore connections;
+    private final Duration chunkSize;
+    private final int maxChunks;
+
+    public RangeAggregator(TemperatureStore temperatureStore,
+                           @Value("${aggregation.parallelism:0}") int parallelism,
+                           @Value("${aggregation.max-connections:4}") int maxConnections,
+                           @Value("${aggregation.chunk:1d}") Duration chunkSize,
+                           @Value("${aggregation.max-chunks:10000}") int maxChunks) {
+        if (maxConnections < 1 || chunkSize.toMillis() <= 0 || maxChunks < 1) {
+            throw new IllegalStateException("aggregation.max-connections, aggregation.chunk and aggregation.max-chunks must be positive");
+        }
+        this.temperatureStore = temperatureStore;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        // Its own pool, so long reports never occupy the common pool used by parallel streams elsewhere.
+        this.connections = new Semaphore(maxConnections, true);
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+    }
+
+    public List<Bucket> aggregate(String sensorId, LocalDateTime startTime, LocalDateTime endTime, Period period) {
+        if (!startTime.isBefore(endTime)) {
+            throw new IllegalArgumentException("Empty range: from (" + startTime + ") must be before to (" + endTime + ")");
+        }
+        List<Bucket> buckets = new ArrayList<>();
+        List<Chunk> chunks = new ArrayList<>();
+        for (LocalDateTime bucketStart = period.bucketStart(startTime); bucketStart.isBefore(endTime); bucketStart = period.nextBucket(bucketStart)) {
+            LocalDateTime from = bucketStart.isBefore(startTime) ? startTime : bucketStart;
+            LocalDateTime next = period.nextBucket(bucketStart);
+            LocalDateTime to = next.isAfter(endTime) ? endTime : next;
+            for (LocalDateTime chunkStart = from; chunkStart.isBefore(to); chunkStart = chunkStart.plus(chunkSize)) {
+                if (chunks.size() == maxChunks) {
+                    throw new IllegalArgumentException("Range too long: " + startTime + " to " + endTime + " needs more than "
+                            + maxChunks + " chunks of " + chunkSize + " (aggregation.max-chunks)");
+                    // Checked while the chunks are cut, so a range of centuries is rejected before it fills the heap.
+                }
+                LocalDateTime chunkEnd = chunkStart.plus(chunkSize);
+                chunks.add(new Chunk(buckets.size(), chunkStart, chunkEnd.isAfter(to) ? to : chunkEnd));
+            }
+            // Chunks never cross a bucket boundary, so every partial result belongs to exactly one bucket.
+            buckets.add(new Bucket(from, to, WindowStatistics.EMPTY));
+        }
+        pool.invoke(new ScanTask(sensorId, chunks, 0, chunks.size()));
+        for (Chunk chunk : chunks) {
+            if (chunk.count > 0) {
+                Bucket bucket = buckets.get(chunk.bucket);
+                WindowStatistics partial = new WindowStatistics(chunk.count, ReadingColumns.toDouble((float) chunk.min),
+                        ReadingColumns.toDouble((float) chunk.max), chunk.sum / chunk.count);
+                buckets.set(chunk.bucket, new Bucket(bucket.start(), bucket.end(), bucket.statistics().merge(partial)));
+            }
+        }
+        // The partial results are merged in time order on the calling thread; merge() is exact for count, min and max.
+        return buckets;
+    }
+
+    private final class ScanTask extends RecursiveAction {
+        // Splits the chunks in halves until one is left, which is scanned and reduced.
+        private final String sensorId;
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+
+        ScanTask(String sensorId, List<Chunk> chunks, int from, int to) {
+            this.sensorId = sensorId;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                scan(sensorId, chunks.get(from));
+            } else if (to > from) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ScanTask(sensorId, chunks, from, middle), new ScanTask(sensorId, chunks, middle, to));
+            }
+        }
+    }
+
+    private void scan(String sensorId, Chunk chunk) {
+        ReadingColumns columns;
+        connections.acquireUninterruptibly();
+        try {
+            columns = temperatureStore.findColumnsBetween(sensorId, chunk.start, chunk.end, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + sensorId + " from " + chunk.start + " to " + chunk.end, e);
+        } finally {
+            connections.release();
+        }
+        // The connection (or archive file) is only held while the chunk is read; the reduction runs without it.
+        float[] temperatures = columns.getTemperatures();
+        for (int i = 0; i < temperatures.length; i++) {
+            float temperature = temperatures[i];
+            chunk.min = Math.min(chunk.min, temperature);
+            chunk.max = Math.max(chunk.max, temperature);
+            chunk.sum += temperature;
+        }
+        chunk.count = temperatures.length;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
+
+/*
+Configuration:
+    aggregation.parallelism=0         worker threads; 0 = one per available core
+    aggregation.max-connections=4     chunks read from the store at the same time; keep it below the connection
+                                      pool size (HikariCP: 10 by default) so ingest and the web pages still get one
+    aggregation.chunk=1d              length of one independent scan; a year is 365 tasks at 1d
+    aggregation.max-chunks=10000      longest range one request may aggregate, in chunks (about 27 years at 1d);
+                                      longer ranges and ranges with from >= to are an IllegalArgumentException (400)
+
+Scaling:
+    Every chunk is read with TemperatureStore.findColumnsBetween (primitive columns, no entities) and reduced to
+    count/min/max/sum, so workers share nothing but the result list. With the log backend and the archive the scans
+    are CPU-bound and scale with the cores; with MySQL the connection budget is the limit, and the reduction of one
+    chunk overlaps with the reading of the next.
+
+Example: monthly min/max/mean of 2023
+    aggregate("kitchen", 2023-01-01T00:00, 2024-01-01T00:00, Period.MONTH) returns 12 buckets, merged from 365 chunks.
+*/
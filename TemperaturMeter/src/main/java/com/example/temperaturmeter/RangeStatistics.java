@@ -0,0 +1,101 @@
+package com.example.temperaturmeter;
+
+import java.time.LocalDateTime;
+
+public class RangeStatistics {
+    // Distribution of a sensor's readings over a time range, computed by SketchAggregator from its buckets.
+    // The statistics are null when the range holds no readings; secondsAboveThreshold is null without a threshold.
+
+    private final String sensorId;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    // The range actually covered: requested edges are widened to whole buckets (a minute, or an hour beyond
+    // stats.sketch.minute-retention) and start no earlier than stats.sketch.hour-retention.
+    private final long count;
+    private final Double mean;
+    private final Double standardDeviation;
+    private final Double min;
+    private final Double max;
+    private final Double p50;
+    private final Double p95;
+    private final Double p99;
+    private final Double threshold;
+    private final Long secondsAboveThreshold;
+    private final int buckets;
+
+    public RangeStatistics(String sensorId, LocalDateTime from, LocalDateTime to, TemperatureSketch sketch,
+                           Double threshold, int buckets) {
+        this.sensorId = sensorId;
+        this.from = from;
+        this.to = to;
+        this.count = sketch.getCount();
+        boolean empty = count == 0;
+        this.mean = empty ? null : sketch.getMean();
+        this.standardDeviation = empty ? null : sketch.getStandardDeviation();
+        this.min = empty ? null : sketch.getMin();
+        this.max = empty ? null : sketch.getMax();
+        this.p50 = empty ? null : sketch.quantile(0.50);
+        this.p95 = empty ? null : sketch.quantile(0.95);
+        this.p99 = empty ? null : sketch.quantile(0.99);
+        this.threshold = threshold;
+        this.secondsAboveThreshold = threshold == null ? null : sketch.dwellMillisAbove(threshold) / 1000;
+        this.buckets = buckets;
+    }
+
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Double getMean() {
+        return mean;
+    }
+
+    public Double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public Double getP50() {
+        return p50;
+    }
+
+    public Double getP95() {
+        return p95;
+    }
+
+    public Double getP99() {
+        return p99;
+    }
+
+    public Double getThreshold() {
+        return threshold;
+    }
+
+    public Long getSecondsAboveThreshold() {
+        return secondsAboveThreshold;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+    // Number of sketches merged to answer the query.
+}
@@ -0,0 +1,63 @@
+package com.example.temperaturmeter;
+import org.slf4j.Logger;// Imports the SLF4J Logger the messages are written to.
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RateLimitedLog {
+    // Writes at most one message per interval to a logger and counts the messages it suppressed in between.
+    // Used on the ingest path, where a message per sample or per failed batch would flood the console under load.
+    // The level check comes first, so a disabled level costs no formatting and no synchronization.
+
+    private final Logger logger;
+    private final long intervalNanos;
+    private final AtomicLong nextAllowedNanos = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public RateLimitedLog(Logger logger, long interval, TimeUnit unit) {
+        this.logger = logger;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    public void debug(String format, Object... arguments) {
+        if (logger.isDebugEnabled() && tryAcquire(System.nanoTime())) {
+            logger.debug(format + suffix(), arguments);
+        }
+    }
+
+    public void info(String format, Object... arguments) {
+        if (logger.isInfoEnabled() && tryAcquire(System.nanoTime())) {
+            logger.info(format + suffix(), arguments);
+        }
+    }
+
+    public void warn(String format, Object... arguments) {
+        if (logger.isWarnEnabled() && tryAcquire(System.nanoTime())) {
+            logger.warn(format + suffix(), arguments);
+        }
+    }
+
+    boolean tryAcquire(long nowNanos) {
+        // True if a message may be written now; otherwise the message is counted as suppressed.
+        long next = nextAllowedNanos.get();
+        if (next != Long.MIN_VALUE && nowNanos - next < 0) {
+            suppressed.incrementAndGet();
+            return false;
+        }
+        if (!nextAllowedNanos.compareAndSet(next, nowNanos + intervalNanos)) {
+            suppressed.incrementAndGet();
+            return false;
+            // Another thread won the slot for this interval.
+        }
+        return true;
+    }
+
+    private String suffix() {
+        long count = suppressed.getAndSet(0);
+        return count == 0 ? "" : " (" + count + " similar messages suppressed)";
+    }
+
+    long getSuppressed() {
+        return suppressed.get();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.temperaturmeter;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;// Imports AbstractRoutingDataSource, which picks one of several DataSources per connection.
+import org.springframework.transaction.support.TransactionSynchronizationManager;// Imports TransactionSynchronizationManager, which tells whether the current transaction is read-only.
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sends the connections of @Transactional(readOnly = true) methods to the read replica and everything else (ingest
+// writes, rollups, checkpoints, the latest reading) to the primary. Created by DataSourceRoutingConfiguration when
+// datasource.replica.url is set; must sit behind a LazyConnectionDataSourceProxy, so the connection is only fetched
+// after the transaction has been marked read-only.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private volatile boolean replicaUsable = true;
+    // Cleared by the ReplicaLagGuard while the replica lags too far behind or cannot be reached.
+
+    private final AtomicLong primaryConnections = new AtomicLong();
+    private final AtomicLong replicaConnections = new AtomicLong();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaUsable && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            replicaConnections.incrementAndGet();
+            return Target.REPLICA;
+        }
+        primaryConnections.incrementAndGet();
+        return Target.PRIMARY;
+        // Without a transaction (plain JdbcTemplate calls) or in a read-write one, the primary is used.
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    void setReplicaUsable(boolean replicaUsable) {
+        this.replicaUsable = replicaUsable;
+    }
+
+    public long getPrimaryConnections() {
+        return primaryConnections.get();
+    }
+
+    public long getReplicaConnections() {
+        return replicaConnections.get();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.temperaturmeter;
+
+import java.util.Arrays;
+
+public class ReadingColumns {
+    // The readings of one sensor as two parallel arrays (column layout) instead of one object per reading:
+    // epochMillis[i] is the time of temperatures[i]. Oldest first.
+    // As JSON this is {"sensorId":"kitchen","epochMillis":[...],"temperatures":[...]}, about a third of the size of
+    // a list of reading objects; CSV and the binary format are written by ReadingColumnsCsvConverter and
+    // ReadingColumnsBinaryConverter.
+
+    private final String sensorId;
+    private long[] epochMillis;
+    private float[] temperatures;
+    private int size;
+
+    public ReadingColumns(String sensorId) {
+        this(sensorId, new long[64], new float[64], 0);
+    }
+
+    public ReadingColumns(String sensorId, long[] epochMillis, float[] temperatures, int size) {
+        this.sensorId = sensorId;
+        this.epochMillis = epochMillis;
+        this.temperatures = temperatures;
+        this.size = size;
+    }
+
+    public void add(long epochMillis, double temperature) {
+        if (size == this.epochMillis.length) {
+            this.epochMillis = Arrays.copyOf(this.epochMillis, size * 2);
+            this.temperatures = Arrays.copyOf(this.temperatures, size * 2);
+        }
+        this.epochMillis[size] = epochMillis;
+        this.temperatures[size] = (float) temperature;
+        // float32 holds the sensor's two decimals exactly enough (7 significant digits).
+        size++;
+    }
+
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    public long[] getEpochMillis() {
+        return size == epochMillis.length ? epochMillis : Arrays.copyOf(epochMillis, size);
+    }
+
+    public float[] getTemperatures() {
+        return size == temperatures.length ? temperatures : Arrays.copyOf(temperatures, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    long epochMillisAt(int index) {
+        return epochMillis[index];
+    }
+
+    float temperatureAt(int index) {
+        return temperatures[index];
+    }
+
+    static double toDouble(float temperature) {
+        return Double.parseDouble(Float.toString(temperature));
+        // The shortest decimal that the float was stored from, like MySQL returns a FLOAT column: 21.3f is 21.3,
+        // not 21.299999237060547 as a plain widening cast would make it.
+    }
+}
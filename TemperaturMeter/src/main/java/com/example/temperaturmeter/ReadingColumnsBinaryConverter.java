@@ -0,0 +1,113 @@
+package com.example.temperaturmeter;
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.http.HttpInputMessage;// Imports HttpInputMessage, the body of an uploaded binary file.
+import org.springframework.http.HttpOutputMessage;// Imports HttpOutputMessage, the body of the response.
+import org.springframework.http.MediaType;// Imports MediaType, which names the binary format in Accept and Content-Type.
+import org.springframework.http.converter.AbstractHttpMessageConverter;// Imports the base class of Spring MVC's message converters.
+import org.springframework.http.converter.HttpMessageNotReadableException;// Imports the exception for a body that is not in this format.
+import org.springframework.stereotype.Component;// Imports @Component; Spring Boot adds every HttpMessageConverter bean to Spring MVC.
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+@Component
+// Writes ReadingColumns in a compact binary column format for bulk clients (Accept: application/x-temperature-columns).
+public class ReadingColumnsBinaryConverter extends AbstractHttpMessageConverter<ReadingColumns> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-temperature-columns";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    static final int MAGIC = 0x544D4331;
+    // "TMC1": temperature meter columns, version 1.
+
+    private final int maxReadings;
+    // Upper limit of readings in a body that is read, the same as for a /readings response.
+
+    public ReadingColumnsBinaryConverter(@Value("${api.readings.max-count:1000000}") int maxReadings) {
+        super(MEDIA_TYPE);
+        this.maxReadings = maxReadings;
+    }
+
+    @Override
+    protected boolean supports(Class<?> type) {
+        return ReadingColumns.class == type;
+    }
+
+    @Override
+    protected void writeInternal(ReadingColumns columns, HttpOutputMessage outputMessage) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputMessage.getBody()));
+        write(columns, out);
+        out.flush();
+    }
+
+    @Override
+    protected ReadingColumns readInternal(Class<? extends ReadingColumns> type, HttpInputMessage inputMessage) throws IOException {
+        long length = inputMessage.getHeaders().getContentLength();
+        int maxCount = length < 0 ? maxReadings : (int) Math.min(maxReadings, length / 12);
+        // A body cannot hold more readings than its length allows (12 bytes each).
+        try {
+            return read(new DataInputStream(new BufferedInputStream(inputMessage.getBody())), maxCount);
+        } catch (IllegalArgumentException | EOFException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    static void write(ReadingColumns columns, DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeUTF(columns.getSensorId());
+        out.writeInt(columns.size());
+        long previous = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            out.writeLong(columns.epochMillisAt(i) - previous);
+            previous = columns.epochMillisAt(i);
+        }
+        // Time column: the first value is absolute, every further value is the difference to the one before.
+        // At a fixed sample interval the column becomes a run of equal values, which gzip reduces to almost nothing.
+        for (int i = 0; i < columns.size(); i++) {
+            out.writeFloat(columns.temperatureAt(i));
+        }
+        // Temperature column: float32.
+    }
+
+    static ReadingColumns read(DataInputStream in, int maxCount) throws IOException {
+        // The arrays are allocated from the count in the file, so it is checked against maxCount first: a few bytes
+        // announcing two billion readings must not allocate 24 GB.
+        if (in.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a temperature column file");
+        }
+        String sensorId = in.readUTF();
+        int count = in.readInt();
+        if (count < 0 || count > maxCount) {
+            throw new IllegalArgumentException("Invalid reading count: " + count + " (at most " + maxCount + ")");
+        }
+        long[] epochMillis = new long[count];
+        float[] temperatures = new float[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += in.readLong();
+            epochMillis[i] = previous;
+        }
+        for (int i = 0; i < count; i++) {
+            temperatures[i] = in.readFloat();
+        }
+        return new ReadingColumns(sensorId, epochMillis, temperatures, count);
+    }
+}
+
+/*
+Format (big-endian, as written by java.io.DataOutputStream):
+    int     magic 0x544D4331 ("TMC1")
+    UTF     sensor id (unsigned 16-bit length + modified UTF-8)
+    int     n, the number of readings
+    long[n] epoch milliseconds, delta-encoded (the first value absolute)
+    float[n] temperatures in degrees Celsius
+
+    12 bytes per reading before compression, against about 90 bytes per reading object in JSON.
+    A body that is read may hold at most api.readings.max-count readings, and no more than its Content-Length allows;
+    a larger count is rejected (400) before anything is allocated. POST /api/v1/import does not use this converter:
+    TemperatureBulkImporter streams column files in batches.
+    With server.compression enabled, a client sending Accept-Encoding: gzip receives it gzip-compressed.
+*/
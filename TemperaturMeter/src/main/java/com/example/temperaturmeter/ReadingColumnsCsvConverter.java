@@ -0,0 +1,62 @@
+package com.example.temperaturmeter;
+import org.springframework.http.HttpInputMessage;// Imports HttpInputMessage; reading CSV is not supported.
+import org.springframework.http.HttpOutputMessage;// Imports HttpOutputMessage, the body of the response.
+import org.springframework.http.MediaType;// Imports MediaType for text/csv.
+import org.springframework.http.converter.AbstractHttpMessageConverter;// Imports the base class of Spring MVC's message converters.
+import org.springframework.http.converter.HttpMessageNotReadableException;// Imports the exception thrown for CSV request bodies.
+import org.springframework.stereotype.Component;// Imports @Component; Spring Boot adds every HttpMessageConverter bean to Spring MVC.
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+@Component
+// Writes ReadingColumns as CSV (Accept: text/csv), one line per reading, e.g. for spreadsheets.
+public class ReadingColumnsCsvConverter extends AbstractHttpMessageConverter<ReadingColumns> {
+
+    public static final String MEDIA_TYPE_VALUE = "text/csv";
+
+    public ReadingColumnsCsvConverter() {
+        super(StandardCharsets.UTF_8, MediaType.parseMediaType(MEDIA_TYPE_VALUE));
+    }
+
+    @Override
+    protected boolean supports(Class<?> type) {
+        return ReadingColumns.class == type;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(ReadingColumns columns, HttpOutputMessage outputMessage) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(outputMessage.getBody(), StandardCharsets.UTF_8));
+        write(columns, out);
+        out.flush();
+    }
+
+    @Override
+    protected ReadingColumns readInternal(Class<? extends ReadingColumns> type, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("CSV request bodies are not supported", inputMessage);
+    }
+
+    static void write(ReadingColumns columns, Writer out) throws IOException {
+        out.write("sensor_id,timestamp,epoch_millis,temperature\n");
+        for (int i = 0; i < columns.size(); i++) {
+            long millis = columns.epochMillisAt(i);
+            out.write(columns.getSensorId());
+            out.write(',');
+            out.write(Instant.ofEpochMilli(millis).toString());
+            // ISO-8601 in UTC, e.g. 2024-10-01T10:00:00Z.
+            out.write(',');
+            out.write(Long.toString(millis));
+            out.write(',');
+            out.write(Float.toString(columns.temperatureAt(i)));
+            out.write('\n');
+        }
+    }
+}
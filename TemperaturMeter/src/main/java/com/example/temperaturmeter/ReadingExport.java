@@ -0,0 +1,134 @@
+package com.example.temperaturmeter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+public abstract class ReadingExport implements TemperatureStore.ReadingCallback {
+    // Writes the readings of a range scan to a stream while they are read, so an export of any length needs
+    // the same small amount of memory. Two formats:
+    //     text/csv                           the lines of ReadingColumnsCsvConverter
+    //     application/x-temperature-stream   the binary columns of ReadingColumnsBinaryConverter, cut into blocks
+
+    public static final String STREAM_MEDIA_TYPE_VALUE = "application/x-temperature-stream";
+
+    static final int STREAM_MAGIC = 0x544D5331;
+    // "TMS1": temperature meter stream, version 1.
+
+    static final int BLOCK_SIZE = 4096;
+    // Readings per block of the binary stream (48 KB).
+
+    public abstract void finish() throws IOException;
+    // Writes what is still buffered and the end marker; the stream is flushed but not closed.
+
+    public static ReadingExport csv(OutputStream out) throws IOException {
+        return new Csv(out);
+    }
+
+    public static ReadingExport binary(String sensorId, OutputStream out) throws IOException {
+        return new Binary(sensorId, out);
+    }
+
+    static class Csv extends ReadingExport {
+        private final Writer out;
+
+        Csv(OutputStream out) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.out.write("sensor_id,timestamp,epoch_millis,temperature\n");
+        }
+
+        @Override
+        public void accept(TemperatureReading reading) throws IOException {
+            long millis = EpochTime.toEpochMillis(reading.getTimestamp());
+            out.write(reading.getSensorId());
+            out.write(',');
+            out.write(Instant.ofEpochMilli(millis).toString());
+            out.write(',');
+            out.write(Long.toString(millis));
+            out.write(',');
+            out.write(Float.toString(reading.getTemperature().floatValue()));
+            out.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+    }
+
+    static class Binary extends ReadingExport {
+        // Header: int magic "TMS1", UTF sensor id. Then blocks of up to BLOCK_SIZE readings:
+        // int n, long[n] epoch millis (delta-encoded, the first value of every block absolute), float[n] temperatures.
+        // A block with n = 0 ends the stream.
+        private final DataOutputStream out;
+        private final long[] epochMillis = new long[BLOCK_SIZE];
+        private final float[] temperatures = new float[BLOCK_SIZE];
+        private int size;
+
+        Binary(String sensorId, OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+            this.out.writeInt(STREAM_MAGIC);
+            this.out.writeUTF(sensorId);
+        }
+
+        @Override
+        public void accept(TemperatureReading reading) throws IOException {
+            epochMillis[size] = EpochTime.toEpochMillis(reading.getTimestamp());
+            temperatures[size] = reading.getTemperature().floatValue();
+            if (++size == BLOCK_SIZE) {
+                writeBlock();
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            out.writeInt(size);
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                out.writeLong(epochMillis[i] - previous);
+                previous = epochMillis[i];
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeFloat(temperatures[i]);
+            }
+            size = 0;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (size > 0) {
+                writeBlock();
+            }
+            out.writeInt(0);
+            out.flush();
+        }
+    }
+
+    static ReadingColumns readBlock(String sensorId, DataInputStream in) throws IOException {
+        // The next block of a "TMS1" stream (after its header), or null at the end marker.
+        int count = in.readInt();
+        if (count < 0 || count > BLOCK_SIZE) {
+            throw new IllegalArgumentException("Invalid block size: " + count);
+        }
+        if (count == 0) {
+            return null;
+        }
+        long[] epochMillis = new long[count];
+        float[] temperatures = new float[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += in.readLong();
+            epochMillis[i] = previous;
+        }
+        for (int i = 0; i < count; i++) {
+            temperatures[i] = in.readFloat();
+        }
+        return new ReadingColumns(sensorId, epochMillis, temperatures, count);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.temperaturmeter;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+public class ReadingPage {
+    // One page of readings (newest first) plus the cursor of the next page.
+    // The cursor is the (timestamp, id) of the last reading on this page, e.g. "2024-09-23T10:15:30_1234".
+
+    private final List<TemperatureReading> readings;
+    private final String nextCursor;
+
+    public ReadingPage(List<TemperatureReading> readings, String nextCursor) {
+        this.readings = readings;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TemperatureReading> getReadings() {
+        return readings;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    // Null on the last page.
+
+    static String encodeCursor(TemperatureReading last) {
+        return last.getTimestamp() + "_" + last.getId();
+    }
+
+    static LocalDateTime cursorTimestamp(String cursor) {
+        try {
+            return LocalDateTime.parse(cursor.substring(0, separator(cursor)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    static long cursorId(String cursor) {
+        try {
+            return Long.parseLong(cursor.substring(separator(cursor) + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+    // Both throw IllegalArgumentException for a cursor that was not made by encodeCursor; the controllers answer 400.
+
+    private static int separator(String cursor) {
+        int separator = cursor.lastIndexOf('_');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return separator;
+    }
+}
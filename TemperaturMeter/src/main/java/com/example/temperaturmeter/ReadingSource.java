@@ -0,0 +1,50 @@
+package com.example.temperaturmeter;
+
+import java.io.IOException;
+
+public interface ReadingSource {
+// Where the bytes of one sensor come from. Every source delivers the Arduino wire format ("23.45 Celsius, ...");
+// the SerialPortReader feeds them to its frame parser. Selected by the port of the sensor (see forSensor).
+
+    void open() throws IOException;
+    // Opens the connection. Throws if the device, host or file is not available.
+
+    int read(byte[] buffer) throws IOException;
+    // Reads the next bytes into the buffer. Returns the number of bytes read, 0 if nothing arrived within
+    // a short timeout (so the caller can check whether it should stop), or -1 once the source has ended.
+
+    void close();
+    // Closes the connection; a read blocked in another thread returns.
+
+    default boolean isReconnectable() {
+        return true;
+    }
+    // Whether the reader should open the source again after it failed or ended (a device or connection that
+    // dropped), rather than stop (a replayed file that is finished).
+
+    static ReadingSource forSensor(SensorConfig sensor) {
+        // Chooses the source from the port of the sensor:
+        //     COM6, /dev/ttyUSB0          - serial port (jSerialComm)
+        //     tcp://host:port             - TCP connection, e.g. to ser2net or socat in front of a serial port
+        //     file:path                   - replay of a captured byte stream, or a named pipe (mkfifo)
+        //     sim or sim?rate=1000&...    - built-in simulator (see SimulatedReadingSource)
+        String port = sensor.getPort();
+        if (port.startsWith(TcpReadingSource.SCHEME)) {
+            return new TcpReadingSource(port.substring(TcpReadingSource.SCHEME.length()));
+        }
+        if (port.startsWith(FileReplaySource.SCHEME)) {
+            return new FileReplaySource(port.substring(FileReplaySource.SCHEME.length()), sensor.getBaudRate());
+        }
+        if (port.equals(SimulatedReadingSource.SCHEME) || port.startsWith(SimulatedReadingSource.SCHEME + "?")) {
+            return SimulatedReadingSource.fromOptions(port.substring(SimulatedReadingSource.SCHEME.length()),
+                    sensor.getId().hashCode());
+        }
+        return new SerialReadingSource(port, sensor.getBaudRate());
+    }
+
+    static boolean isUri(String port) {
+        // True for ports with their own syntax, where a trailing ":number" is not a baud rate.
+        return port.startsWith(TcpReadingSource.SCHEME) || port.equals(SimulatedReadingSource.SCHEME)
+                || port.startsWith(SimulatedReadingSource.SCHEME + "?");
+    }
+}
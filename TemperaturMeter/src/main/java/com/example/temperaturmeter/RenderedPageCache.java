@@ -0,0 +1,230 @@
+package com.example.temperaturmeter;
+import io.micrometer.core.instrument.FunctionCounter;// Imports FunctionCounter, which exposes the hit and miss counters as metrics.
+import io.micrometer.core.instrument.MeterRegistry;// Imports the MeterRegistry the counters are registered with.
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to register the metrics once the bean is ready.
+import jakarta.servlet.FilterChain;// Imports FilterChain, which passes a request on to the controller.
+import jakarta.servlet.ServletException;// Imports ServletException, thrown by the filter chain.
+import jakarta.servlet.http.HttpServletRequest;// Imports HttpServletRequest, the incoming request.
+import jakarta.servlet.http.HttpServletResponse;// Imports HttpServletResponse, the response that is cached or answered from the cache.
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, which registers the filter with Spring Boot.
+import org.springframework.web.context.request.ServletWebRequest;// Imports ServletWebRequest, which evaluates If-None-Match / If-Modified-Since.
+import org.springframework.web.filter.OncePerRequestFilter;// Imports OncePerRequestFilter, the base class of the filter.
+import org.springframework.web.util.ContentCachingResponseWrapper;// Imports the wrapper that captures the rendered body.
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+@Component
+// HTTP caching of the pages computed from readings (the Thymeleaf views, /statistics and /series).
+// A sensor's data only changes when it sends a reading (every 10 s), so a page is answered with 304 Not Modified,
+// or from the rendered copy in memory, until the sensor's ingest sequence moves on.
+public class RenderedPageCache extends OncePerRequestFilter {
+
+    private static final Set<String> CACHED_PATHS = Set.of(
+            "/api/temperature/readings", "/api/temperature/readings-from-date", "/api/temperature/readings-today",
+            "/api/temperature/max-last-5-minutes", "/api/temperature/min-last-5-minutes",
+            "/api/temperature/max", "/api/temperature/min", "/api/temperature/statistics", "/api/temperature/series");
+    // /live and /readings/stream are streams, /latest sets its own ETag.
+
+    record CachedPage(String eTag, String contentType, Locale locale, Map<String, List<String>> headers, byte[] body) {
+        // The rendered response: its body, its Content-Type and Content-Language (locale, null if none was set) and
+        // the headers the controller or view set, e.g. Cache-Control. The validators are not kept; they are set anew.
+    }
+
+    private static final class RenderedResponse extends ContentCachingResponseWrapper {
+        // Captures the body, and the locale set by the view, which containers keep apart from the other headers.
+        private Locale locale;
+
+        RenderedResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void setLocale(Locale locale) {
+            super.setLocale(locale);
+            this.locale = locale;
+        }
+    }
+
+    private final long ttlMillis;
+    private final long settleMillis;
+    private final int maxEntries;
+    private final int maxPageBytes;
+
+    private final LinkedHashMap<String, CachedPage> pages;
+    // Rendered pages by URL, least recently used first; guarded by synchronized (pages).
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    @Autowired
+    // Provides the ingest sequence (version) and the time of the latest reading of every sensor.
+    private LatestReadingCache latestReadingCache;
+
+    @Autowired
+    // Registry of the http.page-cache.requests counters.
+    private MeterRegistry meterRegistry;
+
+    public RenderedPageCache(@Value("${http.cache.ttl:10s}") Duration ttl,
+                             @Value("${http.page-cache.max-entries:256}") int maxEntries,
+                             @Value("${http.page-cache.max-page-kb:256}") int maxPageKb,
+                             @Value("${ingest.write-behind.max-age-ms:250}") long settleMillis) {
+        this.ttlMillis = Math.max(1, ttl.toMillis());
+        this.settleMillis = settleMillis;
+        this.maxEntries = maxEntries;
+        this.maxPageBytes = maxPageKb * 1024;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPage> eldest) {
+                return size() > RenderedPageCache.this.maxEntries;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        registerCounter("hit", RenderedPageCache::getHits);
+        registerCounter("miss", RenderedPageCache::getMisses);
+        registerCounter("not-modified", RenderedPageCache::getNotModified);
+    }
+
+    private void registerCounter(String result, ToDoubleFunction<RenderedPageCache> counter) {
+        FunctionCounter.builder("http.page-cache.requests", this, counter).tag("result", result)
+                .description("Cacheable page requests by how they were answered").register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || !CACHED_PATHS.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String sensorId = request.getParameter("sensorId");
+        LatestReadingCache.LatestReading latest = latestReadingCache.get(sensorId != null ? sensorId : TemperatureReading.DEFAULT_SENSOR_ID);
+        // The controller shows the default sensor when no sensorId is given.
+        long now = System.currentTimeMillis();
+        if (latest != null && now - EpochTime.toEpochMillis(latest.timestamp()) < settleMillis) {
+            chain.doFilter(request, response);
+            return;
+            // The latest reading may still be in the write-behind queue, so the page could miss it: not cached.
+        }
+        long period = now / ttlMillis;
+        String eTag = "W/\"" + (latest != null ? latest.version() : 0) + "." + period + "\"";
+        // The ingest sequence of the sensor, plus the current period of http.cache.ttl: windows like "last 5 minutes"
+        // also change when old readings drop out of them, so no answer is reused for longer than one period.
+        long lastModified = Math.max(period * ttlMillis, latest != null ? EpochTime.toEpochMillis(latest.timestamp()) : 0);
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) {
+            notModified.incrementAndGet();
+            return;
+            // 304 Not Modified: the client's copy is current; nothing is queried or rendered.
+        }
+        String key = request.getQueryString() != null ? request.getRequestURI() + "?" + request.getQueryString() : request.getRequestURI();
+        CachedPage page = lookup(key, eTag);
+        if (page != null) {
+            hits.incrementAndGet();
+            response.setContentType(page.contentType());
+            if (page.locale() != null) {
+                response.setLocale(page.locale());
+            }
+            for (Map.Entry<String, List<String>> header : page.headers().entrySet()) {
+                for (String value : header.getValue()) {
+                    response.addHeader(header.getKey(), value);
+                }
+            }
+            // The same headers as the rendered response, so a hit differs from a miss in nothing but the time it takes.
+            response.setContentLength(page.body().length);
+            response.getOutputStream().write(page.body());
+            return;
+            // Another client already had this page rendered since the last reading.
+        }
+        misses.incrementAndGet();
+        Set<String> notKept = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        notKept.addAll(response.getHeaderNames());
+        // ETag and Last-Modified, set by checkNotModified on every request.
+        notKept.addAll(List.of("Content-Type", "Content-Language", "Content-Length"));
+        // Kept apart in CachedPage, or set from the body.
+        RenderedResponse wrapper = new RenderedResponse(response);
+        chain.doFilter(request, wrapper);
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && wrapper.getContentSize() <= maxPageBytes) {
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (String name : wrapper.getHeaderNames()) {
+                if (!notKept.contains(name)) {
+                    headers.put(name, new ArrayList<>(wrapper.getHeaders(name)));
+                }
+            }
+            store(key, new CachedPage(eTag, wrapper.getContentType(), wrapper.locale, headers, wrapper.getContentAsByteArray()));
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    CachedPage lookup(String key, String eTag) {
+        // The cached page if it was rendered for the same ingest sequence and period; an outdated page is evicted.
+        synchronized (pages) {
+            CachedPage page = pages.get(key);
+            if (page != null && !page.eTag().equals(eTag)) {
+                pages.remove(key);
+                return null;
+            }
+            return page;
+        }
+    }
+
+    void store(String key, CachedPage page) {
+        synchronized (pages) {
+            pages.put(key, page);
+        }
+    }
+
+    int size() {
+        synchronized (pages) {
+            return pages.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getNotModified() {
+        return notModified.get();
+    }
+}
+
+/*
+Validators:
+    ETag      W/"<ingest sequence of the sensor>.<http.cache.ttl period>"
+    Last-Modified  the later of the sensor's latest reading and the start of the current period
+    Browsers and proxies send them back in If-None-Match / If-Modified-Since and get 304 Not Modified with no body.
+
+Cached copy:
+    The body, Content-Type, Content-Language and every header set while the page was rendered (e.g. Cache-Control);
+    a hit sends all of them again with the current validators.
+
+Eviction:
+    A new reading of a sensor changes its ETag, which invalidates every cached page of that sensor: the next
+    request finds the old copy, drops it and renders the page again. Pages nobody asks for again are evicted
+    least recently used once http.page-cache.max-entries is reached. Pages larger than http.page-cache.max-page-kb
+    (e.g. a readings page with size=1000) are not kept.
+
+Write-behind:
+    The ingest sequence moves on when a reading arrives, up to ingest.write-behind.max-age-ms before the reading is
+    in the database. Pages requested in that time are rendered normally but get no validators and are not cached,
+    so no copy without the new reading is kept under the new sequence.
+*/
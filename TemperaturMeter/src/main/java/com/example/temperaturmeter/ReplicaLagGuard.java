@@ -0,0 +1,98 @@
+package com.example.temperaturmeter;
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to create the heartbeat table on the primary.
+import org.slf4j.LoggerFactory;// Imports the SLF4J LoggerFactory for the rate-limited log of an unreachable replica.
+import org.springframework.beans.factory.annotation.Qualifier;// Imports @Qualifier, which picks the two pools by name instead of the @Primary routing proxy.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;// Imports @ConditionalOnProperty; the guard only exists when a replica is configured.
+import org.springframework.jdbc.core.JdbcTemplate;// Imports JdbcTemplate, Spring's helper for plain JDBC statements.
+import org.springframework.scheduling.annotation.Scheduled;// Imports @Scheduled, used to measure the lag periodically.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@ConditionalOnProperty(name = "datasource.replica.url")
+// Measures how far the read replica lags behind the primary and sends the read-only queries back to the primary
+// while the lag exceeds datasource.replica.max-lag (or the replica cannot be reached). The lag is measured with a
+// heartbeat row: the current time is written to the primary and read back from the replica, which only sees it
+// once replication has applied it. Works with any replication that copies the table, not only MySQL's.
+public class ReplicaLagGuard {
+
+    private static final String CREATE_SQL = "CREATE TABLE IF NOT EXISTS replica_heartbeat (" +
+            "id INT NOT NULL PRIMARY KEY, beat_millis BIGINT NOT NULL)";
+    private static final String BEAT_SQL = "INSERT INTO replica_heartbeat (id, beat_millis) VALUES (1, ?) " +
+            "ON DUPLICATE KEY UPDATE beat_millis = VALUES(beat_millis)";
+
+    private final ReadWriteRoutingDataSource routingDataSource;
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+
+    private volatile long lagMillis = -1;
+    // The last measured lag, -1 before the first measurement or while the replica cannot be reached.
+
+    private final RateLimitedLog failureLog = new RateLimitedLog(LoggerFactory.getLogger(ReplicaLagGuard.class), 1, TimeUnit.MINUTES);
+
+    public ReplicaLagGuard(ReadWriteRoutingDataSource routingDataSource,
+                           @Qualifier("primaryDataSource") DataSource primaryDataSource,
+                           @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                           @Value("${datasource.replica.max-lag:5s}") Duration maxLag) {
+        this.routingDataSource = routingDataSource;
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        // Plain templates on the two pools, past the routing: the guard must reach the replica even while reads avoid it.
+        this.maxLagMillis = maxLag.toMillis();
+    }
+
+    @PostConstruct
+    public void createHeartbeat() {
+        primary.execute(CREATE_SQL);
+        // Replicated like every other table, so the replica has the row once it has caught up.
+        check(System.currentTimeMillis());
+        // Measured once before the first request, so a replica that is behind is never used at startup.
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-ms:1000}")
+    public void check() {
+        check(System.currentTimeMillis());
+    }
+
+    void check(long nowMillis) {
+        long lag;
+        try {
+            primary.update(BEAT_SQL, nowMillis);
+            List<Long> beats = replica.queryForList("SELECT beat_millis FROM replica_heartbeat WHERE id = 1", Long.class);
+            lag = beats.isEmpty() ? -1 : Math.max(0, nowMillis - beats.get(0));
+            // The replica shows the last beat it applied: with a beat every lag-check-ms, the measured lag is at most
+            // that much too high.
+        } catch (RuntimeException e) {
+            failureLog.warn("Replica lag check failed: {}", e.toString());
+            lag = -1;
+        }
+        lagMillis = lag;
+        boolean usable = lag >= 0 && lag <= maxLagMillis;
+        if (usable != routingDataSource.isReplicaUsable()) {
+            routingDataSource.setReplicaUsable(usable);
+            System.out.println(usable
+                    ? "Replica caught up (lag " + lag + " ms): read-only queries go to the replica again."
+                    : "Replica " + (lag < 0 ? "unreachable" : "lags " + lag + " ms behind") + ": read-only queries go to the primary.");
+        }
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+}
+
+/*
+Configuration:
+    datasource.replica.max-lag=5s          read-only queries avoid the replica while it lags further behind
+    datasource.replica.lag-check-ms=1000   how often the heartbeat is written and read back
+
+Local testing:
+    Two independent embedded databases do not replicate, so the heartbeat written to the primary never reaches the
+    replica and the guard keeps reads on the primary. Copy the heartbeat row by hand (or point both URLs at the same
+    in-memory database) to see reads move to the replica; ReadWriteRoutingDataSourceTest does the former.
+*/
@@ -0,0 +1,212 @@
+package com.example.temperaturmeter;
+
+public class RollingWindow {
+    // Sliding time window that answers min, max, average and count in O(1).
+    // Samples are folded into small time slots (window / SLOTS_PER_WINDOW wide), so memory stays bounded
+    // no matter how fast readings arrive. Min and max are kept in monotonic deques over those slots.
+
+    static final int SLOTS_PER_WINDOW = 3600;
+    // 1 s slots for a 1 hour window, 83 ms slots for 5 minutes. The window edge is accurate to one slot.
+
+    private final long windowMillis;
+    private final long slotMillis;
+
+    // Ring of slots, oldest first: slot start time plus the aggregate of the samples in that slot.
+    private long[] slotStart = new long[16];
+    private double[] slotMin = new double[16];
+    private double[] slotMax = new double[16];
+    private double[] slotSum = new double[16];
+    private long[] slotCount = new long[16];
+    private int slotHead;
+    private int slotSize;
+
+    private final MonotonicDeque minDeque = new MonotonicDeque(true);
+    private final MonotonicDeque maxDeque = new MonotonicDeque(false);
+    // Candidates for the window minimum / maximum; the answer is always at the front.
+
+    private double sum;
+    private long count;
+    // Running totals over all slots currently in the window.
+
+    public RollingWindow(long windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be positive: " + windowMillis);
+        }
+        this.windowMillis = windowMillis;
+        this.slotMillis = Math.max(1, windowMillis / SLOTS_PER_WINDOW);
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public synchronized void add(long epochMillis, double value) {
+        // Adds one sample. Samples are expected in time order; an older sample is counted in the newest slot.
+        long start = epochMillis - Math.floorMod(epochMillis, slotMillis);
+        if (slotSize > 0 && start <= slotStart[last()]) {
+            int i = last();
+            slotSum[i] += value;
+            slotCount[i]++;
+            if (value < slotMin[i]) {
+                slotMin[i] = value;
+                minDeque.replaceLast(slotStart[i], value);
+            }
+            if (value > slotMax[i]) {
+                slotMax[i] = value;
+                maxDeque.replaceLast(slotStart[i], value);
+            }
+        } else {
+            evict(epochMillis);
+            if (slotSize == slotStart.length) {
+                growSlots();
+            }
+            int i = (slotHead + slotSize) % slotStart.length;
+            slotStart[i] = start;
+            slotMin[i] = value;
+            slotMax[i] = value;
+            slotSum[i] = value;
+            slotCount[i] = 1;
+            slotSize++;
+            minDeque.push(start, value);
+            maxDeque.push(start, value);
+        }
+        sum += value;
+        count++;
+    }
+
+    public synchronized WindowStatistics getStatistics(long nowMillis) {
+        // Returns count, min, max and average of the samples newer than nowMillis - window.
+        evict(nowMillis);
+        if (count == 0) {
+            return WindowStatistics.EMPTY;
+        }
+        return new WindowStatistics(count, minDeque.first(), maxDeque.first(), sum / count);
+    }
+
+    private void evict(long nowMillis) {
+        // Drops every slot that ended before the window start.
+        long cutoff = nowMillis - windowMillis;
+        while (slotSize > 0 && slotStart[slotHead] + slotMillis <= cutoff) {
+            sum -= slotSum[slotHead];
+            count -= slotCount[slotHead];
+            minDeque.evictBefore(slotStart[slotHead] + 1);
+            maxDeque.evictBefore(slotStart[slotHead] + 1);
+            slotHead = (slotHead + 1) % slotStart.length;
+            slotSize--;
+        }
+        if (slotSize == 0) {
+            sum = 0;
+            count = 0;
+            // Resets the running sum so rounding errors cannot accumulate across idle periods.
+        }
+    }
+
+    private int last() {
+        return (slotHead + slotSize - 1) % slotStart.length;
+    }
+
+    private void growSlots() {
+        int capacity = slotStart.length * 2;
+        slotStart = unwrap(slotStart, capacity);
+        slotMin = unwrap(slotMin, capacity);
+        slotMax = unwrap(slotMax, capacity);
+        slotSum = unwrap(slotSum, capacity);
+        slotCount = unwrap(slotCount, capacity);
+        slotHead = 0;
+    }
+
+    private long[] unwrap(long[] ring, int capacity) {
+        long[] copy = new long[capacity];
+        int firstPart = Math.min(slotSize, ring.length - slotHead);
+        System.arraycopy(ring, slotHead, copy, 0, firstPart);
+        System.arraycopy(ring, 0, copy, firstPart, slotSize - firstPart);
+        return copy;
+    }
+
+    private double[] unwrap(double[] ring, int capacity) {
+        double[] copy = new double[capacity];
+        int firstPart = Math.min(slotSize, ring.length - slotHead);
+        System.arraycopy(ring, slotHead, copy, 0, firstPart);
+        System.arraycopy(ring, 0, copy, firstPart, slotSize - firstPart);
+        return copy;
+    }
+
+    private static final class MonotonicDeque {
+        // Deque of (slot start, value) pairs whose values are increasing (min deque) or decreasing (max deque)
+        // from front to back. Each slot is pushed and popped at most once, so all operations are amortized O(1).
+
+        private final boolean ascending;
+        private long[] times = new long[16];
+        private double[] values = new double[16];
+        private int head;
+        private int size;
+
+        MonotonicDeque(boolean ascending) {
+            this.ascending = ascending;
+        }
+
+        void push(long time, double value) {
+            while (size > 0 && dominates(value, values[index(size - 1)])) {
+                size--;
+                // Older candidates that can never be the answer again are dropped from the back.
+            }
+            if (size == times.length) {
+                grow();
+            }
+            int i = index(size);
+            times[i] = time;
+            values[i] = value;
+            size++;
+        }
+
+        void replaceLast(long time, double value) {
+            // The newest slot got a new extreme; the newest slot is always the last entry, so re-push it.
+            size--;
+            push(time, value);
+        }
+
+        void evictBefore(long time) {
+            while (size > 0 && times[head] < time) {
+                head = (head + 1) % times.length;
+                size--;
+            }
+        }
+
+        double first() {
+            return values[head];
+        }
+
+        private boolean dominates(double value, double existing) {
+            return ascending ? value <= existing : value >= existing;
+        }
+
+        private int index(int offset) {
+            return (head + offset) % times.length;
+        }
+
+        private void grow() {
+            long[] newTimes = new long[times.length * 2];
+            double[] newValues = new double[values.length * 2];
+            for (int i = 0; i < size; i++) {
+                newTimes[i] = times[index(i)];
+                newValues[i] = values[index(i)];
+            }
+            times = newTimes;
+            values = newValues;
+            head = 0;
+        }
+    }
+}
+
+/*
+Slots:
+    Samples falling into the same slot are merged into one slot aggregate (min, max, sum, count), so a window
+    never holds more than about SLOTS_PER_WINDOW entries even at very high sample rates. The price is that the
+    window start is rounded to the slot size (1 s for a 1 hour window).
+
+Monotonic deques:
+    The min deque keeps slots whose minimum is increasing from front to back. When a new slot arrives every
+    candidate at the back with a larger (or equal) value is removed, because it is older and not smaller, so it
+    can never be the window minimum again. The front is the current minimum and leaves the deque when its slot
+    leaves the window. The max deque works the same way with the comparison reversed.
+*/
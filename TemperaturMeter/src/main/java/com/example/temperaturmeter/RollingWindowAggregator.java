@@ -0,0 +1,115 @@
+package com.example.temperaturmeter;
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to warm the windows from the database at startup.
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.boot.convert.DurationStyle;// Imports DurationStyle to parse window sizes such as "5m" or "1h".
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+// Keeps min/max/average/count for the configured time windows of every sensor in memory, fed by the ingest path.
+// Dashboards polling the window endpoints are answered without touching the database.
+public class RollingWindowAggregator {
+
+    @Value("${stats.rolling-windows:1m,5m,1h}")
+    // Injects the window sizes held in memory (e.g., "1m,5m,1h").
+    private String[] windowSpecs;
+
+    @Autowired
+    // Used once at startup to load the readings that are still inside the largest window.
+    private TemperatureStore temperatureStore;
+
+    private final Map<Duration, Integer> windowIndex = new LinkedHashMap<>();
+    // Position of each configured window size in the per-sensor window arrays. Filled at startup only.
+
+    private long[] windowMillis = new long[0];
+    // The configured window sizes in milliseconds, in the same order.
+
+    private final Map<String, RollingWindow[]> sensorWindows = new ConcurrentHashMap<>();
+    // One array of rolling windows per sensor, created when the sensor's first reading arrives.
+
+    @PostConstruct
+    public void warmUp() throws IOException {
+        Duration largest = Duration.ZERO;
+        for (String spec : windowSpecs) {
+            if (spec.isBlank()) {
+                continue;
+            }
+            Duration window = DurationStyle.detectAndParse(spec.trim());
+            windowIndex.putIfAbsent(window, windowIndex.size());
+            if (window.compareTo(largest) > 0) {
+                largest = window;
+            }
+        }
+        windowMillis = windowIndex.keySet().stream().mapToLong(Duration::toMillis).toArray();
+        if (windowMillis.length == 0) {
+            return;
+        }
+
+        long[] loaded = new long[1];
+        temperatureStore.forEachSince(LocalDateTime.now().minus(largest), reading -> {
+            add(reading.getSensorId(), EpochTime.toEpochMillis(reading.getTimestamp()), reading.getTemperature());
+            loaded[0]++;
+        });
+        // The readings of all sensors, oldest first, so every window is filled in time order.
+        System.out.println("Rolling windows " + windowIndex.keySet() + " warmed up with " + loaded[0]
+                + " readings of " + sensorWindows.size() + " sensors.");
+    }
+
+    public void add(String sensorId, long epochMillis, double temperature) {
+        // Called by the ingest path for every new reading.
+        RollingWindow[] windows = sensorWindows.get(sensorId);
+        if (windows == null) {
+            windows = sensorWindows.computeIfAbsent(sensorId, id -> createWindows());
+        }
+        for (RollingWindow window : windows) {
+            window.add(epochMillis, temperature);
+        }
+    }
+
+    private RollingWindow[] createWindows() {
+        RollingWindow[] windows = new RollingWindow[windowMillis.length];
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = new RollingWindow(windowMillis[i]);
+        }
+        return windows;
+    }
+
+    public boolean holds(Duration window) {
+        return windowIndex.containsKey(window);
+    }
+    // Tells whether the given window is answered from memory.
+
+    public WindowStatistics getStatistics(String sensorId, Duration window) {
+        // Returns the statistics of a held window, or null if the window is not kept in memory.
+        Integer index = windowIndex.get(window);
+        if (index == null) {
+            return null;
+        }
+        RollingWindow[] windows = sensorWindows.get(sensorId);
+        if (windows == null) {
+            return WindowStatistics.EMPTY;
+            // No reading of this sensor within the largest window since startup.
+        }
+        return windows[index].getStatistics(System.currentTimeMillis());
+    }
+}
+
+/*
+Configuration:
+    stats.rolling-windows lists the window sizes kept in memory, e.g. "1m,5m,1h". Every reading is added to
+    every window of its sensor, so the cost per reading grows with the number of windows, not with the
+    sample rate or the number of sensors.
+
+Warm-up:
+    At startup the readings of the largest window are loaded once from the database, so the windows are
+    correct right after a restart. This runs before the serial port is opened by TemperaturMeterApplication.
+
+Fallback:
+    Windows that are not configured are not held here; TemperatureService answers those with a SQL aggregate.
+*/
@@ -0,0 +1,58 @@
+package com.example.temperaturmeter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+public enum RollupResolution {
+    // Bucket sizes of the temp_rollup table. Every reading is counted once in each resolution.
+
+    MINUTE(ChronoUnit.MINUTES, "%Y-%m-%d %H:%i:00"),
+    HOUR(ChronoUnit.HOURS, "%Y-%m-%d %H:00:00"),
+    DAY(ChronoUnit.DAYS, "%Y-%m-%d 00:00:00");
+
+    private final ChronoUnit unit;
+    private final String sqlBucketFormat;
+    // MySQL DATE_FORMAT pattern that truncates a timestamp to the start of its bucket (used by the backfill).
+
+    RollupResolution(ChronoUnit unit, String sqlBucketFormat) {
+        this.unit = unit;
+        this.sqlBucketFormat = sqlBucketFormat;
+    }
+
+    public LocalDateTime bucketStart(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    public LocalDateTime nextBucket(LocalDateTime bucketStart) {
+        return bucketStart.plus(1, unit);
+    }
+
+    public Duration getBucketSize() {
+        return unit.getDuration();
+    }
+
+    String getSqlBucketFormat() {
+        return sqlBucketFormat;
+    }
+
+    public static RollupResolution forRange(Duration range, int maxPoints) {
+        // Picks the finest resolution that returns at most maxPoints buckets for the range (DAY if none does).
+        for (RollupResolution resolution : values()) {
+            if (range.toMillis() / resolution.getBucketSize().toMillis() <= maxPoints) {
+                return resolution;
+            }
+        }
+        return DAY;
+    }
+
+    public static RollupResolution parse(String value) {
+        // Accepts "minute", "hour" or "day" in any case; anything else is an IllegalArgumentException (400 in the controllers).
+        for (RollupResolution resolution : values()) {
+            if (resolution.name().equals(value.trim().toUpperCase(Locale.ROOT))) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown resolution: " + value + " (minute, hour or day)");
+    }
+}
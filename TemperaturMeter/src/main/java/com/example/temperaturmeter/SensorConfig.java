@@ -0,0 +1,35 @@
+package com.example.temperaturmeter;
+
+public class SensorConfig {
+    // One configured sensor: its id and the serial port (and baud rate) its Arduino is connected to.
+
+    private final String id;
+    private final String port;
+    private final int baudRate;
+
+    public SensorConfig(String id, String port, int baudRate) {
+        this.id = id;
+        this.port = port;
+        this.baudRate = baudRate;
+    }
+
+    public String getId() {
+        return id;
+    }
+    // Sensor id stored with every reading of this sensor (temp_reading.sensor_id).
+
+    public String getPort() {
+        return port;
+    }
+    // Serial port name, e.g. "COM6" or "/dev/ttyUSB0".
+
+    public int getBaudRate() {
+        return baudRate;
+    }
+    // Baud rate of the serial connection, e.g. 9600.
+
+    @Override
+    public String toString() {
+        return id + "=" + port + ":" + baudRate;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.temperaturmeter;
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to parse the sensor list once the properties are injected.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Component
+// Holds the list of configured sensors (one Arduino per serial port).
+public class SensorRegistry {
+
+    @Value("${serial.sensors:}")
+    // Injects the sensor list, e.g. "kitchen=COM6:9600,freezer=/dev/ttyUSB0:9600". Empty means a single sensor.
+    private String sensorSpecs;
+
+    @Value("${serial.port}")
+    // Port of the single default sensor, used when serial.sensors is empty.
+    private String defaultPort;
+
+    @Value("${serial.baudrate}")
+    // Baud rate used for the default sensor and for entries of serial.sensors without an explicit baud rate.
+    private int defaultBaudRate;
+
+    @Value("${serial.simulator.sensors:0}")
+    // Number of simulated sensors (sim-1 .. sim-N) started in addition to the configured ones, for load tests.
+    private int simulatedSensors;
+
+    @Value("${serial.simulator.options:}")
+    // Options of the simulated sensors, e.g. "rate=1000&noise=0.01&split=true" (see SimulatedReadingSource).
+    private String simulatorOptions;
+
+    private List<SensorConfig> sensors = Collections.emptyList();
+
+    @PostConstruct
+    public void parseSensors() {
+        List<SensorConfig> parsed = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        for (String spec : sensorSpecs.split(",")) {
+            spec = spec.trim();
+            if (spec.isEmpty()) {
+                continue;
+            }
+            SensorConfig sensor = parse(spec, defaultBaudRate);
+            if (!ids.add(sensor.getId())) {
+                throw new IllegalStateException("Duplicate sensor id in serial.sensors: " + sensor.getId());
+            }
+            parsed.add(sensor);
+        }
+        if (parsed.isEmpty() && simulatedSensors == 0) {
+            parsed.add(new SensorConfig(TemperatureReading.DEFAULT_SENSOR_ID, defaultPort, defaultBaudRate));
+            // Without a sensor list the application behaves as before: one Arduino on serial.port.
+        }
+        for (int i = 1; i <= simulatedSensors; i++) {
+            String id = "sim-" + i;
+            if (!ids.add(id)) {
+                throw new IllegalStateException("Duplicate sensor id in serial.sensors: " + id);
+            }
+            parsed.add(new SensorConfig(id, SimulatedReadingSource.SCHEME + "?" + simulatorOptions, 0));
+        }
+        sensors = Collections.unmodifiableList(parsed);
+    }
+
+    static SensorConfig parse(String spec, int defaultBaudRate) {
+        // Parses "id=port" or "id=port:baudrate". tcp:// and sim ports have no baud rate; a file: port only
+        // has one if it ends in ":digits" (its path may contain colons).
+        int equals = spec.indexOf('=');
+        if (equals <= 0 || equals == spec.length() - 1) {
+            throw new IllegalStateException("Invalid entry in serial.sensors (expected id=port[:baudrate]): " + spec);
+        }
+        String id = spec.substring(0, equals).trim();
+        String port = spec.substring(equals + 1).trim();
+        int baudRate = defaultBaudRate;
+        int colon = port.lastIndexOf(':');
+        if (ReadingSource.isUri(port)
+                || (port.startsWith(FileReplaySource.SCHEME) && !port.substring(colon + 1).trim().matches("\\d+"))) {
+            colon = -1;
+        }
+        if (colon > 0) {
+            try {
+                baudRate = Integer.parseInt(port.substring(colon + 1).trim());
+                port = port.substring(0, colon).trim();
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Invalid baud rate in serial.sensors: " + spec);
+            }
+        }
+        return new SensorConfig(id, port, baudRate);
+    }
+
+    public List<SensorConfig> getSensors() {
+        return sensors;
+    }
+    // All configured sensors, in configuration order.
+
+    public List<String> getSensorIds() {
+        List<String> ids = new ArrayList<>(sensors.size());
+        for (SensorConfig sensor : sensors) {
+            ids.add(sensor.getId());
+        }
+        return ids;
+    }
+    // The ids of all configured sensors.
+}
+
+/*
+Configuration:
+    serial.sensors=kitchen=COM6:9600,freezer=COM7:9600,garage=/dev/ttyUSB0
+    Each entry is id=port with an optional :baudrate (serial.baudrate is used when it is missing).
+    When serial.sensors is empty, a single sensor with the id "default" is read from serial.port.
+
+Ports (see ReadingSource.forSensor):
+    COM6, /dev/ttyUSB0                serial port
+    tcp://localhost:5000              TCP connection (ser2net, socat, a load generator)
+    file:/var/tmp/capture.txt:9600    replay of a captured stream at 9600 baud (:0 = as fast as possible), or a named pipe
+    sim?rate=1000&noise=0.01          built-in simulator (SimulatedReadingSource)
+    serial.simulator.sensors=N adds N simulated sensors sim-1 .. sim-N with serial.simulator.options.
+*/
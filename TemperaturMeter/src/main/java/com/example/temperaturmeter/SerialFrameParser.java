@@ -0,0 +1,205 @@
+package com.example.temperaturmeter;
+
+public class SerialFrameParser {
+    // Streaming parser for the Arduino wire format ("23.45 Celsius, 23.51 Celsius, ...").
+    // Bytes are copied into one reusable frame buffer and parsed straight into a primitive double,
+    // so no Strings, regexes or temporary arrays are created per reading.
+
+    public interface TemperatureListener {
+        // Callback invoked once for every frame that contains a valid temperature.
+        void onTemperature(double temperature);
+    }
+
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 64;
+    // "-123.45 Celsius" is 15 bytes, so 64 leaves plenty of room for whitespace and line endings.
+
+    private static final byte FRAME_DELIMITER = ',';
+    // The Arduino sketch ends every reading with ", " (Serial.print(" Celsius, ")).
+
+    private static final byte LINE_DELIMITER = '\n';
+    // Also accepted as a frame end, in case the sketch is switched to Serial.println().
+
+    private static final int MAX_DIGITS = 15;
+    // Up to 15 significant digits fit exactly in a double, which keeps the conversion exact.
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+    // Divisors used to place the decimal point without any floating point accumulation error.
+
+    private final byte[] frame;
+    // Reusable buffer holding the bytes of the frame currently being assembled.
+
+    private int frameLength;
+    // Number of bytes of the current frame stored in the buffer.
+
+    private boolean frameOverflowed;
+    // Set when the current frame is longer than the buffer; the rest of it is skipped up to the next delimiter.
+
+    private boolean synchronizing;
+    // Set after resynchronize(): bytes are discarded until the next delimiter, because the first frame is truncated.
+
+    private final TemperatureListener listener;
+    // Receives every successfully parsed temperature.
+
+    private volatile long framesParsed;
+    private volatile long framesRejected;
+    private volatile long framesOversized;
+    // Per-frame counters. Only the reader thread writes them, other threads (e.g. monitoring) may read them.
+
+    public SerialFrameParser(TemperatureListener listener) {
+        this(DEFAULT_MAX_FRAME_LENGTH, listener);
+    }
+
+    public SerialFrameParser(int maxFrameLength, TemperatureListener listener) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("maxFrameLength must be positive: " + maxFrameLength);
+        }
+        this.frame = new byte[maxFrameLength];
+        this.listener = listener;
+    }
+
+    public void feed(byte[] data, int offset, int length) {
+        // Consumes a chunk of bytes exactly as it came off the wire. A chunk may end in the middle of a frame
+        // or contain several frames; the unfinished tail is kept in the frame buffer until the next call.
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = data[i];
+            if (b == FRAME_DELIMITER || b == LINE_DELIMITER) {
+                completeFrame();
+            } else if (synchronizing || frameOverflowed) {
+                // Skips bytes until the next delimiter.
+            } else if (frameLength == frame.length) {
+                frameOverflowed = true;
+                // The frame does not fit the buffer, so it cannot be a valid reading.
+            } else {
+                frame[frameLength++] = b;
+            }
+        }
+    }
+
+    public void resynchronize() {
+        // Drops the partial frame and skips everything up to the next delimiter.
+        // Used after (re)opening a port, where the first bytes received may be the tail of a frame.
+        frameLength = 0;
+        frameOverflowed = false;
+        synchronizing = true;
+    }
+
+    private void completeFrame() {
+        if (synchronizing) {
+            synchronizing = false;
+        } else if (frameOverflowed) {
+            framesOversized++;
+            framesRejected++;
+        } else {
+            parseFrame();
+        }
+        frameLength = 0;
+        frameOverflowed = false;
+    }
+
+    private void parseFrame() {
+        // Parses "[whitespace][sign]digits[.digits][whitespace][unit][whitespace]" from the frame buffer.
+        int i = skipWhitespace(0);
+        if (i == frameLength) {
+            return;
+            // Blank frames (e.g. the space after ", " followed by a line ending) are not errors.
+        }
+
+        boolean negative = false;
+        if (frame[i] == '-' || frame[i] == '+') {
+            negative = frame[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenPoint = false;
+        for (; i < frameLength; i++) {
+            byte b = frame[i];
+            if (b >= '0' && b <= '9') {
+                if (digits == MAX_DIGITS) {
+                    framesRejected++;
+                    return;
+                    // Too many digits to be a temperature, most likely frames glued together.
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (seenPoint) {
+                    scale++;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            framesRejected++;
+            return;
+        }
+
+        // Anything after the number may only be whitespace and a unit word such as "Celsius".
+        i = skipWhitespace(i);
+        while (i < frameLength && isLetter(frame[i])) {
+            i++;
+        }
+        i = skipWhitespace(i);
+        if (i != frameLength) {
+            framesRejected++;
+            return;
+            // Leftover characters (a second number, a second decimal point, noise) mean a corrupted frame.
+        }
+
+        double value = mantissa / POWERS_OF_TEN[scale];
+        framesParsed++;
+        listener.onTemperature(negative ? -value : value);
+    }
+
+    private int skipWhitespace(int i) {
+        while (i < frameLength && (frame[i] == ' ' || frame[i] == '\t' || frame[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isLetter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    public long getFramesParsed() {
+        return framesParsed;
+    }
+    // Number of frames that produced a temperature.
+
+    public long getFramesRejected() {
+        return framesRejected;
+    }
+    // Number of non-blank frames that could not be parsed (including oversized frames).
+
+    public long getFramesOversized() {
+        return framesOversized;
+    }
+    // Number of frames that were longer than the frame buffer.
+}
+
+/*
+Frame format:
+    The Arduino sketch prints the temperature with two decimals followed by " Celsius, " and no newline,
+    so the comma is the only real frame boundary. A single serial read can end in the middle of a frame
+    or contain several frames, which is why bytes are collected until the delimiter arrives.
+
+feed(byte[] data, int offset, int length):
+    Feeds a chunk of raw bytes into the parser. Complete frames are parsed immediately and reported to the
+    listener; the incomplete tail is kept for the next call. The caller can reuse its read buffer right away.
+
+resynchronize():
+    Discards everything up to the next delimiter. Call it after opening the port so a truncated first frame
+    (e.g. "45 Celsius" from "23.45 Celsius") is not reported as a wrong temperature.
+
+Counters:
+    framesParsed, framesRejected and framesOversized count frames instead of logging each failure,
+    so a noisy line does not flood the console.
+*/
@@ -0,0 +1,188 @@
+package com.example.temperaturmeter;
+import io.micrometer.core.instrument.Counter;// Imports the Micrometer Counter, used to count the bytes read from the port.
+import io.micrometer.core.instrument.FunctionCounter;// Imports FunctionCounter, which exposes the parser's own frame counters as metrics.
+import io.micrometer.core.instrument.MeterRegistry;// Imports the MeterRegistry the reader's metrics are registered with.
+import org.slf4j.LoggerFactory;// Imports the SLF4J LoggerFactory for the rate-limited sample log.
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+public class SerialPortReader {
+    // Reads one sensor's ReadingSource (serial port, TCP, file replay or simulator) on its own thread and hands every
+    // parsed temperature to the shared ingest pipeline.
+    // Each sensor has its own read buffer and frame parser, so readers never contend with each other.
+
+    private final SensorConfig sensor;
+    // The sensor (port and baud rate) this reader is responsible for.
+
+    private final TemperatureService temperatureService;
+    // Shared ingest pipeline every reader feeds.
+
+    private final byte[] readBuffer = new byte[1024];
+    // Buffer reused for every read from the serial port, so the read loop does not allocate.
+
+    private final SerialFrameParser frameParser = new SerialFrameParser(this::processAndSaveData);
+    // Splits the byte stream into frames (also across reads) and parses each frame into a temperature.
+
+    private ReadingSource source;
+    // Where the bytes come from, chosen from the sensor's port (see ReadingSource.forSensor).
+
+    private volatile boolean running;
+    // Cleared by close(); the read loop ends at its next read.
+
+    private Thread thread;
+    // The reader thread, named serial-reader-<sensor id>.
+
+    private final long reconnectInitialMillis;
+    private final long reconnectMaxMillis;
+    // Backoff between attempts to open the source: starts at the initial delay and doubles up to the maximum.
+
+    private final RateLimitedLog reconnectLog = new RateLimitedLog(LoggerFactory.getLogger(SerialPortReader.class), 1, TimeUnit.MINUTES);
+    // While a device stays unplugged, one message per minute is enough.
+
+    private final Counter serialBytes;
+    // temperature.serial.bytes: bytes read from this port (the metrics backend derives bytes per second).
+
+    private final RateLimitedLog sampleLog = new RateLimitedLog(LoggerFactory.getLogger(SerialPortReader.class), 10, TimeUnit.SECONDS);
+    // At most one "received" line per port every 10 seconds, and only with DEBUG enabled for this class.
+
+    public SerialPortReader(SensorConfig sensor, TemperatureService temperatureService, MeterRegistry meterRegistry,
+                            long reconnectInitialMillis, long reconnectMaxMillis) {
+        this.sensor = sensor;
+        this.temperatureService = temperatureService;
+        this.reconnectInitialMillis = Math.max(1, reconnectInitialMillis);
+        this.reconnectMaxMillis = Math.max(this.reconnectInitialMillis, reconnectMaxMillis);
+        this.serialBytes = Counter.builder("temperature.serial.bytes").tag("sensor", sensor.getId()).baseUnit("bytes")
+                .description("Bytes read from the serial port").register(meterRegistry);
+        registerFrameCounter(meterRegistry, "parsed", SerialFrameParser::getFramesParsed);
+        registerFrameCounter(meterRegistry, "rejected", SerialFrameParser::getFramesRejected);
+        registerFrameCounter(meterRegistry, "oversized", SerialFrameParser::getFramesOversized);
+        // Read from the parser's counters when the metrics are scraped, so parsing itself does no extra work.
+    }
+
+    private void registerFrameCounter(MeterRegistry meterRegistry, String result, ToLongFunction<SerialFrameParser> counter) {
+        FunctionCounter.builder("temperature.serial.frames", frameParser, parser -> counter.applyAsLong(parser))
+                .tag("sensor", sensor.getId()).tag("result", result)
+                .description("Frames received from the serial port").register(meterRegistry);
+    }
+
+    public void start() {
+        // Starts the reader thread, which opens the source (retrying until it is available) and reads it.
+        source = ReadingSource.forSensor(sensor);
+        running = true;
+        thread = new Thread(this::run, "serial-reader-" + sensor.getId());
+        thread.setDaemon(true);
+        // Never keeps the JVM alive; SerialCommunicationListener stops the readers when the context closes.
+        thread.start();
+    }
+
+    private void run() {
+        long delay = reconnectInitialMillis;
+        while (running) {
+            try {
+                source.open();
+            } catch (IOException e) {
+                reconnectLog.warn("Failed to open {} for sensor {}: {}, retrying in {} ms", source, sensor.getId(), e.getMessage(), delay);
+                if (!source.isReconnectable() || !sleep(delay)) {
+                    break;
+                }
+                delay = Math.min(delay * 2, reconnectMaxMillis);
+                // Exponential backoff while the device is unplugged or the host is down.
+                continue;
+            }
+            System.out.println(source + " opened successfully for sensor " + sensor.getId() + ".");
+            delay = reconnectInitialMillis;
+            frameParser.resynchronize();
+            // The source may have been opened in the middle of a frame, so the parser skips to the first delimiter.
+            readUntilClosed();
+            source.close();
+            if (!source.isReconnectable() || !sleep(reconnectInitialMillis)) {
+                break;
+                // A replayed file or the simulator has ended, or the reader was closed.
+            }
+            // Waits a moment before reopening, so a device that keeps dropping does not cause a reconnect storm.
+        }
+    }
+
+    private void readUntilClosed() {
+        while (running) {
+            // Reads until the reader is closed, or the source ends or fails.
+
+            int bytesRead;
+            try {
+                bytesRead = source.read(readBuffer);
+                // Waits for the next bytes (at most ~100 ms), so an idle source costs no CPU.
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Error reading " + source + " for sensor " + sensor.getId() + ": " + e.getMessage());
+                }
+                return;
+            }
+            if (bytesRead < 0) {
+                System.out.println(source + " of sensor " + sensor.getId() + " ended.");
+                return;
+                // End of a replayed file or a closed TCP connection.
+            }
+            if (bytesRead > 0) {
+                serialBytes.increment(bytesRead);
+                frameParser.feed(readBuffer, 0, bytesRead);
+                // Hands the raw bytes to the frame parser, which calls processAndSaveData() for every complete frame.
+            }
+        }
+    }
+
+    private boolean sleep(long millis) {
+        // Waits before the next reconnect attempt. Returns false if the reader was closed meanwhile.
+        try {
+            Thread.sleep(millis);
+            return running;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private void processAndSaveData(double temperature) {
+        // Hands a temperature parsed from one complete frame to the service, which queues it for a batched save.
+
+        try {
+            temperatureService.recordTemperature(sensor.getId(), temperature);
+            // Returns immediately unless the write-behind queue is full and configured to block.
+            sampleLog.debug("Received {} Celsius from sensor {}", temperature, sensor.getId());
+            // Replaces the former println per sample: rate-limited and off unless DEBUG is enabled.
+        } catch (InterruptedException e) {
+            // The reader thread is being stopped while waiting for room in the queue.
+            running = false;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void close() {
+        // Stops the reader thread and closes the source. Waits up to one second for the thread to end.
+        if (!running) {
+            return;
+        }
+        running = false;
+        source.close();
+        thread.interrupt();
+        // Ends a reconnect backoff; a read in progress returns within its timeout.
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println(source + " closed.");
+    }
+
+    public boolean isRunning() {
+        return running && thread.isAlive();
+    }
+
+    public SensorConfig getSensor() {
+        return sensor;
+    }
+
+    public SerialFrameParser getFrameParser() {
+        return frameParser;
+    }
+    // Gives access to the parser's frame counters (parsed, rejected, oversized).
+}
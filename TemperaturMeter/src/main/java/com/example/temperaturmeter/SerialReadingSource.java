@@ -0,0 +1,56 @@
+package com.example.temperaturmeter;
+import com.fazecast.jSerialComm.SerialPort;// Imports the SerialPort class from the jSerialComm library to handle serial communication.
+import java.io.IOException;
+
+public class SerialReadingSource implements ReadingSource {
+    // A serial port, e.g. the USB serial port of an Arduino, read in semi-blocking mode: a read waits in the
+    // driver until at least one byte arrives (returned at once, no added latency) or READ_TIMEOUT_MILLIS pass.
+    // An idle port therefore costs about ten wake-ups per second instead of a spinning core.
+
+    private static final int READ_TIMEOUT_MILLIS = 100;
+    // Upper bound of one read without data, so the reader notices close() quickly.
+
+    private final String portName;
+    private final int baudRate;
+    private SerialPort serialPort;
+
+    public SerialReadingSource(String portName, int baudRate) {
+        this.portName = portName;
+        this.baudRate = baudRate;
+    }
+
+    @Override
+    public void open() throws IOException {
+        serialPort = SerialPort.getCommPort(portName);
+        // Sets the serial port using the configured port name.
+        serialPort.setBaudRate(baudRate);
+        // Configures the baud rate for the serial port communication.
+        serialPort.setComPortTimeouts(SerialPort.TIMEOUT_READ_SEMI_BLOCKING, READ_TIMEOUT_MILLIS, 0);
+        // Without this jSerialComm reads are non-blocking and the read loop would spin on an empty port.
+        if (!serialPort.openPort()) {
+            throw new IOException("Failed to open serial port " + portName);
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer) throws IOException {
+        int read = serialPort.readBytes(buffer, buffer.length);
+        if (read < 0) {
+            throw new IOException("Serial port " + portName + " disconnected");
+            // readBytes fails once the device is unplugged; the reader closes the port and reconnects.
+        }
+        return read;
+    }
+
+    @Override
+    public void close() {
+        if (serialPort != null && serialPort.isOpen()) {
+            serialPort.closePort();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "serial port " + portName;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.temperaturmeter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class SimulatedReadingSource implements ReadingSource {
+    // A virtual Arduino: emits the exact wire format of Arduino_Temp_Meter.cpp ("21.37 Celsius, ") at a configured
+    // rate, so the whole ingest pipeline can be load-tested without hardware. Options (port "sim?rate=1000&noise=0.01"):
+    //     rate  - frames per second, from 0.1 (the real sketch) up to 100000 (default 0.1)
+    //     noise - probability that a frame is corrupted, so the parser has to reject it (default 0)
+    //     split - true delivers the bytes in small reads of random length, so frames cross read boundaries (default false)
+    //     burst - frames released together; the average rate stays the same (default 1)
+    //     seed  - seed of the random temperature walk (default derived from the sensor id)
+
+    static final String SCHEME = "sim";
+
+    private static final byte[] SUFFIX = " Celsius, ".getBytes(StandardCharsets.US_ASCII);
+    // Serial.print(tempC, 2); Serial.print(" Celsius, ");
+
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // A read returns 0 after at most this long, so the reader notices when it is closed.
+
+    private static final int MAX_SPLIT_READ = 16;
+    // Upper bound of the random read length with split=true.
+
+    private final double rate;
+    private final double noise;
+    private final boolean split;
+    private final int burst;
+    private final Random random;
+    private final Random splitRandom;
+    // The read lengths have their own generator, so the temperatures of a seed do not depend on the reader's timing.
+
+    private final byte[] frame = new byte[32];
+    private int frameStart;
+    private int frameEnd;
+    // The frame being delivered; its tail is kept for the next read if the buffer (or split read) is full.
+
+    private double temperature = 21.0;
+    private long startNanos;
+    private long framesEmitted;
+    private long framesCorrupted;
+    private volatile boolean closed;
+
+    public SimulatedReadingSource(double rate, double noise, boolean split, int burst, long seed) {
+        if (rate <= 0 || rate > 100_000) {
+            throw new IllegalArgumentException("rate must be in (0, 100000] frames per second: " + rate);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1: " + burst);
+        }
+        this.rate = rate;
+        this.noise = noise;
+        this.split = split;
+        this.burst = burst;
+        this.random = new Random(seed);
+        this.splitRandom = new Random(~seed);
+    }
+
+    static SimulatedReadingSource fromOptions(String query, long defaultSeed) {
+        // Parses "?rate=1000&noise=0.01&split=true&burst=50&seed=1" (every option is optional).
+        double rate = 0.1;
+        double noise = 0;
+        boolean split = false;
+        int burst = 1;
+        long seed = defaultSeed;
+        String options = query.startsWith("?") ? query.substring(1) : query;
+        for (String option : options.split("&")) {
+            if (option.isEmpty()) {
+                continue;
+            }
+            int equals = option.indexOf('=');
+            String name = equals < 0 ? option : option.substring(0, equals);
+            String value = equals < 0 ? "true" : option.substring(equals + 1);
+            switch (name) {
+                case "rate" -> rate = Double.parseDouble(value);
+                case "noise" -> noise = Double.parseDouble(value);
+                case "split" -> split = Boolean.parseBoolean(value);
+                case "burst" -> burst = Integer.parseInt(value);
+                case "seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown simulator option: " + name);
+            }
+        }
+        return new SimulatedReadingSource(rate, noise, split, burst, seed);
+    }
+
+    @Override
+    public void open() {
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public int read(byte[] buffer) {
+        if (closed) {
+            return -1;
+        }
+        int limit = split ? Math.min(buffer.length, 1 + splitRandom.nextInt(MAX_SPLIT_READ)) : buffer.length;
+        int length = copyFrame(buffer, 0, limit);
+        long due = framesDue(System.nanoTime());
+        if (due == 0 && length == 0) {
+            long nextNanos = startNanos + (long) (nextReleaseIndex() / rate * 1e9);
+            LockSupport.parkNanos(Math.min(MAX_WAIT_NANOS, nextNanos - System.nanoTime()));
+            due = framesDue(System.nanoTime());
+        }
+        while (due > 0 && length < limit) {
+            writeFrame();
+            due--;
+            length = copyFrame(buffer, length, limit);
+        }
+        return length;
+    }
+
+    private long framesDue(long nowNanos) {
+        // Frames that should have been sent by now, released in whole bursts, minus those already sent.
+        long total = (long) ((nowNanos - startNanos) / 1e9 * rate);
+        return total / burst * burst - framesEmitted;
+    }
+
+    private long nextReleaseIndex() {
+        return (framesEmitted / burst + 1) * burst;
+    }
+
+    private int copyFrame(byte[] buffer, int offset, int limit) {
+        int count = Math.min(frameEnd - frameStart, limit - offset);
+        System.arraycopy(frame, frameStart, buffer, offset, count);
+        frameStart += count;
+        return offset + count;
+    }
+
+    private void writeFrame() {
+        // Formats the next temperature like Serial.print(value, 2), without creating Strings.
+        temperature = Math.max(-40, Math.min(125, temperature + (21.0 - temperature) * 0.001 + random.nextGaussian() * 0.05));
+        // A random walk in the TMP36 range, slowly pulled back to room temperature so long runs stay plausible.
+        int hundredths = (int) Math.round(temperature * 100);
+        int position = 0;
+        if (hundredths < 0) {
+            frame[position++] = '-';
+            hundredths = -hundredths;
+        }
+        position = writeDigits(hundredths / 100, position);
+        frame[position++] = '.';
+        frame[position++] = (byte) ('0' + hundredths % 100 / 10);
+        frame[position++] = (byte) ('0' + hundredths % 10);
+        if (noise > 0 && random.nextDouble() < noise) {
+            frame[random.nextInt(position)] = '#';
+            framesCorrupted++;
+            // The frame keeps its delimiter, so only this frame is rejected.
+        }
+        System.arraycopy(SUFFIX, 0, frame, position, SUFFIX.length);
+        frameStart = 0;
+        frameEnd = position + SUFFIX.length;
+        framesEmitted++;
+    }
+
+    private int writeDigits(int value, int position) {
+        int digits = value < 10 ? 1 : value < 100 ? 2 : 3;
+        for (int i = digits - 1; i >= 0; i--) {
+            frame[position + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + digits;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    public long getFramesEmitted() {
+        return framesEmitted;
+    }
+
+    public long getFramesCorrupted() {
+        return framesCorrupted;
+    }
+
+    @Override
+    public boolean isReconnectable() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "simulator at " + rate + " frames/s";
+    }
+}
+
+/*
+Load testing:
+    serial.simulator.sensors=8
+    serial.simulator.options=rate=10000&noise=0.001&split=true
+    starts eight virtual sensors (sim-1 .. sim-8) of 10000 frames per second each, next to the configured ones.
+    The frames go through the same reader, parser, rolling windows, live feed and write-behind queue as real ones;
+    compare temperature.serial.frames and temperature.ingest.readings at /actuator/metrics while it runs.
+
+Pacing:
+    The number of frames due is computed from the time since open(), so the average rate holds even if the reader
+    falls behind for a moment (the missing frames are then sent back to back, like a full serial buffer).
+*/
@@ -0,0 +1,186 @@
+package com.example.temperaturmeter;
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to load the retained history into the sketches at startup.
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.scheduling.annotation.Scheduled;// Imports @Scheduled, used to drop buckets that left the retention.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+// Keeps a TemperatureSketch per sensor and time bucket (minutes for recent data, hours for longer), updated by
+// the ingest path. Mean, standard deviation, quantiles and time above a threshold over any range are answered by
+// merging the range's buckets, so the cost grows with the number of buckets, not with the number of readings.
+public class SketchAggregator {
+
+    static final long MINUTE = 60_000;
+    static final long HOUR = 3_600_000;
+
+    private final long minuteRetentionMillis;
+    private final long hourRetentionMillis;
+    private final long maxGapMillis;
+
+    @Autowired
+    // Used once at startup to load the readings within stats.sketch.hour-retention.
+    private TemperatureStore temperatureStore;
+
+    @Autowired
+    // Lists the sensors whose history is loaded at startup.
+    private SensorRegistry sensorRegistry;
+
+    private final Map<String, SensorSketches> sensors = new ConcurrentHashMap<>();
+
+    public SketchAggregator(@Value("${stats.sketch.minute-retention:2d}") Duration minuteRetention,
+                            @Value("${stats.sketch.hour-retention:30d}") Duration hourRetention,
+                            @Value("${stats.sketch.max-gap:60s}") Duration maxGap) {
+        this.minuteRetentionMillis = minuteRetention.toMillis();
+        this.hourRetentionMillis = hourRetention.toMillis();
+        this.maxGapMillis = maxGap.toMillis();
+    }
+
+    public static class DwellTracker {
+        // The previous reading of a sensor: it was valid until the next one arrived, for at most stats.sketch.max-gap.
+        private long lastMillis = Long.MIN_VALUE;
+        private double lastTemperature;
+    }
+
+    private static class SensorSketches {
+        // All buckets of one sensor; every access holds the lock of this object.
+        final TreeMap<Long, TemperatureSketch> minutes = new TreeMap<>();
+        final TreeMap<Long, TemperatureSketch> hours = new TreeMap<>();
+        final DwellTracker live = new DwellTracker();
+    }
+
+    @PostConstruct
+    public void warmUp() throws IOException {
+        LocalDateTime since = EpochTime.toLocalDateTime(hourCutoff(System.currentTimeMillis()));
+        long[] loaded = new long[1];
+        for (String sensorId : sensorRegistry.getSensorIds()) {
+            DwellTracker tracker = sensors(sensorId).live;
+            temperatureStore.forEachBetween(sensorId, since, LocalDateTime.now().plusDays(1), reading -> {
+                add(sensorId, EpochTime.toEpochMillis(reading.getTimestamp()), reading.getTemperature(), tracker);
+                loaded[0]++;
+            });
+            // Oldest first, so the time between readings (dwell) is attributed like on the live path.
+        }
+        System.out.println("Statistics sketches warmed up with " + loaded[0] + " readings since " + since + ".");
+    }
+
+    public void add(String sensorId, long epochMillis, double temperature) {
+        // Called by the ingest path for every new reading.
+        add(sensorId, epochMillis, temperature, sensors(sensorId).live);
+    }
+
+    public void add(String sensorId, long epochMillis, double temperature, DwellTracker tracker) {
+        // Adds a reading with its own dwell tracker, e.g. for an import of history next to the live readings.
+        SensorSketches sketches = sensors(sensorId);
+        synchronized (sketches) {
+            if (epochMillis < hourCutoff(System.currentTimeMillis())) {
+                return;
+                // Older than stats.sketch.hour-retention.
+            }
+            if (tracker.lastMillis != Long.MIN_VALUE && epochMillis > tracker.lastMillis) {
+                long dwell = Math.min(epochMillis - tracker.lastMillis, maxGapMillis);
+                bucket(sketches, tracker.lastMillis, true).addDwell(tracker.lastTemperature, dwell);
+                bucket(sketches, tracker.lastMillis, false).addDwell(tracker.lastTemperature, dwell);
+                // The previous reading held until now (or until max-gap, if the sensor was silent in between).
+            }
+            if (epochMillis >= tracker.lastMillis) {
+                tracker.lastMillis = epochMillis;
+                tracker.lastTemperature = temperature;
+            }
+            // A reading older than the tracker's last one counts for the statistics but not for the dwell time.
+            bucket(sketches, epochMillis, true).add(temperature);
+            bucket(sketches, epochMillis, false).add(temperature);
+        }
+    }
+
+    private SensorSketches sensors(String sensorId) {
+        SensorSketches sketches = sensors.get(sensorId);
+        return sketches != null ? sketches : sensors.computeIfAbsent(sensorId, id -> new SensorSketches());
+    }
+
+    private static TemperatureSketch bucket(SensorSketches sketches, long epochMillis, boolean minute) {
+        long size = minute ? MINUTE : HOUR;
+        return (minute ? sketches.minutes : sketches.hours).computeIfAbsent(Math.floorDiv(epochMillis, size) * size, start -> new TemperatureSketch());
+    }
+
+    public RangeStatistics query(String sensorId, long fromMillis, long toMillis, Double threshold) {
+        // Merges the buckets covering [fromMillis, toMillis): whole hours where they fit, minutes at the edges
+        // while they are retained, otherwise the hour around an edge.
+        long now = System.currentTimeMillis();
+        long minuteCutoff = Math.floorDiv(now - minuteRetentionMillis, MINUTE) * MINUTE;
+        long start = Math.max(fromMillis, hourCutoff(now));
+        long end = Math.max(start, toMillis);
+        TemperatureSketch merged = new TemperatureSketch();
+        int buckets = 0;
+        long coveredFrom = start;
+        long cursor = start;
+        SensorSketches sketches = sensors.get(sensorId);
+        if (sketches != null) {
+            synchronized (sketches) {
+                while (cursor < end) {
+                    long bucketStart;
+                    long bucketSize;
+                    TemperatureSketch sketch;
+                    if (Math.floorMod(cursor, HOUR) == 0 && cursor + HOUR <= end || cursor < minuteCutoff) {
+                        bucketSize = HOUR;
+                        bucketStart = Math.floorDiv(cursor, HOUR) * HOUR;
+                        sketch = sketches.hours.get(bucketStart);
+                    } else {
+                        bucketSize = MINUTE;
+                        bucketStart = Math.floorDiv(cursor, MINUTE) * MINUTE;
+                        sketch = sketches.minutes.get(bucketStart);
+                    }
+                    if (sketch != null) {
+                        merged.merge(sketch);
+                        buckets++;
+                    }
+                    coveredFrom = Math.min(coveredFrom, bucketStart);
+                    cursor = bucketStart + bucketSize;
+                }
+            }
+        }
+        long coveredTo = Math.max(cursor, end);
+        return new RangeStatistics(sensorId, EpochTime.toLocalDateTime(coveredFrom), EpochTime.toLocalDateTime(coveredTo),
+                merged, threshold, buckets);
+    }
+
+    @Scheduled(fixedDelayString = "${stats.sketch.eviction-interval-ms:600000}")
+    public void evict() {
+        long now = System.currentTimeMillis();
+        long minuteCutoff = now - minuteRetentionMillis - MINUTE;
+        long hourCutoff = hourCutoff(now);
+        for (SensorSketches sketches : sensors.values()) {
+            synchronized (sketches) {
+                sketches.minutes.headMap(minuteCutoff).clear();
+                sketches.hours.headMap(hourCutoff).clear();
+            }
+        }
+    }
+
+    private long hourCutoff(long nowMillis) {
+        return Math.floorDiv(nowMillis - hourRetentionMillis, HOUR) * HOUR;
+    }
+}
+
+/*
+Buckets:
+    Every reading is added to its minute and to its hour sketch. Minute sketches are kept for
+    stats.sketch.minute-retention (2 days), hour sketches for stats.sketch.hour-retention (30 days). A query for a
+    week merges about 168 hour sketches plus up to 118 minute sketches at the edges, whatever the sample rate.
+    The range reported with the result is the one actually covered by the merged buckets.
+
+Accuracy:
+    Count, mean, standard deviation, min and max are exact. Quantiles are exact to half a histogram bin (0.05 °C).
+    Time above a threshold counts, for every reading at or above the threshold (to the bin), the time until the
+    sensor's next reading, at most stats.sketch.max-gap, so outages do not count as time at the last temperature.
+
+Startup:
+    The readings within the hour retention are loaded once, sensor by sensor, like the rolling windows. A longer
+    hour retention makes startup proportionally slower (30 days at one reading per 10 s: 260,000 readings per sensor).
+*/
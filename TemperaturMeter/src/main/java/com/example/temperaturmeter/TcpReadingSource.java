@@ -0,0 +1,66 @@
+package com.example.temperaturmeter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+public class TcpReadingSource implements ReadingSource {
+    // A TCP connection delivering the wire format, e.g. ser2net or "socat TCP-LISTEN:5000 /dev/ttyUSB0" in front of
+    // a remote serial port, or a load generator on the same machine.
+
+    static final String SCHEME = "tcp://";
+
+    private static final int READ_TIMEOUT_MILLIS = 100;
+    // A read returns 0 after this long without data, so the reader notices when it is closed.
+
+    private final String host;
+    private final int port;
+    private Socket socket;
+    private InputStream in;
+
+    public TcpReadingSource(String address) {
+        // address is "host:port".
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Expected tcp://host:port, got tcp://" + address);
+        }
+        this.host = address.substring(0, colon);
+        this.port = Integer.parseInt(address.substring(colon + 1));
+    }
+
+    @Override
+    public void open() throws IOException {
+        socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), 5000);
+        socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+        in = socket.getInputStream();
+    }
+
+    @Override
+    public int read(byte[] buffer) throws IOException {
+        try {
+            return in.read(buffer, 0, buffer.length);
+            // -1 when the other side closed the connection.
+        } catch (SocketTimeoutException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // Already closed.
+        }
+    }
+
+    @Override
+    public String toString() {
+        return SCHEME + host + ":" + port;
+    }
+}
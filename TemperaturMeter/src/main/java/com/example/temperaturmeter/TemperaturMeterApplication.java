@@ -4,21 +4,50 @@ import org.springframework.beans.factory.annotation.Autowired;// Importing the @
 import org.springframework.boot.CommandLineRunner;// Importing the CommandLineRunner interface, which allows us to run code when the application starts.
 import org.springframework.boot.SpringApplication;// Importing SpringApplication, which is used to bootstrap and launch the Spring Boot application.
 import org.springframework.boot.autoconfigure.SpringBootApplication;// Importing the @SpringBootApplication annotation, which enables component scanning, auto-config. and more.
+import org.springframework.scheduling.annotation.EnableScheduling;// Importing @EnableScheduling, which activates the @Scheduled maintenance jobs.
+import java.nio.file.Path;// Importing Path for the file given with --import.
+import java.util.Arrays;// Importing Arrays to look for command line options.
 
 @SpringBootApplication
+@EnableScheduling
 public class TemperaturMeterApplication implements CommandLineRunner {
 
     @Autowired
     private SerialCommunicationListener serialService;  // Inject the serial communication service
 
+    @Autowired
+    private TemperatureBulkImporter bulkImporter;  // Inject the bulk importer, used by --import=<file>
+
+    @Autowired(required = false)
+    private TemperatureRollupWriter rollupWriter;  // Inject the rollup writer, used by --backfill-rollups (MySQL backend only)
+
     public static void main(String[] args) {
         SpringApplication.run(TemperaturMeterApplication.class, args);
     }
 
     @Override
     public void run(String... args) throws Exception {
-        // Initialize the serial communication when the application starts
-        serialService.initializeSerialPort();
+        if (Arrays.asList(args).contains("--backfill-rollups") && rollupWriter != null) {
+            // Rebuild the minute/hour/day rollups from the existing readings before new readings arrive
+            System.out.println("Backfilling rollups...");
+            long days = rollupWriter.backfill();
+            System.out.println("Rollups backfilled for " + days + " days.");
+        }
+        String importFile = option(args, "--import=");
+        if (importFile != null) {
+            // Load readings from a CSV or binary file (e.g. captured while the application was down) before new readings arrive
+            System.out.println("Importing " + importFile + "...");
+            TemperatureBulkImporter.ImportResult result = bulkImporter.importFile(Path.of(importFile), option(args, "--import-sensor="));
+            System.out.println("Imported " + result.readings() + " readings in " + result.millis() + " ms ("
+                    + result.getReadingsPerSecond() + " readings/s).");
+        }
+        // Start the serial communication (one reader per configured port); Spring stops it again on shutdown
+        serialService.start();
+    }
+
+    private static String option(String[] args, String prefix) {
+        // Value of a "--name=value" command line option, or null
+        return Arrays.stream(args).filter(arg -> arg.startsWith(prefix)).map(arg -> arg.substring(prefix.length())).findFirst().orElse(null);
     }
 
 }
@@ -57,6 +86,11 @@ Purpose:
     @ComponentScan: Tells Spring to scan the package for Spring-managed beans or components.
      This annotation marks the class as the starting point for the Spring Boot application.
 
+@EnableScheduling
+Purpose:
+    Enables Spring's scheduler, which runs methods annotated with @Scheduled
+    (e.g. the nightly partition maintenance in TemperaturePartitionMaintenance).
+
 public class TemperaturMeterApplication implements CommandLineRunner {
 Purpose:
     This declares the TemperaturMeterApplication class, which implements the CommandLineRunner interface.
@@ -98,9 +132,25 @@ Purpose:
     to accept a variable number of arguments passed to the application at runtime.
     The throws Exception part indicates that this method can throw exceptions if something goes wrong.
 
-serialService.initializeSerialPort();
+--backfill-rollups
+Purpose:
+    Optional command line argument (java -jar TemperaturMeter.jar --backfill-rollups). Recomputes the temp_rollup
+    table from all readings in temp_reading, e.g. after upgrading a database that existed before the rollups.
+    The rollups of new readings are maintained by the ingest path, so this is only needed once.
+
+--import=<file> [--import-sensor=<id>]
+Purpose:
+    Optional command line arguments. Loads historical readings from a CSV file or a binary export
+    (see TemperatureBulkImporter) in large batches before the serial readers start. --import-sensor names the
+    sensor for files without a sensor_id column, or replaces the sensor id stored in a binary file.
+
+serialService.start();
 Purpose:
-    This calls the initializeSerialPort() method on the serialService (which was injected by Spring).
+    This starts the serial communication on the serialService (which was injected by Spring).
     The purpose is to initialize the serial communication when the application starts.
+    It starts one named reader thread per port configured in serial.sensors (or the single serial.port); each
+    thread opens its port, retrying with backoff until the device is there.
+    SerialCommunicationListener is a SmartLifecycle bean, so Spring stops the readers again when the application
+    shuts down, before the write-behind queue writes its last batch.
 
 */
@@ -0,0 +1,284 @@
+package com.example.temperaturmeter;
+import jakarta.servlet.http.HttpServletRequest;// Imports HttpServletRequest, whose body is read while an import is running.
+import jakarta.servlet.http.HttpServletResponse;// Imports HttpServletResponse, written to directly by the export.
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for dependency injection in Spring.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.boot.convert.DurationStyle;// Imports DurationStyle to parse window parameters such as "5m" or "1h".
+import org.springframework.format.annotation.DateTimeFormat;// Imports the DateTimeFormat annotation to parse date and time parameters.
+import org.springframework.http.HttpStatus;// Imports HttpStatus, used for unknown sensors and too large ranges.
+import org.springframework.http.MediaType;// Imports MediaType for the formats the readings can be returned in.
+import org.springframework.web.bind.annotation.ExceptionHandler;// Imports the ExceptionHandler annotation, used to answer invalid parameters with 400 Bad Request.
+import org.springframework.web.bind.annotation.GetMapping;// Imports the GetMapping annotation to map HTTP GET requests to methods.
+import org.springframework.web.bind.annotation.PathVariable;// Imports the PathVariable annotation to read the sensor id from the URL.
+import org.springframework.web.bind.annotation.PostMapping;// Imports the PostMapping annotation for the import endpoint.
+import org.springframework.web.bind.annotation.RequestMapping;// Imports the RequestMapping annotation for the base URL of the API.
+import org.springframework.web.bind.annotation.RequestParam;// Imports the RequestParam annotation to retrieve query parameters.
+import org.springframework.web.bind.annotation.RestController;// Imports the RestController annotation: every method returns data, never a template.
+import org.springframework.web.server.ResponseStatusException;// Imports ResponseStatusException, used to answer with an HTTP error status.
+import java.io.IOException;// Imports IOException, thrown by the store while it scans a range.
+import java.io.InputStreamReader;// Imports InputStreamReader, which decodes an uploaded CSV body.
+import java.nio.charset.StandardCharsets;// Imports StandardCharsets for the UTF-8 CSV body.
+import java.time.Duration;// Imports Duration, the step of a resampled series.
+import java.time.LocalDateTime;// Imports the LocalDateTime class to handle date and time.
+import java.util.ArrayList;// Imports ArrayList, used to list the alert rules.
+import java.util.List;// Imports the List interface for the sensors and the rollup buckets.
+
+@RestController
+// Marks this class as a REST controller; the return values are written by the message converters.
+@RequestMapping("/api/v1")
+// Versioned data API. The pages under /api/temperature stay for browsers.
+public class TemperatureApiController {
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    // Start of an export without "from".
+
+    @Autowired// Automatically injects the TemperatureService instance.
+    private TemperatureService temperatureService;  // The service used to fetch temperature data.
+
+    @Autowired// Automatically injects the SensorRegistry instance.
+    private SensorRegistry sensorRegistry;  // Lists the configured sensors.
+
+    @Autowired// Automatically injects the TemperatureBulkImporter instance.
+    private TemperatureBulkImporter bulkImporter;  // Writes uploaded readings in batches.
+
+    @Autowired// Automatically injects the LatestReadingCache instance.
+    private LatestReadingCache latestReadingCache;  // Holds the latest reading of every sensor in memory.
+
+    @Autowired// Automatically injects the AlertEngine instance.
+    private AlertEngine alertEngine;  // Evaluates the alert rules on the ingest path.
+
+    @Value("${api.readings.max-count:1000000}")
+    private int maxReadings;  // Upper limit of readings in one /readings response (about 12 MB in the binary format).
+
+    // Method for listing the configured sensor ids
+    @GetMapping("/sensors")
+    public List<String> getSensors() {
+        return sensorRegistry.getSensorIds();
+    }
+    // Example URL: http://localhost:8080/api/v1/sensors
+
+    // Method for fetching the readings of a sensor in a time range as columns, in the format the client asks for
+    @GetMapping(value = "/sensors/{sensorId}/readings",
+            produces = {MediaType.APPLICATION_JSON_VALUE, ReadingColumnsCsvConverter.MEDIA_TYPE_VALUE, ReadingColumnsBinaryConverter.MEDIA_TYPE_VALUE})
+    public ReadingColumns getReadings(@PathVariable("sensorId") String sensorId,
+                                      @RequestParam(value = "from", required = false)
+                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                      @RequestParam(value = "to", required = false)
+                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                      @RequestParam(value = "step", required = false) String step) throws IOException {
+        // The Accept header selects JSON (default), text/csv or application/x-temperature-columns.
+        // Without a range, the last 24 hours are returned.
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        if (step != null) {
+            Duration stepSize = DurationStyle.detectAndParse(step);
+            if (stepSize.toMillis() <= 0 || Duration.between(start, end).toMillis() / stepSize.toMillis() >= maxReadings) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "The step must be positive and yield at most " + maxReadings + " values in the range");
+            }
+            return temperatureService.getResampledReadings(sensorId, start, end, stepSize);
+            // One value per step, rebuilt from the stored points of a compressed sensor.
+        }
+        ReadingColumns columns = temperatureService.getReadingColumns(sensorId, start, end, maxReadings + 1);
+        // The store reads the range straight into the two arrays; no reading objects are created.
+        if (columns.size() > maxReadings) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "More than " + maxReadings + " readings in the range; use a smaller range or /api/temperature/readings/stream");
+        }
+        return columns;
+    }
+    // Example URL: http://localhost:8080/api/v1/sensors/kitchen/readings?from=2024-10-01T00:00:00&to=2024-10-02T00:00:00
+    // Example URL: http://localhost:8080/api/v1/sensors/kitchen/readings?from=2024-10-01T00:00:00&step=1m
+
+    // Method for exporting the readings of a sensor in a time range as CSV, with constant memory
+    @GetMapping(value = "/sensors/{sensorId}/export", produces = ReadingColumnsCsvConverter.MEDIA_TYPE_VALUE)
+    public void exportCsv(@PathVariable("sensorId") String sensorId,
+                          @RequestParam(value = "from", required = false)
+                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                          @RequestParam(value = "to", required = false)
+                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                          HttpServletResponse response) throws IOException {
+        response.setContentType(ReadingColumnsCsvConverter.MEDIA_TYPE_VALUE + ";charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + sensorId + ".csv\"");
+        export(sensorId, from, to, ReadingExport.csv(response.getOutputStream()));
+    }
+    // Example URL: http://localhost:8080/api/v1/sensors/kitchen/export?from=2024-01-01T00:00:00&to=2024-07-01T00:00:00
+
+    // Method for exporting the readings of a sensor in a time range in the binary stream format, with constant memory
+    @GetMapping(value = "/sensors/{sensorId}/export", produces = ReadingExport.STREAM_MEDIA_TYPE_VALUE)
+    public void exportBinary(@PathVariable("sensorId") String sensorId,
+                             @RequestParam(value = "from", required = false)
+                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                             @RequestParam(value = "to", required = false)
+                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                             HttpServletResponse response) throws IOException {
+        response.setContentType(ReadingExport.STREAM_MEDIA_TYPE_VALUE);
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + sensorId + ".tms\"");
+        export(sensorId, from, to, ReadingExport.binary(sensorId, response.getOutputStream()));
+    }
+
+    private void export(String sensorId, LocalDateTime from, LocalDateTime to, ReadingExport export) throws IOException {
+        temperatureService.streamReadings(sensorId, from != null ? from : EARLIEST, to != null ? to : LocalDateTime.now(), export);
+        // The readings come from a database cursor (or the archive and log files) and are written as they are read.
+        export.finish();
+    }
+
+    // Method for importing readings from an uploaded CSV body
+    @PostMapping(value = "/import", consumes = ReadingColumnsCsvConverter.MEDIA_TYPE_VALUE)
+    public TemperatureBulkImporter.ImportResult importCsv(@RequestParam(value = "sensorId", required = false) String sensorId,
+                                                          HttpServletRequest request) throws IOException {
+        // "sensorId" is required if the CSV has no sensor_id column.
+        try {
+            return bulkImporter.importCsv(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8), sensorId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            // The batches before the invalid line are already stored; the message names the line.
+        }
+    }
+
+    // Method for importing readings from an uploaded binary column file or export stream
+    @PostMapping(value = "/import", consumes = {ReadingColumnsBinaryConverter.MEDIA_TYPE_VALUE, ReadingExport.STREAM_MEDIA_TYPE_VALUE})
+    public TemperatureBulkImporter.ImportResult importBinary(@RequestParam(value = "sensorId", required = false) String sensorId,
+                                                             HttpServletRequest request) throws IOException {
+        // "sensorId", if given, replaces the sensor id stored in the file.
+        try {
+            return bulkImporter.importBinary(request.getInputStream(), sensorId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+    // Example: curl -X POST -H "Content-Type: text/csv" --data-binary @readings.csv "http://localhost:8080/api/v1/import?sensorId=kitchen"
+
+    // Method for fetching the latest reading of a sensor, from memory
+    @GetMapping("/sensors/{sensorId}/latest")
+    public LatestReadingCache.LatestReading getLatest(@PathVariable("sensorId") String sensorId) {
+        LatestReadingCache.LatestReading latest = latestReadingCache.get(sensorId);
+        if (latest == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No readings of sensor " + sensorId);
+        }
+        return latest;
+    }
+    // Example URL: http://localhost:8080/api/v1/sensors/kitchen/latest
+
+    // Method for fetching count, min, max and average temperature within a window
+    @GetMapping("/sensors/{sensorId}/statistics")
+    public WindowStatistics getStatistics(@PathVariable("sensorId") String sensorId,
+                                          @RequestParam(value = "window", defaultValue = "5m") String window) {
+        return temperatureService.getWindowStatistics(sensorId, DurationStyle.detectAndParse(window));
+    }
+    // Example URL: http://localhost:8080/api/v1/sensors/kitchen/statistics?window=1h
+
+    // Method for fetching the distribution of the readings over any time range
+    @GetMapping("/sensors/{sensorId}/range-statistics")
+    public RangeStatistics getRangeStatistics(@PathVariable("sensorId") String sensorId,
+                                              @RequestParam(value = "from", required = false)
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                              @RequestParam(value = "to", required = false)
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                              @RequestParam(value = "threshold", required = false) Double threshold) {
+        // Mean, standard deviation, p50/p95/p99 and, with "threshold", the seconds spent at or above it.
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        return temperatureService.getRangeStatistics(sensorId, start, end, threshold);
+    }
+    // Example URL: http://localhost:8080/api/v1/sensors/kitchen/range-statistics?from=2024-10-01T00:00:00&to=2024-10-08T00:00:00&threshold=24
+
+    // Method for fetching min/max/average per minute, hour or day over a time range
+    @GetMapping("/sensors/{sensorId}/series")
+    public List<TemperatureRollup> getSeries(@PathVariable("sensorId") String sensorId,
+                                             @RequestParam(value = "from", required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                             @RequestParam(value = "to", required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                             @RequestParam(value = "resolution", required = false) String resolution) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        return temperatureService.getSeries(sensorId, start, end, resolution != null ? RollupResolution.parse(resolution) : null);
+    }
+    // Example URL: http://localhost:8080/api/v1/sensors/kitchen/series?from=2024-09-01T00:00:00&resolution=hour
+
+    // Method for fetching count, min, max and average per day, week, month or year over a long range
+    @GetMapping("/sensors/{sensorId}/aggregates")
+    public List<RangeAggregator.Bucket> getAggregates(@PathVariable("sensorId") String sensorId,
+                                                      @RequestParam(value = "from", required = false)
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                      @RequestParam(value = "to", required = false)
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                      @RequestParam(value = "period", defaultValue = "month") String period) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusYears(1);
+        // Without a range, the last year is aggregated.
+        return temperatureService.getAggregates(sensorId, start, end, RangeAggregator.Period.parse(period));
+    }
+    // Example URL: http://localhost:8080/api/v1/sensors/kitchen/aggregates?from=2023-01-01T00:00:00&to=2024-01-01T00:00:00&period=month
+
+    // Method for listing the alerts that are firing right now
+    @GetMapping("/alerts")
+    public List<AlertEngine.AlertEvent> getActiveAlerts() {
+        return alertEngine.getActive();
+    }
+    // Example URL: http://localhost:8080/api/v1/alerts
+
+    // Method for listing the configured alert rules
+    @GetMapping("/alerts/rules")
+    public List<String> getAlertRules() {
+        List<String> rules = new ArrayList<>();
+        for (AlertRule rule : alertEngine.getRules()) {
+            rules.add(rule.getId());
+        }
+        return rules;
+    }
+    // Example URL: http://localhost:8080/api/v1/alerts/rules
+
+    // Method for answering invalid parameters (window, step, resolution, period) with 400 Bad Request instead of 500
+    @ExceptionHandler(IllegalArgumentException.class)
+    public void handleInvalidParameter(IllegalArgumentException e, HttpServletResponse response) throws IOException {
+        if (response.isCommitted()) {
+            throw e;
+            // An export that has already started cannot change its status.
+        }
+        response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+    // Example URL: http://localhost:8080/api/v1/sensors/kitchen/statistics?window=5x answers 400
+
+}
+
+/*
+Content negotiation:
+    /api/v1/sensors/{sensorId}/readings is one method with three representations; Spring MVC picks the message
+    converter from the Accept header:
+        Accept: application/json                   {"sensorId":"kitchen","epochMillis":[...],"temperatures":[...]}
+        Accept: text/csv                           ReadingColumnsCsvConverter, one line per reading
+        Accept: application/x-temperature-columns  ReadingColumnsBinaryConverter, 12 bytes per reading
+    Unsupported types are answered with 406 Not Acceptable.
+
+    curl -H "Accept: application/x-temperature-columns" --compressed -o kitchen.tmc \
+         "http://localhost:8080/api/v1/sensors/kitchen/readings?from=2024-10-01T00:00:00&to=2024-10-02T00:00:00"
+
+Resampling:
+    With ?step=1m (any Spring duration) /readings returns one value per step instead of the stored readings. Sensors
+    with ingest.compression store only the points needed to rebuild their series; the step rebuilds it on a
+    regular grid, within the configured tolerance.
+
+Export and import:
+    /sensors/{sensorId}/export is meant for months of data: nothing is collected, every reading is written to the
+    response as soon as the cursor returns it. Accept: text/csv or application/x-temperature-stream (see ReadingExport).
+    POST /import takes either format back (or a column file from /readings); see TemperatureBulkImporter.
+
+Alerts:
+    /alerts lists the firing alerts (AlertEngine.AlertEvent); changes are pushed as "alert" events on
+    /api/temperature/live, so a dashboard reads /alerts once and then follows the live feed.
+
+Compression:
+    server.compression (application.properties) gzips all three formats for clients sending Accept-Encoding: gzip.
+
+Errors:
+    Parameters that cannot be parsed (window, step, resolution, period) are answered with 400 Bad Request and the
+    parser's message; the imports report the invalid line the same way. An aggregate range that is empty
+    (from >= to) or longer than aggregation.max-chunks is a 400 as well.
+
+Why a separate controller:
+    TemperatureController is a @Controller whose methods return template names; its JSON methods need @ResponseBody
+    one by one and share URLs with the pages. Everything here returns data, so @RestController fits, and the /v1
+    prefix lets the API change later without breaking existing clients.
+*/
@@ -0,0 +1,267 @@
+package com.example.temperaturmeter;
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to open the existing segment files at startup.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+@Component
+// Cold tier of the readings: days that were compacted out of temp_reading into compressed, memory-mapped segment files.
+// Every day before getArchivedUntil() is read from here, every later reading from the database.
+public class TemperatureArchive {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final String directory;
+    // The directory of the segment files (one file per day, e.g. archive/2024-09-23.seg).
+
+    private final NavigableMap<LocalDate, ArchiveSegment> segments = new ConcurrentSkipListMap<>();
+    // The open segments by day.
+
+    private final Map<LocalDate, Integer> generations = new HashMap<>();
+    // How often each day was rewritten; a day that received late readings is written to a new file
+    // (e.g. archive/2024-09-23.1.seg) instead of replacing the mapped one, which Windows does not allow.
+
+    public TemperatureArchive(@Value("${archive.directory:archive}") String directory) {
+        this.directory = directory;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path root = Paths.get(directory);
+        if (!Files.isDirectory(root)) {
+            return;
+            // Nothing archived yet; the directory is created by the first compaction.
+        }
+        Map<LocalDate, Path> files = new HashMap<>();
+        try (DirectoryStream<Path> directoryFiles = Files.newDirectoryStream(root)) {
+            for (Path file : directoryFiles) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX + ".tmp")) {
+                    Files.delete(file);
+                    // Left over from a compaction that did not finish; its readings are still in the database.
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    String[] parts = name.substring(0, name.length() - SEGMENT_SUFFIX.length()).split("\\.");
+                    LocalDate day = LocalDate.parse(parts[0]);
+                    int generation = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+                    Integer known = generations.get(day);
+                    if (known != null && known > generation) {
+                        Files.delete(file);
+                    } else {
+                        if (known != null) {
+                            Files.delete(files.get(day));
+                        }
+                        files.put(day, file);
+                        generations.put(day, generation);
+                    }
+                    // Only the newest file of a day is kept; the older ones were replaced by a merge but could not
+                    // be deleted while they were mapped.
+                }
+            }
+        }
+        for (Map.Entry<LocalDate, Path> file : files.entrySet()) {
+            segments.put(file.getKey(), ArchiveSegment.open(file.getValue()));
+        }
+        if (!segments.isEmpty()) {
+            System.out.println("Archive opened: " + segments.size() + " days up to " + segments.lastKey()
+                    + ", " + getSizeInBytes() / 1024 + " KiB.");
+        }
+    }
+
+    public LocalDateTime getArchivedUntil() {
+        // End (exclusive) of the archived time range, or null if nothing is archived.
+        return segments.isEmpty() ? null : segments.lastKey().plusDays(1).atStartOfDay();
+    }
+
+    public boolean covers(LocalDateTime startTime) {
+        // Tells whether a range starting at startTime reaches into the archive.
+        LocalDateTime archivedUntil = getArchivedUntil();
+        return archivedUntil != null && startTime.isBefore(archivedUntil);
+    }
+
+    ArchiveSegment getSegment(LocalDate day) {
+        return segments.get(day);
+    }
+    // Null if the day is not archived.
+
+    synchronized void writeSegment(LocalDate day, List<ArchiveSegment.Block> blocks) throws IOException {
+        // Called by TemperatureArchiveCompactor; the day becomes visible to queries once the file is complete.
+        // A day that is already archived is replaced by the new file (the compactor merged the old blocks into it).
+        Path root = Files.createDirectories(Paths.get(directory));
+        ArchiveSegment previous = segments.get(day);
+        int generation = previous == null ? 0 : generations.getOrDefault(day, 0) + 1;
+        Path file = root.resolve(generation == 0 ? day + SEGMENT_SUFFIX : day + "." + generation + SEGMENT_SUFFIX);
+        ArchiveSegment.write(file, blocks);
+        segments.put(day, ArchiveSegment.open(file));
+        generations.put(day, generation);
+        if (previous != null) {
+            try {
+                Files.delete(previous.getPath());
+            } catch (IOException e) {
+                // Still mapped (Windows): open() deletes it at the next start.
+            }
+        }
+    }
+
+    public void forEach(String sensorId, LocalDateTime startTime, LocalDateTime endTime,
+                        TemperatureStore.ReadingCallback callback) throws IOException {
+        // Passes the archived readings of a sensor in [startTime, endTime) to the callback, oldest first.
+        long startMillis = EpochTime.toEpochMillis(startTime);
+        long endMillis = EpochTime.toEpochMillis(endTime);
+        for (ArchiveSegment segment : segmentsBetween(startTime, endTime).values()) {
+            ArchiveSegment.Block block = segment.getBlock(sensorId);
+            if (block == null || block.lastMillis < startMillis || block.firstMillis >= endMillis) {
+                continue;
+            }
+            GorillaCodec.Reader reader = segment.read(block);
+            while (reader.next()) {
+                long millis = reader.getEpochMillis();
+                if (millis >= endMillis) {
+                    break;
+                }
+                if (millis >= startMillis) {
+                    callback.accept(toReading(sensorId, reader));
+                }
+            }
+        }
+    }
+
+    public void addColumns(String sensorId, LocalDateTime startTime, LocalDateTime endTime, ReadingColumns columns, int limit) {
+        // Adds the archived readings of a sensor in [startTime, endTime) to the columns, oldest first, until they hold
+        // limit readings. The decoded values go straight into the arrays.
+        long startMillis = EpochTime.toEpochMillis(startTime);
+        long endMillis = EpochTime.toEpochMillis(endTime);
+        for (ArchiveSegment segment : segmentsBetween(startTime, endTime).values()) {
+            ArchiveSegment.Block block = segment.getBlock(sensorId);
+            if (block == null || block.lastMillis < startMillis || block.firstMillis >= endMillis) {
+                continue;
+            }
+            GorillaCodec.Reader reader = segment.read(block);
+            while (columns.size() < limit && reader.next()) {
+                long millis = reader.getEpochMillis();
+                if (millis >= endMillis) {
+                    return;
+                }
+                if (millis >= startMillis) {
+                    columns.add(millis, reader.getTemperature());
+                }
+            }
+        }
+    }
+
+    public List<TemperatureReading> readDescending(String sensorId, LocalDateTime startTime,
+                                                   LocalDateTime cursorTime, long cursorId, int limit) {
+        // Archived readings since startTime that come before the cursor (timestamp, id), newest first, at most limit.
+        long startMillis = EpochTime.toEpochMillis(startTime);
+        long cursorMillis = EpochTime.toEpochMillis(cursorTime);
+        List<TemperatureReading> result = new ArrayList<>();
+        for (ArchiveSegment segment : segmentsBetween(startTime, cursorTime).descendingMap().values()) {
+            ArchiveSegment.Block block = segment.getBlock(sensorId);
+            if (block == null || block.lastMillis < startMillis || block.firstMillis > cursorMillis) {
+                continue;
+            }
+            List<TemperatureReading> day = new ArrayList<>(block.count);
+            GorillaCodec.Reader reader = segment.read(block);
+            while (reader.next()) {
+                long millis = reader.getEpochMillis();
+                if (millis > cursorMillis || (millis == cursorMillis && reader.getId() >= cursorId)) {
+                    break;
+                }
+                if (millis >= startMillis) {
+                    day.add(toReading(sensorId, reader));
+                }
+            }
+            for (int i = day.size() - 1; i >= 0 && result.size() < limit; i--) {
+                result.add(day.get(i));
+            }
+            if (result.size() == limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    public WindowStatistics getStatistics(String sensorId, LocalDateTime startTime, LocalDateTime endTime) {
+        // Count, min, max and average of the archived readings in [startTime, endTime).
+        long startMillis = EpochTime.toEpochMillis(startTime);
+        long endMillis = EpochTime.toEpochMillis(endTime);
+        long count = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        for (ArchiveSegment segment : segmentsBetween(startTime, endTime).values()) {
+            ArchiveSegment.Block block = segment.getBlock(sensorId);
+            if (block == null || block.lastMillis < startMillis || block.firstMillis >= endMillis) {
+                continue;
+            }
+            if (block.firstMillis >= startMillis && block.lastMillis < endMillis) {
+                count += block.count;
+                min = Math.min(min, block.minTemperature);
+                max = Math.max(max, block.maxTemperature);
+                sum += block.sumTemperature;
+                // Whole days are answered from the block index without decoding.
+                continue;
+            }
+            GorillaCodec.Reader reader = segment.read(block);
+            while (reader.next()) {
+                long millis = reader.getEpochMillis();
+                if (millis >= startMillis && millis < endMillis) {
+                    count++;
+                    min = Math.min(min, reader.getTemperature());
+                    max = Math.max(max, reader.getTemperature());
+                    sum += reader.getTemperature();
+                }
+            }
+        }
+        return count == 0 ? WindowStatistics.EMPTY
+                : new WindowStatistics(count, ReadingColumns.toDouble((float) min), ReadingColumns.toDouble((float) max), sum / count);
+        // min and max are stored floats, so the casts are exact.
+    }
+
+    public long getSizeInBytes() {
+        long size = 0;
+        for (ArchiveSegment segment : segments.values()) {
+            size += segment.sizeInBytes();
+        }
+        return size;
+    }
+
+    private NavigableMap<LocalDate, ArchiveSegment> segmentsBetween(LocalDateTime startTime, LocalDateTime endTime) {
+        return segments.subMap(startTime.toLocalDate(), true, endTime.toLocalDate(), true);
+    }
+
+    private static TemperatureReading toReading(String sensorId, GorillaCodec.Reader reader) {
+        TemperatureReading reading = new TemperatureReading();
+        reading.setId(reader.getId());
+        reading.setSensorId(sensorId);
+        reading.setTemperature(ReadingColumns.toDouble(reader.getTemperature()));
+        reading.setTimestamp(EpochTime.toLocalDateTime(reader.getEpochMillis()));
+        return reading;
+    }
+}
+
+/*
+Tiers:
+    temp_reading (MySQL) holds the recent readings; TemperatureArchiveCompactor moves every day older than
+    archive.after-days into one segment file per day. TemperatureService merges both tiers: the part of a range before
+    getArchivedUntil() is read here, the rest from the database, so a reading is never returned twice.
+    Readings that arrive later with an older timestamp (bulk import, spool replay) wait in temp_reading until the next
+    compaction merges them into the segment of their day; until then, queries do not return them.
+
+Segment files:
+    One compressed block per sensor (see GorillaCodec), followed by an index with the time range, count, min, max and
+    sum of every block. Files are memory-mapped read-only and blocks are decoded only when a query touches them.
+    Temperatures are stored as 32-bit floats, like the FLOAT column of temp_reading, and read back as the shortest
+    decimal of the float (ReadingColumns.toDouble), so an archived 21.3 is returned as 21.3 just like from MySQL.
+*/
@@ -0,0 +1,221 @@
+package com.example.temperaturmeter;
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;// Imports @ConditionalOnProperty; this bean needs MySQL and only exists for storage.backend=jpa (the default).
+import org.springframework.jdbc.core.JdbcTemplate;// Imports JdbcTemplate, Spring's helper for plain JDBC statements.
+import org.springframework.scheduling.annotation.Scheduled;// Imports @Scheduled, used to run the compaction every night.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "jpa", matchIfMissing = true)
+// Moves readings older than archive.after-days from temp_reading into the compressed TemperatureArchive, one day at a time.
+public class TemperatureArchiveCompactor {
+
+    private static final int DELETE_CHUNK = 1000;
+    // Archived rows are deleted by id in chunks, so no single statement locks the table for long.
+
+    private final boolean enabled;
+    // Off by default: all readings stay in the database.
+
+    private final int afterDays;
+    // Days that stay in the database before they are archived (at least 1, so today is never archived).
+
+    private final JdbcTemplate jdbcTemplate;
+    // JdbcTemplate bound to the application's DataSource.
+
+    private final TemperatureArchive archive;
+    // Receives the compacted days.
+
+    @Autowired
+    public TemperatureArchiveCompactor(JdbcTemplate jdbcTemplate, TemperatureArchive archive,
+                                       @Value("${archive.enabled:false}") boolean enabled,
+                                       @Value("${archive.after-days:30}") int afterDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archive = archive;
+        this.enabled = enabled;
+        this.afterDays = afterDays;
+    }
+
+    @Scheduled(cron = "${archive.compaction.cron:0 30 0 * * *}")
+    // Runs every night at 00:30 by default.
+    public void compactScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            compact();
+        } catch (Exception e) {
+            System.err.println("Error compacting readings into the archive: " + e.getMessage());
+        }
+    }
+
+    public int compact() throws IOException {
+        // Archives every day before the cutoff that still has rows in the database. Returns the number of days written.
+        // Days that are archived already are rewritten with their late rows merged in.
+        LocalDate cutoff = LocalDate.now().minusDays(Math.max(1, afterDays));
+        int days = 0;
+        long archived = 0;
+        long merged = 0;
+        LocalDateTime next = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM temp_reading", LocalDateTime.class);
+        while (next != null && next.toLocalDate().isBefore(cutoff)) {
+            LocalDate day = next.toLocalDate();
+            ArchiveSegment existing = archive.getSegment(day);
+            DayRows rows = readDay(day, existing);
+            if (rows.rowCount > 0) {
+                archive.writeSegment(day, rows.encode());
+                deleteRows(rows.rowIds, rows.rowCount);
+                // Only the rows that were just read are deleted: a row inserted meanwhile stays for the next run.
+                days++;
+                archived += rows.rowCount;
+                merged += existing == null ? 0 : rows.rowCount;
+            }
+            next = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM temp_reading WHERE timestamp >= ?",
+                    LocalDateTime.class, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+            // Skips straight to the next day with rows, however far back a late import reached.
+        }
+        if (archived > 0) {
+            System.out.println("Archived " + archived + " readings in " + days + " days"
+                    + (merged > 0 ? ", " + merged + " of them into days that were archived before." : "."));
+        }
+        return days;
+    }
+
+    private DayRows readDay(LocalDate day, ArchiveSegment existing) {
+        // Reads one day of readings from the database and, if the day is archived already, from its segment.
+        DayRows rows = new DayRows();
+        if (existing != null) {
+            for (ArchiveSegment.Block block : existing.getBlocks()) {
+                SensorSeries series = rows.series(block.sensorId);
+                GorillaCodec.Reader reader = existing.read(block);
+                while (reader.next()) {
+                    series.add(reader.getId(), reader.getEpochMillis(), reader.getTemperature());
+                }
+            }
+        }
+        jdbcTemplate.query("SELECT id, sensor_id, temperature, timestamp FROM temp_reading " +
+                        "WHERE timestamp >= ? AND timestamp < ?",
+                row -> {
+                    long id = row.getLong(1);
+                    rows.series(row.getString(2)).add(id, EpochTime.toEpochMillis(row.getTimestamp(4).toLocalDateTime()), row.getFloat(3));
+                    rows.addRowId(id);
+                },
+                Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+        return rows;
+    }
+
+    private void deleteRows(long[] ids, int count) {
+        for (int from = 0; from < count; from += DELETE_CHUNK) {
+            int to = Math.min(count, from + DELETE_CHUNK);
+            StringBuilder sql = new StringBuilder("DELETE FROM temp_reading WHERE id IN (");
+            Object[] args = new Object[to - from];
+            for (int i = from; i < to; i++) {
+                sql.append(i == from ? "?" : ", ?");
+                args[i - from] = ids[i];
+            }
+            jdbcTemplate.update(sql.append(')').toString(), args);
+        }
+    }
+
+    private static class DayRows {
+        // The readings of one day by sensor, and the ids of the database rows among them.
+        final Map<String, SensorSeries> series = new TreeMap<>();
+        long[] rowIds = new long[8640];
+        int rowCount;
+
+        SensorSeries series(String sensorId) {
+            return series.computeIfAbsent(sensorId, SensorSeries::new);
+        }
+
+        void addRowId(long id) {
+            if (rowCount == rowIds.length) {
+                rowIds = Arrays.copyOf(rowIds, rowCount * 2);
+            }
+            rowIds[rowCount++] = id;
+        }
+
+        List<ArchiveSegment.Block> encode() {
+            List<ArchiveSegment.Block> blocks = new ArrayList<>();
+            for (SensorSeries sensor : series.values()) {
+                blocks.add(sensor.encode());
+            }
+            return blocks;
+        }
+    }
+
+    private static class SensorSeries {
+        // The readings of one sensor collected while the day is read.
+        final String sensorId;
+        long[] ids = new long[8640];
+        long[] epochMillis = new long[8640];
+        float[] temperatures = new float[8640];
+        // One day at the 10 s cadence; grows if needed.
+        int count;
+
+        SensorSeries(String sensorId) {
+            this.sensorId = sensorId;
+        }
+
+        void add(long id, long millis, float temperature) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                epochMillis = Arrays.copyOf(epochMillis, count * 2);
+                temperatures = Arrays.copyOf(temperatures, count * 2);
+            }
+            ids[count] = id;
+            epochMillis[count] = millis;
+            temperatures[count] = temperature;
+            count++;
+        }
+
+        ArchiveSegment.Block encode() {
+            // Orders the readings by time and id and drops rows that are in the segment already (left in the
+            // database when the application stopped between writing a segment and deleting its rows).
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingLong(i -> epochMillis[i]).thenComparingLong(i -> ids[i]));
+            long[] sortedIds = new long[count];
+            long[] sortedMillis = new long[count];
+            float[] sortedTemperatures = new float[count];
+            int unique = 0;
+            for (int i : order) {
+                if (unique > 0 && sortedIds[unique - 1] == ids[i] && sortedMillis[unique - 1] == epochMillis[i]) {
+                    continue;
+                }
+                sortedIds[unique] = ids[i];
+                sortedMillis[unique] = epochMillis[i];
+                sortedTemperatures[unique] = temperatures[i];
+                unique++;
+            }
+            return ArchiveSegment.Block.encode(sensorId, sortedIds, sortedMillis, sortedTemperatures, unique);
+        }
+    }
+}
+
+/*
+Configuration:
+    archive.enabled=true turns the nightly compaction on; archive.after-days sets how many days stay in MySQL and
+    archive.directory where the segment files are written. The rollups in temp_rollup are not touched, so
+    /api/temperature/series keeps covering archived days.
+
+Late readings:
+    A bulk import or a spool replay can insert readings into days that are archived already. Every compaction starts
+    at the oldest row left in temp_reading, so such rows are merged into the segment of their day (which is written
+    anew) and only then deleted. Rows are deleted by id, never by time range, so a row is deleted only once it is
+    in a segment file.
+
+Size:
+    A row of temp_reading costs 16 bytes of data plus row and index overhead (well over 40 bytes in InnoDB).
+    A regular 10 s series needs about one to two bytes per reading in a segment (see GorillaCodecTest).
+*/
@@ -0,0 +1,85 @@
+package com.example.temperaturmeter;
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;// Imports @ConditionalOnProperty; this bean needs MySQL and only exists for storage.backend=jpa (the default).
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;// Imports the callback used to bind one row of a JDBC batch.
+import org.springframework.jdbc.core.JdbcTemplate;// Imports JdbcTemplate, Spring's helper for plain JDBC statements.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import org.springframework.transaction.annotation.Transactional;// Imports Spring's @Transactional annotation.
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "jpa", matchIfMissing = true)
+// Writes batches of readings with one JDBC batch per call instead of one JPA save per reading.
+public class TemperatureBatchWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO temp_reading (sensor_id, temperature, timestamp) VALUES (?, ?, ?)";
+    // Plain insert; with rewriteBatchedStatements=true the MySQL driver turns the batch into multi-row INSERTs.
+
+    private static final String CHECKPOINT_SQL = "INSERT INTO ingest_checkpoint (spool_id, last_sequence) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE last_sequence = GREATEST(last_sequence, VALUES(last_sequence))";
+    // GREATEST keeps the checkpoint from moving backwards.
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    // JdbcTemplate bound to the application's DataSource.
+
+    @Autowired
+    private TemperatureRollupWriter rollupWriter;
+    // Folds every written batch into the minute/hour/day rollup buckets.
+
+    @Transactional
+    // The whole batch (raw readings and rollup buckets) is committed once, instead of one commit per reading.
+    public void insertBatch(List<TemperatureReading> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TemperatureReading reading = readings.get(i);
+                ps.setString(1, reading.getSensorId());
+                ps.setDouble(2, reading.getTemperature());
+                ps.setTimestamp(3, Timestamp.valueOf(reading.getTimestamp()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return readings.size();
+            }
+        });
+        rollupWriter.addBatch(readings);
+        // Same transaction, so the rollups never disagree with the raw readings.
+    }
+
+    @Transactional
+    // Readings, rollups and the spool checkpoint are committed together: a batch is either written and
+    // checkpointed, or neither, so a replay after a crash or an outage never inserts a reading twice.
+    public void insertBatch(List<TemperatureReading> readings, String spoolId, long lastSequence) {
+        insertBatch(readings);
+        jdbcTemplate.update(CHECKPOINT_SQL, spoolId, lastSequence);
+    }
+
+    public long readCheckpoint(String spoolId) {
+        List<Long> sequences = jdbcTemplate.queryForList(
+                "SELECT last_sequence FROM ingest_checkpoint WHERE spool_id = ?", Long.class, spoolId);
+        return sequences.isEmpty() ? 0 : sequences.get(0);
+    }
+}
+
+/*
+Why JDBC instead of JPA here:
+    TemperatureReading uses GenerationType.IDENTITY, which makes Hibernate execute every insert on its own
+    to read back the generated id, so JDBC batching is silently disabled. The ingest path never needs the
+    generated ids, so the batch is written directly with JdbcTemplate.batchUpdate().
+
+rewriteBatchedStatements:
+    The MySQL JDBC URL in application.properties enables rewriteBatchedStatements=true, so the driver sends
+    the batch as a few multi-row INSERT statements instead of one round-trip per row.
+
+ingest_checkpoint:
+    One row per IngestSpool (spool_id, last_sequence). insertBatch(readings, spoolId, lastSequence) advances it in
+    the transaction of the batch, which makes replaying the spool idempotent.
+*/
@@ -0,0 +1,268 @@
+package com.example.temperaturmeter;
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+// Loads historical readings (e.g. captured while the application was down) from CSV or binary files,
+// in batches through TemperatureStore.append instead of one saveTemperature call per value.
+public class TemperatureBulkImporter {
+
+    private final TemperatureStore temperatureStore;
+    // The storage backend; append writes one batch as multi-row INSERTs (MySQL) or one log append.
+
+    private final LatestReadingCache latestReadingCache;
+    // Keeps /latest current if the file contains newer readings than the database.
+
+    private final SketchAggregator sketchAggregator;
+    // Adds the imported readings to the range statistics, if they fall within the sketch retention.
+
+    private final int batchSize;
+    // Readings written per batch (one transaction).
+
+    @Autowired
+    public TemperatureBulkImporter(TemperatureStore temperatureStore, LatestReadingCache latestReadingCache,
+                                   SketchAggregator sketchAggregator, @Value("${import.batch-size:5000}") int batchSize) {
+        this.temperatureStore = temperatureStore;
+        this.latestReadingCache = latestReadingCache;
+        this.sketchAggregator = sketchAggregator;
+        this.batchSize = batchSize;
+    }
+
+    public record ImportResult(long readings, long millis) {
+        public long getReadingsPerSecond() {
+            return millis == 0 ? readings : readings * 1000 / millis;
+        }
+    }
+
+    public ImportResult importFile(Path file, String sensorId) throws IOException {
+        // Chooses the format from the first bytes: the binary formats start with their magic number, anything else is CSV.
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            in.mark(4);
+            byte[] head = in.readNBytes(4);
+            in.reset();
+            int magic = head.length < 4 ? 0 : (head[0] & 0xFF) << 24 | (head[1] & 0xFF) << 16 | (head[2] & 0xFF) << 8 | head[3] & 0xFF;
+            if (magic == ReadingColumnsBinaryConverter.MAGIC || magic == ReadingExport.STREAM_MAGIC) {
+                return importBinary(in, sensorId);
+            }
+            return importCsv(new InputStreamReader(in, StandardCharsets.UTF_8), sensorId);
+        }
+    }
+
+    public ImportResult importCsv(Reader reader, String sensorId) throws IOException {
+        // Columns are found by the header line: temperature plus epoch_millis or timestamp, optionally sensor_id
+        // (the export format has all four). Without a sensor_id column every reading belongs to sensorId.
+        long start = System.currentTimeMillis();
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 64 * 1024);
+        String header = lines.readLine();
+        if (header == null) {
+            return new ImportResult(0, 0);
+        }
+        List<String> columns = List.of(header.trim().toLowerCase().split(","));
+        int sensorColumn = columns.indexOf("sensor_id");
+        int millisColumn = columns.indexOf("epoch_millis");
+        int timestampColumn = columns.indexOf("timestamp");
+        int temperatureColumn = columns.indexOf("temperature");
+        if (temperatureColumn < 0 || (millisColumn < 0 && timestampColumn < 0)) {
+            throw new IllegalArgumentException("CSV header needs temperature and timestamp or epoch_millis columns: " + header);
+        }
+        if (sensorColumn < 0 && sensorId == null) {
+            throw new IllegalArgumentException("CSV has no sensor_id column; a sensor id is required");
+        }
+        Batch batch = new Batch();
+        String[] fields = new String[columns.size()];
+        String line;
+        long lineNumber = 1;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (split(line, fields) != fields.length) {
+                throw new IllegalArgumentException("Line " + lineNumber + " does not have " + fields.length + " columns: " + line);
+            }
+            try {
+                LocalDateTime timestamp = millisColumn >= 0
+                        ? EpochTime.toLocalDateTime(Long.parseLong(fields[millisColumn]))
+                        : parseTimestamp(fields[timestampColumn]);
+                batch.add(sensorColumn >= 0 ? fields[sensorColumn] : sensorId, timestamp, Double.parseDouble(fields[temperatureColumn]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + " is not valid: " + line, e);
+            }
+        }
+        batch.flush();
+        return new ImportResult(batch.total, System.currentTimeMillis() - start);
+    }
+
+    public ImportResult importBinary(InputStream in, String sensorId) throws IOException {
+        // Reads a ReadingColumnsBinaryConverter file ("TMC1") or an export stream ("TMS1").
+        // sensorId, if given, replaces the sensor id stored in the file.
+        long start = System.currentTimeMillis();
+        DataInputStream data = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 64 * 1024));
+        Batch batch = new Batch();
+        try {
+            int magic = data.readInt();
+            if (magic == ReadingColumnsBinaryConverter.MAGIC) {
+                importColumns(data, sensorId, batch);
+            } else if (magic == ReadingExport.STREAM_MAGIC) {
+                String fileSensorId = data.readUTF();
+                ReadingColumns block;
+                while ((block = ReadingExport.readBlock(fileSensorId, data)) != null) {
+                    batch.addAll(block, sensorId);
+                }
+            } else {
+                throw new IllegalArgumentException("Not a temperature column file or export stream");
+            }
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("The file ends early; " + batch.total + " readings were imported", e);
+        }
+        batch.flush();
+        return new ImportResult(batch.total, System.currentTimeMillis() - start);
+    }
+
+    private void importColumns(DataInputStream data, String sensorId, Batch batch) throws IOException {
+        // A column file holds every time before the first temperature. The times are copied to a temporary file
+        // (8 bytes per reading) and read back next to the temperatures, so the readings go into batches as they
+        // arrive and memory use does not depend on the reading count the file announces.
+        String fileSensorId = data.readUTF();
+        String id = sensorId != null ? sensorId : fileSensorId;
+        int count = data.readInt();
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid reading count: " + count);
+        }
+        Path times = Files.createTempFile("import-", ".times");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(times), 64 * 1024))) {
+                long previous = 0;
+                for (int i = 0; i < count; i++) {
+                    previous += data.readLong();
+                    out.writeLong(previous);
+                }
+            }
+            try (DataInputStream timesIn = new DataInputStream(new BufferedInputStream(Files.newInputStream(times), 64 * 1024))) {
+                for (int i = 0; i < count; i++) {
+                    batch.add(id, EpochTime.toLocalDateTime(timesIn.readLong()), data.readFloat());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(times);
+        }
+    }
+
+    private class Batch {
+        // Collects readings and writes them batchSize at a time.
+        private final List<TemperatureReading> readings = new ArrayList<>(batchSize);
+        private final Map<String, SketchAggregator.DwellTracker> trackers = new HashMap<>();
+        // The import's own dwell tracking per sensor, independent of the live readings.
+        private long total;
+
+        void add(String sensorId, LocalDateTime timestamp, double temperature) {
+            TemperatureReading reading = new TemperatureReading();
+            reading.setSensorId(sensorId);
+            reading.setTimestamp(timestamp);
+            reading.setTemperature(temperature);
+            readings.add(reading);
+            if (readings.size() == batchSize) {
+                flush();
+            }
+        }
+
+        void addAll(ReadingColumns columns, String sensorId) {
+            String id = sensorId != null ? sensorId : columns.getSensorId();
+            for (int i = 0; i < columns.size(); i++) {
+                add(id, EpochTime.toLocalDateTime(columns.epochMillisAt(i)), columns.temperatureAt(i));
+            }
+        }
+
+        void flush() {
+            if (readings.isEmpty()) {
+                return;
+            }
+            temperatureStore.append(readings);
+            // One transaction: raw readings and their rollup buckets.
+            for (TemperatureReading reading : readings) {
+                latestReadingCache.update(reading.getSensorId(), reading.getTemperature(), reading.getTimestamp());
+                sketchAggregator.add(reading.getSensorId(), EpochTime.toEpochMillis(reading.getTimestamp()), reading.getTemperature(),
+                        trackers.computeIfAbsent(reading.getSensorId(), id -> new SketchAggregator.DwellTracker()));
+            }
+            total += readings.size();
+            readings.clear();
+        }
+    }
+
+    static int split(String line, String[] fields) {
+        // Splits a CSV line at commas into fields (no quoting: ids, timestamps and numbers never contain commas).
+        // Returns the number of fields found, which is more than fields.length if the line has too many.
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i <= line.length(); i++) {
+            if (i == line.length() || line.charAt(i) == ',') {
+                if (count < fields.length) {
+                    fields[count] = line.substring(start, i).trim();
+                }
+                count++;
+                start = i + 1;
+            }
+        }
+        return count;
+    }
+
+    static LocalDateTime parseTimestamp(String value) {
+        // Accepts 2024-10-01T10:00:00Z / +02:00 (converted to local time), 2024-10-01T12:00:00 and 2024-10-01 12:00:00.
+        String text = value.replace(' ', 'T');
+        char last = text.charAt(text.length() - 1);
+        if (last == 'Z' || text.lastIndexOf('+') > 10 || text.lastIndexOf('-') > 10) {
+            return EpochTime.toLocalDateTime(OffsetDateTime.parse(text).toInstant().toEpochMilli());
+        }
+        return LocalDateTime.parse(text);
+    }
+}
+
+/*
+Usage:
+    Command line, before the serial readers start:
+        java -jar TemperaturMeter.jar --import=readings.csv [--import-sensor=kitchen]
+    HTTP, e.g. from another instance's export:
+        curl -X POST -H "Content-Type: text/csv" --data-binary @readings.csv "http://localhost:8080/api/v1/import?sensorId=kitchen"
+
+Formats:
+    CSV with a header line naming the columns: temperature plus epoch_millis or timestamp, and sensor_id unless a
+    sensor id is given. The export CSV (sensor_id,timestamp,epoch_millis,temperature) can be imported unchanged.
+    Binary: a /api/v1/sensors/{id}/readings column file (application/x-temperature-columns) or an export stream
+    (application/x-temperature-stream).
+
+Memory:
+    Every format is read as a stream and written import.batch-size readings at a time; at most one batch is held in
+    memory. An export stream arrives in blocks of at most 4096 readings. A column file keeps its time column in a
+    temporary file until the temperatures arrive. A file that ends early is rejected (400 over HTTP) after the
+    batches before that point were written.
+
+Speed:
+    Each batch is one TemperatureStore.append: one JDBC batch sent as multi-row INSERTs (rewriteBatchedStatements)
+    plus the rollup update, in one transaction. The import does not go through the write-behind queue or the
+    rolling windows: it is history, not live data. The latest readings and the range statistics (SketchAggregator)
+    are updated.
+
+Log backend:
+    The log is fastest when timestamps only grow. Importing readings older than the newest stored reading works,
+    but switches the log to full scans for range queries.
+*/
@@ -1,11 +1,26 @@
 package com.example.temperaturmeter;
+import com.fasterxml.jackson.core.JsonGenerator;// Imports JsonGenerator, used to write JSON row by row while streaming.
+import com.fasterxml.jackson.databind.ObjectMapper;// Imports Spring Boot's configured ObjectMapper.
+import jakarta.servlet.http.HttpServletResponse;// Imports HttpServletResponse, written to directly by the streaming endpoint.
 import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for dependency injection in Spring.
+import org.springframework.boot.convert.DurationStyle;// Imports DurationStyle to parse window parameters such as "5m" or "1h".
 import org.springframework.format.annotation.DateTimeFormat;// Imports the DateTimeFormat annotation to format date and time parameters.
 import org.springframework.stereotype.Controller;// Imports the Controller annotation to designate this class as a Spring MVC controller.
+import org.springframework.web.bind.annotation.ExceptionHandler;// Imports the ExceptionHandler annotation, used to answer invalid parameters with 400 Bad Request.
 import org.springframework.web.bind.annotation.GetMapping;// Imports the GetMapping annotation to map HTTP GET requests to specific methods.
+import org.springframework.http.CacheControl;// Imports CacheControl, which tells clients to revalidate the latest readings with their ETag.
+import org.springframework.http.HttpStatus;// Imports HttpStatus, used to reject subscriptions beyond live.max-subscribers.
+import org.springframework.http.ResponseEntity;// Imports ResponseEntity, used to answer with an ETag or 304 Not Modified.
+import org.springframework.web.bind.annotation.RequestHeader;// Imports the RequestHeader annotation to read the Last-Event-ID header of reconnecting clients.
 import org.springframework.web.bind.annotation.RequestMapping;// Imports the RequestMapping annotation for specifying base URL mappings for this controller.
 import org.springframework.web.bind.annotation.RequestParam;// Imports the RequestParam annotation to retrieve request parameters in GET requests.
-import org.springframework.web.bind.annotation.RestController;// Imports the RestController annotation for creating RESTful web services (not used in this case).
+import org.springframework.web.bind.annotation.ResponseBody;// Imports the ResponseBody annotation to return JSON instead of a template from single methods.
+import org.springframework.web.server.ResponseStatusException;// Imports ResponseStatusException, used to answer with an HTTP error status.
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;// Imports SseEmitter, the asynchronous Server-Sent Events response.
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;// Imports the builder used to create the "next page" link from the current URL.
+import java.io.IOException;// Imports IOException, thrown when the streamed response cannot be written.
+import java.time.LocalDate;// Imports LocalDate to compute the start of today.
+import java.time.Duration;// Imports the Duration class to describe time windows.
 import java.time.LocalDateTime;// Imports the LocalDateTime class to handle date and time.
 import org.springframework.ui.Model;// Imports the Model interface, used to pass data to the Thymeleaf templates.
 import java.util.List;// Imports the List interface to handle collections of data (e.g., temperature readings).
@@ -16,31 +31,54 @@ import java.util.List;// Imports the List interface to handle collections of dat
 // Specifies that all endpoints in this controller will start with "/api/temperature".
 public class TemperatureController {
 
+    private static final Duration FIVE_MINUTES = Duration.ofMinutes(5);
+    // Window used by the original "last 5 minutes" endpoints.
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+    // Open ends of a time range when the client does not restrict it.
+
     @Autowired// Automatically injects the TemperatureService instance.
     private TemperatureService temperatureService;  // The service used to fetch temperature data.
 
+    @Autowired// Automatically injects the SensorRegistry instance.
+    private SensorRegistry sensorRegistry;  // Lists the configured sensors.
+
+    @Autowired// Automatically injects the LiveReadingFeed instance.
+    private LiveReadingFeed liveReadingFeed;  // Pushes new readings to live subscribers.
+
+    @Autowired// Automatically injects the LatestReadingCache instance.
+    private LatestReadingCache latestReadingCache;  // Holds the latest reading of every sensor in memory.
+
+    @Autowired// Automatically injects Spring Boot's ObjectMapper.
+    private ObjectMapper objectMapper;  // Provides the JsonGenerator used by the streaming endpoint.
+
     // METHODS USING THYMELEAF
 
-    // Method for fetching all temperature readings
+    // Method for fetching all temperature readings, one page at a time
     @GetMapping("/readings")
     // Maps HTTP GET requests at "/api/temperature/readings" to this method.
-    public String getAllReadings(Model model) {
-        List<TemperatureReading> readings = temperatureService.getAllReadings();
-        // Fetches all temperature readings from the service.
-        model.addAttribute("readings", readings);
-        // Adds the list of readings to the model to be passed to the Thymeleaf template.
-        model.addAttribute("pageTitle", "All Temperature Readings");
+    public String getAllReadings(@RequestParam(value = "sensorId", defaultValue = TemperatureReading.DEFAULT_SENSOR_ID) String sensorId,
+                                 @RequestParam(value = "cursor", required = false) String cursor,
+                                 @RequestParam(value = "size", defaultValue = "100") int size, Model model) {
+        // The optional "sensorId" parameter selects the sensor; without it the default sensor is shown.
+        // "cursor" comes from the "Next page" link, "size" is the number of readings per page.
+        ReadingPage page = temperatureService.getReadingsPage(sensorId, EARLIEST, LATEST, cursor, size);
+        // Fetches one page of temperature readings of the sensor from the service, newest first.
+        addPage(model, page);
+        // Adds the readings and the "next page" link to the model to be passed to the Thymeleaf template.
+        model.addAttribute("pageTitle", "All Temperature Readings of " + sensorId);
         // Adds a dynamic title to the page.
         return "Templates_Temperature_Readings";
         // Returns the name of the Thymeleaf template (without the ".html" extension).
     }
-    // Example URL: http://localhost:8080/api/temperature/readings
+    // Example URL: http://localhost:8080/api/temperature/readings?size=200
 
     // Method for fetching the maximum temperature from the last 5 minutes
     @GetMapping("/max-last-5-minutes")
     // Maps HTTP GET requests at "/api/temperature/max-last-5-minutes" to this method.
-    public String getMaxTemperatureLast5Minutes(Model model) {
-        Double maxTemperature = temperatureService.getMaxTemperatureInLast5Minutes();
+    public String getMaxTemperatureLast5Minutes(@RequestParam(value = "sensorId", defaultValue = TemperatureReading.DEFAULT_SENSOR_ID) String sensorId, Model model) {
+        Double maxTemperature = temperatureService.getMaxTemperature(sensorId, FIVE_MINUTES);
         // Fetches the maximum temperature from the last 5 minutes.
         model.addAttribute("temperature", maxTemperature);
         // Adds the temperature to the model.
@@ -56,8 +94,8 @@ public class TemperatureController {
     // Method for fetching the minimum temperature from the last 5 minutes
     @GetMapping("/min-last-5-minutes")
     // Maps HTTP GET requests at "/api/temperature/min-last-5-minutes" to this method.
-    public String getMinTemperatureLast5Minutes(Model model) {
-        Double minTemperature = temperatureService.getMinTemperatureInLast5Minutes();
+    public String getMinTemperatureLast5Minutes(@RequestParam(value = "sensorId", defaultValue = TemperatureReading.DEFAULT_SENSOR_ID) String sensorId, Model model) {
+        Double minTemperature = temperatureService.getMinTemperature(sensorId, FIVE_MINUTES);
         // Fetches the minimum temperature from the last 5 minutes.
         model.addAttribute("temperature", minTemperature);
         // Adds the temperature to the model.
@@ -70,17 +108,80 @@ public class TemperatureController {
     }
     // Example URL: http://localhost:8080/api/temperature/min-last-5-minutes
 
+    // Method for fetching the maximum temperature within any window
+    @GetMapping("/max")
+    // Maps HTTP GET requests at "/api/temperature/max" to this method.
+    public String getMaxTemperature(@RequestParam(value = "sensorId", defaultValue = TemperatureReading.DEFAULT_SENSOR_ID) String sensorId,
+                                    @RequestParam(value = "window", defaultValue = "5m") String window, Model model) {
+        Duration duration = DurationStyle.detectAndParse(window);
+        // Parses the window, e.g. "1m", "5m", "1h" or "PT30M".
+        model.addAttribute("temperature", temperatureService.getMaxTemperature(sensorId, duration));
+        // Adds the maximum temperature within the window to the model.
+        model.addAttribute("type", "Maximum");
+        model.addAttribute("timeFrame", "last " + window);
+        return "Template_Temperature_Display";
+    }
+    // Example URL: http://localhost:8080/api/temperature/max?window=1h
+
+    // Method for fetching the minimum temperature within any window
+    @GetMapping("/min")
+    // Maps HTTP GET requests at "/api/temperature/min" to this method.
+    public String getMinTemperature(@RequestParam(value = "sensorId", defaultValue = TemperatureReading.DEFAULT_SENSOR_ID) String sensorId,
+                                    @RequestParam(value = "window", defaultValue = "5m") String window, Model model) {
+        Duration duration = DurationStyle.detectAndParse(window);
+        // Parses the window, e.g. "1m", "5m", "1h" or "PT30M".
+        model.addAttribute("temperature", temperatureService.getMinTemperature(sensorId, duration));
+        // Adds the minimum temperature within the window to the model.
+        model.addAttribute("type", "Minimum");
+        model.addAttribute("timeFrame", "last " + window);
+        return "Template_Temperature_Display";
+    }
+    // Example URL: http://localhost:8080/api/temperature/min?window=1m
+
+    // Method for fetching count, min, max and average temperature within a window as JSON
+    @GetMapping("/statistics")
+    // Maps HTTP GET requests at "/api/temperature/statistics" to this method.
+    @ResponseBody
+    // Returns the statistics as JSON instead of rendering a template.
+    public WindowStatistics getWindowStatistics(@RequestParam(value = "sensorId", defaultValue = TemperatureReading.DEFAULT_SENSOR_ID) String sensorId,
+                                                @RequestParam(value = "window", defaultValue = "5m") String window) {
+        return temperatureService.getWindowStatistics(sensorId, DurationStyle.detectAndParse(window));
+    }
+    // Example URL: http://localhost:8080/api/temperature/statistics?window=1h
+
+    // Method for fetching min/max/average per minute, hour or day over a time range as JSON
+    @GetMapping("/series")
+    // Maps HTTP GET requests at "/api/temperature/series" to this method.
+    @ResponseBody
+    // Returns the buckets as JSON, e.g. for charts.
+    public List<TemperatureRollup> getSeries(@RequestParam(value = "sensorId", defaultValue = TemperatureReading.DEFAULT_SENSOR_ID) String sensorId,
+                                             @RequestParam(value = "from", required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                             @RequestParam(value = "to", required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                             @RequestParam(value = "resolution", required = false) String resolution) {
+        // "resolution" is minute, hour or day; without it the resolution is chosen from the width of the range.
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        // Without a range, the last 24 hours are returned.
+        return temperatureService.getSeries(sensorId, start, end, resolution != null ? RollupResolution.parse(resolution) : null);
+    }
+    // Example URL: http://localhost:8080/api/temperature/series?from=2024-09-01T00:00:00&to=2024-10-01T00:00:00&resolution=hour
+
     // Method for fetching temperature readings from a specific date
     @GetMapping("/readings-from-date")
     // Maps HTTP GET requests at "/api/temperature/readings-from-date" to this method.
-    public String getReadingsFromDate(@RequestParam("startDate")
+    public String getReadingsFromDate(@RequestParam(value = "sensorId", defaultValue = TemperatureReading.DEFAULT_SENSOR_ID) String sensorId,
+                                      @RequestParam("startDate")
                                       // Retrieves the "startDate" parameter from the request.
-                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate, Model model) {
-        List<TemperatureReading> readings = temperatureService.getReadingsFromDate(startDate);
-        // Fetches the readings starting from the specified date.
-        model.addAttribute("readings", readings);
-        // Adds the list of readings to the model.
-        model.addAttribute("pageTitle", "Temperature Readings from " + startDate.toLocalDate());
+                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                      @RequestParam(value = "size", defaultValue = "100") int size, Model model) {
+        ReadingPage page = temperatureService.getReadingsPage(sensorId, startDate, LATEST, cursor, size);
+        // Fetches one page of the readings starting from the specified date.
+        addPage(model, page);
+        // Adds the readings and the "next page" link to the model.
+        model.addAttribute("pageTitle", "Temperature Readings of " + sensorId + " from " + startDate.toLocalDate());
         // Sets a dynamic title using the provided start date.
         return "Templates_Temperature_Readings";
         // Returns the template for displaying readings.
@@ -90,62 +191,128 @@ public class TemperatureController {
     // Method for fetching today's temperature readings
     @GetMapping("/readings-today")
     // Maps HTTP GET requests at "/api/temperature/readings-today" to this method.
-    public String getTodaysReadings(Model model) {
-        List<TemperatureReading> readings = temperatureService.getTodaysReadings();
-        // Fetches today's temperature readings from the service.
-        model.addAttribute("readings", readings);
-        // Adds the readings to the model.
+    public String getTodaysReadings(@RequestParam(value = "sensorId", defaultValue = TemperatureReading.DEFAULT_SENSOR_ID) String sensorId,
+                                    @RequestParam(value = "cursor", required = false) String cursor,
+                                    @RequestParam(value = "size", defaultValue = "100") int size, Model model) {
+        LocalDateTime startOfToday = LocalDate.now().atStartOfDay();
+        ReadingPage page = temperatureService.getReadingsPage(sensorId, startOfToday, startOfToday.plusDays(1), cursor, size);
+        // Fetches one page of today's temperature readings from the service.
+        addPage(model, page);
+        // Adds the readings and the "next page" link to the model.
+        model.addAttribute("pageTitle", "Today's Temperature Readings of " + sensorId);
         return "Templates_Temperature_Readings";
         // Returns the Thymeleaf template for displaying today's readings.
     }
-    // Example URL: http://localhost:8080/api/temperature/readings-today
+    // Example URL: http://localhost:8080/api/temperature/readings-today?sensorId=kitchen
 
+    // Method for streaming all readings in a time range as JSON
+    @GetMapping(value = "/readings/stream", produces = "application/json")
+    // Maps HTTP GET requests at "/api/temperature/readings/stream" to this method.
+    public void streamReadings(@RequestParam(value = "sensorId", defaultValue = TemperatureReading.DEFAULT_SENSOR_ID) String sensorId,
+                               @RequestParam(value = "from", required = false)
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                               @RequestParam(value = "to", required = false)
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                               HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        // The readings are written while they are read from the database, so memory use stays flat for any range.
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            json.writeStartArray();
+            temperatureService.streamReadings(sensorId, from != null ? from : EARLIEST, to != null ? to : LATEST, reading -> {
+                json.writeStartObject();
+                json.writeNumberField("id", reading.getId());
+                json.writeStringField("sensorId", reading.getSensorId());
+                json.writeNumberField("temperature", reading.getTemperature());
+                json.writeStringField("timestamp", reading.getTimestamp().toString());
+                json.writeEndObject();
+            });
+            json.writeEndArray();
+        }
+    }
+    // Example URL: http://localhost:8080/api/temperature/readings/stream?from=2024-09-01T00:00:00&to=2024-10-01T00:00:00
 
-    // METHODS FOR SPRINGBOOT WEB-BASED INTERACTIONS
+    // Method for subscribing to new readings as Server-Sent Events
+    @GetMapping(value = "/live", produces = "text/event-stream")
+    // Maps HTTP GET requests at "/api/temperature/live" to this method.
+    public SseEmitter subscribeLive(@RequestParam(value = "sensorId", required = false) String sensorId,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        // Without "sensorId" the readings of all sensors are pushed. Browsers send Last-Event-ID when they reconnect.
+        SseEmitter emitter = liveReadingFeed.subscribe(sensorId, lastEventId);
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many live subscribers");
+        }
+        return emitter;
+        // The connection stays open; readings are written to it as they arrive.
+    }
+    // Example URL: http://localhost:8080/api/temperature/live?sensorId=kitchen
 
-   /*
-    // GET endpoint to return ALL temperature readings in JSON format (for web API)
-    @GetMapping("/readings")
-    public List<TemperatureReading> getAllTemperatureReadings() {
-        return temperatureService.getAllReadings();
-        // Fetches all temperature readings and returns them as a JSON response.
+    // Method for showing a table of readings that updates itself from the live feed
+    @GetMapping("/live-view")
+    // Maps HTTP GET requests at "/api/temperature/live-view" to this method.
+    public String getLiveView(@RequestParam(value = "sensorId", required = false) String sensorId, Model model) {
+        model.addAttribute("sensorId", sensorId);
+        // The page subscribes to /live with the same sensor id.
+        model.addAttribute("pageTitle", sensorId != null ? "Live Temperature Readings of " + sensorId : "Live Temperature Readings");
+        return "Template_Live_Readings";
     }
-    // Example URL: http://localhost:8080/api/temperature/readings
+    // Example URL: http://localhost:8080/api/temperature/live-view?sensorId=kitchen
 
-    // Endpoint to get the highest temperature in the last 5 minutes in JSON format
-    @GetMapping("/max-last-5-minutes")
-    public Double getMaxTemperatureLast5Minutes() {
-        return temperatureService.getMaxTemperatureInLast5Minutes();
-        // Returns the maximum temperature from the last 5 minutes as a JSON response.
+    private void addPage(Model model, ReadingPage page) {
+        // Adds a page of readings and, if there are more, the link to the next page (current URL with the new cursor).
+        model.addAttribute("readings", page.getReadings());
+        if (page.getNextCursor() != null) {
+            model.addAttribute("nextPageUrl",
+                    ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("cursor", page.getNextCursor()).toUriString());
+        }
     }
-    // Example URL: http://localhost:8080/api/temperature/max-last-5-minutes
 
-    // Endpoint to get the lowest temperature in the last 5 minutes in JSON format
-    @GetMapping("/min-last-5-minutes")
-    public Double getMinTemperatureLast5Minutes() {
-        return temperatureService.getMinTemperatureInLast5Minutes();
-        // Returns the minimum temperature from the last 5 minutes as a JSON response.
+    // Method for listing the configured sensor ids as JSON
+    @GetMapping("/sensors")
+    // Maps HTTP GET requests at "/api/temperature/sensors" to this method.
+    @ResponseBody
+    public List<String> getSensors() {
+        return sensorRegistry.getSensorIds();
     }
-    // Example URL: http://localhost:8080/api/temperature/min-last-5-minutes
+    // Example URL: http://localhost:8080/api/temperature/sensors
 
-    // Endpoint to get readings from a specific date in JSON format
-    @GetMapping("/readings-from-date")
-    public List<TemperatureReading> getAllTemperatureReadingsFromDate(
-            @RequestParam("startDate")
-            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate) {
-        return temperatureService.getReadingsFromDate(startDate);
-        // Fetches readings from the specified date and returns them as a JSON response.
+    // Method for fetching the latest reading of one or all sensors as JSON, from memory
+    @GetMapping("/latest")
+    // Maps HTTP GET requests at "/api/temperature/latest" to this method.
+    @ResponseBody
+    public ResponseEntity<?> getLatest(@RequestParam(value = "sensorId", required = false) String sensorId,
+                                       @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        // Without "sensorId" the latest readings of all sensors are returned, keyed by sensor id.
+        LatestReadingCache.LatestReading latest = sensorId != null ? latestReadingCache.get(sensorId) : null;
+        if (sensorId != null && latest == null) {
+            return ResponseEntity.notFound().build();
+            // The sensor has no readings (or does not exist).
+        }
+        String eTag = "W/\"" + (latest != null ? latest.version() : latestReadingCache.getVersion()) + "\"";
+        // The version changes with every new reading, so the ETag does too.
+        if (eTag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            // The client already has this reading: no body, no serialization.
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache())
+                .body(latest != null ? latest : latestReadingCache.getAll());
     }
-    // Example URL: http://localhost:8080/api/temperature/readings-from-date?startDate=2024-09-23T00:00:00
+    // Example URL: http://localhost:8080/api/temperature/latest?sensorId=kitchen
 
-    // Endpoint to get today's readings in JSON format
-    @GetMapping("/readings-today")
-    public List<TemperatureReading> getTodaysTemperatureReadings() {
-        return temperatureService.getTodaysReadings();
-        // Returns today's readings as a JSON response.
+    // Method for answering invalid parameters (window, cursor, resolution) with 400 Bad Request instead of 500
+    @ExceptionHandler(IllegalArgumentException.class)
+    // Handles the IllegalArgumentException thrown while a parameter of any method of this controller is parsed.
+    public void handleInvalidParameter(IllegalArgumentException e, HttpServletResponse response) throws IOException {
+        if (response.isCommitted()) {
+            throw e;
+            // A stream that has already started cannot change its status.
+        }
+        response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+        // Rendered by Spring Boot's error handling, as an error page or as JSON depending on the client.
     }
-    // Example URL: http://localhost:8080/api/temperature/readings-today
-   */
+    // Example URL: http://localhost:8080/api/temperature/max?window=5x answers 400
+
+
+    // The JSON data API (readings as JSON, CSV or binary columns) is TemperatureApiController under /api/v1.
 
    /*
    // Test method to verify Thymeleaf template rendering
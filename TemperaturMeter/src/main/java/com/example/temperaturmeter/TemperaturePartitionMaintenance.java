@@ -0,0 +1,131 @@
+package com.example.temperaturmeter;
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to run the maintenance once at startup.
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;// Imports @ConditionalOnProperty; this bean needs MySQL and only exists for storage.backend=jpa (the default).
+import org.springframework.jdbc.core.JdbcTemplate;// Imports JdbcTemplate, Spring's helper for plain JDBC statements.
+import org.springframework.scheduling.annotation.Scheduled;// Imports @Scheduled, used to run the maintenance every night.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "jpa", matchIfMissing = true)
+// Maintains the monthly partitions of temp_reading when the partitioned schema (SQL_Tempdata_partitioned.sql) is used:
+// creates the partitions of the coming months and drops the months older than the retention period.
+public class TemperaturePartitionMaintenance {
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    // Partition of a month, e.g. p202410 for October 2024.
+
+    @Value("${storage.partitioning.enabled:false}")
+    private boolean enabled;
+    // Off by default, because the standard schema in SQL_Tempdata.sql is not partitioned.
+
+    @Value("${storage.partitioning.months-ahead:3}")
+    private int monthsAhead;
+    // How many months after the current one get their partition in advance.
+
+    @Value("${storage.retention.months:0}")
+    private int retentionMonths;
+    // Whole months of raw readings kept besides the current month; 0 keeps everything.
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    // JdbcTemplate bound to the application's DataSource.
+
+    @PostConstruct
+    public void maintainAtStartup() {
+        try {
+            maintain();
+        } catch (Exception e) {
+            System.err.println("Error maintaining temp_reading partitions: " + e.getMessage());
+            // A failed maintenance run must not stop the application; the nightly run tries again.
+        }
+    }
+
+    @Scheduled(cron = "${storage.partitioning.cron:0 15 0 * * *}")
+    // Runs every night at 00:15 by default.
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        List<String> existing = jdbcTemplate.queryForList("SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'temp_reading' AND PARTITION_NAME IS NOT NULL", String.class);
+        if (existing.isEmpty()) {
+            System.err.println("storage.partitioning.enabled is set, but temp_reading is not partitioned.");
+            return;
+        }
+        YearMonth currentMonth = YearMonth.now();
+
+        for (YearMonth month : partitionsToCreate(existing, currentMonth, monthsAhead)) {
+            jdbcTemplate.execute("ALTER TABLE temp_reading REORGANIZE PARTITION p_future INTO (" +
+                    "PARTITION " + month.format(PARTITION_NAME) + " VALUES LESS THAN (UNIX_TIMESTAMP('" + month.plusMonths(1).atDay(1) + " 00:00:00')), " +
+                    "PARTITION p_future VALUES LESS THAN MAXVALUE)");
+            // p_future is empty as long as the partitions are created ahead, so splitting it moves no rows.
+            System.out.println("Created partition " + month.format(PARTITION_NAME) + " of temp_reading.");
+        }
+
+        if (retentionMonths > 0) {
+            List<String> expired = partitionsToDrop(existing, currentMonth.minusMonths(retentionMonths));
+            if (!expired.isEmpty()) {
+                jdbcTemplate.execute("ALTER TABLE temp_reading DROP PARTITION " + String.join(", ", expired));
+                // Dropping a partition removes its files; it does not delete rows one by one.
+                System.out.println("Dropped expired partitions " + expired + " of temp_reading.");
+            }
+        }
+    }
+
+    static List<YearMonth> partitionsToCreate(List<String> existing, YearMonth currentMonth, int monthsAhead) {
+        // Months from the current one up to monthsAhead that have no partition yet and are newer than the newest one.
+        YearMonth newest = null;
+        for (String name : existing) {
+            YearMonth month = monthOf(name);
+            if (month != null && (newest == null || month.isAfter(newest))) {
+                newest = month;
+            }
+        }
+        List<YearMonth> missing = new ArrayList<>();
+        for (YearMonth month = currentMonth; !month.isAfter(currentMonth.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            if (newest == null || month.isAfter(newest)) {
+                missing.add(month);
+            }
+        }
+        return missing;
+        // Only p_future can be split, so partitions are always appended after the newest month.
+    }
+
+    static List<String> partitionsToDrop(List<String> existing, YearMonth oldestKept) {
+        // Monthly partitions that lie completely before oldestKept.
+        List<String> expired = new ArrayList<>();
+        for (String name : existing) {
+            YearMonth month = monthOf(name);
+            if (month != null && month.isBefore(oldestKept)) {
+                expired.add(name);
+            }
+        }
+        return expired;
+    }
+
+    private static YearMonth monthOf(String partitionName) {
+        // Month of a pYYYYMM partition, or null for other partitions such as p_future.
+        try {
+            return YearMonth.parse(partitionName, PARTITION_NAME);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
+
+/*
+Retention:
+    With storage.retention.months=12 the current month and the 12 months before it are kept. Older months are
+    removed with ALTER TABLE ... DROP PARTITION, which takes the same short time no matter how many rows the month
+    holds (a DELETE would scan and log every row). The rollups in temp_rollup are not affected, so long-range
+    charts keep working after the raw readings are gone.
+
+Time zone:
+    The partition bounds use UNIX_TIMESTAMP('YYYY-MM-01 00:00:00'), i.e. midnight in the MySQL session time zone.
+*/
@@ -9,8 +9,13 @@ import java.time.LocalDateTime;
 
 @Entity
 // Marks this class as a JPA entity, meaning it will be mapped to a database table.
-@Table(name = "temp_reading")
+@Table(name = "temp_reading", indexes = {
+        @Index(name = "idx_temp_reading_sensor_ts", columnList = "sensor_id, timestamp"),
+        @Index(name = "idx_temp_reading_ts", columnList = "timestamp")
+})
 // Specifies the table name in the database that this entity will map to ("temp_reading").
+// The index on (sensor_id, timestamp) serves every per-sensor time window query,
+// the index on timestamp alone serves queries across all sensors (rolling window warm-up, backfill, retention).
 
 public class TemperatureReading {
     // This is the entity class representing temperature readings in the database.
@@ -27,11 +32,23 @@ public class TemperatureReading {
     private Double temperature;
     // Stores the temperature value for the reading.
 
+    public static final String DEFAULT_SENSOR_ID = "default";
+    // Sensor id used when only the single serial.port is configured, and for rows written before sensors existed.
+
+    @Column(name = "sensor_id", nullable = false, length = 64, columnDefinition = "VARCHAR(64) NOT NULL DEFAULT 'default'")
+    // Maps the 'sensorId' field to the sensor_id column; existing rows get the default sensor id.
+    private String sensorId = DEFAULT_SENSOR_ID;
+    // Identifies the sensor (serial port) that produced the reading.
+
     @Column(columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
     // Maps the 'timestamp' field to a database column and sets the default value to the current timestamp.
     private LocalDateTime timestamp;
     // Stores the timestamp when the temperature reading was recorded.
 
+    @Transient
+    // Not a column: the number the IngestSpool gave the reading, used to write every spooled reading exactly once.
+    private long ingestSequence;
+
     // Constructor to automatically set the timestamp
     public TemperatureReading() {
         this.timestamp = LocalDateTime.now();
@@ -60,6 +77,16 @@ public class TemperatureReading {
     }
     // Setter method for 'temperature' field, used to assign a temperature value to the reading.
 
+    public String getSensorId() {
+        return sensorId;
+    }
+    // Getter method for 'sensorId' field, used to retrieve the id of the sensor that produced the reading.
+
+    public void setSensorId(String sensorId) {
+        this.sensorId = sensorId;
+    }
+    // Setter method for 'sensorId' field, used to assign the reading to a sensor.
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
@@ -69,6 +96,16 @@ public class TemperatureReading {
         this.timestamp = timestamp;
     }
     // Setter method for 'timestamp' field, used to manually assign a timestamp value (optional).
+
+    public long getIngestSequence() {
+        return ingestSequence;
+    }
+    // Getter method for 'ingestSequence', 0 for readings that did not pass through the spool.
+
+    public void setIngestSequence(long ingestSequence) {
+        this.ingestSequence = ingestSequence;
+    }
+    // Setter method for 'ingestSequence', called by the IngestSpool.
 }
 
 /*
@@ -78,7 +115,7 @@ Annotations:
     Marks the class as a JPA entity, meaning it is mapped to a table in the database.
 
 @Table(name = "temp_reading"):
-    Specifies the database table name.
+    Specifies the database table name and the (sensor_id, timestamp) index.
 
 @Id:
     Indicates the primary key field (id).
@@ -87,15 +124,19 @@ Annotations:
     Specifies that the id is auto-generated by the database.
 
 @Column:
-    Maps the fields (temperature, timestamp) to columns in the database.
+    Maps the fields (temperature, sensorId, timestamp) to columns in the database.
     It also specifies constraints like nullable = false and default values.
 
+@Transient:
+    ingestSequence only lives in memory and in the spool files; the database keeps the last written sequence per
+    spool in ingest_checkpoint instead.
+
 Constructor:
     The constructor automatically sets the timestamp to the current date and time
     when a new TemperatureReading object is created.
 
 Getters and Setters:
-    These methods allow for the retrieval and modification of id, temperature, and timestamp values.
+    These methods allow for the retrieval and modification of id, temperature, sensorId, and timestamp values.
     They're standard in Java entity classes to provide access to private fields.
 
 * */
\ No newline at end of file
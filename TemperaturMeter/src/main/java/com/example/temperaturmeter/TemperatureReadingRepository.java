@@ -1,45 +1,82 @@
 package com.example.temperaturmeter;
+import jakarta.persistence.QueryHint;// Imports @QueryHint, used to pass the JDBC fetch size to Hibernate.
+import org.springframework.data.domain.Pageable;// Imports Pageable, used here only to limit the number of rows of a page.
 import org.springframework.data.jpa.repository.JpaRepository;// Imports JpaRepository, which provides CRUD methods for the entity.
 import org.springframework.data.jpa.repository.Query;// Imports the @Query annotation, which allows defining custom queries using JPQL (Java Persistence Query Language).
+import org.springframework.data.jpa.repository.QueryHints;// Imports @QueryHints, which attaches hints such as the fetch size to a query.
 import org.springframework.data.repository.query.Param;// Imports the @Param annotation, which binds method parameters to named parameters in JPQL queries.
+import org.springframework.transaction.annotation.Transactional;// Imports @Transactional, used to make the queries read-only and keep the latest reading on the primary database.
 import java.time.LocalDateTime;// Imports the LocalDateTime class for working with timestamps.
 import java.util.List;// Imports the List interface to handle collections of TemperatureReading entities.
+import java.util.stream.Stream;// Imports Stream, used to read large result sets row by row instead of loading them into a list.
 
+@Transactional(readOnly = true)
+// Runs every query method below in a read-only transaction. Spring Data gives only the inherited CRUD methods a
+// default transaction, so without this the queries ran outside one and never reached the read replica.
 public interface TemperatureReadingRepository extends JpaRepository<TemperatureReading, Long> {
 // Declares the repository interface for the TemperatureReading entity, with Long as the type of the primary key.
 // It extends JpaRepository, which provides basic CRUD operations like save, delete, and findAll.
+// Every query filters by sensor, so it can use the (sensor_id, timestamp) index.
 
-    @Query("SELECT MAX(t.temperature) FROM TemperatureReading t WHERE t.timestamp >= :startTime")
-        // Custom JPQL query to find the maximum temperature recorded in the last 5 minutes.
-    Double findMaxTemperatureInLast5Minutes(@Param("startTime") LocalDateTime startTime);
-    // Method to get the maximum temperature. The @Param annotation binds the 'startTime' parameter to the query.
-
-    // Query for the lowest temperature in the last 5 minutes
-    @Query("SELECT MIN(t.temperature) FROM TemperatureReading t WHERE t.timestamp >= :startTime")
-    // Custom JPQL query to find the minimum temperature recorded in the last 5 minutes.
-    Double findMinTemperatureInLast5Minutes(@Param("startTime") LocalDateTime startTime);
-    // Method to get the minimum temperature. The 'startTime' parameter is used in the query.
+    // Query for count, min, max and average temperature since a given time (also used for the max/min endpoints)
+    @Query("SELECT new com.example.temperaturmeter.WindowStatistics(COUNT(t), MIN(t.temperature), MAX(t.temperature), AVG(t.temperature)) " +
+            "FROM TemperatureReading t WHERE t.sensorId = :sensorId AND t.timestamp >= :startTime")
+    // Custom JPQL query computing all window statistics in one pass.
+    WindowStatistics findWindowStatisticsSince(@Param("sensorId") String sensorId, @Param("startTime") LocalDateTime startTime);
+    // Used for windows that are not held in memory by the RollingWindowAggregator.
 
     // Query for the most recent (last) temperature measurement
-    @Query("SELECT t FROM TemperatureReading t ORDER BY t.timestamp DESC")
-    // Custom JPQL query to fetch the most recent temperature reading, ordered by timestamp in descending order.
-    TemperatureReading findLastMeasurement();
-    // Method to retrieve the most recent temperature reading.
-
-    // Query for temperature readings from a specific date
-    @Query("SELECT t FROM TemperatureReading t WHERE t.timestamp >= :startDate ORDER BY t.timestamp DESC")
-    // Custom JPQL query to fetch all temperature readings from a specified date onward, ordered by timestamp in descending order.
-    List<TemperatureReading> findMeasurementsFromDate(@Param("startDate") LocalDateTime startDate);
-    // Method to retrieve all readings from the specified start date.
-
-    // Query for today's temperature readings
-    @Query("SELECT t FROM TemperatureReading t WHERE DATE(t.timestamp) = CURRENT_DATE ORDER BY t.timestamp DESC")
-    // Custom JPQL query to fetch all temperature readings recorded today, ordered by timestamp in descending order.
-    List<TemperatureReading> findTodaysMeasurements();
-    // Method to retrieve all temperature readings recorded on the current date.
+    @Query("SELECT t FROM TemperatureReading t WHERE t.sensorId = :sensorId ORDER BY t.timestamp DESC, t.id DESC LIMIT 1")
+    // Custom JPQL query to fetch the most recent temperature reading; LIMIT 1 lets MySQL stop at the first index entry.
+    @Transactional
+    // Read-write instead of the repository's default read-only transaction, so with a read replica
+    // (DataSourceRoutingConfiguration) the latest reading always comes from the primary, never from a lagging replica.
+    TemperatureReading findLastMeasurement(@Param("sensorId") String sensorId);
+    // Method to retrieve the most recent temperature reading of a sensor.
+
+    // Query for the temperature readings within a time range, e.g. today
+    @Query("SELECT t FROM TemperatureReading t WHERE t.sensorId = :sensorId AND t.timestamp >= :startTime AND t.timestamp < :endTime " +
+            "ORDER BY t.timestamp DESC")
+    // Custom JPQL query to fetch the readings of a sensor in the half-open range [startTime, endTime), newest first.
+    // Comparing the bare column (instead of DATE(t.timestamp) = CURRENT_DATE) lets the database seek in the index.
+    List<TemperatureReading> findMeasurementsBetween(@Param("sensorId") String sensorId, @Param("startTime") LocalDateTime startTime,
+                                                     @Param("endTime") LocalDateTime endTime);
+    // Method to retrieve all temperature readings of a sensor within a time range.
+
+    // Keyset (cursor) page of readings between two times, newest first
+    @Query("SELECT t FROM TemperatureReading t WHERE t.sensorId = :sensorId AND t.timestamp >= :startTime " +
+            "AND (t.timestamp < :cursorTime OR (t.timestamp = :cursorTime AND t.id < :cursorId)) " +
+            "ORDER BY t.timestamp DESC, t.id DESC")
+    // Custom JPQL query that continues right after the (timestamp, id) of the previous page's last row.
+    // Unlike OFFSET paging, the database seeks straight to the cursor in the (sensor_id, timestamp) index.
+    List<TemperatureReading> findPageBefore(@Param("sensorId") String sensorId, @Param("startTime") LocalDateTime startTime,
+                                            @Param("cursorTime") LocalDateTime cursorTime, @Param("cursorId") long cursorId,
+                                            Pageable limit);
+    // The Pageable only carries the page size (LIMIT); no count query is executed.
+
+    // Stream of readings between two times, oldest first
+    @Query("SELECT t FROM TemperatureReading t WHERE t.sensorId = :sensorId AND t.timestamp >= :startTime " +
+            "AND t.timestamp < :endTime ORDER BY t.timestamp ASC, t.id ASC")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    // Rows are fetched from the database 1000 at a time (with useCursorFetch=true on the MySQL URL).
+    Stream<TemperatureReading> streamMeasurementsBetween(@Param("sensorId") String sensorId, @Param("startTime") LocalDateTime startTime,
+                                                         @Param("endTime") LocalDateTime endTime);
+    // Must be consumed inside a transaction and closed afterwards.
+
+    // Query for the readings of all sensors since a given time, oldest first
+    @Query("SELECT t FROM TemperatureReading t WHERE t.timestamp >= :startTime ORDER BY t.timestamp ASC")
+    // Custom JPQL query used once at startup to warm the in-memory rolling windows of every sensor.
+    List<TemperatureReading> findAllSensorsMeasurementsSince(@Param("startTime") LocalDateTime startTime);
+    // Method to retrieve the recent readings of every sensor in time order.
 }
 
 /*
+Time ranges:
+    Every time condition compares the bare timestamp column with a parameter (>= start, < end). Such conditions
+    are sargable: MySQL seeks in idx_temp_reading_sensor_ts (or idx_temp_reading_ts across sensors) and, on the
+    partitioned schema (SQL_Tempdata_partitioned.sql), prunes to the partitions of the range. Wrapping the column
+    in a function such as DATE(timestamp) would force a scan of every row of the sensor.
+
 Inheritance from JpaRepository:
     This interface extends JpaRepository, which provides default CRUD methods like save(), delete(), findById(), and findAll().
     These methods are automatically implemented by Spring, so there's no need to write them explicitly.
@@ -52,18 +89,23 @@ Custom Queries (@Query):
 
 Custom Methods:
 
-findMaxTemperatureInLast5Minutes(LocalDateTime startTime):
-    Retrieves the maximum temperature recorded since a given startTime (used to calculate the last 5 minutes).
+findWindowStatisticsSince(String sensorId, LocalDateTime startTime):
+    Retrieves count, minimum, maximum and average temperature of a sensor since a given startTime in one query.
+
+findLastMeasurement(String sensorId):
+    Retrieves the most recent temperature reading of a sensor, ordering the records by timestamp in descending order.
+    Without LIMIT 1 Hibernate would fetch every reading of the sensor and keep only the first row. With it, MySQL
+    reads one entry from the end of the (sensor_id, timestamp) index. The id breaks ties between equal timestamps.
 
-findMinTemperatureInLast5Minutes(LocalDateTime startTime):
-    Retrieves the minimum temperature recorded since a given startTime (for the last 5 minutes).
+findMeasurementsBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime):
+    Retrieves the readings of a sensor in [startTime, endTime), ordered by timestamp (e.g. today = [midnight, next midnight)).
 
-findLastMeasurement():
-    Retrieves the most recent temperature reading, ordering the records by timestamp in descending order.
+findPageBefore(String sensorId, LocalDateTime startTime, LocalDateTime cursorTime, long cursorId, Pageable limit):
+    Retrieves one page of readings since startTime that come before the cursor (timestamp, id), newest first.
 
-findMeasurementsFromDate(LocalDateTime startDate):
-    Retrieves temperature readings from a specific date onward, ordered by the timestamp in descending order.
+streamMeasurementsBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime):
+    Streams the readings in [startTime, endTime) oldest first, fetching 1000 rows at a time.
 
-findTodaysMeasurements():
-    Retrieves all temperature readings recorded on the current date (CURRENT_DATE), ordered by timestamp.
+findAllSensorsMeasurementsSince(LocalDateTime startTime):
+    Retrieves the readings of every sensor since startTime in time order (used to warm the rolling windows).
 */
\ No newline at end of file
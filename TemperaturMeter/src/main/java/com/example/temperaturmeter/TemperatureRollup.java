@@ -0,0 +1,140 @@
+package com.example.temperaturmeter;
+// Defines the package for this class, grouping related classes under com.example.temperaturmeter.
+
+import jakarta.persistence.*;
+// Imports the Jakarta Persistence API (JPA) annotations used for the entity mapping.
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+@Entity
+// Marks this class as a JPA entity, mapped to the temp_rollup table.
+@Table(name = "temp_rollup")
+// One row per sensor, resolution and bucket, holding min, max, sum and count of the readings in the bucket.
+@IdClass(TemperatureRollup.Key.class)
+// The primary key is (sensor_id, resolution, bucket_start), so range queries of one series read consecutive rows.
+public class TemperatureRollup {
+
+    @Id
+    @Column(name = "sensor_id", length = 64)
+    private String sensorId;
+    // The sensor the bucket belongs to.
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private RollupResolution resolution;
+    // MINUTE, HOUR or DAY.
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+    // Start of the bucket; the bucket covers [bucketStart, bucketStart + resolution).
+
+    @Column(name = "min_temperature", nullable = false)
+    private double minTemperature;
+
+    @Column(name = "max_temperature", nullable = false)
+    private double maxTemperature;
+
+    @Column(name = "sum_temperature", nullable = false)
+    private double sumTemperature;
+
+    @Column(name = "reading_count", nullable = false)
+    private long count;
+    // Sum and count are stored instead of the average, so buckets can be updated and combined exactly.
+
+    public TemperatureRollup() {
+    }
+
+    TemperatureRollup(String sensorId, RollupResolution resolution, LocalDateTime bucketStart) {
+        // Empty bucket computed in memory (used when there is no rollup table, see TemperatureService.getSeries).
+        this.sensorId = sensorId;
+        this.resolution = resolution;
+        this.bucketStart = bucketStart;
+        this.minTemperature = Double.POSITIVE_INFINITY;
+        this.maxTemperature = Double.NEGATIVE_INFINITY;
+    }
+
+    void add(double temperature) {
+        minTemperature = Math.min(minTemperature, temperature);
+        maxTemperature = Math.max(maxTemperature, temperature);
+        sumTemperature += temperature;
+        count++;
+    }
+
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    public RollupResolution getResolution() {
+        return resolution;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public double getMinTemperature() {
+        return minTemperature;
+    }
+
+    public double getMaxTemperature() {
+        return maxTemperature;
+    }
+
+    public double getSumTemperature() {
+        return sumTemperature;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getAverageTemperature() {
+        return count == 0 ? 0 : sumTemperature / count;
+    }
+
+    public static class Key implements Serializable {
+        // Composite primary key of TemperatureRollup, required by @IdClass.
+
+        private String sensorId;
+        private RollupResolution resolution;
+        private LocalDateTime bucketStart;
+
+        public Key() {
+        }
+
+        public Key(String sensorId, RollupResolution resolution, LocalDateTime bucketStart) {
+            this.sensorId = sensorId;
+            this.resolution = resolution;
+            this.bucketStart = bucketStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(sensorId, key.sensorId) && resolution == key.resolution
+                    && Objects.equals(bucketStart, key.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sensorId, resolution, bucketStart);
+        }
+    }
+}
+
+/*
+Rollup table:
+    temp_rollup is maintained incrementally by TemperatureRollupWriter in the same transaction that inserts the raw
+    readings, so it is always consistent with temp_reading. A week at MINUTE resolution is about 10 000 rows per
+    sensor, at HOUR 168 rows; a year at DAY resolution is 365 rows.
+*/
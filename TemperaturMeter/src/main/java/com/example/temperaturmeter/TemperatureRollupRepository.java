@@ -0,0 +1,21 @@
+package com.example.temperaturmeter;
+import org.springframework.data.jpa.repository.JpaRepository;// Imports JpaRepository, which provides CRUD methods for the entity.
+import org.springframework.data.jpa.repository.Query;// Imports the @Query annotation for custom JPQL queries.
+import org.springframework.data.repository.query.Param;// Imports the @Param annotation, which binds method parameters to named parameters in JPQL queries.
+import org.springframework.transaction.annotation.Transactional;// Imports @Transactional, used to make the queries read-only.
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Transactional(readOnly = true)
+// Read-only, so with a read replica (DataSourceRoutingConfiguration) the series queries run on the replica.
+public interface TemperatureRollupRepository extends JpaRepository<TemperatureRollup, TemperatureRollup.Key> {
+// Read access to the temp_rollup table. The rows are written by TemperatureRollupWriter with plain JDBC.
+
+    // Query for the buckets of one sensor and resolution within a time range, oldest first
+    @Query("SELECT r FROM TemperatureRollup r WHERE r.sensorId = :sensorId AND r.resolution = :resolution " +
+            "AND r.bucketStart >= :startTime AND r.bucketStart < :endTime ORDER BY r.bucketStart ASC")
+    // Reads a contiguous range of the primary key (sensor_id, resolution, bucket_start).
+    List<TemperatureRollup> findSeries(@Param("sensorId") String sensorId, @Param("resolution") RollupResolution resolution,
+                                       @Param("startTime") LocalDateTime startTime, @Param("endTime") LocalDateTime endTime);
+    // Method to retrieve the rollup series used by charts.
+}
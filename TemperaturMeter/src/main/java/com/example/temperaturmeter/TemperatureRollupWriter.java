@@ -0,0 +1,139 @@
+package com.example.temperaturmeter;
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;// Imports @ConditionalOnProperty; this bean needs MySQL and only exists for storage.backend=jpa (the default).
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;// Imports the callback used to bind one row of a JDBC batch.
+import org.springframework.jdbc.core.JdbcTemplate;// Imports JdbcTemplate, Spring's helper for plain JDBC statements.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "jpa", matchIfMissing = true)
+// Keeps the temp_rollup table up to date: incrementally for every written batch, and by a backfill for existing data.
+public class TemperatureRollupWriter {
+
+    private static final String UPSERT_SQL = "INSERT INTO temp_rollup " +
+            "(sensor_id, resolution, bucket_start, min_temperature, max_temperature, sum_temperature, reading_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "min_temperature = LEAST(min_temperature, VALUES(min_temperature)), " +
+            "max_temperature = GREATEST(max_temperature, VALUES(max_temperature)), " +
+            "sum_temperature = sum_temperature + VALUES(sum_temperature), " +
+            "reading_count = reading_count + VALUES(reading_count)";
+    // Merges the partial bucket of a batch into the stored bucket (or creates it).
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    // JdbcTemplate bound to the application's DataSource.
+
+    public void addBatch(List<TemperatureReading> readings) {
+        // Folds a batch of new readings into the buckets of every resolution.
+        // Called by TemperatureBatchWriter inside the transaction that inserts the raw readings.
+        if (readings.isEmpty()) {
+            return;
+        }
+        Map<TemperatureRollup.Key, Bucket> buckets = new LinkedHashMap<>();
+        for (TemperatureReading reading : readings) {
+            for (RollupResolution resolution : RollupResolution.values()) {
+                LocalDateTime bucketStart = resolution.bucketStart(reading.getTimestamp());
+                buckets.computeIfAbsent(new TemperatureRollup.Key(reading.getSensorId(), resolution, bucketStart),
+                                key -> new Bucket(reading.getSensorId(), resolution, bucketStart))
+                        .add(reading.getTemperature());
+            }
+        }
+        // A batch of 500 readings of one sensor touches only a few buckets, so only a few rows are upserted.
+
+        List<Bucket> rows = new ArrayList<>(buckets.values());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Bucket bucket = rows.get(i);
+                ps.setString(1, bucket.sensorId);
+                ps.setString(2, bucket.resolution.name());
+                ps.setTimestamp(3, Timestamp.valueOf(bucket.bucketStart));
+                ps.setDouble(4, bucket.min);
+                ps.setDouble(5, bucket.max);
+                ps.setDouble(6, bucket.sum);
+                ps.setLong(7, bucket.count);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    public long backfill() {
+        // Recomputes every bucket from the raw readings in temp_reading, one day at a time.
+        // Returns the number of days processed.
+        LocalDateTime first = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM temp_reading", LocalDateTime.class);
+        if (first == null) {
+            return 0;
+        }
+        LocalDateTime end = RollupResolution.DAY.nextBucket(RollupResolution.DAY.bucketStart(LocalDateTime.now()));
+        long days = 0;
+        for (LocalDateTime day = RollupResolution.DAY.bucketStart(first); day.isBefore(end); day = RollupResolution.DAY.nextBucket(day)) {
+            backfill(day, RollupResolution.DAY.nextBucket(day));
+            days++;
+        }
+        return days;
+    }
+
+    public void backfill(LocalDateTime startTime, LocalDateTime endTime) {
+        // Recomputes the buckets in [startTime, endTime) from the raw readings and overwrites the stored ones.
+        // startTime and endTime must be bucket boundaries of every resolution (i.e. midnight).
+        for (RollupResolution resolution : RollupResolution.values()) {
+            jdbcTemplate.update("INSERT INTO temp_rollup " +
+                            "(sensor_id, resolution, bucket_start, min_temperature, max_temperature, sum_temperature, reading_count) " +
+                            "SELECT sensor_id, ?, DATE_FORMAT(timestamp, '" + resolution.getSqlBucketFormat() + "') AS bucket, " +
+                            "MIN(temperature), MAX(temperature), SUM(temperature), COUNT(*) " +
+                            "FROM temp_reading WHERE timestamp >= ? AND timestamp < ? GROUP BY sensor_id, bucket " +
+                            "ON DUPLICATE KEY UPDATE " +
+                            "min_temperature = VALUES(min_temperature), max_temperature = VALUES(max_temperature), " +
+                            "sum_temperature = VALUES(sum_temperature), reading_count = VALUES(reading_count)",
+                    resolution.name(), Timestamp.valueOf(startTime), Timestamp.valueOf(endTime));
+        }
+    }
+
+    private static class Bucket {
+        // Partial bucket of one batch.
+        final String sensorId;
+        final RollupResolution resolution;
+        final LocalDateTime bucketStart;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum;
+        long count;
+
+        Bucket(String sensorId, RollupResolution resolution, LocalDateTime bucketStart) {
+            this.sensorId = sensorId;
+            this.resolution = resolution;
+            this.bucketStart = bucketStart;
+        }
+
+        void add(double temperature) {
+            min = Math.min(min, temperature);
+            max = Math.max(max, temperature);
+            sum += temperature;
+            count++;
+        }
+    }
+}
+
+/*
+Incremental maintenance:
+    Every batch written by the write-behind queue is also folded into the MINUTE, HOUR and DAY buckets with one
+    INSERT ... ON DUPLICATE KEY UPDATE batch. Min and max merge with LEAST/GREATEST, sum and count are added, so
+    buckets are exact no matter how the readings are split into batches.
+
+Backfill:
+    Started with the --backfill-rollups command line argument (see TemperaturMeterApplication). Buckets are
+    recomputed from temp_reading one day at a time and overwritten, so it is safe to run more than once. It runs
+    before the serial ports are opened, so no reading is counted twice.
+*/
@@ -1,8 +1,13 @@
 package com.example.temperaturmeter;
-import jakarta.transaction.Transactional;// Imports the @Transactional annotation, which ensures that the method’s database operations are executed in a transaction.
+import jakarta.annotation.PreDestroy;// Imports @PreDestroy, used to store the readings held back by the compression at shutdown.
 import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
 import org.springframework.stereotype.Service;
+import java.io.IOException;// Imports IOException, thrown when a streamed reading cannot be written to the client.
+import java.time.Duration;// Imports the Duration class to describe time windows such as 5 minutes.
+import java.time.LocalDate;// Imports the LocalDate class to compute the start of today.
 import java.time.LocalDateTime;// Imports the LocalDateTime class to handle date and time.
+import java.util.ArrayList;// Imports ArrayList, used to collect computed rollup buckets.
 import java.util.List;// Imports the List interface to work with collections of temperature readings.
 
 @Service
@@ -10,61 +15,247 @@ import java.util.List;// Imports the List interface to work with collections of
 public class TemperatureService {
 
     @Autowired
-    // Automatically injects an instance of TemperatureReadingRepository into this class.
-    private TemperatureReadingRepository temperatureReadingRepository;
-    // Repository interface for interacting with the database and performing CRUD operations.
+    // Injects the storage backend selected by storage.backend (MySQL by default, or the embedded log).
+    private TemperatureStore temperatureStore;
 
-    @Transactional
-    // Ensures that the database operations inside this method are executed within a transaction.
-    public void saveTemperature(Double temperature) {
+    @Autowired
+    // Injects the write-behind queue that persists ingested readings in batches.
+    private TemperatureWriteBehindQueue writeBehindQueue;
+
+    @Autowired
+    // Injects the compression that decides which readings of a sensor are stored (ingest.compression.*).
+    private IngestCompressor ingestCompressor;
+
+    @Autowired
+    // Injects the in-memory rolling windows that answer min/max queries without the database.
+    private RollingWindowAggregator rollingWindowAggregator;
+
+    @Autowired
+    // Injects the per-bucket sketches that answer mean, standard deviation, quantiles and time above a threshold.
+    private SketchAggregator sketchAggregator;
+
+    @Autowired
+    // Injects the alert rules engine, which checks every new reading against alerts.rules.
+    private AlertEngine alertEngine;
+
+    @Autowired
+    // Injects the live feed that pushes new readings to the Server-Sent Events subscribers.
+    private LiveReadingFeed liveReadingFeed;
+
+    @Autowired
+    // Injects the in-memory latest reading of every sensor, which answers getLastMeasurement without a query.
+    private LatestReadingCache latestReadingCache;
+
+    @Autowired
+    // Injects the parallel aggregation of long ranges into day/week/month/year buckets.
+    private RangeAggregator rangeAggregator;
+
+    @Autowired(required = false)
+    // Injects the repository of the minute/hour/day rollup table; absent with storage.backend=log.
+    private TemperatureRollupRepository temperatureRollupRepository;
+
+    @Value("${rollup.max-points:500}")
+    // Maximum number of buckets returned when the resolution is chosen automatically.
+    private int maxRollupPoints;
+
+    @Value("${readings.page.max-size:1000}")
+    // Upper limit for the page size requested by clients.
+    private int maxPageSize;
+
+    public void saveTemperature(String sensorId, Double temperature) throws InterruptedException {
+        recordTemperature(sensorId, temperature);
+        // Takes the ingest path, so the reading is spooled, compressed and written in a batch like every other one.
+    }
+
+    // Method used by the serial ingest path for every new reading
+    public void recordTemperature(String sensorId, double temperature) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        // Time of arrival, used for the rolling windows and as the reading's timestamp.
         TemperatureReading reading = new TemperatureReading();
         // Creates a new instance of the TemperatureReading entity.
+        reading.setSensorId(sensorId);
+        // Assigns the reading to the sensor it came from.
         reading.setTemperature(temperature);
         // Sets the temperature value to the reading object.
-        reading.setTimestamp(LocalDateTime.now());
-        // Sets the current timestamp for the reading.
-        temperatureReadingRepository.save(reading);
-        // Saves the new reading into the database via the repository.
+        reading.setTimestamp(EpochTime.toLocalDateTime(now));
+        // Stamps the reading with its time of arrival.
+        alertEngine.evaluate(sensorId, now, temperature);
+        // Checks the alert rules first, so an alert goes out before anything else is done with the reading.
+        rollingWindowAggregator.add(sensorId, now, temperature);
+        // Updates the in-memory min/max windows right away, before the reading reaches the database.
+        sketchAggregator.add(sensorId, now, temperature);
+        // Updates the minute and hour sketches of the range statistics.
+        liveReadingFeed.publish(reading);
+        // Pushes the reading to the live subscribers, also without waiting for the database.
+        latestReadingCache.update(sensorId, temperature, reading.getTimestamp());
+        // Makes it the sensor's latest reading for /api/temperature/latest.
+        for (TemperatureReading stored : ingestCompressor.offer(reading)) {
+            writeBehindQueue.submit(stored);
+            // Queues the readings the compression keeps; they are written to the database together with other readings in one batch.
+        }
+    }
+
+    @PreDestroy
+    public void flushCompression() throws InterruptedException {
+        for (TemperatureReading held : ingestCompressor.flush()) {
+            writeBehindQueue.submit(held);
+        }
+        // Stores the last reading of every compressed sensor, so the stored series ends where the readings ended.
+        // Runs before the write-behind queue shuts down, since this service depends on it.
+    }
+
+    // Method to fetch one page of readings of a sensor in [startTime, endTime), newest first
+    public ReadingPage getReadingsPage(String sensorId, LocalDateTime startTime, LocalDateTime endTime, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        // Clamps the requested page size to 1..readings.page.max-size.
+        LocalDateTime cursorTime = endTime;
+        long cursorId = 0;
+        // Without a cursor the page starts right before endTime.
+        if (cursor != null && !cursor.isEmpty()) {
+            cursorTime = ReadingPage.cursorTimestamp(cursor);
+            cursorId = ReadingPage.cursorId(cursor);
+            // With a cursor the page continues after the last reading of the previous page.
+        }
+        List<TemperatureReading> readings = temperatureStore.findPageBefore(sensorId, startTime, cursorTime, cursorId, pageSize + 1);
+        // Fetches one row more than needed to find out whether there is a next page.
+        if (readings.size() <= pageSize) {
+            return new ReadingPage(readings, null);
+        }
+        List<TemperatureReading> page = readings.subList(0, pageSize);
+        return new ReadingPage(page, ReadingPage.encodeCursor(page.get(pageSize - 1)));
+    }
+
+    // Method to stream all readings of a sensor in [startTime, endTime), oldest first
+    public void streamReadings(String sensorId, LocalDateTime startTime, LocalDateTime endTime,
+                               TemperatureStore.ReadingCallback callback) throws IOException {
+        temperatureStore.forEachBetween(sensorId, startTime, endTime, callback);
+        // The store passes every reading on while it is read, so memory use does not grow with the size of the range.
+    }
+
+    // Method to read the readings of a sensor in [startTime, endTime) as primitive columns, oldest first
+    public ReadingColumns getReadingColumns(String sensorId, LocalDateTime startTime, LocalDateTime endTime, int limit) throws IOException {
+        return temperatureStore.findColumnsBetween(sensorId, startTime, endTime, limit);
+        // At most limit readings; the store fills the arrays directly, without an entity per row.
+    }
+
+    // Method to get the highest temperature within the given window (e.g., the last 5 minutes)
+    public Double getMaxTemperature(String sensorId, Duration window) {
+        return getWindowStatistics(sensorId, window).getMaxTemperature();
+        // Configured windows are answered from memory, others by the store.
     }
 
-    // Method to fetch all temperature readings
-    public List<TemperatureReading> getAllReadings() {
-        return temperatureReadingRepository.findAll();
-        // Fetches all the temperature readings from the database.
+    // Method to get the lowest temperature within the given window
+    public Double getMinTemperature(String sensorId, Duration window) {
+        return getWindowStatistics(sensorId, window).getMinTemperature();
+        // Configured windows are answered from memory, others by the store.
     }
 
-    // Method to get the highest temperature in the last 5 minutes
-    public Double getMaxTemperatureInLast5Minutes() {
-        LocalDateTime fiveMinutesAgo = LocalDateTime.now().minusMinutes(5);
-        // Calculates the time exactly 5 minutes ago from the current time.
-        return temperatureReadingRepository.findMaxTemperatureInLast5Minutes(fiveMinutesAgo);
-        // Queries the repository to find the maximum temperature recorded in the last 5 minutes.
+    // Method to get count, min, max and average temperature within the given window
+    public WindowStatistics getWindowStatistics(String sensorId, Duration window) {
+        if (rollingWindowAggregator.holds(window)) {
+            return rollingWindowAggregator.getStatistics(sensorId, window);
+            // Configured windows are answered from memory.
+        }
+        return temperatureStore.getStatisticsSince(sensorId, LocalDateTime.now().minus(window));
+        // Other windows fall back to an aggregate computed by the store.
     }
 
-    // Method to get the lowest temperature in the last 5 minutes
-    public Double getMinTemperatureInLast5Minutes() {
-        LocalDateTime fiveMinutesAgo = LocalDateTime.now().minusMinutes(5);
-        // Calculates the time exactly 5 minutes ago from the current time.
-        return temperatureReadingRepository.findMinTemperatureInLast5Minutes(fiveMinutesAgo);
-        // Queries the repository to find the minimum temperature recorded in the last 5 minutes.
+    // Method to get mean, standard deviation, quantiles and (optionally) time above a threshold over any range
+    public RangeStatistics getRangeStatistics(String sensorId, LocalDateTime startTime, LocalDateTime endTime, Double threshold) {
+        return sketchAggregator.query(sensorId, EpochTime.toEpochMillis(startTime), EpochTime.toEpochMillis(endTime), threshold);
+        // Answered by merging the minute/hour sketches of the range; no readings are read.
     }
 
     // Method to get the most recent (last) temperature measurement
-    public TemperatureReading getLastMeasurement() {
-        return temperatureReadingRepository.findLastMeasurement();
-        // Queries the repository to get the most recent temperature reading.
+    public TemperatureReading getLastMeasurement(String sensorId) {
+        LatestReadingCache.LatestReading latest = latestReadingCache.get(sensorId);
+        // The cache holds the latest reading of every sensor that has one, loaded at startup and kept by the ingest path.
+        if (latest == null) {
+            return temperatureStore.findLast(sensorId);
+            // Unknown sensor (not in serial.sensors): asks the store.
+        }
+        TemperatureReading reading = new TemperatureReading();
+        reading.setSensorId(sensorId);
+        reading.setTemperature(latest.temperature());
+        reading.setTimestamp(latest.timestamp());
+        return reading;
     }
 
     // Method to get temperature readings from a specific date
-    public List<TemperatureReading> getReadingsFromDate(LocalDateTime startDate) {
-        return temperatureReadingRepository.findMeasurementsFromDate(startDate);
-        // Fetches all temperature readings from the specified start date onward from the repository.
+    public List<TemperatureReading> getReadingsFromDate(String sensorId, LocalDateTime startDate) {
+        return temperatureStore.findBetween(sensorId, startDate, LocalDateTime.now().plusDays(1));
+        // Fetches all temperature readings from the specified start date onward, newest first.
+    }
+
+    // Method to rebuild the readings of a sensor on a regular grid (e.g. one value per minute) from the stored points
+    public ReadingColumns getResampledReadings(String sensorId, LocalDateTime startTime, LocalDateTime endTime, Duration step) {
+        long maxGap = ingestCompressor.getMaxGapMillis();
+        List<TemperatureReading> points = new ArrayList<>();
+        try {
+            temperatureStore.forEachBetween(sensorId, startTime.minus(Duration.ofMillis(maxGap)),
+                    endTime.plus(Duration.ofMillis(maxGap)), points::add);
+            // Includes the stored points around the range, so its first and last grid values can be interpolated.
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+            // Cannot happen: the callback does not throw.
+        }
+        TemperatureReading held = ingestCompressor.getHeld(sensorId);
+        if (held != null && (points.isEmpty() || held.getTimestamp().isAfter(points.get(points.size() - 1).getTimestamp()))) {
+            points.add(held);
+            // The latest reading is held back by the compression until a later one needs it, but ends the series.
+        }
+        return IngestCompressor.resample(sensorId, points, EpochTime.toEpochMillis(startTime), EpochTime.toEpochMillis(endTime),
+                step.toMillis(), ingestCompressor.isInterpolated(sensorId), maxGap);
+    }
+
+    // Method to get temperature readings from a specific date on a regular grid
+    public ReadingColumns getReadingsFromDate(String sensorId, LocalDateTime startDate, Duration step) {
+        return getResampledReadings(sensorId, startDate, LocalDateTime.now(), step);
+    }
+
+    // Method to get min/max/average per bucket over a time range
+    public List<TemperatureRollup> getSeries(String sensorId, LocalDateTime startTime, LocalDateTime endTime, RollupResolution resolution) {
+        if (resolution == null) {
+            resolution = RollupResolution.forRange(Duration.between(startTime, endTime), maxRollupPoints);
+            // Without an explicit resolution, the finest one that yields at most rollup.max-points buckets is used.
+        }
+        LocalDateTime firstBucket = resolution.bucketStart(startTime);
+        // The first bucket is the one containing startTime.
+        if (temperatureRollupRepository != null) {
+            return temperatureRollupRepository.findSeries(sensorId, resolution, firstBucket, endTime);
+            // Read from the rollup table maintained by the ingest path.
+        }
+        List<TemperatureRollup> series = new ArrayList<>();
+        RollupResolution bucketSize = resolution;
+        try {
+            temperatureStore.forEachBetween(sensorId, firstBucket, endTime, reading -> {
+                LocalDateTime bucketStart = bucketSize.bucketStart(reading.getTimestamp());
+                TemperatureRollup last = series.isEmpty() ? null : series.get(series.size() - 1);
+                if (last == null || !last.getBucketStart().equals(bucketStart)) {
+                    last = new TemperatureRollup(sensorId, bucketSize, bucketStart);
+                    series.add(last);
+                }
+                last.add(reading.getTemperature());
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+            // Cannot happen: the callback does not throw.
+        }
+        return series;
+        // Without a rollup table (storage.backend=log) the buckets are computed from one scan of the range.
+    }
+
+    // Method to get count, min, max and average per day, week, month or year over a long range, e.g. a whole year
+    public List<RangeAggregator.Bucket> getAggregates(String sensorId, LocalDateTime startTime, LocalDateTime endTime, RangeAggregator.Period period) {
+        return rangeAggregator.aggregate(sensorId, startTime, endTime, period);
+        // Scanned in parallel chunks, with a bounded number of store connections; see RangeAggregator.
     }
 
     // Method to get today's temperature readings
-    public List<TemperatureReading> getTodaysReadings() {
-        return temperatureReadingRepository.findTodaysMeasurements();
-        // Queries the repository to get all temperature readings recorded today.
+    public List<TemperatureReading> getTodaysReadings(String sensorId) {
+        LocalDateTime startOfToday = LocalDate.now().atStartOfDay();
+        return temperatureStore.findBetween(sensorId, startOfToday, startOfToday.plusDays(1));
+        // Queries the store to get all temperature readings recorded today.
     }
 
 }
@@ -78,32 +269,77 @@ Annotations:
     Automatically injects dependencies (in this case, the TemperatureReadingRepository) by Spring,
     so you don't need to manually instantiate them.
 
-@Transactional:
-    Ensures that the method will be executed in a single database transaction.
+TemperatureStore:
+    All reads and writes of readings go through the TemperatureStore selected by storage.backend, so the service
+    works the same with MySQL (JpaTemperatureStore) and with the embedded log (LogTemperatureStore).
 
 Methods:
-saveTemperature(Double temperature):
-    Creates and saves a new TemperatureReading with the given temperature and current timestamp.
+saveTemperature(String sensorId, Double temperature):
+    Saves a new reading of the sensor with the given temperature and the current timestamp, through recordTemperature.
+
+recordTemperature(String sensorId, double temperature):
+    The ingest path: stamps the reading on arrival, evaluates the AlertEngine rules, updates the rolling windows,
+    sketches and latest reading, and pushes the reading to the LiveReadingFeed subscribers. It then passes the
+    reading through the IngestCompressor, so only the points that rebuild the series within ingest.compression.*
+    are stored, and queues those in the write-behind queue, which writes readings in batches instead of one
+    transaction per reading. Everything kept in memory still sees every reading.
+
+Every read method takes the sensor id and only returns readings of that sensor.
+
+getReadingsPage(String sensorId, LocalDateTime startTime, LocalDateTime endTime, String cursor, int size):
+    Fetches one page of readings, newest first, using keyset pagination on (timestamp, id).
+    The returned ReadingPage carries the cursor for the next page.
+
+streamReadings(String sensorId, LocalDateTime startTime, LocalDateTime endTime, ReadingCallback callback):
+    Passes every reading in the range to the callback while it is read from the store,
+    so arbitrarily large ranges can be exported with constant memory.
+
+getReadingColumns(String sensorId, LocalDateTime startTime, LocalDateTime endTime, int limit):
+    Reads a range into a ReadingColumns (long[] epoch millis, float[] temperatures) for /api/v1/sensors/{id}/readings.
+    JpaTemperatureStore selects only the two columns with JDBC, LogTemperatureStore copies the mapped record
+    fields and the archive decodes into the arrays: a week at 10 s per reading is two arrays of 60480 values
+    instead of 60480 entities, each with a boxed id, a boxed temperature and a LocalDateTime.
+
+getMaxTemperature / getMinTemperature / getWindowStatistics(String sensorId, Duration window):
+    Fetch the highest / lowest temperature (or count, min, max and average) recorded within the window.
+    Windows listed in stats.rolling-windows are answered from the RollingWindowAggregator in memory,
+    any other window is computed by the store.
+
+getResampledReadings(String sensorId, LocalDateTime startTime, LocalDateTime endTime, Duration step):
+    Rebuilds the series on a regular grid from the stored points: linearly for swinging-door (and uncompressed)
+    sensors, by holding the last value for deadband sensors. Every value is within the compression tolerance of
+    the reading at that time; gaps longer than twice ingest.compression.max-interval stay empty.
+
+getSeries(String sensorId, LocalDateTime startTime, LocalDateTime endTime, RollupResolution resolution):
+    Reads min/max/sum/count buckets from the temp_rollup table instead of raw readings, so a month of data at
+    HOUR resolution is about 720 rows. A null resolution is chosen from the width of the range.
+    With storage.backend=log there is no rollup table and the buckets are computed from one range scan.
 
-getAllReadings():
-    Fetches all the temperature readings from the database.
+getAggregates(String sensorId, LocalDateTime startTime, LocalDateTime endTime, RangeAggregator.Period period):
+    Count, min, max and average per calendar day, week, month or year of the raw readings (and the archive). The
+    range is cut into aggregation.chunk pieces that are scanned and reduced on a fork-join pool and merged per bucket.
 
-getMaxTemperatureInLast5Minutes():
-    Fetches the highest temperature recorded in the last 5 minutes.
+Archive:
+    Days older than archive.after-days can be moved into the compressed TemperatureArchive. JpaTemperatureStore
+    reads the part of every range before TemperatureArchive.getArchivedUntil() from the archive and the rest from
+    the database.
 
-getMinTemperatureInLast5Minutes():
-    Fetches the lowest temperature recorded in the last 5 minutes.
+getRangeStatistics(String sensorId, LocalDateTime startTime, LocalDateTime endTime, Double threshold):
+    Count, mean, standard deviation, min, max, p50/p95/p99 and the time at or above the threshold, from the
+    SketchAggregator. The result names the range actually covered (whole buckets, within the sketch retention).
 
-getLastMeasurement():
-    Retrieves the most recent temperature reading.
+getLastMeasurement(String sensorId):
+    Retrieves the most recent temperature reading. It comes from the LatestReadingCache, which is updated by
+    recordTemperature, so it includes readings still waiting in the write-behind queue.
+    Only sensors the cache has never seen are looked up in the store.
 
-getReadingsFromDate(LocalDateTime startDate):
+getReadingsFromDate(String sensorId, LocalDateTime startDate):
     Retrieves all temperature readings from a specified date onward.
-getTodaysReadings():
-    Fetches all temperature readings recorded today.
+getTodaysReadings(String sensorId):
+    Fetches all temperature readings recorded today, as the half-open range [midnight, next midnight).
 
-Repository interaction:
-    The temperatureReadingRepository is used to interact with the database,
-    performing various read and write operations, such as saving a new reading, finding all readings,
+Store interaction:
+    The temperatureStore is used to read and write readings,
+    such as saving a new reading, paging and streaming readings,
     and fetching specific temperature statistics based on time intervals or dates.
 */
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.example.temperaturmeter;
+
+import java.util.Arrays;
+
+public class TemperatureSketch {
+    // Mergeable summary of the readings in one time bucket: count, mean and variance (Welford), min, max, and a
+    // sparse histogram of 0.1 °C bins. The histogram answers any quantile to within half a bin (0.05 °C) and
+    // the time spent above a threshold. Merging two sketches gives exactly the sketch of all their readings,
+    // so a range is answered by merging its buckets instead of reading its rows.
+    // Not thread-safe; SketchAggregator guards every sketch with the lock of its sensor.
+
+    static final double BIN_WIDTH = 0.1;
+    // Absolute, not relative, accuracy: a temperature sensor's resolution is the same at -20 °C and at 30 °C,
+    // and the bins stay valid across zero (a DDSketch-style log scale is not).
+
+    private long count;
+    private double mean;
+    private double m2;
+    // Sum of squared differences from the mean; variance = m2 / count.
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    private int[] bins = new int[4];
+    private long[] binCounts = new long[4];
+    private long[] binDwellMillis = new long[4];
+    private int binSize;
+    // The occupied bins in ascending order. A bucket of one minute usually touches one or two bins.
+
+    public void add(double temperature) {
+        count++;
+        double delta = temperature - mean;
+        mean += delta / count;
+        m2 += delta * (temperature - mean);
+        min = count == 1 ? temperature : Math.min(min, temperature);
+        max = count == 1 ? temperature : Math.max(max, temperature);
+        int slot = binSlot(binOf(temperature));
+        binCounts[slot]++;
+        // binSlot may replace the arrays, so the slot is looked up first.
+    }
+
+    public void addDwell(double temperature, long millis) {
+        // Attributes the time a reading was valid for (until the next reading of the sensor) to its bin.
+        int slot = binSlot(binOf(temperature));
+        binDwellMillis[slot] += millis;
+    }
+
+    public void merge(TemperatureSketch other) {
+        if (other.count == 0 && other.binSize == 0) {
+            return;
+        }
+        if (other.count > 0) {
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            m2 += other.m2 + delta * delta * count * other.count / total;
+            mean += delta * other.count / total;
+            min = count == 0 ? other.min : Math.min(min, other.min);
+            max = count == 0 ? other.max : Math.max(max, other.max);
+            count = total;
+            // Chan et al.: combines the means and variances of two parts without their readings.
+        }
+        for (int i = 0; i < other.binSize; i++) {
+            int slot = binSlot(other.bins[i]);
+            binCounts[slot] += other.binCounts[i];
+            binDwellMillis[slot] += other.binDwellMillis[i];
+        }
+    }
+
+    static int binOf(double temperature) {
+        return (int) Math.floor(temperature / BIN_WIDTH + 1e-9);
+        // The epsilon keeps values like 21.3 (21.299999...) in their own bin.
+    }
+
+    private int binSlot(int bin) {
+        int slot = Arrays.binarySearch(bins, 0, binSize, bin);
+        if (slot >= 0) {
+            return slot;
+        }
+        slot = -slot - 1;
+        if (binSize == bins.length) {
+            bins = Arrays.copyOf(bins, binSize * 2);
+            binCounts = Arrays.copyOf(binCounts, binSize * 2);
+            binDwellMillis = Arrays.copyOf(binDwellMillis, binSize * 2);
+        }
+        System.arraycopy(bins, slot, bins, slot + 1, binSize - slot);
+        System.arraycopy(binCounts, slot, binCounts, slot + 1, binSize - slot);
+        System.arraycopy(binDwellMillis, slot, binDwellMillis, slot + 1, binSize - slot);
+        bins[slot] = bin;
+        binCounts[slot] = 0;
+        binDwellMillis[slot] = 0;
+        binSize++;
+        return slot;
+    }
+
+    public double quantile(double q) {
+        // The temperature below which a fraction q of the readings lie: the middle of its bin,
+        // clamped to the exact min and max. NaN without readings.
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q <= 0 || q >= 1) {
+            return q <= 0 ? min : max;
+        }
+        double rank = q * count;
+        long seen = 0;
+        for (int i = 0; i < binSize; i++) {
+            if (binCounts[i] > 0 && seen + binCounts[i] >= rank) {
+                double value = (bins[i] + 0.5) * BIN_WIDTH;
+                return Math.max(min, Math.min(max, value));
+            }
+            seen += binCounts[i];
+        }
+        return max;
+    }
+
+    public long dwellMillisAbove(double threshold) {
+        // Time spent at or above the threshold, to the resolution of one bin.
+        int first = binOf(threshold);
+        long millis = 0;
+        for (int i = 0; i < binSize; i++) {
+            if (bins[i] >= first) {
+                millis += binDwellMillis[i];
+            }
+        }
+        return millis;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    public double getStandardDeviation() {
+        return count == 0 ? Double.NaN : Math.sqrt(m2 / count);
+    }
+    // Population standard deviation of the readings.
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.temperaturmeter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TemperatureStore {
+// Storage backend of the readings, selected with storage.backend:
+//     jpa - MySQL through JPA/JDBC (JpaTemperatureStore, the default)
+//     log - embedded append-only log on memory-mapped files (LogTemperatureStore), no database needed
+// All time ranges are half-open: [startTime, endTime).
+
+    interface ReadingCallback {
+        // Receives the readings of a range scan one at a time.
+        void accept(TemperatureReading reading) throws IOException;
+    }
+
+    void append(List<TemperatureReading> readings);
+    // Persists a batch of readings in one write.
+
+    default void append(List<TemperatureReading> readings, String spoolId, long lastSequence) {
+        append(readings);
+    }
+    // Persists a batch replayed from the IngestSpool and records lastSequence as the spool's checkpoint.
+    // Backends that can do both in one transaction (jpa) never write a spooled reading twice; the default
+    // writes the batch only, and the spool keeps its own checkpoint file.
+
+    default long getSpoolCheckpoint(String spoolId) {
+        return 0;
+    }
+    // The last sequence of the spool recorded by append(readings, spoolId, lastSequence), 0 if none.
+
+    TemperatureReading findLast(String sensorId);
+    // The most recent reading of a sensor, or null.
+
+    List<TemperatureReading> findPageBefore(String sensorId, LocalDateTime startTime,
+                                            LocalDateTime cursorTime, long cursorId, int limit);
+    // Up to limit readings since startTime that come before the cursor (timestamp, id), newest first.
+
+    List<TemperatureReading> findBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime);
+    // All readings of a sensor in the range, newest first.
+
+    void forEachBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime, ReadingCallback callback) throws IOException;
+    // Passes the readings of a sensor in the range to the callback, oldest first, without collecting them.
+
+    default ReadingColumns findColumnsBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime, int limit) throws IOException {
+        ReadingColumns columns = new ReadingColumns(sensorId);
+        forEachBetween(sensorId, startTime, endTime, reading -> {
+            if (columns.size() < limit) {
+                columns.add(EpochTime.toEpochMillis(reading.getTimestamp()), reading.getTemperature());
+            }
+        });
+        return columns;
+    }
+    // The first (at most limit) readings of a sensor in the range as primitive columns, oldest first. The backends
+    // fill the arrays straight from their rows or records, without creating a reading object per row.
+
+    void forEachSince(LocalDateTime startTime, ReadingCallback callback) throws IOException;
+    // Passes the readings of all sensors since startTime to the callback, oldest first (rolling window warm-up).
+
+    WindowStatistics getStatisticsSince(String sensorId, LocalDateTime startTime);
+    // Count, min, max and average of a sensor's readings since startTime.
+}
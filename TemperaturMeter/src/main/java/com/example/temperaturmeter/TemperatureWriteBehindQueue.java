@@ -0,0 +1,481 @@
+package com.example.temperaturmeter;
+import io.micrometer.core.instrument.FunctionCounter;// Imports FunctionCounter, which exposes the queue's counters as metrics.
+import io.micrometer.core.instrument.Gauge;// Imports Gauge, used for the queue depth.
+import io.micrometer.core.instrument.MeterRegistry;// Imports the MeterRegistry the queue's metrics are registered with.
+import io.micrometer.core.instrument.Timer;// Imports Timer, used for the write latency and the end-to-end lag histograms.
+import jakarta.annotation.PostConstruct;// Imports @PostConstruct, used to start the flusher thread once the bean is ready.
+import jakarta.annotation.PreDestroy;// Imports @PreDestroy, used to drain the queue when the application shuts down.
+import org.springframework.beans.factory.annotation.Autowired;// Imports the @Autowired annotation for automatic dependency injection by Spring.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import org.slf4j.LoggerFactory;// Imports the SLF4J LoggerFactory for the rate-limited error log.
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToDoubleFunction;
+
+@Component
+// Bounded write-behind queue between the serial ingest path and the database.
+// Readings are collected and written in batches, flushed when the batch is full or the oldest reading is too old.
+// With the IngestSpool (ingest.spool.enabled) every reading is first appended to the local spool; readings that
+// leave memory unwritten (a failed batch, a full queue, a restart) are replayed from there in sequence order.
+public class TemperatureWriteBehindQueue {
+
+    public enum BackpressurePolicy {
+        BLOCK,
+        // The producer waits until the flusher has made room.
+        DROP_OLDEST,
+        // The oldest queued reading is discarded to make room for the new one.
+        COALESCE
+        // The new reading replaces the newest queued reading of the same sensor (latest value wins).
+    }
+
+    private static final int COALESCE_SCAN_LIMIT = 256;
+    // How far back from the newest entry COALESCE looks for a reading of the same sensor.
+
+    @Value("${ingest.write-behind.capacity:10000}")
+    private int capacity;
+    // Maximum number of readings held in memory waiting to be written.
+
+    @Value("${ingest.write-behind.batch-size:500}")
+    private int batchSize;
+    // A batch is flushed as soon as this many readings are queued.
+
+    @Value("${ingest.write-behind.max-age-ms:250}")
+    private long maxAgeMillis;
+    // A batch is flushed when its oldest reading has waited this long, even if the batch is not full.
+
+    @Value("${ingest.write-behind.backpressure:BLOCK}")
+    private BackpressurePolicy backpressurePolicy;
+    // What happens when the queue is full.
+
+    @Value("${ingest.write-behind.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMillis;
+    // How long shutdown waits for the queue to be drained to the database.
+
+    @Autowired
+    private TemperatureStore temperatureStore;
+    // Writes each batch in one write (one transaction for MySQL, one forced append for the log store).
+
+    @Autowired
+    // Injects the local spool the readings are appended to before they are queued.
+    private IngestSpool spool;
+
+    @Value("${ingest.spool.retry-ms:1000}")
+    private long retryMillis;
+    // With the spool: wait after a failed batch before the next attempt, and the longest idle wait of the flusher.
+
+    @Autowired
+    // Injects the Micrometer registry behind the actuator metrics endpoints.
+    private MeterRegistry meterRegistry;
+
+    private Timer appendTimer;
+    // temperature.store.append: time to write one batch (one database transaction, or one log append).
+
+    private Timer lagTimer;
+    // temperature.ingest.lag: time from a reading's arrival at the serial port to the commit of its batch.
+
+    private final RateLimitedLog errorLog = new RateLimitedLog(LoggerFactory.getLogger(TemperatureWriteBehindQueue.class), 10, TimeUnit.SECONDS);
+    // While the database is down every batch fails; one message every 10 seconds is enough.
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // Guards the ring buffer below; notEmpty wakes the flusher, notFull wakes blocked producers.
+
+    private TemperatureReading[] ring;
+    private long[] enqueuedAtNanos;
+    private int head;
+    private int size;
+    // Ring buffer of queued readings plus the time each one was queued (used for the max-age flush).
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    private volatile long submitted;
+    private volatile long written;
+    private volatile long dropped;
+    private volatile long coalesced;
+    private volatile long failed;
+    private volatile long spilled;
+    // Counters for monitoring.
+
+    private long nextSequence = -1;
+    // With the spool: the sequence of the next reading to write; -1 until the checkpoint is known.
+    // Only used by the flusher thread.
+
+    @PostConstruct
+    public void start() {
+        ring = new TemperatureReading[capacity];
+        enqueuedAtNanos = new long[capacity];
+        registerMetrics();
+        running = true;
+        flusher = new Thread(this::flushLoop, "temperature-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private void registerMetrics() {
+        appendTimer = Timer.builder("temperature.store.append").description("Time to write one batch of readings")
+                .publishPercentileHistogram().register(meterRegistry);
+        lagTimer = Timer.builder("temperature.ingest.lag").description("Time from serial read to the commit of the reading's batch")
+                .publishPercentileHistogram().minimumExpectedValue(Duration.ofMillis(1)).maximumExpectedValue(Duration.ofMinutes(1))
+                .register(meterRegistry);
+        Gauge.builder("temperature.ingest.queue.depth", this, TemperatureWriteBehindQueue::getQueueDepth)
+                .description("Readings waiting to be written").register(meterRegistry);
+        registerCounter("submitted", TemperatureWriteBehindQueue::getSubmitted);
+        registerCounter("written", TemperatureWriteBehindQueue::getWritten);
+        registerCounter("dropped", TemperatureWriteBehindQueue::getDropped);
+        registerCounter("coalesced", TemperatureWriteBehindQueue::getCoalesced);
+        registerCounter("failed", TemperatureWriteBehindQueue::getFailed);
+        registerCounter("spilled", TemperatureWriteBehindQueue::getSpilled);
+        if (isSpooled()) {
+            Gauge.builder("temperature.ingest.spool.backlog", spool, IngestSpool::getBacklog)
+                    .description("Spooled readings not yet written to the store").register(meterRegistry);
+            Gauge.builder("temperature.ingest.spool.bytes", spool, IngestSpool::getBytes)
+                    .description("Size of the spool files").register(meterRegistry);
+            FunctionCounter.builder("temperature.ingest.readings", spool, IngestSpool::getLost).tag("result", "spool-lost")
+                    .description("Readings passing through the write-behind queue").register(meterRegistry);
+            FunctionCounter.builder("temperature.ingest.readings", spool, IngestSpool::getRejected).tag("result", "spool-rejected")
+                    .description("Readings passing through the write-behind queue").register(meterRegistry);
+        }
+    }
+
+    private void registerCounter(String result, ToDoubleFunction<TemperatureWriteBehindQueue> counter) {
+        FunctionCounter.builder("temperature.ingest.readings", this, counter).tag("result", result)
+                .description("Readings passing through the write-behind queue").register(meterRegistry);
+    }
+
+    private boolean isSpooled() {
+        return spool != null && spool.isEnabled();
+    }
+
+    public boolean submit(TemperatureReading reading) throws InterruptedException {
+        // Queues a reading for persistence. Returns false if the queue has been shut down.
+        if (isSpooled() && spool.append(reading) == 0) {
+            return running;
+            // Not spooled (ingest.spool.overflow=DROP_NEWEST while the spool is full): not queued either.
+        }
+        lock.lock();
+        try {
+            if (!running) {
+                return false;
+            }
+            if (size == capacity && isSpooled()) {
+                ring[head] = null;
+                head = (head + 1) % capacity;
+                size--;
+                spilled++;
+                // The reading is in the spool and is replayed from there, so memory never blocks the reader.
+            } else if (size == capacity) {
+                switch (backpressurePolicy) {
+                    case BLOCK:
+                        while (size == capacity && running) {
+                            notFull.await();
+                        }
+                        if (!running) {
+                            return false;
+                        }
+                        break;
+                    case DROP_OLDEST:
+                        ring[head] = null;
+                        head = (head + 1) % capacity;
+                        size--;
+                        dropped++;
+                        break;
+                    case COALESCE:
+                        int slot = findNewestOfSensor(reading.getSensorId());
+                        if (slot >= 0) {
+                            ring[slot] = reading;
+                            coalesced++;
+                            submitted++;
+                            return true;
+                            // The slot keeps its original queue time, so the max-age deadline does not move.
+                        }
+                        ring[head] = null;
+                        head = (head + 1) % capacity;
+                        size--;
+                        dropped++;
+                        break;
+                        // No recent reading of this sensor is queued, so the oldest reading makes room instead.
+                }
+            }
+            int tail = (head + size) % capacity;
+            ring[tail] = reading;
+            enqueuedAtNanos[tail] = System.nanoTime();
+            size++;
+            submitted++;
+            if (size == 1 || size == batchSize) {
+                notEmpty.signal();
+                // Wakes the flusher only when it has something new to decide on.
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int findNewestOfSensor(String sensorId) {
+        // Returns the ring slot of the newest queued reading of the sensor, or -1 if none is found near the tail.
+        int limit = Math.min(size, COALESCE_SCAN_LIMIT);
+        for (int i = 1; i <= limit; i++) {
+            int slot = (head + size - i) % capacity;
+            if (ring[slot].getSensorId().equals(sensorId)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void flushLoop() {
+        List<TemperatureReading> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                if (!takeBatch(batch)) {
+                    return;
+                }
+                if (isSpooled()) {
+                    writeSpooled(batch);
+                } else {
+                    writeBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeSpooled(List<TemperatureReading> batch) throws InterruptedException {
+        // Writes readings strictly in sequence order: the batch from memory if it continues where the last
+        // write ended, otherwise the next readings from the spool (the memory batch is spooled as well).
+        if (nextSequence < 0) {
+            try {
+                nextSequence = Math.max(spool.getWrittenSequence(), temperatureStore.getSpoolCheckpoint(spool.getSpoolId())) + 1;
+            } catch (Exception e) {
+                errorLog.warn("Cannot read the spool checkpoint: {}", e.getMessage());
+                pause();
+                return;
+                // The database is not reachable yet; the readings wait in the spool.
+            }
+        }
+        batch.sort((a, b) -> Long.compare(a.getIngestSequence(), b.getIngestSequence()));
+        // Two readers may queue their readings in the opposite order of their sequences.
+        batch.removeIf(reading -> reading.getIngestSequence() < nextSequence);
+        // Already written by a replay.
+        if (batch.isEmpty() ? spool.getLastSequence() >= nextSequence : batch.get(0).getIngestSequence() != nextSequence) {
+            batch.clear();
+            try {
+                batch.addAll(spool.read(nextSequence, batchSize));
+            } catch (Exception e) {
+                errorLog.warn("Cannot read the spool: {}", e.getMessage());
+                pause();
+                return;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (batch.get(0).getIngestSequence() != nextSequence) {
+                System.err.println("Spool: readings " + nextSequence + " to " + (batch.get(0).getIngestSequence() - 1)
+                        + " were dropped (ingest.spool.overflow) and are lost.");
+            }
+        } else {
+            for (int i = 1; i < batch.size(); i++) {
+                if (batch.get(i).getIngestSequence() != nextSequence + i) {
+                    batch.subList(i, batch.size()).clear();
+                    break;
+                }
+            }
+            // Only the contiguous prefix is written: the missing reading was spooled by another reader that has not
+            // queued it yet. Acknowledging past it would discard it when it arrives; the readings after the gap are
+            // read back from the spool instead.
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        long last = batch.get(batch.size() - 1).getIngestSequence();
+        if (!writeBatch(batch, last)) {
+            pause();
+            return;
+            // Stays at nextSequence: the same readings are read from the spool on the next attempt.
+        }
+        nextSequence = last + 1;
+        try {
+            spool.acknowledge(last);
+        } catch (Exception e) {
+            errorLog.warn("Cannot update the spool checkpoint: {}", e.getMessage());
+            // The database checkpoint is authoritative; the segments are released with the next batch.
+        }
+    }
+
+    private void pause() throws InterruptedException {
+        // Waits ingest.spool.retry-ms, or less if the queue is shutting down.
+        lock.lock();
+        try {
+            if (running) {
+                notFull.await(retryMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean takeBatch(List<TemperatureReading> batch) throws InterruptedException {
+        // Waits until a batch is due (full, too old or shutting down) and moves it out of the ring.
+        // Returns false once the queue is shut down and empty. With the spool the wait ends after
+        // ingest.spool.retry-ms with an empty batch, so spooled readings are replayed without new ones arriving.
+        lock.lock();
+        try {
+            while (size == 0) {
+                if (!running) {
+                    return false;
+                }
+                if (isSpooled()) {
+                    if (!notEmpty.await(retryMillis, TimeUnit.MILLISECONDS) && size == 0) {
+                        return true;
+                    }
+                } else {
+                    notEmpty.await();
+                }
+            }
+            long deadline = enqueuedAtNanos[head] + TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+            long remaining;
+            while (size < batchSize && running && (remaining = deadline - System.nanoTime()) > 0) {
+                notEmpty.awaitNanos(remaining);
+            }
+            int count = Math.min(size, batchSize);
+            for (int i = 0; i < count; i++) {
+                batch.add(ring[head]);
+                ring[head] = null;
+                head = (head + 1) % capacity;
+            }
+            size -= count;
+            notFull.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeBatch(List<TemperatureReading> batch) {
+        writeBatch(batch, 0);
+    }
+
+    private boolean writeBatch(List<TemperatureReading> batch, long lastSequence) {
+        // Returns false if the batch could not be written. lastSequence > 0 also records the spool checkpoint.
+        long start = System.nanoTime();
+        try {
+            if (lastSequence > 0) {
+                temperatureStore.append(batch, spool.getSpoolId(), lastSequence);
+            } else {
+                temperatureStore.append(batch);
+            }
+            long now = System.currentTimeMillis();
+            appendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            for (TemperatureReading reading : batch) {
+                lagTimer.record(Math.max(0, now - EpochTime.toEpochMillis(reading.getTimestamp())), TimeUnit.MILLISECONDS);
+                // The timestamp is the time of arrival at the serial port (see TemperatureService.recordTemperature).
+            }
+            written += batch.size();
+            return true;
+        } catch (Exception e) {
+            failed += batch.size();
+            errorLog.warn("Error saving {} temperatures: {}", batch.size(), e.getMessage());
+            // At most one message per interval, not one per failed batch or reading.
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Stops accepting readings and waits for the flusher to write everything that is still queued.
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join(shutdownTimeoutMillis);
+        if (flusher.isAlive() && isSpooled()) {
+            System.out.println("Write-behind queue not drained within " + shutdownTimeoutMillis + " ms; "
+                    + spool.getBacklog() + " readings stay in the spool and are written after the next start.");
+        } else if (flusher.isAlive()) {
+            System.err.println("Write-behind queue not drained within " + shutdownTimeoutMillis + " ms, "
+                    + getQueueDepth() + " readings lost.");
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getSpilled() {
+        return spilled;
+    }
+    // Readings moved out of the full memory queue because they wait in the spool.
+}
+
+/*
+Flush rules:
+    The flusher thread writes a batch when batch-size readings are queued, or when the oldest queued reading
+    has waited max-age-ms. At 0.1 Hz a reading reaches the database after max-age-ms; at high rates the
+    batches fill up and are written back to back.
+
+Spool (ingest.spool.enabled, see IngestSpool):
+    submit() appends every reading to the spool before it is queued. The flusher writes readings in sequence
+    order with TemperatureStore.append(readings, spoolId, lastSequence) and then acknowledges them to the spool.
+    A failed batch is not counted as lost: the flusher waits ingest.spool.retry-ms and reads the same readings
+    back from the spool, as it does for readings that left the full memory queue (counted as spilled) and for
+    readings spooled before a restart. Ingest never waits for the database; only ingest.spool.overflow=BLOCK
+    makes it wait, for the disk limit.
+
+Backpressure (ingest.write-behind.backpressure, without the spool):
+    BLOCK       - the serial reader waits for the flusher (no data loss, ingest slows down to the database).
+    DROP_OLDEST - the oldest queued reading is dropped (ingest never waits, the newest data is kept).
+    COALESCE    - the newest queued reading of the same sensor is overwritten (ingest never waits, samples
+                  are thinned out per sensor).
+
+Metrics (GET /actuator/metrics/<name>, or /actuator/prometheus):
+    temperature.ingest.queue.depth  - readings waiting in the queue
+    temperature.ingest.readings     - submitted/written/dropped/coalesced/failed/spilled readings,
+                                      spool-lost/spool-rejected by ingest.spool.overflow
+    temperature.ingest.spool.backlog, temperature.ingest.spool.bytes - spooled readings not yet written, spool size
+    temperature.ingest.compressed   - readings the IngestCompressor did not store (they never reach the queue)
+    temperature.store.append        - latency of one batch write (histogram)
+    temperature.ingest.lag          - serial read to commit, per reading (histogram)
+
+Shutdown:
+    @PreDestroy stops accepting readings and waits up to shutdown-timeout-ms until every queued
+    reading has been written. With the spool, anything left over is written after the next start.
+*/
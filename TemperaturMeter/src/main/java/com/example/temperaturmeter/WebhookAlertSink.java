@@ -0,0 +1,59 @@
+package com.example.temperaturmeter;
+import com.fasterxml.jackson.core.JsonProcessingException;// Imports the exception thrown when an event cannot be serialized.
+import com.fasterxml.jackson.databind.ObjectMapper;// Imports Spring Boot's configured ObjectMapper, used to serialize the events.
+import org.slf4j.LoggerFactory;// Imports the SLF4J LoggerFactory for the rate-limited log of failed deliveries.
+import org.springframework.beans.factory.annotation.Value;// Imports the @Value annotation to inject values from application properties.
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;// Imports @ConditionalOnProperty, which creates this sink only when alerts.webhook.url is set.
+import org.springframework.stereotype.Component;// Imports the @Component annotation, marking this class as a Spring-managed bean.
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@ConditionalOnProperty(name = "alerts.webhook.url")
+// POSTs every alert as JSON to alerts.webhook.url (e.g. a chat or paging integration).
+// Requests are sent asynchronously, so a slow endpoint does not hold up the other sinks.
+public class WebhookAlertSink implements AlertSink {
+
+    private final URI url;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client;
+
+    private final RateLimitedLog failureLog = new RateLimitedLog(LoggerFactory.getLogger(WebhookAlertSink.class), 1, TimeUnit.MINUTES);
+
+    public WebhookAlertSink(@Value("${alerts.webhook.url}") String url,
+                            @Value("${alerts.webhook.timeout:5s}") Duration timeout,
+                            ObjectMapper objectMapper) {
+        this.url = URI.create(url);
+        this.timeout = timeout;
+        this.objectMapper = objectMapper;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public void deliver(AlertEngine.AlertEvent event) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize alert " + event, e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error != null) {
+                failureLog.warn("Alert webhook {} failed for {}: {}", url, event.rule(), error.toString());
+            } else if (response.statusCode() >= 300) {
+                failureLog.warn("Alert webhook {} answered {} for {}", url, response.statusCode(), event.rule());
+            }
+            // Not retried: the alert is still in the log, on the live feed and in /api/v1/alerts.
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.temperaturmeter;
+
+public class WindowStatistics {
+    // Aggregates of the readings in one time window: count, minimum, maximum and average temperature.
+    // Min, max and average are null when the window holds no readings.
+
+    public static final WindowStatistics EMPTY = new WindowStatistics(0L, null, null, null);
+
+    private final long count;
+    private final Double minTemperature;
+    private final Double maxTemperature;
+    private final Double averageTemperature;
+
+    public WindowStatistics(Long count, Double minTemperature, Double maxTemperature, Double averageTemperature) {
+        // Also used by the JPQL constructor expression in TemperatureReadingRepository (COUNT is a Long there).
+        this.count = count == null ? 0 : count;
+        this.minTemperature = minTemperature;
+        this.maxTemperature = maxTemperature;
+        this.averageTemperature = averageTemperature;
+    }
+
+    public WindowStatistics merge(WindowStatistics other) {
+        // Combines the statistics of two disjoint parts of a window (e.g. archived and recent readings).
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        long total = count + other.count;
+        return new WindowStatistics(total,
+                Math.min(minTemperature, other.minTemperature),
+                Math.max(maxTemperature, other.maxTemperature),
+                (averageTemperature * count + other.averageTemperature * other.count) / total);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Double getMinTemperature() {
+        return minTemperature;
+    }
+
+    public Double getMaxTemperature() {
+        return maxTemperature;
+    }
+
+    public Double getAverageTemperature() {
+        return averageTemperature;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertEngineTest {
+
+    private final List<AlertEngine.AlertEvent> events = new ArrayList<>();
+
+    private AlertEngine engine(String rules) {
+        return new AlertEngine(rules, List.of(event -> {
+            synchronized (events) {
+                events.add(event);
+            }
+        }));
+    }
+
+    private List<String> delivered(AlertEngine engine) throws InterruptedException {
+        engine.shutdown();
+        // Waits for the delivery thread.
+        List<String> states = new ArrayList<>();
+        for (AlertEngine.AlertEvent event : events) {
+            states.add(event.sensorId() + " " + event.state() + " " + event.temperature());
+        }
+        return states;
+    }
+
+    @Test
+    void thresholdFiresOnceAndResolvesBelowTheClearLevel() throws InterruptedException {
+        AlertEngine engine = engine("freezer:above:-15:-17");
+        double[] readings = {-18, -15.5, -15, -14, -15.2, -16, -15, -17.5, -16};
+        // Warms up to -14 °C, hovers around the limit, then cools down below the clear level.
+        for (int i = 0; i < readings.length; i++) {
+            engine.evaluate("freezer", i * 1000L, readings[i]);
+            engine.evaluate("kitchen", i * 1000L, readings[i]);
+            // Another sensor, no rule.
+        }
+        assertEquals(0, engine.getActive().size());
+        assertEquals(List.of("freezer FIRING -15.0", "freezer RESOLVED -17.5"), delivered(engine));
+    }
+
+    @Test
+    void rateOfChangeWithinTheWindow() throws InterruptedException {
+        AlertEngine engine = engine("*:rate:2:60s,*:rate:-3:60s");
+        long t = 0;
+        for (int i = 0; i < 10; i++) {
+            engine.evaluate("kitchen", t += 10_000, 20 + i * 0.1);
+            // A slow rise of 0.6 °C per minute.
+        }
+        engine.evaluate("kitchen", t += 10_000, 22.5);
+        // The window holds the last 60 s (20.4 .. 20.9), so the rise is 2.1 °C.
+        assertEquals(1, engine.getActive().size());
+        engine.evaluate("kitchen", t += 10_000, 22.5);
+        engine.evaluate("kitchen", t += 60_000, 22.4);
+        // The window only holds 22.4 now: the rise is gone.
+        engine.evaluate("kitchen", t += 10_000, 19.0);
+        // A drop of 3.4 °C within 10 s.
+        assertEquals(List.of("kitchen FIRING 22.5", "kitchen RESOLVED 22.4", "kitchen FIRING 19.0"), delivered(engine));
+        assertEquals("*:rate:-3:60s", events.get(2).rule());
+    }
+
+    @Test
+    void silentSensorGoesStaleAndRecovers() throws InterruptedException {
+        AlertEngine engine = engine("freezer:stale:30s");
+        engine.evaluate("freezer", 1_000, -18);
+        engine.checkStale(20_000);
+        engine.checkStale(31_000);
+        engine.checkStale(45_000);
+        // Fires once.
+        assertEquals(1, engine.getActive().size());
+        engine.evaluate("freezer", 50_000, -18);
+        List<String> states = delivered(engine);
+        assertEquals(List.of("freezer FIRING null", "freezer RESOLVED -18.0"), states);
+        assertNull(events.get(0).temperature());
+        assertTrue(events.get(0).message().contains("no reading for 30 s"));
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThrows(IllegalStateException.class, () -> AlertRule.parse("freezer:above"));
+        assertThrows(IllegalStateException.class, () -> AlertRule.parse("freezer:above:-15:-10"));
+        // The clear level of an upper limit must be below it.
+        assertThrows(IllegalStateException.class, () -> AlertRule.parse("freezer:hot:30"));
+        assertThrows(IllegalStateException.class, () -> AlertRule.parse("freezer:rate:2"));
+        assertThrows(IllegalStateException.class, () -> AlertRule.parse("freezer:stale:soon"));
+        assertEquals(-15.0, AlertRule.parse(" freezer:above:-15 ").getClear());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesAndReadsBlocksOfSeveralSensors() throws Exception {
+        long[] ids = {1, 3, 5};
+        long[] millis = {1000, 11000, 21000};
+        ArchiveSegment.Block kitchen = ArchiveSegment.Block.encode("kitchen", ids, millis, new float[]{20.5f, 20.5f, 21f}, 3);
+        ArchiveSegment.Block garage = ArchiveSegment.Block.encode("garage", new long[]{2}, new long[]{2000}, new float[]{-3f}, 1);
+        Path file = directory.resolve("2024-10-01.seg");
+        ArchiveSegment.write(file, List.of(kitchen, garage));
+
+        ArchiveSegment segment = ArchiveSegment.open(file);
+        assertNull(segment.getBlock("attic"));
+        ArchiveSegment.Block block = segment.getBlock("kitchen");
+        assertEquals(3, block.count);
+        assertEquals(1000, block.firstMillis);
+        assertEquals(21000, block.lastMillis);
+        assertEquals(20.5f, block.minTemperature);
+        assertEquals(21f, block.maxTemperature);
+        assertEquals(62.0, block.sumTemperature, 1e-9);
+
+        GorillaCodec.Reader reader = segment.read(block);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(reader.next());
+            assertEquals(ids[i], reader.getId());
+            assertEquals(millis[i], reader.getEpochMillis());
+        }
+        assertFalse(reader.next());
+
+        reader = segment.read(segment.getBlock("garage"));
+        assertTrue(reader.next());
+        assertEquals(-3f, reader.getTemperature());
+    }
+}
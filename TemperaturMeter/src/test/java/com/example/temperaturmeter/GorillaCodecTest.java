@@ -0,0 +1,73 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GorillaCodecTest {
+
+    private static final long START = 1727776800000L;
+    // 2024-10-01T10:00:00Z
+
+    @Test
+    void roundTripsIrregularSeries() {
+        Random random = new Random(11);
+        int count = 5000;
+        long[] ids = new long[count];
+        long[] millis = new long[count];
+        float[] temperatures = new float[count];
+        long id = 1;
+        long time = START;
+        for (int i = 0; i < count; i++) {
+            id += 1 + random.nextInt(i % 100 == 0 ? 100000 : 20);
+            time += random.nextInt(i % 50 == 0 ? 10_000_000 : 20_000);
+            ids[i] = id;
+            millis[i] = time;
+            temperatures[i] = i % 7 == 0 ? temperatures[Math.max(0, i - 1)] : (float) (random.nextGaussian() * 30);
+        }
+        temperatures[10] = Float.NaN;
+        temperatures[11] = -0.0f;
+
+        GorillaCodec.Reader reader = new GorillaCodec.Reader(ByteBuffer.wrap(GorillaCodec.encode(ids, millis, temperatures, count)));
+        assertEquals(count, reader.getCount());
+        for (int i = 0; i < count; i++) {
+            assertTrue(reader.next());
+            assertEquals(ids[i], reader.getId());
+            assertEquals(millis[i], reader.getEpochMillis());
+            assertEquals(Float.floatToIntBits(temperatures[i]), Float.floatToIntBits(reader.getTemperature()));
+        }
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void compressesRegularDayAtLeastTenfold() {
+        // One day of one sensor at a 10 s cadence, whole-second timestamps with occasional 1 s jitter,
+        // 0.1 degree resolution and slowly changing values; ids interleaved with 3 other sensors.
+        int count = 8640;
+        long[] ids = new long[count];
+        long[] millis = new long[count];
+        float[] temperatures = new float[count];
+        Random random = new Random(3);
+        for (int i = 0; i < count; i++) {
+            ids[i] = 1000 + i * 4L;
+            millis[i] = START + i * 10_000L + (random.nextInt(20) == 0 ? 1000 : 0);
+            temperatures[i] = Math.round((21 + 3 * Math.sin(i / 1440.0 * Math.PI)) * 10) / 10f;
+        }
+        byte[] block = GorillaCodec.encode(ids, millis, temperatures, count);
+        int rowBytes = count * (8 + 4 + 4);
+        // BIGINT id + FLOAT + TIMESTAMP, without any row or index overhead.
+        assertTrue(block.length * 10 <= rowBytes, "block of " + block.length + " bytes for " + rowBytes + " bytes of rows");
+
+        GorillaCodec.Reader reader = new GorillaCodec.Reader(ByteBuffer.wrap(block));
+        for (int i = 0; i < count; i++) {
+            assertTrue(reader.next());
+            assertEquals(millis[i], reader.getEpochMillis());
+            assertEquals(temperatures[i], reader.getTemperature());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.temperaturmeter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestCompressorTest {
+
+    private static final long START = 1_727_784_000_000L;
+    private static final long PERIOD = 10_000;
+
+    private static TemperatureReading reading(String sensorId, long epochMillis, double temperature) {
+        TemperatureReading reading = new TemperatureReading();
+        reading.setSensorId(sensorId);
+        reading.setTimestamp(EpochTime.toLocalDateTime(epochMillis));
+        reading.setTemperature(temperature);
+        return reading;
+    }
+
+    private static List<TemperatureReading> day(String sensorId) {
+        // A room over one day, read every 10 s: a slow daily swing of ±3 °C plus ±0.1 °C of sensor noise.
+        Random random = new Random(42);
+        List<TemperatureReading> readings = new ArrayList<>();
+        for (long t = START; t < START + 86_400_000L; t += PERIOD) {
+            double hours = (t - START) / 3_600_000.0;
+            double temperature = 21 + 3 * Math.sin(hours / 24 * 2 * Math.PI) + (random.nextDouble() - 0.5) * 0.2;
+            readings.add(reading(sensorId, t, Math.round(temperature * 100) / 100.0));
+        }
+        return readings;
+    }
+
+    private static void assertRebuiltWithinTolerance(String spec, double tolerance, int minimumRatio) {
+        IngestCompressor compressor = new IngestCompressor("none", "room=" + spec, Duration.ofMinutes(15));
+        List<TemperatureReading> readings = day("room");
+        List<TemperatureReading> stored = new ArrayList<>();
+        for (TemperatureReading reading : readings) {
+            stored.addAll(compressor.offer(reading));
+        }
+        stored.addAll(compressor.flush());
+        assertEquals(readings.size(), compressor.getReceived());
+        assertEquals(stored.size(), compressor.getStored());
+        assertTrue(readings.size() >= minimumRatio * stored.size(), spec + " stored " + stored.size() + " of " + readings.size());
+
+        ReadingColumns rebuilt = IngestCompressor.resample("room", stored, START, START + 86_400_000L, PERIOD,
+                compressor.isInterpolated("room"), compressor.getMaxGapMillis());
+        assertEquals(readings.size(), rebuilt.size());
+        float[] temperatures = rebuilt.getTemperatures();
+        for (int i = 0; i < readings.size(); i++) {
+            assertEquals(readings.get(i).getTemperature(), temperatures[i], tolerance + 1e-4, spec + " at reading " + i);
+        }
+    }
+
+    @Test
+    void deadbandRebuildsEveryReadingWithinTheTolerance() {
+        assertRebuiltWithinTolerance("deadband:0.25", 0.25, 5);
+    }
+
+    @Test
+    void swingingDoorRebuildsEveryReadingWithinTheTolerance() {
+        assertRebuiltWithinTolerance("swinging-door:0.25", 0.25, 20);
+        // Straight lines follow the slow swing much better than held values.
+    }
+
+    @Test
+    void uncompressedSensorsStoreEveryReading() {
+        IngestCompressor compressor = new IngestCompressor("none", "room=deadband:0.5", Duration.ofMinutes(15));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1, compressor.offer(reading("kitchen", START + i * PERIOD, 20)).size());
+        }
+        assertEquals(0, compressor.getCompressed());
+        assertEquals(0, compressor.flush().size());
+    }
+
+    @Test
+    void compressedReadingsHaveTheirOwnMeter() {
+        IngestCompressor compressor = new IngestCompressor("deadband:1", "", Duration.ofMinutes(15));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(compressor, "meterRegistry", registry);
+        compressor.registerMetrics();
+        for (int i = 0; i < 10; i++) {
+            compressor.offer(reading("kitchen", START + i * PERIOD, 20));
+        }
+        assertEquals(compressor.getCompressed(), registry.get("temperature.ingest.compressed").functionCounter().count());
+        assertTrue(compressor.getCompressed() > 0);
+        assertNull(registry.find("temperature.ingest.readings").meter());
+        // Not a result of the write-behind queue's counter.
+    }
+
+    @Test
+    void aPointIsStoredAtLeastEveryMaxInterval() {
+        IngestCompressor compressor = new IngestCompressor("deadband:1", "", Duration.ofMinutes(1));
+        int stored = 0;
+        for (int i = 0; i < 60; i++) {
+            stored += compressor.offer(reading("kitchen", START + i * PERIOD, 20)).size();
+        }
+        assertEquals(10, stored);
+        // A constant temperature for 10 minutes: the first reading and one per minute.
+    }
+
+    @Test
+    void resampleLeavesGapsAndTheFutureEmpty() {
+        List<TemperatureReading> points = List.of(
+                reading("kitchen", START, 20),
+                reading("kitchen", START + 60_000, 21),
+                reading("kitchen", START + 3_600_000, 25));
+        // An outage of almost an hour after the second point.
+        ReadingColumns linear = IngestCompressor.resample("kitchen", points, START - 30_000, START + 3_660_000, 30_000, true, 1_800_000);
+        assertArrayEquals(new long[] {START, START + 30_000, START + 60_000, START + 3_600_000}, linear.getEpochMillis());
+        assertArrayEquals(new float[] {20, 20.5f, 21, 25}, linear.getTemperatures());
+        ReadingColumns held = IngestCompressor.resample("kitchen", points, START, START + 90_000, 30_000, false, 1_800_000);
+        assertArrayEquals(new float[] {20, 20, 21}, held.getTemperatures());
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        assertThrows(IllegalStateException.class, () -> IngestCompressor.Settings.parse("deadband"));
+        assertThrows(IllegalStateException.class, () -> IngestCompressor.Settings.parse("deadband:-1"));
+        assertThrows(IllegalStateException.class, () -> IngestCompressor.Settings.parse("zip:0.5"));
+        assertThrows(IllegalStateException.class, () -> new IngestCompressor("none", "kitchen", Duration.ofMinutes(1)));
+        assertEquals(IngestCompressor.Method.SWINGING_DOOR, IngestCompressor.Settings.parse(" Swinging-Door:0.2 ").method());
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 10, 1, 12, 0);
+
+    private IngestSpool open(long maxBytes, IngestSpool.OverflowPolicy overflow) throws Exception {
+        IngestSpool spool = new IngestSpool(true, directory, 1024, maxBytes, 10, overflow);
+        // Segments of 1 KB: about 25 readings each.
+        spool.open();
+        return spool;
+    }
+
+    private static TemperatureReading reading(String sensorId, int i) {
+        TemperatureReading reading = new TemperatureReading();
+        reading.setSensorId(sensorId);
+        reading.setTimestamp(START.plusSeconds(i));
+        reading.setTemperature(20 + i / 100.0);
+        return reading;
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("spool-")).count();
+        }
+    }
+
+    private static List<Long> sequences(List<TemperatureReading> readings) {
+        List<Long> sequences = new ArrayList<>();
+        for (TemperatureReading reading : readings) {
+            sequences.add(reading.getIngestSequence());
+        }
+        return sequences;
+    }
+
+    @Test
+    void replaysInOrderAndDeletesWrittenSegments() throws Exception {
+        IngestSpool spool = open(1024 * 1024, IngestSpool.OverflowPolicy.BLOCK);
+        for (int i = 1; i <= 200; i++) {
+            assertEquals(i, spool.append(reading(i % 2 == 0 ? "kitchen" : "freezer", i)));
+        }
+        assertTrue(segmentCount() > 5);
+
+        List<TemperatureReading> first = spool.read(1, 50);
+        assertEquals(50, first.size());
+        assertEquals(1, first.get(0).getIngestSequence());
+        assertEquals("freezer", first.get(0).getSensorId());
+        assertEquals(START.plusSeconds(1), first.get(0).getTimestamp());
+        assertEquals(20.01, first.get(0).getTemperature());
+        assertEquals(sequences(first), sequences(spool.read(1, 50)));
+        // A failed batch is read again from its first sequence.
+        spool.acknowledge(50);
+
+        List<TemperatureReading> rest = spool.read(51, 1000);
+        assertEquals(150, rest.size());
+        assertEquals(200, rest.get(149).getIngestSequence());
+        spool.acknowledge(200);
+        assertEquals(0, spool.getBacklog());
+        spool.sync();
+        // Written segments are deleted by the sync thread; sync() runs its round right away.
+        assertEquals(1, segmentCount());
+        // Only the current segment is kept.
+        spool.close();
+    }
+
+    @Test
+    void appendedRecordsAreWrittenByTheNextSync() throws Exception {
+        IngestSpool spool = new IngestSpool(true, directory, 1024, 1024 * 1024, 60_000, IngestSpool.OverflowPolicy.BLOCK);
+        spool.open();
+        // The sync thread would only run after a minute.
+        spool.append(reading("kitchen", 1));
+        spool.append(reading("kitchen", 2));
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.getFileName().toString().startsWith("spool-")).findFirst().orElseThrow();
+        }
+        assertEquals(0, Files.size(segment));
+        // Buffered in memory: append does no file I/O besides creating the segment.
+        spool.sync();
+        assertEquals(2 * (34 + "kitchen".length()), Files.size(segment));
+        // Both records in one write, right before the fsync.
+        spool.append(reading("kitchen", 3));
+        assertEquals(3, spool.read(1, 10).size());
+        // A replay writes out the buffered records first.
+        spool.close();
+    }
+
+    @Test
+    void restartKeepsUnwrittenReadingsAndCutsOffATornRecord() throws Exception {
+        IngestSpool spool = open(1024 * 1024, IngestSpool.OverflowPolicy.BLOCK);
+        for (int i = 1; i <= 60; i++) {
+            spool.append(reading("kitchen", i));
+        }
+        spool.acknowledge(30);
+        spool.close();
+        Path last;
+        try (Stream<Path> files = Files.list(directory)) {
+            last = files.filter(path -> path.getFileName().toString().startsWith("spool-")).sorted().reduce((a, b) -> b).orElseThrow();
+        }
+        Files.write(last, new byte[] {0, 0, 0, 40, 0, 0, 0}, StandardOpenOption.APPEND);
+        // A record cut short by a crash.
+
+        spool = open(1024 * 1024, IngestSpool.OverflowPolicy.BLOCK);
+        assertEquals(30, spool.getWrittenSequence());
+        assertEquals(60, spool.getLastSequence());
+        assertEquals(61, spool.append(reading("kitchen", 61)));
+        List<TemperatureReading> unwritten = spool.read(31, 1000);
+        assertEquals(31, unwritten.size());
+        assertEquals(31, unwritten.get(0).getIngestSequence());
+        assertEquals(61, unwritten.get(30).getIngestSequence());
+        spool.close();
+    }
+
+    @Test
+    void overflowPolicies() throws Exception {
+        IngestSpool dropOldest = open(4 * 1024, IngestSpool.OverflowPolicy.DROP_OLDEST);
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(i, dropOldest.append(reading("kitchen", i)));
+        }
+        assertTrue(dropOldest.getBytes() <= 4 * 1024);
+        List<TemperatureReading> kept = dropOldest.read(1, 1000);
+        assertEquals(1000, kept.get(kept.size() - 1).getIngestSequence());
+        assertEquals(kept.get(0).getIngestSequence() - 1, dropOldest.getLost());
+        // Everything before the oldest retained reading was dropped unwritten.
+        List<Long> sequences = sequences(kept);
+        for (int i = 1; i < sequences.size(); i++) {
+            assertEquals(sequences.get(i - 1) + 1, sequences.get(i));
+        }
+        dropOldest.close();
+    }
+
+    @Test
+    void dropNewestRejectsUntilThereIsRoom() throws Exception {
+        IngestSpool spool = open(4 * 1024, IngestSpool.OverflowPolicy.DROP_NEWEST);
+        long accepted = 0;
+        for (int i = 1; i <= 1000; i++) {
+            if (spool.append(reading("kitchen", i)) > 0) {
+                accepted++;
+            }
+        }
+        assertEquals(1000 - accepted, spool.getRejected());
+        assertEquals(accepted, spool.getLastSequence());
+        // Rejected readings get no sequence, so the sequences stay contiguous.
+        spool.acknowledge(accepted);
+        assertTrue(spool.append(reading("kitchen", 1001)) > 0);
+        spool.close();
+    }
+}
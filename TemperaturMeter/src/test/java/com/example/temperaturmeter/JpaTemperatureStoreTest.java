@@ -0,0 +1,100 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Reads columns from a part-archived range: the archive on disk and temp_reading in an embedded H2 database in MySQL mode.
+class JpaTemperatureStoreTest {
+
+    private static final LocalDateTime DAY = LocalDate.now().minusDays(3).atStartOfDay();
+    private static final LocalDateTime TODAY = LocalDate.now().atStartOfDay();
+
+    @TempDir
+    Path directory;
+
+    private JdbcTemplate jdbcTemplate;
+    private JpaTemperatureStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:jpa-store-" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE temp_reading (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "sensor_id VARCHAR(64) NOT NULL DEFAULT 'default', temperature FLOAT NOT NULL, timestamp TIMESTAMP)");
+        TemperatureArchive archive = new TemperatureArchive(directory.toString());
+        archive.open();
+
+        for (int i = 0; i < 6; i++) {
+            insert("kitchen", DAY.plusMinutes(10L * i), 20 + i);
+        }
+        insert("garage", DAY.plusHours(1), 5);
+        for (int i = 0; i < 4; i++) {
+            insert("kitchen", TODAY.plusMinutes(i), 30 + i);
+        }
+        new TemperatureArchiveCompactor(jdbcTemplate, archive, true, 1).compact();
+        // DAY is moved to the archive, today's readings stay in the database.
+
+        store = new JpaTemperatureStore();
+        ReflectionTestUtils.setField(store, "temperatureArchive", archive);
+        ReflectionTestUtils.setField(store, "jdbcTemplate", jdbcTemplate);
+        // The two collaborators findColumnsBetween uses; Spring injects them in the application.
+    }
+
+    private void insert(String sensorId, LocalDateTime timestamp, double temperature) {
+        jdbcTemplate.update("INSERT INTO temp_reading (sensor_id, temperature, timestamp) VALUES (?, ?, ?)",
+                sensorId, temperature, Timestamp.valueOf(timestamp));
+    }
+
+    private static List<Float> temperatures(ReadingColumns columns) {
+        List<Float> temperatures = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            temperatures.add(columns.getTemperatures()[i]);
+        }
+        return temperatures;
+    }
+
+    @Test
+    void columnsContinueFromTheArchiveIntoTheDatabase() {
+        ReadingColumns columns = store.findColumnsBetween("kitchen", DAY, TODAY.plusDays(1), Integer.MAX_VALUE);
+        assertEquals(List.of(20f, 21f, 22f, 23f, 24f, 25f, 30f, 31f, 32f, 33f), temperatures(columns));
+        assertEquals(EpochTime.toEpochMillis(DAY), columns.getEpochMillis()[0]);
+        assertEquals(EpochTime.toEpochMillis(DAY.plusMinutes(50)), columns.getEpochMillis()[5]);
+        assertEquals(EpochTime.toEpochMillis(TODAY), columns.getEpochMillis()[6]);
+        // Oldest first across the boundary, with the same epoch millis from both tiers.
+
+        assertEquals(List.of(5f), temperatures(store.findColumnsBetween("garage", DAY, TODAY.plusDays(1), Integer.MAX_VALUE)));
+        assertEquals(List.of(31f, 32f), temperatures(store.findColumnsBetween("kitchen", TODAY.plusMinutes(1), TODAY.plusMinutes(3), 10)));
+        // A range after the archive is read from the database only.
+    }
+
+    @Test
+    void limitIsAppliedAcrossTheBoundary() {
+        assertEquals(List.of(20f, 21f, 22f, 23f), temperatures(store.findColumnsBetween("kitchen", DAY, TODAY.plusDays(1), 4)));
+        // Reached inside the archive: the database is not queried.
+        assertEquals(List.of(20f, 21f, 22f, 23f, 24f, 25f), temperatures(store.findColumnsBetween("kitchen", DAY, TODAY.plusDays(1), 6)));
+        assertEquals(List.of(20f, 21f, 22f, 23f, 24f, 25f, 30f, 31f), temperatures(store.findColumnsBetween("kitchen", DAY, TODAY.plusDays(1), 8)));
+        // The database part gets what is left of the limit.
+        assertEquals(List.of(23f, 24f, 25f, 30f), temperatures(store.findColumnsBetween("kitchen", DAY.plusMinutes(30), TODAY.plusDays(1), 4)));
+    }
+
+    @Test
+    void lateRowBeforeTheEndOfTheArchiveIsNotReadFromTheDatabase() {
+        insert("kitchen", DAY.plusMinutes(5), 99);
+        // Imported after the day was compacted; the next compaction merges it into the archive.
+        ReadingColumns columns = store.findColumnsBetween("kitchen", DAY, TODAY.plusDays(1), Integer.MAX_VALUE);
+        assertEquals(List.of(20f, 21f, 22f, 23f, 24f, 25f, 30f, 31f, 32f, 33f), temperatures(columns));
+    }
+}
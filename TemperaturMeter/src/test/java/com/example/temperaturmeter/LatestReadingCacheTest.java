@@ -0,0 +1,45 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LatestReadingCacheTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 10, 1, 12, 0);
+
+    @Test
+    void keepsNewestReadingPerSensor() {
+        LatestReadingCache cache = new LatestReadingCache();
+        cache.update("kitchen", 20.5, NOON);
+        cache.update("kitchen", 21.0, NOON.plusSeconds(10));
+        cache.update("kitchen", 19.0, NOON.plusSeconds(5));
+        // A late reading (e.g. from the write-behind queue's retry) does not replace a newer one.
+        cache.update("garage", 5.0, NOON);
+
+        assertEquals(21.0, cache.get("kitchen").temperature());
+        assertEquals(NOON.plusSeconds(10), cache.get("kitchen").timestamp());
+        assertNull(cache.get("attic"));
+        assertEquals(List.of("garage", "kitchen"), List.copyOf(cache.getAll().keySet()));
+    }
+
+    @Test
+    void versionChangesWithEveryNewReading() {
+        LatestReadingCache cache = new LatestReadingCache();
+        assertEquals(0, cache.getVersion());
+        cache.update("kitchen", 20.5, NOON);
+        long kitchen = cache.get("kitchen").version();
+        cache.update("garage", 5.0, NOON);
+
+        assertEquals(kitchen, cache.get("kitchen").version());
+        // The kitchen's ETag stays valid while only the garage changes...
+        assertEquals(2, cache.getVersion());
+        // ...but the ETag of all sensors does not.
+        cache.update("kitchen", 20.5, NOON.minusSeconds(1));
+        assertEquals(2, cache.getVersion());
+    }
+}
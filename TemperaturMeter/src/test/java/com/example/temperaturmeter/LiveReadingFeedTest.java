@@ -0,0 +1,155 @@
+package com.example.temperaturmeter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LiveReadingFeedTest {
+
+    private LiveReadingFeed feed;
+
+    @AfterEach
+    void shutdown() throws Exception {
+        feed.shutdown();
+    }
+
+    private static TemperatureReading reading(String sensorId, double temperature) {
+        TemperatureReading reading = new TemperatureReading();
+        reading.setSensorId(sensorId);
+        reading.setTimestamp(LocalDateTime.of(2024, 10, 1, 12, 0));
+        reading.setTemperature(temperature);
+        return reading;
+    }
+
+    private static class RecordingSink implements LiveReadingFeed.EventSink {
+        // Records "name:sequence" of every event; optionally blocks until released, like a stalled connection.
+        final List<String> events = new ArrayList<>();
+        final CountDownLatch release;
+        volatile boolean closed;
+
+        RecordingSink(boolean stalled) {
+            release = new CountDownLatch(stalled ? 1 : 0);
+        }
+
+        @Override
+        public void send(long sequence, String name, String data) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            synchronized (events) {
+                events.add(name + ":" + sequence);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        List<String> awaitEvents(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (System.nanoTime() < deadline) {
+                synchronized (events) {
+                    if (events.size() >= count) {
+                        return new ArrayList<>(events);
+                    }
+                }
+                Thread.sleep(5);
+            }
+            synchronized (events) {
+                return new ArrayList<>(events);
+            }
+        }
+    }
+
+    @Test
+    void sendsSnapshotThenNewReadingsOfTheSensor() throws Exception {
+        feed = new LiveReadingFeed(360, 256, LiveReadingFeed.SlowConsumerPolicy.DROP_OLDEST, 10, 1, new ObjectMapper());
+        feed.publish(reading("kitchen", 20));
+        feed.publish(reading("kitchen", 21));
+        feed.publish(reading("garage", 5));
+
+        RecordingSink sink = new RecordingSink(false);
+        feed.register("kitchen", null, sink);
+        feed.publish(reading("kitchen", 22));
+        feed.publish(reading("garage", 6));
+        feed.publish(reading("kitchen", 23));
+
+        assertEquals(List.of("snapshot:2", "reading:4", "reading:6"), sink.awaitEvents(3));
+        // The snapshot carries the id of its newest reading; readings of other sensors are not sent.
+        assertEquals(1, feed.getSubscriberCount());
+    }
+
+    @Test
+    void resumesFromLastEventId() throws Exception {
+        feed = new LiveReadingFeed(360, 256, LiveReadingFeed.SlowConsumerPolicy.DROP_OLDEST, 10, 1, new ObjectMapper());
+        for (int i = 0; i < 5; i++) {
+            feed.publish(reading("kitchen", 20 + i));
+        }
+
+        RecordingSink sink = new RecordingSink(false);
+        feed.register(null, 3L, sink);
+
+        assertEquals(List.of("reading:4", "reading:5"), sink.awaitEvents(2));
+    }
+
+    @Test
+    void sendsNewSnapshotWhenMissedReadingsAreGone() throws Exception {
+        feed = new LiveReadingFeed(3, 256, LiveReadingFeed.SlowConsumerPolicy.DROP_OLDEST, 10, 1, new ObjectMapper());
+        for (int i = 0; i < 10; i++) {
+            feed.publish(reading("kitchen", 20 + i));
+        }
+
+        RecordingSink sink = new RecordingSink(false);
+        feed.register(null, 2L, sink);
+
+        assertEquals(List.of("snapshot:10"), sink.awaitEvents(1));
+    }
+
+    @Test
+    void dropsOldestEventsOfSlowSubscriber() throws Exception {
+        feed = new LiveReadingFeed(360, 4, LiveReadingFeed.SlowConsumerPolicy.DROP_OLDEST, 10, 1, new ObjectMapper());
+        RecordingSink slow = new RecordingSink(true);
+        feed.register("kitchen", null, slow);
+        for (int i = 0; i < 100; i++) {
+            feed.publish(reading("kitchen", i));
+        }
+        // The publisher never waits for the stalled subscriber.
+        slow.release.countDown();
+
+        List<String> events = slow.awaitEvents(5);
+        assertTrue(feed.getDropped() >= 90);
+        assertEquals("reading:100", events.get(events.size() - 1));
+    }
+
+    @Test
+    void disconnectsSlowSubscriberAndLimitsSubscribers() throws Exception {
+        feed = new LiveReadingFeed(360, 4, LiveReadingFeed.SlowConsumerPolicy.DISCONNECT, 1, 1, new ObjectMapper());
+        RecordingSink slow = new RecordingSink(true);
+        feed.register("kitchen", null, slow);
+        assertNull(feed.register("garage", null, new RecordingSink(false)));
+        // live.max-subscribers is 1.
+
+        for (int i = 0; i < 10; i++) {
+            feed.publish(reading("kitchen", i));
+        }
+        slow.release.countDown();
+
+        assertTrue(slow.closed);
+        assertEquals(1, feed.getDisconnected());
+        assertEquals(0, feed.getSubscriberCount());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogTemperatureStoreTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 10, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    private LogTemperatureStore open() throws Exception {
+        LogTemperatureStore store = new LogTemperatureStore(directory.toString(), 1, false);
+        // 1 MiB segments (32768 records), so the tests cross segment boundaries.
+        store.open();
+        return store;
+    }
+
+    private static TemperatureReading reading(String sensorId, LocalDateTime timestamp, double temperature) {
+        TemperatureReading reading = new TemperatureReading();
+        reading.setSensorId(sensorId);
+        reading.setTimestamp(timestamp);
+        reading.setTemperature(temperature);
+        return reading;
+    }
+
+    private static void fill(LogTemperatureStore store, int count) {
+        // Two sensors alternating every 5 seconds, appended in batches of 500.
+        List<TemperatureReading> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batch.add(reading(i % 2 == 0 ? "kitchen" : "garage", START.plusSeconds(5L * i), i));
+            if (batch.size() == 500) {
+                store.append(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        store.append(batch);
+    }
+
+    @Test
+    void answersRangeQueriesAcrossSegments() throws Exception {
+        LogTemperatureStore store = open();
+        fill(store, 100_000);
+
+        assertEquals(99_998.0, store.findLast("kitchen").getTemperature());
+        assertNull(store.findLast("attic"));
+
+        List<TemperatureReading> hour = store.findBetween("garage", START.plusHours(100), START.plusHours(101));
+        assertEquals(360, hour.size());
+        assertEquals(START.plusHours(101).minusSeconds(5), hour.get(0).getTimestamp());
+        // Newest first.
+
+        WindowStatistics statistics = store.getStatisticsSince("kitchen", START.plusSeconds(5L * 99_990));
+        assertEquals(5, statistics.getCount());
+        assertEquals(99_990.0, statistics.getMinTemperature());
+        assertEquals(99_998.0, statistics.getMaxTemperature());
+
+        List<TemperatureReading> first = store.findPageBefore("kitchen", START, START.plusDays(30), 0, 3);
+        List<TemperatureReading> second = store.findPageBefore("kitchen", START, first.get(2).getTimestamp(), first.get(2).getId(), 3);
+        assertEquals(99_998.0, first.get(0).getTemperature());
+        assertEquals(99_992.0, second.get(0).getTemperature());
+    }
+
+    @Test
+    void readsColumnsLikeTheReadingScan() throws Exception {
+        LogTemperatureStore store = open();
+        fill(store, 100_000);
+
+        List<TemperatureReading> readings = new ArrayList<>();
+        store.forEachBetween("garage", START.plusHours(50), START.plusHours(80), readings::add);
+        ReadingColumns columns = store.findColumnsBetween("garage", START.plusHours(50), START.plusHours(80), Integer.MAX_VALUE);
+        assertEquals(readings.size(), columns.size());
+        long[] epochMillis = columns.getEpochMillis();
+        float[] temperatures = columns.getTemperatures();
+        for (int i = 0; i < readings.size(); i++) {
+            assertEquals(EpochTime.toEpochMillis(readings.get(i).getTimestamp()), epochMillis[i]);
+            assertEquals(readings.get(i).getTemperature().floatValue(), temperatures[i]);
+        }
+
+        ReadingColumns limited = store.findColumnsBetween("garage", START.plusHours(50), START.plusHours(80), 10);
+        assertEquals(10, limited.size());
+        assertEquals(epochMillis[9], limited.getEpochMillis()[9]);
+        // The first readings of the range, oldest first.
+        assertEquals(0, store.findColumnsBetween("attic", START, START.plusDays(30), 10).size());
+    }
+
+    @Test
+    void findsReadingsAppendedOutOfOrder() throws Exception {
+        LogTemperatureStore store = open();
+        fill(store, 10_000);
+        store.append(List.of(reading("garage", START.plusHours(1).plusSeconds(2), -1)));
+        // A late reading at the end of the log, 12 hours older than the readings before it.
+
+        List<TemperatureReading> hour = store.findBetween("garage", START.plusHours(1), START.plusHours(2));
+        assertEquals(361, hour.size());
+        assertTrue(hour.stream().anyMatch(reading -> reading.getTemperature() == -1));
+        assertEquals(360, store.findBetween("garage", START.plusHours(10), START.plusHours(11)).size());
+
+        List<TemperatureReading> page = store.findPageBefore("garage", START, START.plusHours(1).plusSeconds(10), 0, 3);
+        assertEquals(721.0, page.get(0).getTemperature());
+        assertEquals(-1.0, page.get(1).getTemperature());
+        assertEquals(719.0, page.get(2).getTemperature());
+        // Newest first by timestamp, not by position in the log.
+
+        assertEquals(1, store.findColumnsBetween("garage", START.plusHours(1).plusSeconds(1), START.plusHours(1).plusSeconds(3), 10).size());
+        assertEquals(2, store.getStatisticsSince("garage", START.plusSeconds(5L * 9_996)).getCount());
+    }
+
+    @Test
+    void recoversAfterTornWriteAndKeepsAppending() throws Exception {
+        LogTemperatureStore store = open();
+        fill(store, 1000);
+        store.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(String.format("%020d.log", 1)).toFile(), "rw")) {
+            file.seek(998L * LogSegment.RECORD_BYTES + 20);
+            file.writeInt(12345);
+            // Corrupts the temperature of reading 999: the checksum no longer matches.
+        }
+
+        LogTemperatureStore reopened = open();
+        assertEquals(998, reopened.getRecordCount());
+        reopened.append(List.of(reading("kitchen", START.plusDays(1), 42)));
+        assertEquals(999, reopened.getRecordCount());
+        assertEquals(42.0, reopened.findLast("kitchen").getTemperature());
+        assertEquals(999L, reopened.findLast("kitchen").getId());
+        reopened.close();
+
+        assertEquals(999, open().getRecordCount());
+        // The record that followed the torn one (reading 1000) was cleared and does not come back.
+    }
+
+    @Test
+    void keepsEveryReadingWhenTheSegmentSizeChanges() throws Exception {
+        LogTemperatureStore store = open();
+        fill(store, 40_000);
+        store.close();
+        // Two 1 MiB segments, the second one partly filled.
+
+        LogTemperatureStore larger = new LogTemperatureStore(directory.toString(), 2, false);
+        larger.open();
+        assertEquals(40_000, larger.getRecordCount());
+        larger.append(List.of(reading("kitchen", START.plusDays(10), 42)));
+        fill(larger, 40_000);
+        // Fills the second segment, then continues in a new 2 MiB one.
+        assertTrue(Files.exists(directory.resolve(String.format("%020d.log", 65_537))));
+        larger.close();
+
+        LogTemperatureStore reopened = open();
+        assertEquals(80_001, reopened.getRecordCount());
+        assertEquals(42.0, reopened.findPageBefore("kitchen", START.plusDays(10), START.plusDays(11), 0, 1).get(0).getTemperature());
+        assertEquals(720, reopened.findBetween("garage", START.plusHours(10), START.plusHours(11)).size());
+        // Both fills cover this hour; both segment sizes are read back.
+    }
+
+    @Test
+    void segmentThatDoesNotContinueTheLogFailsStartupAndIsKept() throws Exception {
+        LogTemperatureStore store = open();
+        fill(store, 40_000);
+        store.close();
+        Path second = directory.resolve(String.format("%020d.log", 32_769));
+        Path misplaced = directory.resolve(String.format("%020d.log", 50_000));
+        Files.move(second, misplaced);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, this::open);
+        assertTrue(error.getMessage().contains(misplaced.toString()));
+        assertTrue(Files.exists(misplaced));
+    }
+}
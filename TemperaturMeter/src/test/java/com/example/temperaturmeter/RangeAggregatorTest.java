@@ -0,0 +1,90 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RangeAggregatorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void monthlyBucketsMatchASingleThreadedScan() throws Exception {
+        LogTemperatureStore store = new LogTemperatureStore(directory.toString(), 1, false);
+        store.open();
+        List<TemperatureReading> batch = new ArrayList<>();
+        for (LocalDateTime t = START; t.isBefore(START.plusYears(1)); t = t.plusMinutes(10)) {
+            TemperatureReading reading = new TemperatureReading();
+            reading.setSensorId("kitchen");
+            reading.setTimestamp(t);
+            reading.setTemperature(t.getMonthValue() * 2 + t.getHour() / 10.0);
+            batch.add(reading);
+        }
+        store.append(batch);
+        // A year of readings every 10 minutes; every month has its own range of temperatures.
+
+        RangeAggregator aggregator = new RangeAggregator(store, 4, 2, Duration.ofHours(12), 10_000);
+        List<RangeAggregator.Bucket> months = aggregator.aggregate("kitchen", START.plusDays(10), START.plusYears(1), RangeAggregator.Period.MONTH);
+        assertEquals(12, months.size());
+        assertEquals(START.plusDays(10), months.get(0).start());
+        // The first bucket is cut to the requested range.
+        assertEquals(START.plusMonths(1), months.get(0).end());
+
+        for (RangeAggregator.Bucket month : months) {
+            WindowStatistics expected = WindowStatistics.EMPTY;
+            for (TemperatureReading reading : batch) {
+                if (!reading.getTimestamp().isBefore(month.start()) && reading.getTimestamp().isBefore(month.end())) {
+                    expected = expected.merge(new WindowStatistics(1L, reading.getTemperature(), reading.getTemperature(), reading.getTemperature()));
+                }
+            }
+            assertEquals(expected.getCount(), month.statistics().getCount());
+            assertEquals(expected.getMinTemperature(), month.statistics().getMinTemperature(), 1e-4);
+            assertEquals(expected.getMaxTemperature(), month.statistics().getMaxTemperature(), 1e-4);
+            assertEquals(expected.getAverageTemperature(), month.statistics().getAverageTemperature(), 1e-4);
+        }
+
+        List<RangeAggregator.Bucket> empty = aggregator.aggregate("attic", START, START.plusDays(3), RangeAggregator.Period.DAY);
+        assertEquals(3, empty.size());
+        assertEquals(0, empty.get(2).statistics().getCount());
+        aggregator.shutdown();
+        store.close();
+    }
+
+    @Test
+    void rejectsEmptyAndTooLongRanges() throws Exception {
+        LogTemperatureStore store = new LogTemperatureStore(directory.toString(), 1, false);
+        store.open();
+        RangeAggregator aggregator = new RangeAggregator(store, 2, 2, Duration.ofDays(1), 366);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> aggregator.aggregate("kitchen", START, START, RangeAggregator.Period.DAY));
+        assertThrows(IllegalArgumentException.class,
+                () -> aggregator.aggregate("kitchen", START.plusDays(1), START, RangeAggregator.Period.DAY));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> aggregator.aggregate("kitchen", START, START.plusYears(2), RangeAggregator.Period.MONTH));
+        assertTrue(error.getMessage().contains("aggregation.max-chunks"));
+        assertEquals(12, aggregator.aggregate("kitchen", START, START.plusYears(1), RangeAggregator.Period.MONTH).size());
+        // A year at 1d is 365 chunks, within the limit.
+        aggregator.shutdown();
+        store.close();
+    }
+
+    @Test
+    void parsesPeriodInAnyCase() {
+        assertEquals(RangeAggregator.Period.WEEK, RangeAggregator.Period.parse(" Week"));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> RangeAggregator.Period.parse("fortnight"));
+        assertEquals("Unknown period: fortnight (day, week, month or year)", error.getMessage());
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitedLogTest {
+
+    @Test
+    void allowsOneMessagePerInterval() {
+        RateLimitedLog log = new RateLimitedLog(LoggerFactory.getLogger(RateLimitedLogTest.class), 10, TimeUnit.SECONDS);
+        long start = 1_000_000_000L;
+
+        assertTrue(log.tryAcquire(start));
+        assertFalse(log.tryAcquire(start + TimeUnit.SECONDS.toNanos(1)));
+        assertFalse(log.tryAcquire(start + TimeUnit.SECONDS.toNanos(9)));
+        assertEquals(2, log.getSuppressed());
+        assertTrue(log.tryAcquire(start + TimeUnit.SECONDS.toNanos(10)));
+    }
+}
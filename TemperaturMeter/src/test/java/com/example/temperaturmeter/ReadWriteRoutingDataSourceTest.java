@@ -0,0 +1,162 @@
+package com.example.temperaturmeter;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two embedded H2 databases stand in for the primary and the replica; each holds a row naming itself (and a reading
+// with its own temperature), so every query shows where it was routed.
+class ReadWriteRoutingDataSourceTest {
+
+    private static final LocalDateTime READING_TIME = LocalDateTime.of(2024, 10, 1, 12, 0);
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReadWriteRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    private static HikariDataSource database(String name) {
+        HikariDataSource pool = DataSourceRoutingConfiguration.pool(name,
+                "jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "sa", "", "org.h2.Driver", 2, false);
+        JdbcTemplate jdbc = new JdbcTemplate(pool);
+        jdbc.execute("CREATE TABLE marker (name VARCHAR(16))");
+        jdbc.update("INSERT INTO marker (name) VALUES (?)", name);
+        jdbc.execute("CREATE TABLE temp_reading (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "sensor_id VARCHAR(64) NOT NULL DEFAULT 'default', temperature FLOAT NOT NULL, timestamp TIMESTAMP)");
+        jdbc.update("INSERT INTO temp_reading (sensor_id, temperature, timestamp) VALUES (?, ?, ?)",
+                "kitchen", name.equals("primary") ? 1.0 : 2.0, Timestamp.valueOf(READING_TIME));
+        return pool;
+    }
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        routing = new ReadWriteRoutingDataSource(primary, replica);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.close();
+        replica.close();
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    @EnableJpaRepositories(basePackageClasses = TemperatureReadingRepository.class, includeFilters =
+            @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = TemperatureReadingRepository.class))
+    static class JpaConfiguration {
+        // The JPA part of the application on top of the routing proxy: entity manager, JpaTransactionManager and the
+        // Spring Data repository with the transactions it declares.
+
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+            LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setPackagesToScan(TemperatureReading.class.getPackageName());
+            factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            return factory;
+        }
+
+        @Bean
+        JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+    }
+
+    private String whereReadOnly() {
+        return readOnly.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM marker", String.class));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        assertEquals("replica", whereReadOnly());
+        assertEquals("primary", readWrite.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM marker", String.class)));
+        assertEquals("primary", jdbcTemplate.queryForObject("SELECT name FROM marker", String.class));
+        // Without a transaction (the ingest batch writer's checkpoint read, for example) the primary is used.
+        long replicaConnections = routing.getReplicaConnections();
+        whereReadOnly();
+        assertEquals(replicaConnections + 1, routing.getReplicaConnections());
+    }
+
+    @Test
+    void lagGuardKeepsReadsOnThePrimaryUntilTheReplicaCatchesUp() {
+        ReplicaLagGuard guard = new ReplicaLagGuard(routing, primary, replica, Duration.ofSeconds(5));
+        guard.createHeartbeat();
+        assertFalse(routing.isReplicaUsable());
+        assertEquals("primary", whereReadOnly());
+        // The two databases do not replicate: the replica has no heartbeat yet.
+
+        long now = System.currentTimeMillis();
+        JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("CREATE TABLE replica_heartbeat (id INT NOT NULL PRIMARY KEY, beat_millis BIGINT NOT NULL)");
+        replicaJdbc.update("INSERT INTO replica_heartbeat (id, beat_millis) VALUES (1, ?)", now - 1000);
+        // Replication by hand: the replica has applied the heartbeat of a second ago.
+        guard.check(now);
+        assertEquals(1000, guard.getLagMillis());
+        assertTrue(routing.isReplicaUsable());
+        assertEquals("replica", whereReadOnly());
+
+        guard.check(now + 60_000);
+        // A minute later the replica still shows the same heartbeat: it stopped replicating.
+        assertFalse(routing.isReplicaUsable());
+        assertEquals("primary", whereReadOnly());
+        assertEquals(now + 60_000, new JdbcTemplate(primary).queryForObject("SELECT beat_millis FROM replica_heartbeat WHERE id = 1", Long.class));
+    }
+
+    @Test
+    void jpaRepositoryReadsGoToTheReplicaAndTheLatestReadingToThePrimary() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean("dataSource", DataSource.class, () -> new LazyConnectionDataSourceProxy(routing));
+            context.register(JpaConfiguration.class);
+            context.refresh();
+            TemperatureReadingRepository repository = context.getBean(TemperatureReadingRepository.class);
+
+            long replicaConnections = routing.getReplicaConnections();
+            assertEquals(2.0, repository.findMeasurementsBetween("kitchen", READING_TIME, READING_TIME.plusDays(1)).get(0).getTemperature());
+            assertEquals(replicaConnections + 1, routing.getReplicaConnections());
+            // A query method in the read-only transaction declared on the repository: JpaTransactionManager marks the
+            // transaction read-only after it began, and the lazy proxy still routes it to the replica.
+            assertEquals(1.0, repository.findLastMeasurement("kitchen").getTemperature());
+            // @Transactional (read-write) on findLastMeasurement keeps /latest on the primary.
+
+            routing.setReplicaUsable(false);
+            assertEquals(1.0, repository.findMeasurementsBetween("kitchen", READING_TIME, READING_TIME.plusDays(1)).get(0).getTemperature());
+            // While the lag guard holds the replica back, the same read-only query runs on the primary.
+        }
+    }
+}
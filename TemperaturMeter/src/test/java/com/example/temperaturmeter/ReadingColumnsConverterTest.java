@@ -0,0 +1,86 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StringWriter;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadingColumnsConverterTest {
+
+    private static final long START = 1_727_776_800_000L;
+    // 2024-10-01T10:00:00Z
+
+    @Test
+    void binaryFormatRoundTrips() throws Exception {
+        ReadingColumns columns = new ReadingColumns("kitchen");
+        for (int i = 0; i < 200; i++) {
+            columns.add(START + i * 10_000L, 21 + i * 0.01);
+        }
+        // More than the initial capacity of the arrays.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ReadingColumnsBinaryConverter.write(columns, new DataOutputStream(bytes));
+
+        assertEquals(4 + 2 + 7 + 4 + 200 * 12, bytes.size());
+        ReadingColumns read = ReadingColumnsBinaryConverter.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 200);
+        assertEquals("kitchen", read.getSensorId());
+        assertArrayEquals(columns.getEpochMillis(), read.getEpochMillis());
+        assertArrayEquals(columns.getTemperatures(), read.getTemperatures());
+    }
+
+    @Test
+    void countLargerThanTheBodyIsRejectedBeforeAllocating() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(ReadingColumnsBinaryConverter.MAGIC);
+        out.writeUTF("kitchen");
+        out.writeInt(Integer.MAX_VALUE);
+        // 17 bytes announcing two billion readings (24 GB of arrays).
+        MockHttpInputMessage body = new MockHttpInputMessage(bytes.toByteArray());
+        body.getHeaders().setContentLength(bytes.size());
+        ReadingColumnsBinaryConverter converter = new ReadingColumnsBinaryConverter(1_000_000);
+
+        assertThrows(HttpMessageNotReadableException.class, () -> converter.read(ReadingColumns.class, body));
+        assertThrows(IllegalArgumentException.class, () -> ReadingColumnsBinaryConverter.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 1_000_000));
+        // Without a Content-Length the configured limit applies.
+    }
+
+    @Test
+    void dayOfReadingsCompressesToAFewKilobytes() throws Exception {
+        ReadingColumns columns = new ReadingColumns("kitchen");
+        for (int i = 0; i < 8640; i++) {
+            columns.add(START + i * 10_000L, 21 + Math.round(Math.sin(i / 500.0) * 300) / 100.0);
+        }
+        // One day at one reading per 10 s, with the two decimals the sensor sends.
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(compressed))) {
+            ReadingColumnsBinaryConverter.write(columns, out);
+        }
+
+        assertTrue(compressed.size() < 8640 * 12 / 4, "gzip size " + compressed.size());
+    }
+
+    @Test
+    void csvHasOneLinePerReading() throws Exception {
+        ReadingColumns columns = new ReadingColumns("kitchen");
+        columns.add(START, 21.5);
+        columns.add(START + 10_000, 21.25);
+        StringWriter csv = new StringWriter();
+        ReadingColumnsCsvConverter.write(columns, csv);
+
+        assertEquals("sensor_id,timestamp,epoch_millis,temperature\n"
+                + "kitchen,2024-10-01T10:00:00Z,1727776800000,21.5\n"
+                + "kitchen,2024-10-01T10:00:10Z,1727776810000,21.25\n", csv.toString());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadingSourceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void simulatorEmitsArduinoWireFormat() {
+        SimulatedReadingSource source = new SimulatedReadingSource(100_000, 0, true, 1, 42);
+        List<Double> temperatures = new ArrayList<>();
+        SerialFrameParser parser = new SerialFrameParser(temperatures::add);
+        source.open();
+        byte[] buffer = new byte[1024];
+        while (source.getFramesEmitted() < 10_000) {
+            parser.feed(buffer, 0, source.read(buffer));
+            // split=true: reads of 1 to 16 bytes, so most frames arrive in pieces.
+        }
+        parser.feed(buffer, 0, source.read(buffer));
+
+        assertTrue(temperatures.size() >= 9_999);
+        assertEquals(0, parser.getFramesRejected());
+        assertTrue(temperatures.stream().allMatch(t -> t > 15 && t < 30));
+    }
+
+    @Test
+    void simulatorNoiseIsRejectedByTheParser() {
+        SimulatedReadingSource source = SimulatedReadingSource.fromOptions("?rate=100000&noise=0.1&burst=100&seed=7", 0);
+        SerialFrameParser parser = new SerialFrameParser(temperature -> { });
+        source.open();
+        byte[] buffer = new byte[4096];
+        while (source.getFramesEmitted() < 20_000) {
+            parser.feed(buffer, 0, source.read(buffer));
+        }
+
+        assertTrue(source.getFramesCorrupted() > 1_000);
+        assertEquals(source.getFramesCorrupted(), parser.getFramesRejected());
+    }
+
+    @Test
+    void replaysFileAndEnds() throws Exception {
+        Path capture = directory.resolve("capture.txt");
+        Files.write(capture, "21.50 Celsius, 21.52 Celsius, -3.10 Celsius, ".getBytes(StandardCharsets.US_ASCII));
+        ReadingSource source = ReadingSource.forSensor(SensorRegistry.parse("replay=file:" + capture + ":0", 9600));
+        List<Double> temperatures = new ArrayList<>();
+        SerialFrameParser parser = new SerialFrameParser(temperatures::add);
+        source.open();
+        byte[] buffer = new byte[8];
+        int read;
+        while ((read = source.read(buffer)) >= 0) {
+            parser.feed(buffer, 0, read);
+        }
+        source.close();
+
+        assertEquals(List.of(21.50, 21.52, -3.10), temperatures);
+    }
+
+    @Test
+    void parsesSourcePorts() {
+        assertEquals("COM6:9600", portOf("kitchen=COM6", 9600));
+        assertEquals("COM7:115200", portOf("kitchen=COM7:115200", 9600));
+        assertEquals("tcp://localhost:5000:9600", portOf("remote=tcp://localhost:5000", 9600));
+        assertEquals("sim?rate=10:9600", portOf("load=sim?rate=10", 9600));
+        assertEquals("file:C:\\capture.txt:9600", portOf("replay=file:C:\\capture.txt", 9600));
+        assertEquals("file:/tmp/capture.txt:0", portOf("replay=file:/tmp/capture.txt:0", 9600));
+    }
+
+    private static String portOf(String spec, int defaultBaudRate) {
+        SensorConfig sensor = SensorRegistry.parse(spec, defaultBaudRate);
+        return sensor.getPort() + ":" + sensor.getBaudRate();
+    }
+}
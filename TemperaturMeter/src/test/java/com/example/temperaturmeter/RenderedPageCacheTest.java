@@ -0,0 +1,92 @@
+package com.example.temperaturmeter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RenderedPageCacheTest {
+
+    private static RenderedPageCache.CachedPage page(String eTag) {
+        return new RenderedPageCache.CachedPage(eTag, "text/html", null, Map.of(), new byte[] {1, 2, 3});
+    }
+
+    @Test
+    void newIngestSequenceInvalidatesPage() {
+        RenderedPageCache cache = new RenderedPageCache(Duration.ofSeconds(10), 10, 256, 250);
+        cache.store("/api/temperature/max?sensorId=kitchen", page("W/\"7.1\""));
+
+        assertEquals("W/\"7.1\"", cache.lookup("/api/temperature/max?sensorId=kitchen", "W/\"7.1\"").eTag());
+        assertNull(cache.lookup("/api/temperature/max?sensorId=kitchen", "W/\"8.1\""));
+        // The sensor sent a reading: the old copy is dropped.
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedPage() {
+        RenderedPageCache cache = new RenderedPageCache(Duration.ofSeconds(10), 2, 256, 250);
+        cache.store("a", page("1"));
+        cache.store("b", page("1"));
+        cache.lookup("a", "1");
+        cache.store("c", page("1"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.lookup("b", "1"));
+        assertEquals("1", cache.lookup("a", "1").eTag());
+    }
+
+    @Test
+    void hitSendsTheHeadersOfTheRenderedPage() throws Exception {
+        RenderedPageCache cache = new RenderedPageCache(Duration.ofHours(1), 10, 256, 250);
+        ReflectionTestUtils.setField(cache, "latestReadingCache", new LatestReadingCache());
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        HttpServlet page = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType("text/html;charset=UTF-8");
+                response.setLocale(Locale.GERMANY);
+                response.setHeader("Cache-Control", "no-cache");
+                response.addHeader("Vary", "Accept");
+                response.getWriter().write("<p>21.3</p>");
+            }
+        };
+        // Stands in for the controller and the Thymeleaf view.
+
+        MockHttpServletResponse rendered = get(cache, page);
+        MockHttpServletResponse cached = get(cache, page);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(rendered.getContentAsString(), cached.getContentAsString());
+        assertEquals(rendered.getContentType(), cached.getContentType());
+        assertEquals("de-DE", cached.getHeader("Content-Language"));
+        assertEquals(List.of("no-cache"), cached.getHeaders("Cache-Control"));
+        assertEquals(List.of("Accept"), cached.getHeaders("Vary"));
+        assertEquals(rendered.getHeader("ETag"), cached.getHeader("ETag"));
+        assertEquals(1, cached.getHeaders("ETag").size());
+        // The validators are set once, by the filter, not replayed a second time.
+    }
+
+    private static MockHttpServletResponse get(RenderedPageCache cache, HttpServlet page) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/temperature/readings");
+        request.setServletPath("/api/temperature/readings");
+        request.setParameter("sensorId", "kitchen");
+        request.setQueryString("sensorId=kitchen");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        cache.doFilter(request, response, new MockFilterChain(page));
+        return response;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RollingWindowTest {
+
+    @Test
+    void matchesBruteForceOverRandomSeries() {
+        // 3.6 s window -> 1 ms slots, and samples are whole milliseconds apart, so results are exact.
+        RollingWindow window = new RollingWindow(3600);
+        List<Long> times = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        Random random = new Random(7);
+        long now = 1_000_000;
+        for (int i = 0; i < 5000; i++) {
+            now += 1 + random.nextInt(20);
+            double value = Math.round((20 + random.nextGaussian() * 5) * 100) / 100.0;
+            window.add(now, value);
+            times.add(now);
+            values.add(value);
+
+            WindowStatistics statistics = window.getStatistics(now);
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            double sum = 0;
+            long count = 0;
+            for (int j = 0; j < times.size(); j++) {
+                if (times.get(j) >= now - 3600) {
+                    min = Math.min(min, values.get(j));
+                    max = Math.max(max, values.get(j));
+                    sum += values.get(j);
+                    count++;
+                }
+            }
+            assertEquals(count, statistics.getCount(), "count at " + i);
+            assertEquals(min, statistics.getMinTemperature(), "min at " + i);
+            assertEquals(max, statistics.getMaxTemperature(), "max at " + i);
+            assertEquals(sum / count, statistics.getAverageTemperature(), 1e-9, "average at " + i);
+        }
+    }
+
+    @Test
+    void emptiesWhenAllSamplesAreOlderThanTheWindow() {
+        RollingWindow window = new RollingWindow(60_000);
+        window.add(0, 21.5);
+        window.add(1_000, 22.5);
+
+        assertEquals(2, window.getStatistics(30_000).getCount());
+        assertEquals(21.5, window.getStatistics(30_000).getMinTemperature());
+
+        WindowStatistics later = window.getStatistics(120_000);
+        assertEquals(0, later.getCount());
+        assertNull(later.getMaxTemperature());
+    }
+
+    @Test
+    void mergesManySamplesIntoBoundedSlots() {
+        RollingWindow window = new RollingWindow(3_600_000);
+        for (long t = 0; t < 3_600_000; t += 10) {
+            window.add(t, t % 1000 == 0 ? -5.0 : 20.0);
+        }
+        window.add(3_600_000, 40.0);
+
+        WindowStatistics statistics = window.getStatistics(3_600_000);
+        assertEquals(-5.0, statistics.getMinTemperature());
+        assertEquals(40.0, statistics.getMaxTemperature());
+    }
+}
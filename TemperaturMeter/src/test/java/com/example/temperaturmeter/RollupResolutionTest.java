@@ -0,0 +1,36 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RollupResolutionTest {
+
+    @Test
+    void truncatesToBucketStart() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 9, 23, 10, 15, 30, 500_000_000);
+        assertEquals(LocalDateTime.of(2024, 9, 23, 10, 15), RollupResolution.MINUTE.bucketStart(timestamp));
+        assertEquals(LocalDateTime.of(2024, 9, 23, 10, 0), RollupResolution.HOUR.bucketStart(timestamp));
+        assertEquals(LocalDateTime.of(2024, 9, 23, 0, 0), RollupResolution.DAY.bucketStart(timestamp));
+        assertEquals(LocalDateTime.of(2024, 9, 24, 0, 0), RollupResolution.DAY.nextBucket(LocalDateTime.of(2024, 9, 23, 0, 0)));
+    }
+
+    @Test
+    void picksFinestResolutionWithinPointBudget() {
+        assertEquals(RollupResolution.MINUTE, RollupResolution.forRange(Duration.ofHours(6), 500));
+        assertEquals(RollupResolution.HOUR, RollupResolution.forRange(Duration.ofDays(7), 500));
+        assertEquals(RollupResolution.DAY, RollupResolution.forRange(Duration.ofDays(365), 500));
+        assertEquals(RollupResolution.DAY, RollupResolution.forRange(Duration.ofDays(3650), 500));
+    }
+
+    @Test
+    void parsesResolutionInAnyCase() {
+        assertEquals(RollupResolution.HOUR, RollupResolution.parse(" Hour"));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> RollupResolution.parse("week"));
+        assertEquals("Unknown resolution: week (minute, hour or day)", error.getMessage());
+    }
+}
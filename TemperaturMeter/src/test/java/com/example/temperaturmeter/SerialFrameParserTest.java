@@ -0,0 +1,129 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SerialFrameParserTest {
+
+    private static final String STREAM = "23.45 Celsius, 23.51 Celsius, -4.20 Celsius, 0.00 Celsius, 100.5 Celsius, ";
+    private static final List<Double> EXPECTED = List.of(23.45, 23.51, -4.20, 0.0, 100.5);
+
+    private final List<Double> temperatures = new ArrayList<>();
+    private final SerialFrameParser parser = new SerialFrameParser(temperatures::add);
+
+    @Test
+    void parsesWholeStreamInOneRead() {
+        feed(STREAM.getBytes(StandardCharsets.US_ASCII), STREAM.length());
+
+        assertEquals(EXPECTED, temperatures);
+        assertEquals(5, parser.getFramesParsed());
+        assertEquals(0, parser.getFramesRejected());
+    }
+
+    @Test
+    void parsesStreamSplitAtEveryPossibleBoundary() {
+        byte[] bytes = STREAM.getBytes(StandardCharsets.US_ASCII);
+        for (int split = 1; split < bytes.length; split++) {
+            List<Double> result = new ArrayList<>();
+            SerialFrameParser splitParser = new SerialFrameParser(result::add);
+            splitParser.feed(bytes, 0, split);
+            splitParser.feed(bytes, split, bytes.length - split);
+
+            assertEquals(EXPECTED, result, "split at " + split);
+            assertEquals(0, splitParser.getFramesRejected(), "split at " + split);
+        }
+    }
+
+    @Test
+    void parsesStreamInRandomChunks() {
+        byte[] bytes = (STREAM + STREAM + STREAM).getBytes(StandardCharsets.US_ASCII);
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            List<Double> result = new ArrayList<>();
+            SerialFrameParser chunkParser = new SerialFrameParser(result::add);
+            int offset = 0;
+            while (offset < bytes.length) {
+                int length = Math.min(1 + random.nextInt(20), bytes.length - offset);
+                chunkParser.feed(bytes, offset, length);
+                offset += length;
+            }
+
+            assertEquals(15, result.size());
+            assertEquals(EXPECTED, result.subList(0, 5));
+            assertEquals(EXPECTED, result.subList(10, 15));
+        }
+    }
+
+    @Test
+    void keepsPartialFrameUntilDelimiterArrives() {
+        feed("23.4".getBytes(StandardCharsets.US_ASCII), 4);
+        assertEquals(List.of(), temperatures);
+
+        feed("5 Celsius".getBytes(StandardCharsets.US_ASCII), 9);
+        assertEquals(List.of(), temperatures);
+
+        feed(", ".getBytes(StandardCharsets.US_ASCII), 2);
+        assertEquals(List.of(23.45), temperatures);
+    }
+
+    @Test
+    void rejectsGluedAndMalformedFrames() {
+        String stream = "23.4523.51 Celsius, Celsius, 12a3 Celsius, 1.2.3, 21.00 Celsius, ";
+        feed(stream.getBytes(StandardCharsets.US_ASCII), stream.length());
+
+        assertEquals(List.of(21.0), temperatures);
+        assertEquals(1, parser.getFramesParsed());
+        assertEquals(4, parser.getFramesRejected());
+    }
+
+    @Test
+    void acceptsNewlineTerminatedFramesAndIgnoresBlankFrames() {
+        String stream = "22.10 Celsius\r\n, \n22.20\n";
+        feed(stream.getBytes(StandardCharsets.US_ASCII), stream.length());
+
+        assertEquals(List.of(22.1, 22.2), temperatures);
+        assertEquals(0, parser.getFramesRejected());
+    }
+
+    @Test
+    void rejectsOversizedFrameAndRecoversAtNextDelimiter() {
+        SerialFrameParser smallParser = new SerialFrameParser(16, temperatures::add);
+        String stream = "1111111111111111111111111111 Celsius, 19.75 Celsius, ";
+        byte[] bytes = stream.getBytes(StandardCharsets.US_ASCII);
+        smallParser.feed(bytes, 0, bytes.length);
+
+        assertEquals(List.of(19.75), temperatures);
+        assertEquals(1, smallParser.getFramesOversized());
+        assertEquals(1, smallParser.getFramesRejected());
+    }
+
+    @Test
+    void resynchronizeSkipsTruncatedFirstFrame() {
+        parser.resynchronize();
+        String stream = "45 Celsius, 23.51 Celsius, ";
+        feed(stream.getBytes(StandardCharsets.US_ASCII), stream.length());
+
+        assertEquals(List.of(23.51), temperatures);
+        assertEquals(0, parser.getFramesRejected());
+    }
+
+    @Test
+    void parsesFromOffsetWithinReusedBuffer() {
+        byte[] buffer = new byte[64];
+        byte[] chunk = "xx18.25 Celsius, ".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(chunk, 0, buffer, 0, chunk.length);
+        parser.feed(buffer, 2, chunk.length - 2);
+
+        assertEquals(List.of(18.25), temperatures);
+    }
+
+    private void feed(byte[] bytes, int length) {
+        parser.feed(bytes, 0, length);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.temperaturmeter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class SerialPortReaderTest {
+
+    private static class RecordingService extends TemperatureService {
+        // Collects the temperatures instead of passing them on to the pipeline.
+        final List<Double> temperatures = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void recordTemperature(String sensorId, double temperature) {
+            temperatures.add(temperature);
+        }
+    }
+
+    private static void send(ServerSocket server, String wire) throws Exception {
+        try (Socket connection = server.accept(); OutputStream out = connection.getOutputStream()) {
+            out.write(wire.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+        // Closing the connection is what the reader sees when the device drops.
+    }
+
+    private static void awaitSize(List<Double> list, int size) throws InterruptedException {
+        for (int i = 0; i < 500 && list.size() < size; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void reconnectsAfterTheConnectionDrops() throws Exception {
+        RecordingService service = new RecordingService();
+        try (ServerSocket server = new ServerSocket(0)) {
+            SerialPortReader reader = new SerialPortReader(
+                    new SensorConfig("remote", "tcp://localhost:" + server.getLocalPort(), 0),
+                    service, new SimpleMeterRegistry(), 10, 100);
+            reader.start();
+
+            send(server, "ial, 21.50 Celsius, ");
+            // The reader resynchronizes after connecting, so the truncated first frame is skipped.
+            awaitSize(service.temperatures, 1);
+            send(server, "us, 22.00 Celsius, 23.25 Celsius, ");
+            awaitSize(service.temperatures, 3);
+
+            assertEquals(List.of(21.50, 22.00, 23.25), service.temperatures);
+            reader.close();
+            assertFalse(reader.isRunning());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Compares the embedded log store with the MySQL backend for the operations of TemperatureStore:
+// appending batches of 500, the latest reading, a one-day range scan and statistics over a day.
+// Excluded from "gradle test"; run with
+//     ./gradlew benchmark [-Dbenchmark.readings=2000000]
+//         [-Dbenchmark.jdbc.url=jdbc:mysql://localhost:3306/bench?rewriteBatchedStatements=true
+//          -Dbenchmark.jdbc.user=user -Dbenchmark.jdbc.password=password]
+// Without benchmark.jdbc.url only the log store is measured. The MySQL side runs the same statements as
+// JpaTemperatureStore (JDBC batch insert, repository queries as SQL) against a scratch table.
+@Tag("benchmark")
+class StorageBackendBenchmarkTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int SENSORS = 4;
+    private static final int BATCH = 500;
+    private static final int REPETITIONS = 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compareBackends() throws Exception {
+        int readings = Integer.getInteger("benchmark.readings", 2_000_000);
+        LocalDateTime end = START.plusSeconds(10L * readings / SENSORS);
+        LocalDateTime dayStart = end.minusDays(1);
+
+        LogTemperatureStore log = new LogTemperatureStore(directory.toString(), 64, true);
+        log.open();
+        long appendNanos = 0;
+        for (int i = 0; i < readings; i += BATCH) {
+            List<TemperatureReading> batch = batch(i);
+            long start = System.nanoTime();
+            log.append(batch);
+            appendNanos += System.nanoTime() - start;
+        }
+        report("log", readings, appendNanos,
+                median(() -> log.findLast("sensor-1")),
+                median(() -> log.findBetween("sensor-1", dayStart, end)),
+                median(() -> log.getStatisticsSince("sensor-1", dayStart)));
+        log.close();
+
+        String url = System.getProperty("benchmark.jdbc.url");
+        if (url == null) {
+            System.out.println("benchmark.jdbc.url is not set, MySQL skipped.");
+            return;
+        }
+        try (Connection connection = DriverManager.getConnection(url,
+                System.getProperty("benchmark.jdbc.user"), System.getProperty("benchmark.jdbc.password"))) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS temp_reading_backend_benchmark");
+                statement.execute("CREATE TABLE temp_reading_backend_benchmark (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                        "sensor_id VARCHAR(64) NOT NULL, temperature FLOAT NOT NULL, timestamp TIMESTAMP NOT NULL, " +
+                        "INDEX idx_sensor_ts (sensor_id, timestamp), INDEX idx_ts (timestamp))");
+            }
+            appendNanos = 0;
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO temp_reading_backend_benchmark (sensor_id, temperature, timestamp) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < readings; i += BATCH) {
+                    List<TemperatureReading> batch = batch(i);
+                    long start = System.nanoTime();
+                    for (TemperatureReading reading : batch) {
+                        insert.setString(1, reading.getSensorId());
+                        insert.setDouble(2, reading.getTemperature());
+                        insert.setTimestamp(3, Timestamp.valueOf(reading.getTimestamp()));
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                    connection.commit();
+                    appendNanos += System.nanoTime() - start;
+                }
+            }
+            connection.setAutoCommit(true);
+            report("mysql", readings, appendNanos,
+                    median(() -> query(connection, "SELECT id, sensor_id, temperature, timestamp FROM temp_reading_backend_benchmark " +
+                            "WHERE sensor_id = 'sensor-1' ORDER BY timestamp DESC LIMIT 1")),
+                    median(() -> query(connection, "SELECT id, sensor_id, temperature, timestamp FROM temp_reading_backend_benchmark " +
+                            "WHERE sensor_id = 'sensor-1' AND timestamp >= '" + Timestamp.valueOf(dayStart) + "' " +
+                            "AND timestamp < '" + Timestamp.valueOf(end) + "' ORDER BY timestamp DESC")),
+                    median(() -> query(connection, "SELECT COUNT(*), MIN(temperature), MAX(temperature), AVG(temperature) " +
+                            "FROM temp_reading_backend_benchmark WHERE sensor_id = 'sensor-1' AND timestamp >= '" + Timestamp.valueOf(dayStart) + "'")));
+        }
+    }
+
+    private static List<TemperatureReading> batch(int first) {
+        List<TemperatureReading> batch = new ArrayList<>(BATCH);
+        for (int i = first; i < first + BATCH; i++) {
+            TemperatureReading reading = new TemperatureReading();
+            reading.setSensorId("sensor-" + (i % SENSORS));
+            reading.setTimestamp(START.plusSeconds(10L * (i / SENSORS)));
+            reading.setTemperature(20 + Math.sin(i / 10_000.0) * 5);
+            batch.add(reading);
+        }
+        return batch;
+    }
+
+    private static int query(Connection connection, String sql) throws SQLException {
+        int rows = 0;
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            while (result.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    private static double median(Operation operation) throws Exception {
+        long[] nanos = new long[REPETITIONS];
+        for (int i = 0; i < REPETITIONS; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[REPETITIONS / 2] / 1_000_000.0;
+    }
+
+    private static void report(String backend, int readings, long appendNanos, double latestMillis, double dayMillis, double statisticsMillis) {
+        System.out.printf("%-6s append %,.0f readings/s | latest %.3f ms | one day %.3f ms | day statistics %.3f ms%n",
+                backend, readings / (appendNanos / 1e9), latestMillis, dayMillis, statisticsMillis);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Runs the compaction against an embedded H2 database in MySQL mode.
+class TemperatureArchiveCompactorTest {
+
+    private static final LocalDateTime DAY = LocalDate.now().minusDays(3).atStartOfDay();
+
+    @TempDir
+    Path directory;
+
+    private JdbcTemplate jdbcTemplate;
+    private TemperatureArchive archive;
+    private TemperatureArchiveCompactor compactor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:compactor-" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE temp_reading (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "sensor_id VARCHAR(64) NOT NULL DEFAULT 'default', temperature FLOAT NOT NULL, timestamp TIMESTAMP)");
+        archive = new TemperatureArchive(directory.toString());
+        archive.open();
+        compactor = new TemperatureArchiveCompactor(jdbcTemplate, archive, true, 1);
+    }
+
+    private void insert(String sensorId, LocalDateTime timestamp, double temperature) {
+        jdbcTemplate.update("INSERT INTO temp_reading (sensor_id, temperature, timestamp) VALUES (?, ?, ?)",
+                sensorId, temperature, Timestamp.valueOf(timestamp));
+    }
+
+    private List<TemperatureReading> archived(String sensorId) throws Exception {
+        List<TemperatureReading> readings = new ArrayList<>();
+        archive.forEach(sensorId, DAY, DAY.plusDays(1), readings::add);
+        return readings;
+    }
+
+    private int rowsInDatabase() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM temp_reading", Integer.class);
+    }
+
+    @Test
+    void lateReadingImportedAfterCompactionIsMergedIntoTheArchive() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            insert("kitchen", DAY.plusMinutes(10L * i), 20 + i);
+        }
+        insert("garage", DAY.plusHours(1), 5);
+        insert("kitchen", LocalDate.now().atStartOfDay(), 25);
+        // Today's reading stays in the database.
+
+        assertEquals(1, compactor.compact());
+        assertEquals(DAY.plusDays(1), archive.getArchivedUntil());
+        assertEquals(10, archived("kitchen").size());
+        assertEquals(1, rowsInDatabase());
+
+        insert("kitchen", DAY.plusMinutes(15), 99);
+        insert("attic", DAY.plusHours(2), 18);
+        // A bulk import delivers readings of the archived day after it was compacted.
+        assertEquals(1, compactor.compact());
+
+        List<TemperatureReading> kitchen = archived("kitchen");
+        assertEquals(11, kitchen.size());
+        assertEquals(DAY.plusMinutes(15), kitchen.get(2).getTimestamp());
+        assertEquals(99, kitchen.get(2).getTemperature(), 1e-6);
+        assertEquals(DAY.plusMinutes(20), kitchen.get(3).getTimestamp());
+        assertEquals(1, archived("attic").size());
+        assertEquals(1, archived("garage").size());
+        assertEquals(1, rowsInDatabase());
+        // The late rows were deleted only after they were merged; today's row is untouched.
+
+        TemperatureArchive reopened = new TemperatureArchive(directory.toString());
+        reopened.open();
+        assertEquals(11, reopened.getStatistics("kitchen", DAY, DAY.plusDays(1)).getCount());
+        // The merged segment replaced the first one on disk, too.
+    }
+
+    @Test
+    void archivedTemperaturesReadBackAsTheyWereStored() throws Exception {
+        insert("kitchen", DAY, 21.3);
+        insert("kitchen", DAY.plusMinutes(10), -4.07);
+        insert("kitchen", DAY.plusMinutes(20), 19.99);
+        assertEquals(1, compactor.compact());
+
+        List<TemperatureReading> kitchen = archived("kitchen");
+        assertEquals(21.3, kitchen.get(0).getTemperature());
+        assertEquals(-4.07, kitchen.get(1).getTemperature());
+        assertEquals(19.99, kitchen.get(2).getTemperature());
+        // Exactly, not 21.299999237060547: the float is read back as the decimal it was stored from.
+        WindowStatistics statistics = archive.getStatistics("kitchen", DAY, DAY.plusMinutes(15));
+        assertEquals(-4.07, statistics.getMinTemperature());
+        assertEquals(21.3, statistics.getMaxTemperature());
+    }
+
+    @Test
+    void rowsLeftAfterAnInterruptedCompactionAreNotArchivedTwice() throws Exception {
+        insert("kitchen", DAY.plusMinutes(10), 20);
+        insert("kitchen", DAY.plusMinutes(20), 21);
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM temp_reading ORDER BY id", Long.class);
+        compactor.compact();
+
+        jdbcTemplate.update("INSERT INTO temp_reading (id, sensor_id, temperature, timestamp) VALUES (?, ?, ?, ?)",
+                ids.get(1), "kitchen", 21.0, Timestamp.valueOf(DAY.plusMinutes(20)));
+        // The segment was written, but the application stopped before this row was deleted.
+        compactor.compact();
+
+        assertEquals(2, archived("kitchen").size());
+        assertEquals(0, rowsInDatabase());
+    }
+}
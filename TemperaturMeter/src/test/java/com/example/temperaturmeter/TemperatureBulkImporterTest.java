@@ -0,0 +1,176 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TemperatureBulkImporterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 10, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    private LogTemperatureStore open(String name) throws Exception {
+        LogTemperatureStore store = new LogTemperatureStore(directory.resolve(name).toString(), 8, false);
+        store.open();
+        return store;
+    }
+
+    private static class RecordingStore extends LogTemperatureStore {
+        // Remembers the size of every batch, to show that no import holds more than one batch.
+        final List<Integer> batchSizes = new ArrayList<>();
+
+        RecordingStore(Path directory) {
+            super(directory.toString(), 8, false);
+        }
+
+        @Override
+        public void append(List<TemperatureReading> readings) {
+            batchSizes.add(readings.size());
+            super.append(readings);
+        }
+    }
+
+    private static SketchAggregator sketches() {
+        return new SketchAggregator(Duration.ofDays(2), Duration.ofDays(30), Duration.ofSeconds(60));
+        // The test readings are from 2024, older than the retention, so they are not added.
+    }
+
+    private static List<TemperatureReading> all(TemperatureStore store, String sensorId) throws Exception {
+        List<TemperatureReading> readings = new ArrayList<>();
+        store.forEachBetween(sensorId, START, START.plusYears(1), readings::add);
+        return readings;
+    }
+
+    @Test
+    void binaryExportImportsIntoAnotherStore() throws Exception {
+        LogTemperatureStore source = open("source");
+        List<TemperatureReading> batch = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            TemperatureReading reading = new TemperatureReading();
+            reading.setSensorId("kitchen");
+            reading.setTimestamp(START.plusSeconds(10L * i));
+            reading.setTemperature(20 + (i % 500) / 100.0);
+            batch.add(reading);
+        }
+        source.append(batch);
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        ReadingExport export = ReadingExport.binary("kitchen", exported);
+        source.forEachBetween("kitchen", START, START.plusYears(1), export);
+        export.finish();
+        // 10000 readings: two full blocks of 4096 and one of 1808.
+
+        LogTemperatureStore target = open("target");
+        LatestReadingCache latest = new LatestReadingCache();
+        TemperatureBulkImporter importer = new TemperatureBulkImporter(target, latest, sketches(), 3000);
+        TemperatureBulkImporter.ImportResult result = importer.importBinary(new ByteArrayInputStream(exported.toByteArray()), null);
+
+        assertEquals(10_000, result.readings());
+        List<TemperatureReading> imported = all(target, "kitchen");
+        assertEquals(10_000, imported.size());
+        assertEquals(START.plusSeconds(10L * 9_999), imported.get(9_999).getTimestamp());
+        assertEquals(20.99, imported.get(99).getTemperature(), 1e-5);
+        assertEquals(START.plusSeconds(10L * 9_999), latest.get("kitchen").timestamp());
+    }
+
+    @Test
+    void binaryFormatsAreImportedOneBatchAtATime() throws Exception {
+        ReadingColumns columns = new ReadingColumns("kitchen");
+        for (int i = 0; i < 10_000; i++) {
+            columns.add(EpochTime.toEpochMillis(START) + 10_000L * i, 20 + (i % 100) / 10.0);
+        }
+        ByteArrayOutputStream columnFile = new ByteArrayOutputStream();
+        ReadingColumnsBinaryConverter.write(columns, new DataOutputStream(columnFile));
+        ByteArrayOutputStream exportStream = new ByteArrayOutputStream();
+        ReadingExport export = ReadingExport.binary("kitchen", exportStream);
+        for (int i = 0; i < columns.size(); i++) {
+            TemperatureReading reading = new TemperatureReading();
+            reading.setSensorId("kitchen");
+            reading.setTimestamp(EpochTime.toLocalDateTime(columns.epochMillisAt(i)));
+            reading.setTemperature((double) columns.temperatureAt(i));
+            export.accept(reading);
+        }
+        export.finish();
+        // The same 10000 readings as one column file and as an export stream of three blocks.
+
+        for (byte[] file : List.of(columnFile.toByteArray(), exportStream.toByteArray())) {
+            RecordingStore target = new RecordingStore(directory.resolve("batches-" + file.length));
+            target.open();
+            TemperatureBulkImporter importer = new TemperatureBulkImporter(target, new LatestReadingCache(), sketches(), 3000);
+
+            assertEquals(10_000, importer.importBinary(new ByteArrayInputStream(file), "garage").readings());
+            assertEquals(List.of(3000, 3000, 3000, 1000), target.batchSizes);
+            List<TemperatureReading> imported = all(target, "garage");
+            assertEquals(10_000, imported.size());
+            assertEquals(START.plusSeconds(10L * 9_999), imported.get(9_999).getTimestamp());
+            assertEquals(columns.temperatureAt(4_321), imported.get(4_321).getTemperature(), 1e-6);
+        }
+    }
+
+    @Test
+    void binaryFileThatEndsEarlyIsRejected() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(ReadingColumnsBinaryConverter.MAGIC);
+        out.writeUTF("kitchen");
+        out.writeInt(Integer.MAX_VALUE);
+        out.writeLong(EpochTime.toEpochMillis(START));
+        // Announces two billion readings, but sends one time and no temperature.
+        TemperatureBulkImporter importer = new TemperatureBulkImporter(open("truncated"), new LatestReadingCache(), sketches(), 100);
+
+        assertThrows(IllegalArgumentException.class, () -> importer.importBinary(new ByteArrayInputStream(bytes.toByteArray()), null));
+    }
+
+    @Test
+    void csvWithTimestampsAndSensorParameter() throws Exception {
+        LogTemperatureStore target = open("csv");
+        TemperatureBulkImporter importer = new TemperatureBulkImporter(target, new LatestReadingCache(), sketches(), 2);
+        String csv = "timestamp,temperature\n"
+                + "2024-10-01T00:00:00,21.5\n"
+                + "2024-10-01 00:00:10,21.25\n"
+                + "\n"
+                + "2024-10-01T00:00:20,21.0\n";
+
+        assertEquals(3, importer.importCsv(new StringReader(csv), "garage").readings());
+        List<TemperatureReading> imported = all(target, "garage");
+        assertEquals(START.plusSeconds(10), imported.get(1).getTimestamp());
+        assertEquals(21.0, imported.get(2).getTemperature());
+
+        assertThrows(IllegalArgumentException.class, () -> importer.importCsv(new StringReader(csv), null));
+        // No sensor_id column and no sensor id.
+        assertThrows(IllegalArgumentException.class,
+                () -> importer.importCsv(new StringReader("timestamp,temperature\n2024-10-01T00:00:00\n"), "garage"));
+    }
+
+    @Test
+    void exportCsvFileImportsUnchanged() throws Exception {
+        LogTemperatureStore target = open("file");
+        Path file = directory.resolve("readings.csv");
+        Files.writeString(file, "sensor_id,timestamp,epoch_millis,temperature\n"
+                + "kitchen,2024-10-01T10:00:00Z," + EpochTime.toEpochMillis(START) + ",21.5\n");
+        TemperatureBulkImporter importer = new TemperatureBulkImporter(target, new LatestReadingCache(), sketches(), 100);
+
+        assertEquals(1, importer.importFile(file, null).readings());
+        assertEquals(START, all(target, "kitchen").get(0).getTimestamp());
+        // epoch_millis wins over the timestamp column.
+        assertEquals(LocalDateTime.ofInstant(Instant.parse("2024-10-01T08:00:00Z"), ZoneId.systemDefault()),
+                TemperatureBulkImporter.parseTimestamp("2024-10-01T10:00:00+02:00"));
+        // Timestamps with an offset are converted to the local time the readings are stored in.
+    }
+}
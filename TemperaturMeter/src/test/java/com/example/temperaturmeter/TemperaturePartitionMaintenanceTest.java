@@ -0,0 +1,29 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TemperaturePartitionMaintenanceTest {
+
+    private static final List<String> EXISTING = List.of("p202410", "p202411", "p202412", "p_future");
+
+    @Test
+    void createsMissingMonthsAfterTheNewestPartition() {
+        assertEquals(List.of(YearMonth.of(2025, 1), YearMonth.of(2025, 2)),
+                TemperaturePartitionMaintenance.partitionsToCreate(EXISTING, YearMonth.of(2024, 12), 2));
+        assertEquals(List.of(),
+                TemperaturePartitionMaintenance.partitionsToCreate(EXISTING, YearMonth.of(2024, 10), 2));
+    }
+
+    @Test
+    void dropsOnlyMonthsCompletelyBeforeTheRetentionLimit() {
+        assertEquals(List.of("p202410"),
+                TemperaturePartitionMaintenance.partitionsToDrop(EXISTING, YearMonth.of(2024, 11)));
+        assertEquals(List.of(),
+                TemperaturePartitionMaintenance.partitionsToDrop(EXISTING, YearMonth.of(2024, 10)));
+    }
+}
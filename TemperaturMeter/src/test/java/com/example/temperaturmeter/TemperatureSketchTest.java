@@ -0,0 +1,101 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TemperatureSketchTest {
+
+    @Test
+    void mergedSketchesEqualOneSketchOfAllReadings() {
+        Random random = new Random(1);
+        double[] values = new double[10_000];
+        TemperatureSketch all = new TemperatureSketch();
+        TemperatureSketch merged = new TemperatureSketch();
+        TemperatureSketch part = new TemperatureSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.round((21 + random.nextGaussian() * 3) * 100) / 100.0;
+            all.add(values[i]);
+            part.add(values[i]);
+            if (i % 97 == 96) {
+                merged.merge(part);
+                part = new TemperatureSketch();
+            }
+        }
+        merged.merge(part);
+
+        assertEquals(all.getCount(), merged.getCount());
+        assertEquals(all.getMean(), merged.getMean(), 1e-9);
+        assertEquals(all.getStandardDeviation(), merged.getStandardDeviation(), 1e-9);
+        assertEquals(all.getMin(), merged.getMin());
+        assertEquals(all.getMax(), merged.getMax());
+
+        Arrays.sort(values);
+        for (double q : new double[] {0.5, 0.95, 0.99}) {
+            double exact = values[(int) Math.ceil(q * values.length) - 1];
+            assertEquals(exact, merged.quantile(q), TemperatureSketch.BIN_WIDTH / 2 + 1e-9, "p" + q);
+            assertEquals(all.quantile(q), merged.quantile(q), 1e-9);
+        }
+    }
+
+    @Test
+    void quantilesAcrossZero() {
+        TemperatureSketch sketch = new TemperatureSketch();
+        for (int i = -500; i < 500; i++) {
+            sketch.add(i / 100.0);
+        }
+        // -5.00 .. 4.99, e.g. a freezer door left open.
+        assertEquals(0.0, sketch.quantile(0.5), 0.05);
+        assertEquals(-5.0, sketch.quantile(0), 1e-9);
+        assertEquals(4.99, sketch.quantile(1), 1e-9);
+    }
+
+    @Test
+    void rangeQueryMergesBucketsAndCountsTimeAboveThreshold() {
+        SketchAggregator aggregator = new SketchAggregator(Duration.ofDays(2), Duration.ofDays(30), Duration.ofSeconds(60));
+        long start = Math.floorDiv(System.currentTimeMillis(), SketchAggregator.HOUR) * SketchAggregator.HOUR - 6 * SketchAggregator.HOUR;
+        for (int i = 0; i < 6 * 360; i++) {
+            aggregator.add("kitchen", start + i * 10_000L, i < 360 ? 25.0 : 20.0);
+        }
+        // Six hours at one reading per 10 s: the first hour at 25 °C, then 20 °C.
+
+        RangeStatistics day = aggregator.query("kitchen", start, start + 6 * SketchAggregator.HOUR, 24.0);
+        assertEquals(2160, day.getCount());
+        assertEquals(6, day.getBuckets());
+        // Whole hours: one hour sketch each.
+        assertEquals(3600, day.getSecondsAboveThreshold());
+        assertEquals(20.0, day.getP50(), TemperatureSketch.BIN_WIDTH / 2 + 1e-9);
+        assertEquals(25.0, day.getMax());
+
+        RangeStatistics edge = aggregator.query("kitchen", start + 30 * SketchAggregator.MINUTE + 5_000, start + 90 * SketchAggregator.MINUTE, 24.0);
+        assertEquals(start + 30 * SketchAggregator.MINUTE, EpochTime.toEpochMillis(edge.getFrom()));
+        // Widened to the start of the minute.
+        assertEquals(60, edge.getBuckets());
+        assertEquals(360, edge.getCount());
+        assertEquals(1800, edge.getSecondsAboveThreshold());
+
+        RangeStatistics nothing = aggregator.query("garage", start, start + SketchAggregator.HOUR, null);
+        assertEquals(0, nothing.getCount());
+        assertNull(nothing.getMean());
+        assertNull(nothing.getSecondsAboveThreshold());
+    }
+
+    @Test
+    void silentSensorDoesNotAccumulateTimeAboveThreshold() {
+        SketchAggregator aggregator = new SketchAggregator(Duration.ofDays(2), Duration.ofDays(30), Duration.ofSeconds(60));
+        long start = Math.floorDiv(System.currentTimeMillis(), SketchAggregator.HOUR) * SketchAggregator.HOUR - 3 * SketchAggregator.HOUR;
+        aggregator.add("kitchen", start, 30.0);
+        aggregator.add("kitchen", start + 2 * SketchAggregator.HOUR, 20.0);
+        // Two hours without readings after a hot one.
+
+        RangeStatistics range = aggregator.query("kitchen", start, start + 3 * SketchAggregator.HOUR, 25.0);
+        assertEquals(60, range.getSecondsAboveThreshold());
+        assertTrue(range.getStandardDeviation() > 0);
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.temperaturmeter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TemperatureWriteBehindQueueTest {
+
+    @TempDir
+    Path directory;
+
+    private static class FakeStore implements TemperatureStore {
+        // Keeps the written readings in memory. Appends can be held at a gate or made to fail, like a slow or
+        // unreachable database.
+        final List<TemperatureReading> written = new CopyOnWriteArrayList<>();
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final Semaphore appending = new Semaphore(0);
+        volatile CountDownLatch gate = new CountDownLatch(0);
+        volatile boolean failing;
+        volatile long checkpoint;
+
+        @Override
+        public void append(List<TemperatureReading> readings) {
+            appending.release();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new IllegalStateException("database unreachable");
+            }
+            batchSizes.add(readings.size());
+            written.addAll(readings);
+        }
+
+        @Override
+        public void append(List<TemperatureReading> readings, String spoolId, long lastSequence) {
+            append(readings);
+            checkpoint = lastSequence;
+        }
+
+        @Override
+        public long getSpoolCheckpoint(String spoolId) {
+            return checkpoint;
+        }
+
+        @Override
+        public TemperatureReading findLast(String sensorId) {
+            return null;
+        }
+
+        @Override
+        public List<TemperatureReading> findPageBefore(String sensorId, LocalDateTime startTime,
+                                                       LocalDateTime cursorTime, long cursorId, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public List<TemperatureReading> findBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime) {
+            return List.of();
+        }
+
+        @Override
+        public void forEachBetween(String sensorId, LocalDateTime startTime, LocalDateTime endTime, ReadingCallback callback) {
+        }
+
+        @Override
+        public void forEachSince(LocalDateTime startTime, ReadingCallback callback) {
+        }
+
+        @Override
+        public WindowStatistics getStatisticsSince(String sensorId, LocalDateTime startTime) {
+            return WindowStatistics.EMPTY;
+        }
+    }
+
+    private static class HoldingSpool extends IngestSpool {
+        // Holds the reader that gets holdSequence between spooling its reading and queueing it, like a reader thread
+        // that loses the race for the queue lock.
+        final CountDownLatch hold = new CountDownLatch(1);
+        final long holdSequence;
+
+        HoldingSpool(Path directory, long holdSequence) {
+            super(true, directory, 1024, 1024 * 1024, 10, OverflowPolicy.BLOCK);
+            this.holdSequence = holdSequence;
+        }
+
+        @Override
+        public long append(TemperatureReading reading) throws InterruptedException {
+            long sequence = super.append(reading);
+            if (sequence == holdSequence) {
+                hold.await();
+            }
+            return sequence;
+        }
+    }
+
+    private static TemperatureWriteBehindQueue start(FakeStore store, IngestSpool spool, int capacity, int batchSize,
+                                                     long maxAgeMillis, TemperatureWriteBehindQueue.BackpressurePolicy policy) {
+        TemperatureWriteBehindQueue queue = new TemperatureWriteBehindQueue();
+        ReflectionTestUtils.setField(queue, "capacity", capacity);
+        ReflectionTestUtils.setField(queue, "batchSize", batchSize);
+        ReflectionTestUtils.setField(queue, "maxAgeMillis", maxAgeMillis);
+        ReflectionTestUtils.setField(queue, "backpressurePolicy", policy);
+        ReflectionTestUtils.setField(queue, "shutdownTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(queue, "retryMillis", 20L);
+        ReflectionTestUtils.setField(queue, "temperatureStore", store);
+        ReflectionTestUtils.setField(queue, "spool", spool);
+        ReflectionTestUtils.setField(queue, "meterRegistry", new SimpleMeterRegistry());
+        // What Spring injects from the ingest.write-behind.* and ingest.spool.retry-ms properties.
+        queue.start();
+        return queue;
+    }
+
+    private static TemperatureReading reading(String sensorId, double temperature) {
+        TemperatureReading reading = new TemperatureReading();
+        reading.setSensorId(sensorId);
+        reading.setTimestamp(LocalDateTime.now());
+        reading.setTemperature(temperature);
+        return reading;
+    }
+
+    private static List<Double> temperatures(List<TemperatureReading> readings) {
+        List<Double> temperatures = new ArrayList<>();
+        for (TemperatureReading reading : readings) {
+            temperatures.add(reading.getTemperature());
+        }
+        return temperatures;
+    }
+
+    private static List<Long> sequences(List<TemperatureReading> readings) {
+        List<Long> sequences = new ArrayList<>();
+        for (TemperatureReading reading : readings) {
+            sequences.add(reading.getIngestSequence());
+        }
+        return sequences;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 seconds");
+            Thread.sleep(5);
+        }
+    }
+
+    private static TemperatureWriteBehindQueue startWithOneBatchInFlight(FakeStore store, IngestSpool spool,
+                                                                         TemperatureWriteBehindQueue.BackpressurePolicy policy) throws Exception {
+        // Room for two readings; the first reading is taken by the flusher and held at the store's gate, so the
+        // queue fills up behind it.
+        store.gate = new CountDownLatch(1);
+        TemperatureWriteBehindQueue queue = start(store, spool, 2, 1, 0, policy);
+        queue.submit(reading("kitchen", 1));
+        assertTrue(store.appending.tryAcquire(5, TimeUnit.SECONDS));
+        return queue;
+    }
+
+    @Test
+    void flushesWhenTheBatchIsFullOrTheOldestReadingIsTooOld() throws Exception {
+        FakeStore store = new FakeStore();
+        TemperatureWriteBehindQueue queue = start(store, null, 100, 10, 300, TemperatureWriteBehindQueue.BackpressurePolicy.BLOCK);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            queue.submit(reading("kitchen", i));
+        }
+        await(() -> store.written.size() == 3);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(List.of(3), store.batchSizes);
+        // Not full: written once the oldest reading had waited max-age-ms.
+
+        for (int i = 0; i < 10; i++) {
+            queue.submit(reading("kitchen", i));
+        }
+        await(() -> store.written.size() == 13);
+        assertEquals(List.of(3, 10), store.batchSizes);
+        assertEquals(13, queue.getWritten());
+        queue.shutdown();
+    }
+
+    @Test
+    void blockMakesTheProducerWaitForRoom() throws Exception {
+        FakeStore store = new FakeStore();
+        TemperatureWriteBehindQueue queue = startWithOneBatchInFlight(store, null, TemperatureWriteBehindQueue.BackpressurePolicy.BLOCK);
+        queue.submit(reading("kitchen", 2));
+        queue.submit(reading("kitchen", 3));
+
+        Thread producer = new Thread(() -> {
+            try {
+                queue.submit(reading("kitchen", 4));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive());
+        assertEquals(2, queue.getQueueDepth());
+
+        store.gate.countDown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        queue.shutdown();
+        assertEquals(List.of(1.0, 2.0, 3.0, 4.0), temperatures(store.written));
+        assertEquals(0, queue.getDropped());
+    }
+
+    @Test
+    void dropOldestDiscardsTheOldestQueuedReading() throws Exception {
+        FakeStore store = new FakeStore();
+        TemperatureWriteBehindQueue queue = startWithOneBatchInFlight(store, null, TemperatureWriteBehindQueue.BackpressurePolicy.DROP_OLDEST);
+        for (int i = 2; i <= 5; i++) {
+            assertTrue(queue.submit(reading("kitchen", i)));
+        }
+        // Never waits: readings 2 and 3 make room for 4 and 5.
+        assertEquals(2, queue.getDropped());
+
+        store.gate.countDown();
+        queue.shutdown();
+        assertEquals(List.of(1.0, 4.0, 5.0), temperatures(store.written));
+        assertEquals(5, queue.getSubmitted());
+    }
+
+    @Test
+    void coalesceReplacesTheNewestQueuedReadingOfTheSensor() throws Exception {
+        FakeStore store = new FakeStore();
+        TemperatureWriteBehindQueue queue = startWithOneBatchInFlight(store, null, TemperatureWriteBehindQueue.BackpressurePolicy.COALESCE);
+        queue.submit(reading("garage", 2));
+        queue.submit(reading("kitchen", 3));
+        queue.submit(reading("kitchen", 4));
+        // Replaces reading 3, the latest value wins.
+        assertEquals(1, queue.getCoalesced());
+        queue.submit(reading("attic", 5));
+        // No attic reading is queued, so the oldest reading (garage) is dropped instead.
+        assertEquals(1, queue.getDropped());
+
+        store.gate.countDown();
+        queue.shutdown();
+        assertEquals(List.of(1.0, 4.0, 5.0), temperatures(store.written));
+    }
+
+    @Test
+    void shutdownDrainsTheQueueAndRejectsNewReadings() throws Exception {
+        FakeStore store = new FakeStore();
+        TemperatureWriteBehindQueue queue = start(store, null, 1000, 100, 60_000, TemperatureWriteBehindQueue.BackpressurePolicy.BLOCK);
+        for (int i = 0; i < 250; i++) {
+            queue.submit(reading("kitchen", i));
+        }
+        queue.shutdown();
+        // Neither full nor a minute old: only shutdown writes the last batch.
+
+        assertEquals(250, store.written.size());
+        assertEquals(List.of(100, 100, 50), store.batchSizes);
+        assertEquals(0, queue.getQueueDepth());
+        assertFalse(queue.submit(reading("kitchen", 0)));
+    }
+
+    @Test
+    void failedBatchesAreRetriedFromTheSpoolInOrder() throws Exception {
+        IngestSpool spool = new IngestSpool(true, directory, 1024, 1024 * 1024, 10, IngestSpool.OverflowPolicy.BLOCK);
+        spool.open();
+        FakeStore store = new FakeStore();
+        store.failing = true;
+        TemperatureWriteBehindQueue queue = start(store, spool, 100, 10, 0, TemperatureWriteBehindQueue.BackpressurePolicy.BLOCK);
+        for (int i = 1; i <= 5; i++) {
+            queue.submit(reading("kitchen", i));
+        }
+        await(() -> queue.getFailed() > 0);
+        // The flusher pauses for ingest.spool.retry-ms after every failed attempt; nothing is lost.
+
+        store.failing = false;
+        await(() -> store.written.size() >= 5);
+        queue.shutdown();
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), sequences(store.written));
+        assertEquals(5, store.checkpoint);
+        assertEquals(0, spool.getBacklog());
+        spool.close();
+    }
+
+    @Test
+    void fullQueueSpillsToTheSpoolInsteadOfBlocking() throws Exception {
+        IngestSpool spool = new IngestSpool(true, directory, 1024, 1024 * 1024, 10, IngestSpool.OverflowPolicy.BLOCK);
+        spool.open();
+        FakeStore store = new FakeStore();
+        TemperatureWriteBehindQueue queue = startWithOneBatchInFlight(store, spool, TemperatureWriteBehindQueue.BackpressurePolicy.BLOCK);
+        for (int i = 2; i <= 10; i++) {
+            assertTrue(queue.submit(reading("kitchen", i)));
+        }
+        assertEquals(7, queue.getSpilled());
+        assertEquals(0, queue.getDropped());
+
+        store.gate.countDown();
+        await(() -> store.written.size() >= 10);
+        queue.shutdown();
+        List<Long> expected = new ArrayList<>();
+        for (long sequence = 1; sequence <= 10; sequence++) {
+            expected.add(sequence);
+        }
+        assertEquals(expected, sequences(store.written));
+        // The spilled readings were replayed from the spool, each one exactly once.
+        spool.close();
+    }
+
+    @Test
+    void readingQueuedOutOfSequenceOrderIsNotSkipped() throws Exception {
+        HoldingSpool spool = new HoldingSpool(directory, 2);
+        spool.open();
+        FakeStore store = new FakeStore();
+        TemperatureWriteBehindQueue queue = start(store, spool, 100, 10, 100, TemperatureWriteBehindQueue.BackpressurePolicy.BLOCK);
+        queue.submit(reading("kitchen", 1));
+        Thread slowReader = new Thread(() -> {
+            try {
+                queue.submit(reading("garage", 2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        slowReader.start();
+        await(() -> spool.getLastSequence() == 2);
+        queue.submit(reading("kitchen", 3));
+        // Sequence 3 is queued while sequence 2 is still on its way: the flusher takes [1, 3].
+
+        await(() -> sequences(store.written).contains(3L));
+        spool.hold.countDown();
+        slowReader.join(5000);
+        queue.shutdown();
+        assertEquals(List.of(1L, 2L, 3L), sequences(store.written));
+        // Reading 2 was written from the spool before 3, and not skipped when it reached the queue late.
+        spool.close();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.temperaturmeter;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Grows a copy of temp_reading to tens of millions of rows and measures the latency of the repository's
+// time-range queries at every size. Excluded from "gradle test"; run it against a scratch MySQL database with
+//     ./gradlew benchmark -Dbenchmark.jdbc.url=jdbc:mysql://localhost:3306/bench?rewriteBatchedStatements=true
+//         -Dbenchmark.jdbc.user=user -Dbenchmark.jdbc.password=password [-Dbenchmark.sizes=1000000,10000000,30000000]
+@Tag("benchmark")
+class TimeRangeQueryBenchmarkTest {
+
+    private static final String TABLE = "temp_reading_benchmark";
+    private static final int SENSORS = 10;
+    private static final int INTERVAL_SECONDS = 10;
+    private static final int REPETITIONS = 50;
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 10, 1, 12, 0);
+    // Rows are added further and further into the past, so the queried recent ranges always hold the same rows
+    // and only the size of the table changes.
+
+    private static final String[] QUERIES = {
+            "SELECT MAX(temperature) FROM " + TABLE + " WHERE sensor_id = ? AND timestamp >= ?",
+            // findMaxTemperatureSince (last 5 minutes)
+            "SELECT COUNT(*), MIN(temperature), MAX(temperature), AVG(temperature) FROM " + TABLE + " WHERE sensor_id = ? AND timestamp >= ?",
+            // findWindowStatisticsSince (last hour)
+            "SELECT id, temperature, timestamp FROM " + TABLE + " WHERE sensor_id = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp DESC",
+            // findMeasurementsBetween (one day)
+    };
+
+    @Test
+    void timeRangeQueryLatencyStaysFlatAsTableGrows() throws SQLException {
+        String url = System.getProperty("benchmark.jdbc.url");
+        assumeTrue(url != null, "benchmark.jdbc.url is not set");
+        long[] sizes = Arrays.stream(System.getProperty("benchmark.sizes", "1000000,10000000,30000000").split(","))
+                .mapToLong(size -> Long.parseLong(size.trim())).toArray();
+
+        try (Connection connection = DriverManager.getConnection(url,
+                System.getProperty("benchmark.jdbc.user"), System.getProperty("benchmark.jdbc.password"))) {
+            createTable(connection);
+            List<double[]> latencies = new ArrayList<>();
+            long rows = 0;
+            for (long size : sizes) {
+                rows = fill(connection, rows, size);
+                double[] millis = new double[QUERIES.length];
+                for (int q = 0; q < QUERIES.length; q++) {
+                    millis[q] = medianMillis(connection, q);
+                }
+                latencies.add(millis);
+                System.out.printf("%,12d rows: max-5m %.2f ms, stats-1h %.2f ms, day %.2f ms%n", size, millis[0], millis[1], millis[2]);
+            }
+
+            double[] smallest = latencies.get(0);
+            double[] largest = latencies.get(latencies.size() - 1);
+            for (int q = 0; q < QUERIES.length; q++) {
+                assertTrue(largest[q] < smallest[q] * 3 + 1,
+                        "Query " + q + " slowed down from " + smallest[q] + " ms to " + largest[q] + " ms");
+                // An index range scan depends on the rows in the range, not on the size of the table.
+            }
+        }
+    }
+
+    private void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "sensor_id VARCHAR(64) NOT NULL, temperature FLOAT NOT NULL, timestamp TIMESTAMP NOT NULL, " +
+                    "INDEX idx_sensor_ts (sensor_id, timestamp), INDEX idx_ts (timestamp))");
+            // Same columns and indexes as temp_reading in SQL_Tempdata.sql.
+        }
+    }
+
+    private long fill(Connection connection, long rows, long target) throws SQLException {
+        // Appends readings of all sensors, every INTERVAL_SECONDS, going back in time from NOW.
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + TABLE + " (sensor_id, temperature, timestamp) VALUES (?, ?, ?)")) {
+            while (rows < target) {
+                long step = rows / SENSORS;
+                insert.setString(1, "sensor-" + (rows % SENSORS));
+                insert.setDouble(2, 20 + Math.sin(step / 360.0) * 5);
+                insert.setTimestamp(3, Timestamp.valueOf(NOW.minusSeconds(step * INTERVAL_SECONDS)));
+                insert.addBatch();
+                rows++;
+                if (rows % 10_000 == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE TABLE " + TABLE);
+        }
+        return rows;
+    }
+
+    private double medianMillis(Connection connection, int query) throws SQLException {
+        long[] nanos = new long[REPETITIONS];
+        try (PreparedStatement statement = connection.prepareStatement(QUERIES[query])) {
+            for (int i = 0; i < REPETITIONS; i++) {
+                statement.setString(1, "sensor-" + (i % SENSORS));
+                switch (query) {
+                    case 0 -> statement.setTimestamp(2, Timestamp.valueOf(NOW.minusMinutes(5)));
+                    case 1 -> statement.setTimestamp(2, Timestamp.valueOf(NOW.minusHours(1)));
+                    default -> {
+                        statement.setTimestamp(2, Timestamp.valueOf(NOW.minusDays(1)));
+                        statement.setTimestamp(3, Timestamp.valueOf(NOW));
+                    }
+                }
+                long start = System.nanoTime();
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        result.getDouble(2);
+                    }
+                }
+                nanos[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        return nanos[REPETITIONS / 2] / 1_000_000.0;
+    }
+}